@@ -0,0 +1,170 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.PeekableIterator;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Streaming k-way merge of the records of several position-sorted gVCFs (typically one per sample) by start position.
+ *
+ * <p>
+ *     Each call to {@link #next()} returns the records to merge at the next site, i.e., the next start position of
+ *     any record in any of the inputs.  Inputs with a record starting at the site contribute that record; every
+ *     other input contributes its latest-starting record that spans the site (a reference block, according to its END,
+ *     or a deletion), if any.  The records starting at the site come first, in input order, followed by the spanning
+ *     records, in input order.
+ * </p>
+ *
+ * <p>
+ *     A single input (e.g., a combined multi-sample gVCF) is returned record by record, so that records starting at
+ *     the same position (e.g., split multi-allelic sites) are separate sites, as they are in the input.  With several
+ *     inputs, each input may only have one record starting at each position, since several records of an input could
+ *     not be merged with those of the other inputs without repeating its samples in a site; otherwise {@link #next()}
+ *     throws a {@link UserException.BadInput}.
+ * </p>
+ *
+ * <p>
+ *     Only the next record of each input and the records of each input that still overlap the current site are
+ *     held in memory, so memory use does not grow with the length of the inputs.
+ * </p>
+ */
+final class GVCFSiteIterator implements Iterator<List<VariantContext>> {
+
+    private final SAMSequenceDictionary dictionary;
+
+    private final List<PeekableIterator<VariantContext>> inputs;
+
+    /* indices of the inputs that have records left, by the position of their next record */
+    private final PriorityQueue<Integer> inputsByNextRecord;
+
+    /* records of each input read so far that may still overlap the current site, in order of start */
+    private final List<List<VariantContext>> overlappingRecords;
+
+    /* whether each input has records starting at the current site */
+    private final boolean[] hasRecordsStartingAtSite;
+
+    /**
+     * Creates a merging iterator.
+     * @param inputs        iterators over the records of each input, sorted by contig (in the order of the dictionary)
+     *                      and start; cannot be {@code null}
+     * @param dictionary    sequence dictionary giving the order of the contigs; cannot be {@code null}
+     */
+    GVCFSiteIterator(final List<? extends Iterator<VariantContext>> inputs, final SAMSequenceDictionary dictionary) {
+        Utils.nonNull(inputs, "The list of inputs cannot be null.");
+        Utils.nonNull(dictionary, "The sequence dictionary cannot be null.");
+        this.dictionary = dictionary;
+        this.inputs = new ArrayList<>(inputs.size());
+        overlappingRecords = new ArrayList<>(inputs.size());
+        hasRecordsStartingAtSite = new boolean[inputs.size()];
+        inputsByNextRecord = new PriorityQueue<>(Math.max(1, inputs.size()),
+                Comparator.comparing((Integer i) -> this.inputs.get(i).peek(), this::compareStarts));
+        for (final Iterator<VariantContext> input : inputs) {
+            this.inputs.add(new PeekableIterator<>(Utils.nonNull(input, "An input cannot be null.")));
+            overlappingRecords.add(new ArrayList<>());
+        }
+        for (int i = 0; i < this.inputs.size(); i++) {
+            if (this.inputs.get(i).hasNext()) {
+                inputsByNextRecord.add(i);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !inputsByNextRecord.isEmpty();
+    }
+
+    @Override
+    public List<VariantContext> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("There are no sites left.");
+        }
+        if (inputs.size() == 1) {
+            final PeekableIterator<VariantContext> input = inputs.get(0);
+            final VariantContext record = input.next();
+            if (!input.hasNext()) {
+                inputsByNextRecord.clear();
+            } else if (compareStarts(input.peek(), record) < 0) {
+                throw unsortedInput(0, input.peek(), record);
+            }
+            final List<VariantContext> result = new ArrayList<>(1);
+            result.add(record);
+            return result;
+        }
+
+        final VariantContext first = inputs.get(inputsByNextRecord.peek()).peek();
+        final String contig = first.getContig();
+        final int start = first.getStart();
+
+        // read the record starting at the site from each input that has one:
+        while (!inputsByNextRecord.isEmpty() && startsAt(inputs.get(inputsByNextRecord.peek()).peek(), contig, start)) {
+            final int i = inputsByNextRecord.poll();
+            final PeekableIterator<VariantContext> input = inputs.get(i);
+            overlappingRecords.get(i).add(input.next());
+            hasRecordsStartingAtSite[i] = true;
+            if (input.hasNext()) {
+                if (startsAt(input.peek(), contig, start)) {
+                    throw new UserException.BadInput(String.format("Input %d has more than one record starting at %s:%d; " +
+                            "when genotyping several gVCFs together, each may have only one record per position " +
+                            "(e.g., multi-allelic sites must not be split).", i + 1, contig, start));
+                }
+                if (compareStarts(input.peek(), first) < 0) {
+                    throw unsortedInput(i, input.peek(), first);
+                }
+                inputsByNextRecord.add(i);
+            }
+        }
+
+        final List<VariantContext> result = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            final List<VariantContext> overlapping = overlappingRecords.get(i);
+            overlapping.removeIf(vc -> !vc.getContig().equals(contig) || vc.getEnd() < start);
+            if (hasRecordsStartingAtSite[i]) {
+                for (final VariantContext vc : overlapping) {
+                    if (vc.getStart() == start) {
+                        result.add(vc);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            final List<VariantContext> overlapping = overlappingRecords.get(i);
+            if (!hasRecordsStartingAtSite[i] && !overlapping.isEmpty()) {
+                result.add(overlapping.get(overlapping.size() - 1));
+            }
+            hasRecordsStartingAtSite[i] = false;
+        }
+        return result;
+    }
+
+    private static UserException unsortedInput(final int input, final VariantContext next, final VariantContext previous) {
+        return new UserException.BadInput(String.format("The records of input %d are not sorted: %s:%d comes after %s:%d.",
+                input + 1, next.getContig(), next.getStart(), previous.getContig(), previous.getStart()));
+    }
+
+    private static boolean startsAt(final VariantContext vc, final String contig, final int start) {
+        return vc.getStart() == start && vc.getContig().equals(contig);
+    }
+
+    private int compareStarts(final VariantContext first, final VariantContext second) {
+        final int contigComparison = Integer.compare(contigIndex(first.getContig()), contigIndex(second.getContig()));
+        return contigComparison != 0 ? contigComparison : Integer.compare(first.getStart(), second.getStart());
+    }
+
+    private int contigIndex(final String contig) {
+        final int index = dictionary.getSequenceIndex(contig);
+        if (index < 0) {
+            throw new UserException.BadInput("Contig " + contig + " of the input is not in the sequence dictionary.");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,395 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.tribble.Feature;
+import htsjdk.tribble.FeatureCodec;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFUtils;
+import org.broadinstitute.hellbender.cmdline.Argument;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Walker over the sites of one or more gVCFs (typically one per sample).
+ * <p>
+ *     For tools that merge gVCF records position by position, like joint genotyping.  The inputs are read in a
+ *     single streaming pass, as described in {@link GVCFSiteIterator}: each site is a position where a record starts
+ *     in any of the inputs, and is processed along with the records of the other inputs spanning it.
+ * </p>
+ * <p>
+ *     With more than one shard thread, the genome (or the intervals) is split into shards of fixed length that are
+ *     processed in parallel, each worker thread with its own processor (see {@link #makeSiteProcessor()}) and its
+ *     own sources of variants, reference and features.  A site belongs to the shard containing its position.
+ *     The outputs are still passed to {@link #writeSiteOutput} on the main thread, in the order of the sites.
+ * </p>
+ * <p>
+ *     With intervals, the streaming pass processes the sites of all the records overlapping them, including those
+ *     starting before an interval.  With {@link #onlySitesStartingInIntervals}, only the sites at positions within the
+ *     intervals are processed, and records starting before an interval are only used as reference blocks or spanning
+ *     deletions of the sites within it; shards are processed this way, so it is required to traverse intervals in
+ *     parallel.
+ * </p>
+ * <p>
+ *     The reference contexts of the sites are served from a buffer sliding along the reference (one per thread),
+ *     whose hit rate is logged at the end of the traversal.  Features (e.g., dbSNP) are queried in increasing order of
+ *     position, which their data sources already serve from their own lookahead caches.
+ * </p>
+ */
+public abstract class GVCFSiteWalker extends GATKTool {
+
+    public static final String SHARD_THREADS_LONG_NAME = "shardThreads";
+    public static final String SHARD_THREADS_SHORT_NAME = SHARD_THREADS_LONG_NAME;
+    public static final String SHARD_SIZE_LONG_NAME = "shardSize";
+    public static final String SHARD_SIZE_SHORT_NAME = SHARD_SIZE_LONG_NAME;
+    public static final String ONLY_SITES_STARTING_IN_INTERVALS_LONG_NAME = "onlySitesStartingInIntervals";
+    public static final String ONLY_SITES_STARTING_IN_INTERVALS_SHORT_NAME = ONLY_SITES_STARTING_IN_INTERVALS_LONG_NAME;
+
+    /* maximum number of shards processed or waiting to be written per thread */
+    private static final int SHARDS_IN_FLIGHT_PER_THREAD = 2;
+
+    @Argument(fullName = StandardArgumentDefinitions.VARIANT_LONG_NAME, shortName = StandardArgumentDefinitions.VARIANT_SHORT_NAME,
+            doc = "One or more gVCF files, sorted in the order of the reference, with distinct samples", optional = false)
+    public List<File> variantFiles;
+
+    @Argument(fullName = SHARD_THREADS_LONG_NAME, shortName = SHARD_THREADS_SHORT_NAME,
+            doc = "Number of threads processing shards of the genome in parallel; with 1 the sites are processed in a single streaming pass." +
+                    " Parallel processing requires indexed inputs.", optional = true)
+    public int shardThreads = 1;
+
+    @Argument(fullName = SHARD_SIZE_LONG_NAME, shortName = SHARD_SIZE_SHORT_NAME,
+            doc = "Length in bases of the shards of the genome processed in parallel", optional = true)
+    public int shardSize = 100_000;
+
+    @Argument(fullName = ONLY_SITES_STARTING_IN_INTERVALS_LONG_NAME, shortName = ONLY_SITES_STARTING_IN_INTERVALS_SHORT_NAME,
+            doc = "Only process the sites starting within the intervals, rather than those of all the records overlapping them." +
+                    " Required to process intervals in parallel.", optional = true)
+    public boolean onlySitesStartingInIntervals = false;
+
+    private List<FeatureDataSource<VariantContext>> variantSources;
+
+    private VCFHeader header;
+
+    /**
+     * The contigs of the sites are ordered according to the reference.
+     */
+    @Override
+    public boolean requiresReference() {
+        return true;
+    }
+
+    @Override
+    void initializeFeatures() {
+        super.initializeFeatures();
+        if (shardThreads < 1) {
+            throw new UserException.BadArgumentValue(SHARD_THREADS_LONG_NAME, shardThreads + " < 1");
+        }
+        if (shardSize < 1) {
+            throw new UserException.BadArgumentValue(SHARD_SIZE_LONG_NAME, shardSize + " < 1");
+        }
+        variantSources = openVariantSources();
+        header = mergeHeaders(variantSources.stream().map(source -> (VCFHeader) source.getHeader()).collect(Collectors.toList()));
+    }
+
+    private List<FeatureDataSource<VariantContext>> openVariantSources() {
+        final List<FeatureDataSource<VariantContext>> result = new ArrayList<>(variantFiles.size());
+        for (final File variantFile : variantFiles) {
+            result.add(openVariantSource(variantFile));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private FeatureDataSource<VariantContext> openVariantSource(final File variantFile) {
+        final FeatureCodec<? extends Feature, ?> codec = FeatureManager.getCodecForFile(variantFile);
+        if (!VariantContext.class.isAssignableFrom(codec.getFeatureType())) {
+            throw new UserException("File " + variantFile + " contains features of the wrong type.");
+        }
+        return new FeatureDataSource<>(variantFile, (FeatureCodec<VariantContext, ?>)codec);
+    }
+
+    @Override
+    protected void onStartup() {
+        super.onStartup();
+        if ( hasIntervals() ) {
+            if (shardThreads > 1 && !onlySitesStartingInIntervals) {
+                throw new UserException.BadArgumentValue(SHARD_THREADS_LONG_NAME, shardThreads + " with intervals requires --"
+                        + ONLY_SITES_STARTING_IN_INTERVALS_LONG_NAME + ", since shards only process the sites starting in them");
+            }
+            variantSources.forEach(source -> source.setIntervalsForTraversal(intervalsForTraversal));
+        }
+    }
+
+    /**
+     * A single header is returned as is; several are merged, keeping their samples in input order.
+     */
+    private static VCFHeader mergeHeaders(final List<VCFHeader> headers) {
+        if (headers.size() == 1) {
+            return headers.get(0);
+        }
+        final Set<String> samples = new LinkedHashSet<>();
+        for (final VCFHeader header : headers) {
+            for (final String sample : header.getGenotypeSamples()) {
+                if (!samples.add(sample)) {
+                    throw new UserException.BadInput("Sample " + sample + " appears in more than one input gVCF.");
+                }
+            }
+        }
+        return new VCFHeader(VCFUtils.smartMergeHeaders(headers, false), samples);
+    }
+
+    /**
+     * Returns the header of the input gVCFs, merged if there are several.
+     *
+     * @return never {@code null}.
+     */
+    public final VCFHeader getHeaderForVariants() {
+        return header;
+    }
+
+    /**
+     * Processor of the records at each site.  Each instance is only used by one thread at a time.
+     */
+    @FunctionalInterface
+    public interface SiteProcessor {
+
+        /**
+         * Process the records at an individual site.
+         *
+         * @param variants Records to merge at the site: those starting at it first (the first of which spans the
+         *                 intervals of the reference and feature contexts), then those of the other inputs spanning it.
+         *                 Never empty.
+         * @param referenceContext Reference bases spanning the first record. Can request extra bases of context around
+         *                         it by invoking {@link ReferenceContext#setWindow} on this object before calling
+         *                         {@link ReferenceContext#getBases}
+         * @param featureContext Features spanning the first record. Will be an empty, but non-null, context object
+         *                       if there is no backing source of Feature data (in which case all queries on it will return an
+         *                       empty List).
+         * @return the output for the site, or {@code null} if there is none
+         */
+        VariantContext apply(final List<VariantContext> variants, final ReferenceContext referenceContext, final FeatureContext featureContext);
+    }
+
+    /**
+     * Creates a processor of sites. Must be implemented by tool authors.
+     * Called once for a streaming traversal, and once per shard thread otherwise, in which case the processors are
+     * used concurrently and must not share mutable state.
+     *
+     * @return never {@code null}.
+     */
+    public abstract SiteProcessor makeSiteProcessor();
+
+    /**
+     * Writes the output for a site. Must be implemented by tool authors.
+     * Always called on the main thread, in the order of the sites.
+     *
+     * @param output the non-{@code null} output of a {@link SiteProcessor}.
+     */
+    public abstract void writeSiteOutput(final VariantContext output);
+
+    /**
+     * Implementation of site-based traversal, either streaming or in parallel shards.
+     */
+    @Override
+    public final void traverse() {
+        if (shardThreads == 1) {
+            final SiteProcessor processor = makeSiteProcessor();
+            final SlidingReferenceDataSource slidingReference = new SlidingReferenceDataSource(reference, SlidingReferenceDataSource.DEFAULT_BUFFER_SIZE);
+            final List<Iterator<VariantContext>> inputs = variantSources.stream().map(FeatureDataSource::iterator).collect(Collectors.toList());
+            final GVCFSiteIterator sites = new GVCFSiteIterator(inputs, getReferenceDictionary());
+            int intervalIndex = 0;
+            while (sites.hasNext()) {
+                final List<VariantContext> variants = Collections.unmodifiableList(sites.next());
+                final SimpleInterval siteInterval = new SimpleInterval(variants.get(0));
+                // as in the shards of a parallel traversal, sites starting outside of the intervals are skipped
+                if ( hasIntervals() && onlySitesStartingInIntervals ) {
+                    intervalIndex = firstIntervalNotBefore(intervalIndex, siteInterval);
+                    if (intervalIndex == intervalsForTraversal.size()
+                            || !intervalsForTraversal.get(intervalIndex).getContig().equals(siteInterval.getContig())
+                            || intervalsForTraversal.get(intervalIndex).getStart() > siteInterval.getStart()) {
+                        continue;
+                    }
+                }
+                final VariantContext output = processor.apply(variants,
+                        new ReferenceContext(slidingReference, siteInterval),
+                        new FeatureContext(features, siteInterval));
+                if (output != null) {
+                    writeSiteOutput(output);
+                }
+                progressMeter.update(siteInterval);
+            }
+            logReferenceCacheStatistics(slidingReference.getHitCount(), slidingReference.getQueryCount());
+        } else {
+            traverseShardsInParallel();
+        }
+    }
+
+    //index of the first interval for traversal, from intervalIndex on, that does not end before the start of a site
+    private int firstIntervalNotBefore(int intervalIndex, final SimpleInterval site) {
+        final int siteContigIndex = getReferenceDictionary().getSequenceIndex(site.getContig());
+        while (intervalIndex < intervalsForTraversal.size()) {
+            final SimpleInterval interval = intervalsForTraversal.get(intervalIndex);
+            final int intervalContigIndex = getReferenceDictionary().getSequenceIndex(interval.getContig());
+            if (intervalContigIndex > siteContigIndex || (intervalContigIndex == siteContigIndex && interval.getEnd() >= site.getStart())) {
+                break;
+            }
+            intervalIndex++;
+        }
+        return intervalIndex;
+    }
+
+    private void traverseShardsInParallel() {
+        final List<SimpleInterval> shards = makeShards();
+        final BlockingQueue<ShardWorker> idleWorkers = new ArrayBlockingQueue<>(shardThreads);
+        final List<ShardWorker> workers = new ArrayList<>(shardThreads);
+        final ExecutorService executor = Executors.newFixedThreadPool(shardThreads);
+        try {
+            for (int i = 0; i < shardThreads; i++) {
+                final ShardWorker worker = new ShardWorker();
+                workers.add(worker);
+                idleWorkers.add(worker);
+            }
+            // shards are submitted in order and their outputs written in order, with a bounded number in flight:
+            final Deque<Future<List<VariantContext>>> pendingShards = new ArrayDeque<>();
+            for (final SimpleInterval shard : shards) {
+                if (pendingShards.size() >= SHARDS_IN_FLIGHT_PER_THREAD * shardThreads) {
+                    writeShardOutputs(pendingShards.removeFirst());
+                }
+                pendingShards.addLast(executor.submit(() -> {
+                    final ShardWorker worker = idleWorkers.take();
+                    try {
+                        return worker.process(shard);
+                    } finally {
+                        idleWorkers.add(worker);
+                    }
+                }));
+            }
+            while (!pendingShards.isEmpty()) {
+                writeShardOutputs(pendingShards.removeFirst());
+            }
+            logReferenceCacheStatistics(workers.stream().mapToLong(worker -> worker.shardReference.getHitCount()).sum(),
+                    workers.stream().mapToLong(worker -> worker.shardReference.getQueryCount()).sum());
+        } finally {
+            executor.shutdownNow();
+            workers.forEach(ShardWorker::close);
+        }
+    }
+
+    private void logReferenceCacheStatistics(final long hitCount, final long queryCount) {
+        logger.info(String.format("Reference cache hit rate: %.2f%% (%d of %d queries)",
+                queryCount == 0 ? 0.0 : 100.0 * hitCount / queryCount, hitCount, queryCount));
+    }
+
+    private void writeShardOutputs(final Future<List<VariantContext>> shardOutputs) {
+        final List<VariantContext> outputs;
+        try {
+            outputs = shardOutputs.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for a shard to be processed.", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Failed to process a shard.", e.getCause());
+        }
+        for (final VariantContext output : outputs) {
+            writeSiteOutput(output);
+            progressMeter.update(output);
+        }
+    }
+
+    /**
+     * Splits the intervals for traversal, or else the contigs of the reference, into shards of at most
+     * {@link #shardSize} bases.
+     */
+    private List<SimpleInterval> makeShards() {
+        final List<SimpleInterval> intervals = hasIntervals() ? intervalsForTraversal
+                : getReferenceDictionary().getSequences().stream()
+                        .map(contig -> new SimpleInterval(contig.getSequenceName(), 1, contig.getSequenceLength()))
+                        .collect(Collectors.toList());
+        final List<SimpleInterval> shards = new ArrayList<>();
+        for (final SimpleInterval interval : intervals) {
+            for (int start = interval.getStart(); start <= interval.getEnd(); start += shardSize) {
+                shards.add(new SimpleInterval(interval.getContig(), start, (int) Math.min((long) start + shardSize - 1, interval.getEnd())));
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Processes shards on one thread at a time, with its own processor and data sources.
+     */
+    private final class ShardWorker implements AutoCloseable {
+        private final SiteProcessor processor = makeSiteProcessor();
+        private final List<FeatureDataSource<VariantContext>> shardVariantSources = openVariantSources();
+        private final SlidingReferenceDataSource shardReference = new SlidingReferenceDataSource(
+                new ReferenceFileSource(new File(referenceArguments.getReferenceFileName())), SlidingReferenceDataSource.DEFAULT_BUFFER_SIZE);
+        private final FeatureManager shardFeatures = features == null ? null : new FeatureManager(GVCFSiteWalker.this);
+
+        /**
+         * Returns the non-{@code null} outputs of the sites starting in a shard, in order.
+         */
+        List<VariantContext> process(final SimpleInterval shard) {
+            final List<Iterator<VariantContext>> inputs = shardVariantSources.stream().map(source -> source.query(shard)).collect(Collectors.toList());
+            final GVCFSiteIterator sites = new GVCFSiteIterator(inputs, getReferenceDictionary());
+            final List<VariantContext> outputs = new ArrayList<>();
+            while (sites.hasNext()) {
+                final List<VariantContext> variants = Collections.unmodifiableList(sites.next());
+                // records spanning the start of the shard are only needed for the sites of the shard
+                if (variants.get(0).getStart() < shard.getStart()) {
+                    continue;
+                }
+                final SimpleInterval siteInterval = new SimpleInterval(variants.get(0));
+                final VariantContext output = processor.apply(variants,
+                        new ReferenceContext(shardReference, siteInterval),
+                        new FeatureContext(shardFeatures, siteInterval));
+                if (output != null) {
+                    outputs.add(output);
+                }
+            }
+            return outputs;
+        }
+
+        @Override
+        public void close() {
+            shardVariantSources.forEach(FeatureDataSource::close);
+            shardReference.close();
+            if (shardFeatures != null) {
+                shardFeatures.close();
+            }
+        }
+    }
+
+    /**
+     * Close the input gVCFs.
+     *
+     * Marked final so that tool authors don't override it. Tool authors should override onTraversalDone() instead.
+     */
+    @Override
+    protected final void onShutdown() {
+        super.onShutdown();
+
+        if ( variantSources != null ) {
+            variantSources.forEach(FeatureDataSource::close);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Reference data source that serves queries from a buffer of bases sliding along the reference.
+ *
+ * <p>
+ *     Meant for traversals whose queries advance monotonically along the reference, like the small windows around
+ *     each site of a gVCF traversal: a query that falls outside the buffer refills it with the bases from its start
+ *     on, so each base is read from the underlying source about once per traversal instead of once per query.
+ *     Hits and misses are counted so that the efficiency of the buffer can be reported.
+ * </p>
+ */
+final class SlidingReferenceDataSource implements ReferenceDataSource {
+
+    /* number of bases read into the buffer on a miss (more if the query is longer) */
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final ReferenceDataSource source;
+    private final int bufferSize;
+
+    private String bufferContig;
+    private int bufferContigIndex;
+    private long bufferStart;
+    private byte[] buffer = new byte[0];
+
+    private long queryCount;
+    private long hitCount;
+
+    /**
+     * @param source        the underlying source of reference bases; cannot be {@code null}
+     * @param bufferSize    number of bases read into the buffer on a miss; must be positive
+     */
+    SlidingReferenceDataSource(final ReferenceDataSource source, final int bufferSize) {
+        this.source = Utils.nonNull(source, "The reference source cannot be null.");
+        Utils.validateArg(bufferSize > 0, "The buffer size must be positive.");
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public ReferenceSequence queryAndPrefetch(final SimpleInterval interval) {
+        return queryAndPrefetch(interval.getContig(), interval.getStart(), interval.getEnd());
+    }
+
+    @Override
+    public ReferenceSequence queryAndPrefetch(final String contig, final long start, final long stop) {
+        queryCount++;
+        if (contig.equals(bufferContig) && start >= bufferStart && stop < bufferStart + buffer.length) {
+            hitCount++;
+        } else {
+            fillBuffer(contig, start, stop);
+        }
+        final int from = (int) (start - bufferStart);
+        return new ReferenceSequence(contig, bufferContigIndex, Arrays.copyOfRange(buffer, from, from + (int) (stop - start + 1)));
+    }
+
+    private void fillBuffer(final String contig, final long start, final long stop) {
+        final SAMSequenceRecord sequence = getSequenceDictionary().getSequence(contig);
+        final long end = sequence == null ? stop : Math.max(stop, Math.min(sequence.getSequenceLength(), start + bufferSize - 1));
+        final ReferenceSequence bases = source.queryAndPrefetch(contig, start, end);
+        bufferContig = contig;
+        bufferContigIndex = bases.getContigIndex();
+        bufferStart = start;
+        buffer = bases.getBases();
+    }
+
+    @Override
+    public Iterator<Byte> query(final SimpleInterval interval) {
+        return source.query(interval);
+    }
+
+    @Override
+    public Iterator<Byte> iterator() {
+        return source.iterator();
+    }
+
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return source.getSequenceDictionary();
+    }
+
+    /**
+     * Number of queries served so far.
+     */
+    long getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * Number of queries served so far from the buffer, without reading the underlying source.
+     */
+    long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Closes the underlying source.
+     */
+    @Override
+    public void close() {
+        source.close();
+    }
+}
@@ -1,8 +1,10 @@
 package org.broadinstitute.hellbender.tools.exome;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.exome.allelefraction.AlleleFractionModeller;
 import org.broadinstitute.hellbender.tools.exome.allelefraction.AllelicPanelOfNormals;
@@ -17,10 +19,16 @@ import org.broadinstitute.hellbender.utils.mcmc.PosteriorSummary;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Represents an ACNV segmented model for copy ratio and allele fraction.
@@ -53,6 +61,9 @@ public final class ACNVModeller {
     private final int numBurnInAlleleFraction;
     private final JavaSparkContext ctx;
 
+    //if false, the copy-ratio and allele-fraction models are fit one after the other on the calling thread
+    private final boolean isConcurrentFit;
+
     public List<ACNVModeledSegment> getACNVModeledSegments() {
         return Collections.unmodifiableList(segments);
     }
@@ -93,6 +104,18 @@ public final class ACNVModeller {
                         final int numSamplesCopyRatio, final int numBurnInCopyRatio,
                         final int numSamplesAlleleFraction, final int numBurnInAlleleFraction,
                         final JavaSparkContext ctx) {
+        this(segmentedGenome, allelicPON, numSamplesCopyRatio, numBurnInCopyRatio, numSamplesAlleleFraction, numBurnInAlleleFraction, ctx, true);
+    }
+
+    /**
+     * As {@link ACNVModeller#ACNVModeller(SegmentedGenome, AllelicPanelOfNormals, int, int, int, int, JavaSparkContext)},
+     * with the copy-ratio and allele-fraction models fit concurrently only if {@code isConcurrentFit} is true.
+     */
+    @VisibleForTesting
+    ACNVModeller(final SegmentedGenome segmentedGenome, final AllelicPanelOfNormals allelicPON,
+                 final int numSamplesCopyRatio, final int numBurnInCopyRatio,
+                 final int numSamplesAlleleFraction, final int numBurnInAlleleFraction,
+                 final JavaSparkContext ctx, final boolean isConcurrentFit) {
         this.segmentedGenome = segmentedGenome;
         this.allelicPON = allelicPON;
         this.numSamplesCopyRatio = numSamplesCopyRatio;
@@ -100,6 +123,7 @@ public final class ACNVModeller {
         this.numSamplesAlleleFraction = numSamplesAlleleFraction;
         this.numBurnInAlleleFraction = numBurnInAlleleFraction;
         this.ctx = ctx;
+        this.isConcurrentFit = isConcurrentFit;
         copyRatioModeller = new CopyRatioModeller(segmentedGenome);
         alleleFractionModeller = new AlleleFractionModeller(segmentedGenome, allelicPON);
         logger.info("Fitting initial model...");
@@ -117,12 +141,30 @@ public final class ACNVModeller {
     public void performSimilarSegmentMergingIteration(final double intervalThresholdSegmentMean,
                                                       final double intervalThresholdMinorAlleleFraction,
                                                       final boolean doModelFit) {
+        performSimilarSegmentMergingIteration(intervalThresholdSegmentMean, intervalThresholdMinorAlleleFraction, doModelFit, false);
+    }
+
+    /**
+     * Performs one iteration of similar-segment merging on the list of {@link ACNVModeledSegment} held internally.
+     * Markov-Chain Monte Carlo model fitting is optionally performed after each iteration, either from scratch
+     * (see {@link ACNVModeller#fitModel()}) or incrementally (see {@link ACNVModeller#fitModelIncrementally()}).
+     * @param intervalThresholdSegmentMean         threshold number of credible intervals for segment-mean similarity
+     * @param intervalThresholdMinorAlleleFraction threshold number of credible intervals for minor-allele-fraction similarity
+     * @param doModelFit                           if true, refit MCMC model after merging
+     * @param isIncrementalFit                     if true (and doModelFit is true), refit MCMC model incrementally
+     */
+    public void performSimilarSegmentMergingIteration(final double intervalThresholdSegmentMean,
+                                                      final double intervalThresholdMinorAlleleFraction,
+                                                      final boolean doModelFit,
+                                                      final boolean isIncrementalFit) {
         logger.info("Number of segments before similar-segment merging iteration: " + segments.size());
         final List<ACNVModeledSegment> mergedSegments =
                 SegmentMergeUtils.mergeSimilarSegments(segments, intervalThresholdSegmentMean, intervalThresholdMinorAlleleFraction);
         logger.info("Number of segments after similar-segment merging iteration: " + mergedSegments.size());
         segmentedGenome = new SegmentedGenome(toUnmodeledSegments(mergedSegments), segmentedGenome.getGenome());
-        if (doModelFit) {
+        if (doModelFit && isIncrementalFit) {
+            fitModelIncrementally();
+        } else if (doModelFit) {
             fitModel();
         } else {
             //deciles will be set to NaN
@@ -137,30 +179,119 @@ public final class ACNVModeller {
     /**
      * Performs Markov-Chain Monte Carlo model fitting using the
      * number of total samples and number of burn-in samples pecified at construction.
+     * The copy-ratio and allele-fraction models are fit concurrently.
      */
     public void fitModel() {
-        //perform MCMC to generate posterior samples
-        logger.info("Fitting copy-ratio model...");
-        copyRatioModeller = new CopyRatioModeller(segmentedGenome);
-        copyRatioModeller.fitMCMC(numSamplesCopyRatio, numBurnInCopyRatio);
-        logger.info("Fitting allele-fraction model...");
-        alleleFractionModeller = new AlleleFractionModeller(segmentedGenome, allelicPON);
-        alleleFractionModeller.fitMCMC(numSamplesAlleleFraction, numBurnInAlleleFraction);
+        //perform MCMC to generate posterior samples and update list of ACNVModeledSegment with new PosteriorSummaries
+        fitModelsConcurrently(
+                () -> {
+                    logger.info("Fitting copy-ratio model...");
+                    final CopyRatioModeller modeller = new CopyRatioModeller(segmentedGenome);
+                    modeller.fitMCMC(numSamplesCopyRatio, numBurnInCopyRatio);
+                    return modeller;
+                },
+                () -> {
+                    logger.info("Fitting allele-fraction model...");
+                    final AlleleFractionModeller modeller = new AlleleFractionModeller(segmentedGenome, allelicPON);
+                    modeller.fitMCMC(numSamplesAlleleFraction, numBurnInAlleleFraction);
+                    return modeller;
+                },
+                Collections.emptyMap());
+    }
 
-        //update list of ACNVModeledSegment with new PosteriorSummaries
-        segments.clear();
+    /**
+     * Performs Markov-Chain Monte Carlo model fitting after similar-segment merging, warm-started from the
+     * previous fit.  Only the segment means and minor-allele fractions of the segments created by merging are sampled,
+     * along with the global parameters, and the burn-in is shortened to a quarter of that specified at construction
+     * (the number of samples kept is unchanged); the local parameters of the other segments are held fixed at their
+     * last samples and their posterior summaries are carried over.  This is an approximation to
+     * {@link ACNVModeller#fitModel()}, which should still be called once merging is complete.
+     * If the model is not completely fit, {@link ACNVModeller#fitModel()} is called instead.
+     */
+    public void fitModelIncrementally() {
+        if (!isModelFit) {
+            fitModel();
+            return;
+        }
+        final Map<SimpleInterval, ACNVModeledSegment> previousSegments = segments.stream()
+                .collect(Collectors.toMap(ACNVModeledSegment::getInterval, Function.identity()));
+        final CopyRatioModeller previousCopyRatioModeller = copyRatioModeller;
+        final AlleleFractionModeller previousAlleleFractionModeller = alleleFractionModeller;
+        //update list of ACNVModeledSegment, computing PosteriorSummaries only for new segments
+        fitModelsConcurrently(
+                () -> {
+                    logger.info("Fitting copy-ratio model incrementally...");
+                    final CopyRatioModeller modeller = new CopyRatioModeller(segmentedGenome, previousCopyRatioModeller);
+                    modeller.fitMCMC(numKeptSamplesWithShortenedBurnIn(numSamplesCopyRatio, numBurnInCopyRatio), numBurnInCopyRatio / 4);
+                    return modeller;
+                },
+                () -> {
+                    logger.info("Fitting allele-fraction model incrementally...");
+                    final AlleleFractionModeller modeller = new AlleleFractionModeller(segmentedGenome, allelicPON, previousAlleleFractionModeller);
+                    modeller.fitMCMC(numKeptSamplesWithShortenedBurnIn(numSamplesAlleleFraction, numBurnInAlleleFraction), numBurnInAlleleFraction / 4);
+                    return modeller;
+                },
+                previousSegments);
+    }
+
+    //total number of samples that keeps numSamples - numBurnIn samples with a burn-in of numBurnIn / 4
+    private static int numKeptSamplesWithShortenedBurnIn(final int numSamples, final int numBurnIn) {
+        return numSamples - numBurnIn + numBurnIn / 4;
+    }
+
+    //fits the copy-ratio model (and computes its PosteriorSummaries) on another thread while the allele-fraction model
+    //is fit on this one, which is safe as the models only share the (immutable) SegmentedGenome (unless isConcurrentFit
+    //is false, in which case both are fit on this thread);
+    //then rebuilds the list of ACNVModeledSegment, reusing those of segments in previousSegments
+    private void fitModelsConcurrently(final Supplier<CopyRatioModeller> copyRatioFitter,
+                                       final Supplier<AlleleFractionModeller> alleleFractionFitter,
+                                       final Map<SimpleInterval, ACNVModeledSegment> previousSegments) {
         final List<SimpleInterval> unmodeledSegments = segmentedGenome.getSegments();
-        final List<PosteriorSummary> segmentMeansPosteriorSummaries =
-                copyRatioModeller.getSegmentMeansPosteriorSummaries(CREDIBLE_INTERVAL_ALPHA, ctx);
-        final List<PosteriorSummary> minorAlleleFractionsPosteriorSummaries =
-                alleleFractionModeller.getMinorAlleleFractionsPosteriorSummaries(CREDIBLE_INTERVAL_ALPHA, ctx);
-        for (int segment = 0; segment < unmodeledSegments.size(); segment++) {
-            segments.add(new ACNVModeledSegment(unmodeledSegments.get(segment),
-                    segmentMeansPosteriorSummaries.get(segment), minorAlleleFractionsPosteriorSummaries.get(segment)));
+        final int[] newSegments = IntStream.range(0, unmodeledSegments.size())
+                .filter(segment -> !previousSegments.containsKey(unmodeledSegments.get(segment)))
+                .toArray();
+        final CompletableFuture<CopyRatioModeller> copyRatioFit = isConcurrentFit
+                ? CompletableFuture.supplyAsync(copyRatioFitter)
+                : CompletableFuture.completedFuture(copyRatioFitter.get());
+        final CompletableFuture<List<PosteriorSummary>> segmentMeansPosteriorSummariesFuture = copyRatioFit.thenApply(modeller ->
+                Arrays.stream(newSegments)
+                        .mapToObj(segment -> modeller.getSegmentMeanPosteriorSummary(segment, CREDIBLE_INTERVAL_ALPHA, ctx))
+                        .collect(Collectors.toList()));
+        final AlleleFractionModeller alleleFractionFit = alleleFractionFitter.get();
+        final List<PosteriorSummary> minorAlleleFractionsPosteriorSummaries = Arrays.stream(newSegments)
+                .mapToObj(segment -> alleleFractionFit.getMinorAlleleFractionPosteriorSummary(segment, CREDIBLE_INTERVAL_ALPHA, ctx))
+                .collect(Collectors.toList());
+        final List<PosteriorSummary> segmentMeansPosteriorSummaries = join(segmentMeansPosteriorSummariesFuture);
+        copyRatioModeller = join(copyRatioFit);
+        alleleFractionModeller = alleleFractionFit;
+
+        segments.clear();
+        int newSegmentIndex = 0;
+        for (final SimpleInterval interval : unmodeledSegments) {
+            final ACNVModeledSegment previousSegment = previousSegments.get(interval);
+            if (previousSegment != null) {
+                segments.add(previousSegment);
+            } else {
+                segments.add(new ACNVModeledSegment(interval,
+                        segmentMeansPosteriorSummaries.get(newSegmentIndex), minorAlleleFractionsPosteriorSummaries.get(newSegmentIndex)));
+                newSegmentIndex++;
+            }
         }
         isModelFit = true;
     }
 
+    //waits for a model fit on another thread, rethrowing any exception thrown by it
+    private static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Model fitting failed.", e.getCause());
+        }
+    }
+
     /**
      * Return the state of the model fit, which we trust is accurately recorded by {@link ACNVModeller#isModelFit}.
      * This should be true if the model is completely fit (i.e., the deciles are specified);
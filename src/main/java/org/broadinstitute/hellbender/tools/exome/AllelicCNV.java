@@ -87,6 +87,9 @@ public class AllelicCNV extends SparkCommandLineProgram {
     protected static final String NUM_SIMILAR_SEGMENT_MERGING_ITERATIONS_PER_FIT_LONG_NAME = "numIterationsSimSegPerFit";
     protected static final String NUM_SIMILAR_SEGMENT_MERGING_ITERATIONS_PER_FIT_SHORT_NAME = "numIterSimPerFit";
 
+    protected static final String INCREMENTAL_SIMILAR_SEGMENT_MERGING_FIT_LONG_NAME = "incrementalSimSegFit";
+    protected static final String INCREMENTAL_SIMILAR_SEGMENT_MERGING_FIT_SHORT_NAME = "incSimFit";
+
     @Argument(
             doc = "Input file for tumor-sample ref/alt read counts at normal-sample heterozygous-SNP sites (output of GetHetCoverage tool).",
             fullName = ExomeStandardArgumentDefinitions.TUMOR_ALLELIC_COUNTS_FILE_LONG_NAME,
@@ -222,6 +225,16 @@ public class AllelicCNV extends SparkCommandLineProgram {
     )
     protected int numSimilarSegmentMergingIterationsPerFit = 1;
 
+    @Argument(
+            doc = "If true, MCMC model refits between similar-segment--merging iterations are warm-started from the previous fit " +
+                    "and only sample the parameters of merged segments, with a shortened burn-in. " +
+                    "(This will decrease runtime; a complete model fit is still performed after the final iteration.)",
+            fullName = INCREMENTAL_SIMILAR_SEGMENT_MERGING_FIT_LONG_NAME,
+            shortName = INCREMENTAL_SIMILAR_SEGMENT_MERGING_FIT_SHORT_NAME,
+            optional = true
+    )
+    protected boolean useIncrementalSimilarSegmentMergingFit = false;
+
     @Override
     protected void runPipeline(final JavaSparkContext ctx) {
         validateArguments();
@@ -386,7 +399,8 @@ public class AllelicCNV extends SparkCommandLineProgram {
             final int prevNumSegments = modeller.getACNVModeledSegments().size();
             if (numSimilarSegmentMergingIterationsPerFit > 0 && numIterations % numSimilarSegmentMergingIterationsPerFit == 0) {
                 //refit model after this merge iteration
-                modeller.performSimilarSegmentMergingIteration(intervalThresholdCopyRatio, intervalThresholdAlleleFraction, true);
+                modeller.performSimilarSegmentMergingIteration(intervalThresholdCopyRatio, intervalThresholdAlleleFraction, true,
+                        useIncrementalSimilarSegmentMergingFit);
             } else {
                 //do not refit model after this merge iteration (deciles will be unspecified)
                 modeller.performSimilarSegmentMergingIteration(intervalThresholdCopyRatio, intervalThresholdAlleleFraction, false);
@@ -395,8 +409,8 @@ public class AllelicCNV extends SparkCommandLineProgram {
                 break;
             }
         }
-        if (!modeller.isModelFit()) {
-            //make sure final model is completely fit (i.e., deciles are specified)
+        if (!modeller.isModelFit() || useIncrementalSimilarSegmentMergingFit) {
+            //make sure final model is completely fit (i.e., deciles are specified and all parameters are sampled)
             modeller.fitModel();
         }
         logger.info("Final number of segments after similar-segment merging: " + modeller.getACNVModeledSegments().size());
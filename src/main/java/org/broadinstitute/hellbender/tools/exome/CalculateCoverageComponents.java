@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.exome;
 
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.cmdline.Argument;
 import org.broadinstitute.hellbender.cmdline.ArgumentCollection;
@@ -12,6 +13,7 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.SparkToggleCommandLineProgram;
 import org.broadinstitute.hellbender.utils.hdf5.HDF5File;
 import org.broadinstitute.hellbender.utils.pca.PCA;
+import org.broadinstitute.hellbender.utils.svd.SVD;
 import org.broadinstitute.hellbender.utils.svd.SVDFactory;
 import org.broadinstitute.hellbender.utils.tsv.DataLine;
 import org.broadinstitute.hellbender.utils.tsv.TableColumnCollection;
@@ -50,6 +52,10 @@ public class CalculateCoverageComponents extends SparkToggleCommandLineProgram {
 
     public static final String SAMPLES_FILE_SHORT_NAME = "samples";
 
+    public static final String NUMBER_OF_COMPONENTS_FULL_NAME = "numberOfComponents";
+
+    public static final String NUMBER_OF_COMPONENTS_SHORT_NAME = "numComp";
+
     @ArgumentCollection
     protected TargetArgumentCollection targets =
             new TargetArgumentCollection(() -> this.inputFile);
@@ -70,6 +76,15 @@ public class CalculateCoverageComponents extends SparkToggleCommandLineProgram {
     )
     protected File sampleListFile;
 
+    @Argument(
+            doc = "Number of principal components to calculate; by default all are calculated. " +
+                    "When specified, only the top components are computed, which is much faster for large inputs",
+            fullName = NUMBER_OF_COMPONENTS_FULL_NAME,
+            shortName = NUMBER_OF_COMPONENTS_SHORT_NAME,
+            optional = true
+    )
+    protected Integer numberOfComponents = null;
+
     @Argument(
             doc = "Input coverage file",
             fullName = StandardArgumentDefinitions.INPUT_LONG_NAME,
@@ -91,7 +106,7 @@ public class CalculateCoverageComponents extends SparkToggleCommandLineProgram {
         //final PCA pca = PCA.createPCA(targetNames, sampleNames, new Array2DRowRealMatrix(counts),
         //        ctx == null ? SVDFactory::createSVD : (dm) -> SVDFactory.createSVD(dm, ctx));
         final PCA pca = PCA.createPCA(targetNames, sampleNames, new Array2DRowRealMatrix(counts),
-                SVDFactory::createSVD);
+                numberOfComponents == null ? SVDFactory::createSVD : this::createTruncatedSVD);
         try (final HDF5File output = new HDF5File(outputFile, HDF5File.OpenMode.CREATE)) {
             PCA.writeHDF5(pca, output);
         } catch (final GATKException ex) {
@@ -99,6 +114,16 @@ public class CalculateCoverageComponents extends SparkToggleCommandLineProgram {
         }
     }
 
+    private SVD createTruncatedSVD(final RealMatrix centeredCounts) {
+        final int maximumNumberOfComponents = Math.min(centeredCounts.getRowDimension(), centeredCounts.getColumnDimension());
+        if (numberOfComponents < 1) {
+            throw new UserException.BadArgumentValue(NUMBER_OF_COMPONENTS_FULL_NAME, numberOfComponents + " < 1");
+        } else if (numberOfComponents > maximumNumberOfComponents) {
+            logger.warn(String.format("The number of requested components (%d) is larger than the number of available components (%d), thus we will have to use the latter.", numberOfComponents, maximumNumberOfComponents));
+        }
+        return SVDFactory.createTruncatedSVD(centeredCounts, Math.min(numberOfComponents, maximumNumberOfComponents));
+    }
+
     private ReadCountCollection composeAnalysisReadCounts() {
         final ReadCountCollection inputReadCounts;
         try {
@@ -65,7 +65,8 @@ public final class CalculateCoverageZScores extends CommandLineProgram {
     private ReadCountCollection calculateZScores(final ReadCountCollection inputCounts) {
         final ReadCountCollection zScoreCounts;
         try {
-            zScoreCounts = inputCounts.zScoreCounts();
+            // the input counts are not needed afterwards, so they are converted in place
+            zScoreCounts = inputCounts.zScoreCounts(true);
         } catch (final IllegalArgumentException e) {
             throw new UserException.BadInput("Weighting by target size requested but input read zScoreCounts lack target intervals.");
         }
@@ -7,13 +7,13 @@ import org.broadinstitute.hellbender.cmdline.Argument;
 import org.broadinstitute.hellbender.cmdline.CommandLineProgramProperties;
 import org.broadinstitute.hellbender.cmdline.ExomeStandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.programgroups.CopyNumberProgramGroup;
-import org.broadinstitute.hellbender.engine.spark.SparkCommandLineProgram;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.exome.acnvconversion.ACNVModeledSegmentConversionUtils;
 import org.broadinstitute.hellbender.tools.exome.acsconversion.ACSModeledSegmentUtils;
 import org.broadinstitute.hellbender.tools.exome.cnlohcaller.CNLOHCall;
 import org.broadinstitute.hellbender.tools.exome.cnlohcaller.CNLOHCaller;
 import org.broadinstitute.hellbender.tools.exome.titanconversion.TitanFileConverter;
+import org.broadinstitute.hellbender.utils.SparkToggleCommandLineProgram;
 
 import java.io.File;
 import java.io.IOException;
@@ -25,16 +25,16 @@ import java.util.List;
  *  - GATK CNV (total copy ratio)
  *  - Broad CGA Allelic CapSeg
  *  - TITAN
- * REQUIRES Apache Spark
+ * Runs on Apache Spark, unless Spark is disabled, in which case the calls are made with local threads.
  *
  */
 @CommandLineProgramProperties(
 
-        summary = "For detailed explanation, please see the docs.  NOTE: This tool only works with diploid organisms.  This tool also converts files into TITAN and Broad CGA Allelic CapSeg formats.  Requires Spark.",
+        summary = "For detailed explanation, please see the docs.  NOTE: This tool only works with diploid organisms.  This tool also converts files into TITAN and Broad CGA Allelic CapSeg formats.  Spark is optional.",
         oneLineSummary = "Call whether segments are CNLoH (i.e. allele1 copies=2, allele2 copies=0) and/or balanced (i.e. MAF=0.5)",
         programGroup = CopyNumberProgramGroup.class
 )
-public class CallCNLoHAndSplits extends SparkCommandLineProgram {
+public class CallCNLoHAndSplits extends SparkToggleCommandLineProgram {
 
     static final long serialVersionUID = 42123132L;
 
@@ -21,6 +21,10 @@ public final class Genome {
     private final TargetCollection<AllelicCount> snps;
     private final String sampleName;
 
+    //indices for overlap queries, built once, with target coverages and SNP total read counts as values
+    private final LocatableIndex targetIndex;
+    private final LocatableIndex snpIndex;
+
     /**
      * Constructs a genome from lists containing linear target-coverage and SNP-allele-count data.
      * @param targets       list of linear target coverages, cannot be {@code null}
@@ -32,6 +36,8 @@ public final class Genome {
         this.targets = new HashedListTargetCollection<>(targets.records().stream().map(ReadCountRecord::asSingleSampleRecord).collect(Collectors.toList()));
         this.snps = new HashedListTargetCollection<>(snps);
         sampleName = ReadCountCollectionUtils.getSampleNameFromReadCounts(targets);
+        targetIndex = buildTargetIndex(this.targets);
+        snpIndex = buildSNPIndex(this.snps);
     }
 
     /**
@@ -48,6 +54,16 @@ public final class Genome {
         } catch (final IOException e) {
             throw new UserException.BadInput("Could not read normalized coverage file");
         }
+        targetIndex = buildTargetIndex(targets);
+        snpIndex = buildSNPIndex(snps);
+    }
+
+    private static LocatableIndex buildTargetIndex(final TargetCollection<ReadCountRecord.SingleSampleRecord> targets) {
+        return new LocatableIndex(targets.targets(), ReadCountRecord.SingleSampleRecord::getCount);
+    }
+
+    private static LocatableIndex buildSNPIndex(final TargetCollection<AllelicCount> snps) {
+        return new LocatableIndex(snps.targets(), snp -> snp.getAltReadCount() + snp.getRefReadCount());
     }
 
     public final TargetCollection<ReadCountRecord.SingleSampleRecord> getTargets() {  return targets; }
@@ -55,4 +71,16 @@ public final class Genome {
     public final TargetCollection<AllelicCount> getSNPs() {  return snps; }
 
     public final String getSampleName() {   return sampleName;  }
+
+    /**
+     * Returns an index of the targets (in the order of {@link TargetCollection#targets()} for {@link Genome#getTargets()}),
+     * with their coverages as values, for overlap queries that do not allocate.
+     */
+    public final LocatableIndex getTargetIndex() {  return targetIndex; }
+
+    /**
+     * Returns an index of the SNPs (in the order of {@link TargetCollection#targets()} for {@link Genome#getSNPs()}),
+     * with their total read counts as values, for overlap queries that do not allocate.
+     */
+    public final LocatableIndex getSNPIndex() { return snpIndex; }
 }
@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.tools.exome;
 
 import htsjdk.samtools.ValidationStringency;
 import htsjdk.samtools.util.IntervalList;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.cmdline.*;
@@ -250,31 +251,24 @@ public final class GetBayesianHetCoverage extends CommandLineProgram {
      * The matched norrmal-tumor workflow
      */
     private void runMatchedNormalTumor() {
-        final BayesianHetPulldownCalculator normalHetPulldownCalculator, tumorHetPulldownCalculator;
-        final Pulldown normalHetPulldown, tumorHetPulldown;
+        final BayesianHetPulldownCalculator hetPulldownCalculator;
+        final Pair<Pulldown, Pulldown> hetPulldowns;
 
-        normalHetPulldownCalculator = new BayesianHetPulldownCalculator(REFERENCE_ARGUMENTS.getReferenceFile(),
+        hetPulldownCalculator = new BayesianHetPulldownCalculator(REFERENCE_ARGUMENTS.getReferenceFile(),
                 IntervalList.fromFile(snpFile), minimumMappingQuality, minimumBaseQuality, readDepthThreshold,
                 VALIDATION_STRINGENCY, errorProbabilityAdjustmentFactor,
                 new BalancedHeterozygousPileupPriorModel());
 
-        logger.info("Calculating the Het pulldown from the normal BAM file using the BALANCED prior...");
-        normalHetPulldown = normalHetPulldownCalculator.getHetPulldown(normalBamFile, hetCallingStringency);
+        logger.info("Calculating the Het pulldown from the normal BAM file using the BALANCED prior and from the " +
+                "tumor BAM file on Hets detected in the normal BAM file...");
+        hetPulldowns = hetPulldownCalculator.getNormalAndTumorHetPulldowns(normalBamFile, tumorBamFile,
+                hetCallingStringency);
 
         logger.info("Writing Het pulldown from normal reads to " + normalHetOutputFile.toString());
-        normalHetPulldown.write(normalHetOutputFile, AllelicCountTableColumn.AllelicCountTableVerbosity.FULL);
-
-        tumorHetPulldownCalculator = new BayesianHetPulldownCalculator(REFERENCE_ARGUMENTS.getReferenceFile(),
-                normalHetPulldown.getIntervals(), minimumMappingQuality, minimumBaseQuality, readDepthThreshold,
-                VALIDATION_STRINGENCY, errorProbabilityAdjustmentFactor,
-                new BalancedHeterozygousPileupPriorModel());
-
-        logger.info("Calculating the Het pulldown from the tumor BAM file on Hets detected in the normal BAM file...");
-        tumorHetPulldown = tumorHetPulldownCalculator.getTumorHetPulldownFromNormalPulldown(tumorBamFile,
-                normalHetPulldown);
+        hetPulldowns.getLeft().write(normalHetOutputFile, AllelicCountTableColumn.AllelicCountTableVerbosity.FULL);
 
         logger.info("Writing Het pulldown from tumor reads to " + tumorHetOutputFile.toString());
-        tumorHetPulldown.write(tumorHetOutputFile, AllelicCountTableColumn.AllelicCountTableVerbosity.INTERMEDIATE);
+        hetPulldowns.getRight().write(tumorHetOutputFile, AllelicCountTableColumn.AllelicCountTableVerbosity.INTERMEDIATE);
     }
 
     @Override
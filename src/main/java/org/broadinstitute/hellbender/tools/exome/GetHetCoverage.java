@@ -1,7 +1,7 @@
 package org.broadinstitute.hellbender.tools.exome;
 
 import htsjdk.samtools.ValidationStringency;
-import htsjdk.samtools.util.IntervalList;
+import org.apache.commons.lang3.tuple.Pair;
 import org.broadinstitute.hellbender.cmdline.*;
 import org.broadinstitute.hellbender.cmdline.argumentcollections.ReferenceInputArgumentCollection;
 import org.broadinstitute.hellbender.cmdline.argumentcollections.RequiredReferenceInputArgumentCollection;
@@ -137,18 +137,19 @@ public final class GetHetCoverage extends CommandLineProgram {
         final HetPulldownCalculator hetPulldown = new HetPulldownCalculator(REFERENCE_ARGUMENTS.getReferenceFile(),
                 snpFile, minimumMappingQuality, minimumBaseQuality, VALIDATION_STRINGENCY);
 
-        logger.info("Getting normal het pulldown...");
-        final Pulldown normalHetPulldown = hetPulldown.getNormal(normalBAMFile, pvalThreshold, minimumRawReads);
-        normalHetPulldown.write(normalHetOutputFile, AllelicCountTableVerbosity.BASIC);
-        logger.info("Normal het pulldown written to " + normalHetOutputFile.toString());
-
         if (doTumorPulldown) {
-            final IntervalList normalHetIntervals = normalHetPulldown.getIntervals();
-
-            logger.info("Getting tumor het pulldown...");
-            final Pulldown tumorHetPulldown = hetPulldown.getTumor(tumorBAMFile, normalHetIntervals, minimumRawReads);
-            tumorHetPulldown.write(tumorHetOutputFile, AllelicCountTableVerbosity.BASIC);
+            logger.info("Getting normal and tumor het pulldowns...");
+            final Pair<Pulldown, Pulldown> hetPulldowns =
+                    hetPulldown.getNormalAndTumor(normalBAMFile, tumorBAMFile, pvalThreshold, minimumRawReads);
+            hetPulldowns.getLeft().write(normalHetOutputFile, AllelicCountTableVerbosity.BASIC);
+            logger.info("Normal het pulldown written to " + normalHetOutputFile.toString());
+            hetPulldowns.getRight().write(tumorHetOutputFile, AllelicCountTableVerbosity.BASIC);
             logger.info("Tumor het pulldown written to " + tumorHetOutputFile.toString());
+        } else {
+            logger.info("Getting normal het pulldown...");
+            final Pulldown normalHetPulldown = hetPulldown.getNormal(normalBAMFile, pvalThreshold, minimumRawReads);
+            normalHetPulldown.write(normalHetOutputFile, AllelicCountTableVerbosity.BASIC);
+            logger.info("Normal het pulldown written to " + normalHetOutputFile.toString());
         }
 
         return "SUCCESS";
@@ -0,0 +1,150 @@
+package org.broadinstitute.hellbender.tools.exome;
+
+import htsjdk.samtools.util.Locatable;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Immutable index of a list of locatables (e.g., targets or SNP sites) sorted by contig and position, each with an
+ * associated value (e.g., coverage or read count), for answering overlap queries with genomic intervals.
+ *
+ * <p>
+ *     The starts, ends and values of the locatables are held in primitive arrays with the range of indices of each
+ *     contig, so that the number and index range of the locatables overlapping an interval are found by binary search
+ *     in O(log n) time without allocation.
+ * </p>
+ */
+public final class LocatableIndex {
+    private final int[] starts;
+    private final int[] ends;
+    private final double[] values;
+
+    /* range of indices [from, to) of the locatables on each contig */
+    private final Map<String, int[]> contigRanges = new HashMap<>();
+
+    /**
+     * Constructs an index of a list of locatables.
+     * @param locatables    locatables, cannot be {@code null};
+     *                      the locatables on each contig must be contiguous in the list
+     *                      and their starts and ends must be non-decreasing
+     * @param value         function giving the value of each locatable, cannot be {@code null}
+     * @param <T>           type of the locatables
+     */
+    public <T extends Locatable> LocatableIndex(final List<T> locatables, final ToDoubleFunction<? super T> value) {
+        Utils.nonNull(locatables, "The list of locatables cannot be null.");
+        Utils.nonNull(value, "The value function cannot be null.");
+        final int size = locatables.size();
+        starts = new int[size];
+        ends = new int[size];
+        values = new double[size];
+        String contig = null;
+        int contigFrom = 0;
+        for (int index = 0; index < size; index++) {
+            final T locatable = locatables.get(index);
+            starts[index] = locatable.getStart();
+            ends[index] = locatable.getEnd();
+            values[index] = value.applyAsDouble(locatable);
+            if (!locatable.getContig().equals(contig)) {
+                if (contig != null) {
+                    contigRanges.put(contig, new int[] {contigFrom, index});
+                }
+                contig = locatable.getContig();
+                contigFrom = index;
+                Utils.validateArg(!contigRanges.containsKey(contig),
+                        "The locatables on contig " + contig + " are not contiguous in the list.");
+            } else {
+                Utils.validateArg(starts[index] >= starts[index - 1] && ends[index] >= ends[index - 1],
+                        "The locatables on contig " + contig + " are not sorted.");
+            }
+        }
+        if (contig != null) {
+            contigRanges.put(contig, new int[] {contigFrom, size});
+        }
+    }
+
+    /**
+     * Returns the number of locatables in the index.
+     */
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * Returns the value of the locatable at an index in the list.
+     * @param index index of the locatable in the list
+     */
+    public double value(final int index) {
+        Utils.validIndex(index, values.length);
+        return values[index];
+    }
+
+    /**
+     * Returns the index in the list of the first locatable overlapping an interval (or, if there is none, an index
+     * equal to {@link LocatableIndex#toIndex(Locatable)}).
+     * @param interval  interval, cannot be {@code null}
+     */
+    public int fromIndex(final Locatable interval) {
+        Utils.nonNull(interval, "The interval cannot be null.");
+        final int[] range = contigRanges.get(interval.getContig());
+        if (range == null) {
+            return 0;
+        }
+        return Math.min(firstIndexWithEndAtOrAfter(range[0], range[1], interval.getStart()), toIndex(interval));
+    }
+
+    /**
+     * Returns one plus the index in the list of the last locatable overlapping an interval (or, if there is none,
+     * an index equal to {@link LocatableIndex#fromIndex(Locatable)}).
+     * @param interval  interval, cannot be {@code null}
+     */
+    public int toIndex(final Locatable interval) {
+        Utils.nonNull(interval, "The interval cannot be null.");
+        final int[] range = contigRanges.get(interval.getContig());
+        if (range == null) {
+            return 0;
+        }
+        return firstIndexWithStartAfter(range[0], range[1], interval.getEnd());
+    }
+
+    /**
+     * Returns the number of locatables overlapping an interval.
+     * @param interval  interval, cannot be {@code null}
+     */
+    public int count(final Locatable interval) {
+        return toIndex(interval) - fromIndex(interval);
+    }
+
+    //ends are non-decreasing within a contig, so we can binary search for the first index in [from, to) with end >= position
+    private int firstIndexWithEndAtOrAfter(final int from, final int to, final int position) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (ends[middle] < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    //starts are non-decreasing within a contig, so we can binary search for the first index in [from, to) with start > position
+    private int firstIndexWithStartAfter(final int from, final int to, final int position) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (starts[middle] <= position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
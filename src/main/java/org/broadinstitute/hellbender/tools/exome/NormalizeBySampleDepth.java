@@ -66,7 +66,8 @@ public class NormalizeBySampleDepth extends CommandLineProgram {
 
         final ReadCountCollection normalizedCounts;
         try {
-            normalizedCounts = inputCounts.normalizeByColumnAverages(weightByTargetSize);
+            // the input counts are not needed afterwards, so they are normalized in place
+            normalizedCounts = inputCounts.normalizeByColumnAverages(weightByTargetSize, true);
         } catch (final IllegalArgumentException e) {
             throw new UserException.BadInput("Weighting by target size requested but input read normalizedCounts lack target intervals.");
         }
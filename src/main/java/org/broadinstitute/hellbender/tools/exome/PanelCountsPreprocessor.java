@@ -0,0 +1,312 @@
+package org.broadinstitute.hellbender.tools.exome;
+
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.GATKProtectedMathUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.hdf5.HDF5PoNCreator;
+import org.broadinstitute.hellbender.utils.linalg.ColumnMajorMatrix;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Preprocesses the target-factor-normalized panel counts into log-normals in a single fused pipeline.
+ *
+ * <p>
+ *     The stages are the same as those of {@link HDF5PoNCreator} when creating a panel: removal of the columns and
+ *     then of the targets with too many zeros, removal of the columns with extreme medians, imputation of zero counts
+ *     to target medians, truncation of extreme counts, normalization of each column by its median followed by the
+ *     log2, and centering around the median of column medians, applied in that order.  Rather than copying the
+ *     matrix at each stage, all the filters are evaluated on the input, the counts that pass them are copied once
+ *     into a column-major buffer, and the remaining stages are applied to that buffer in place, to contiguous
+ *     columns (or blocks of targets) in parallel.  The buffer then backs the counts of the result.
+ * </p>
+ * <p>
+ *     Column medians are found by selection in a buffer of one column per task.  The percentiles of all counts are
+ *     found by radix selection over the buffer, with a small histogram per column, so that no second copy of the
+ *     matrix is made.
+ * </p>
+ */
+public final class PanelCountsPreprocessor {
+
+    /* number of targets per parallel task when processing the buffer by target */
+    private static final int TARGET_BLOCK_SIZE = 1024;
+
+    /* number of bits of the digits of radix selection, and the resulting number of histogram buckets */
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX_BUCKETS = 1 << RADIX_BITS;
+
+    private static final double INV_LN_2 = 1.0 / Math.log(2);
+
+    private final int targetCount;
+    private final int columnCount;
+
+    /* counts in column-major order, i.e., the count of target t in column c is at c * targetCount + t */
+    private final double[] buffer;
+
+    private PanelCountsPreprocessor(final int targetCount, final int columnCount) {
+        this.targetCount = targetCount;
+        this.columnCount = columnCount;
+        buffer = new double[targetCount * columnCount];
+    }
+
+    /**
+     * Returns the log-normals of the panel counts.  The input is not modified.
+     *
+     * @param readCounts the target-factor-normalized counts.  Never {@code null}
+     * @param maximumColumnZeros maximum number of counts equal to 0. per column tolerated
+     * @param maximumTargetZeros maximum number of counts equal to 0. per target tolerated
+     * @param extremeColumnMedianCountPercentileThreshold percentile of column medians to drop at either end
+     * @param countTruncatePercentile percentile of counts to truncate at either end
+     * @param logger logger for progress messages
+     * @return never {@code null}
+     */
+    public static ReadCountCollection preprocess(final ReadCountCollection readCounts, final int maximumColumnZeros,
+                                                 final int maximumTargetZeros,
+                                                 final double extremeColumnMedianCountPercentileThreshold,
+                                                 final double countTruncatePercentile, final Logger logger) {
+        Utils.nonNull(readCounts);
+        Utils.nonNull(logger);
+        final RealMatrix counts = readCounts.counts();
+        final int inputTargetCount = counts.getRowDimension();
+        final int inputColumnCount = counts.getColumnDimension();
+
+        // Remove columns with too many zeros:
+        final long[] columnZeros = IntStream.range(0, inputColumnCount).parallel()
+                .mapToLong(c -> IntStream.range(0, inputTargetCount).filter(t -> counts.getEntry(t, c) == 0.0).count())
+                .toArray();
+        final int[] columns = IntStream.range(0, inputColumnCount).filter(c -> columnZeros[c] <= maximumColumnZeros).toArray();
+        if (columns.length == 0) {
+            throw new UserException.BadInput("The number of zeros per count column is too large resulting in all count columns to be dropped");
+        }
+        logger.info(String.format("%d of %d count columns dropped as they have too many targets with zeros (> %d of %d).",
+                inputColumnCount - columns.length, inputColumnCount, maximumColumnZeros, inputTargetCount));
+
+        // Remove targets with too many zeros in the remaining columns:
+        final int[] targets = IntStream.range(0, inputTargetCount).parallel()
+                .filter(t -> Arrays.stream(columns).filter(c -> counts.getEntry(t, c) == 0.0).count() <= maximumTargetZeros)
+                .toArray();
+        if (targets.length == 0) {
+            throw new UserException.BadInput("the number of zeros per target in the input is too large resulting in all targets being dropped");
+        }
+        logger.info(String.format("%d of %d targets dropped as they have too many zeros (> %d of %d).",
+                inputTargetCount - targets.length, inputTargetCount, maximumTargetZeros, columns.length));
+
+        // Remove columns with extreme medians, selected in a buffer of one column per task:
+        final double[] columnMedians = IntStream.range(0, columns.length).parallel().mapToDouble(j -> {
+            final double[] column = new double[targets.length];
+            for (int i = 0; i < targets.length; i++) {
+                column[i] = counts.getEntry(targets[i], columns[j]);
+            }
+            return GATKProtectedMathUtils.selectMedian(column, 0, column.length);
+        }).toArray();
+        final double[] sortedColumnMedians = columnMedians.clone();
+        final double bottomExtremeThreshold = GATKProtectedMathUtils.selectPercentile(sortedColumnMedians, 0, sortedColumnMedians.length, extremeColumnMedianCountPercentileThreshold);
+        final double topExtremeThreshold = GATKProtectedMathUtils.selectPercentile(sortedColumnMedians, 0, sortedColumnMedians.length, 100 - extremeColumnMedianCountPercentileThreshold);
+        final int[] nonExtremeColumns = IntStream.range(0, columns.length)
+                .filter(j -> columnMedians[j] >= bottomExtremeThreshold && columnMedians[j] <= topExtremeThreshold)
+                .map(j -> columns[j])
+                .toArray();
+        if (nonExtremeColumns.length == 0) {
+            throw new UserException.BadInput("No column count left after applying the extreme counts outlier filter");
+        }
+        logger.info(String.format("%d of %d columns dropped as they have extreme median counts across targets outside [%.10f, %.10f]",
+                columns.length - nonExtremeColumns.length, columns.length, bottomExtremeThreshold, topExtremeThreshold));
+
+        // Copy the remaining counts into the buffer, the only copy of the matrix made:
+        final PanelCountsPreprocessor result = new PanelCountsPreprocessor(targets.length, nonExtremeColumns.length);
+        IntStream.range(0, nonExtremeColumns.length).parallel().forEach(j -> {
+            final int offset = j * targets.length;
+            for (int i = 0; i < targets.length; i++) {
+                result.buffer[offset + i] = counts.getEntry(targets[i], nonExtremeColumns[j]);
+            }
+        });
+
+        // Impute zero counts to the target medians of non-zero counts, and truncate extreme counts:
+        result.imputeZeroCountsAsTargetMedians(logger);
+        final double bottomPercentileThreshold = result.percentile(countTruncatePercentile);
+        final double topPercentileThreshold = result.percentile(100.0 - countTruncatePercentile);
+
+        // Truncate, normalize each column by its median, log and center around the median of column medians:
+        final double[] logColumnMedians = result.truncateNormalizeAndLog(bottomPercentileThreshold, topPercentileThreshold);
+        logger.info(String.format("Counts truncated to [%.2f, %.2f], normalized by the column median and log2'd.",
+                bottomPercentileThreshold, topPercentileThreshold));
+        final double medianOfMedians = GATKProtectedMathUtils.selectMedian(logColumnMedians, 0, logColumnMedians.length);
+        result.subtract(medianOfMedians);
+        logger.info(String.format("Counts centered around the BGS center %.2f", medianOfMedians));
+
+        final List<Target> resultTargets = Arrays.stream(targets).mapToObj(readCounts.targets()::get).collect(Collectors.toList());
+        final List<String> resultColumnNames = Arrays.stream(nonExtremeColumns).mapToObj(readCounts.columnNames()::get).collect(Collectors.toList());
+        return ReadCountCollection.ofOwnedCounts(resultTargets, resultColumnNames,
+                ColumnMajorMatrix.wrap(result.targetCount, result.columnCount, result.buffer));
+    }
+
+    private int size() {
+        return targetCount * columnCount;
+    }
+
+    /**
+     * Imputes zero counts to the median of the non-zero counts of their target, in blocks of targets.
+     */
+    private void imputeZeroCountsAsTargetMedians(final Logger logger) {
+        final long totalZeroCounts = IntStream.range(0, (targetCount + TARGET_BLOCK_SIZE - 1) / TARGET_BLOCK_SIZE).parallel()
+                .mapToLong(block -> {
+                    final double[] nonZeroCounts = new double[columnCount];
+                    long zeroCounts = 0;
+                    for (int t = block * TARGET_BLOCK_SIZE; t < Math.min(targetCount, (block + 1) * TARGET_BLOCK_SIZE); t++) {
+                        int nonZeroCount = 0;
+                        for (int index = t; index < size(); index += targetCount) {
+                            if (buffer[index] != 0.0) {
+                                nonZeroCounts[nonZeroCount++] = buffer[index];
+                            }
+                        }
+                        if (nonZeroCount == columnCount) {
+                            continue;
+                        }
+                        zeroCounts += columnCount - nonZeroCount;
+                        final double median = GATKProtectedMathUtils.selectMedian(nonZeroCounts, 0, nonZeroCount);
+                        for (int index = t; index < size(); index += targetCount) {
+                            if (buffer[index] == 0.0) {
+                                buffer[index] = median;
+                            }
+                        }
+                    }
+                    return zeroCounts;
+                }).sum();
+        if (totalZeroCounts > 0) {
+            logger.info(String.format("Some 0.0 counts, %d of %d (%.2f%%), were imputed to their enclosing target non-zero median",
+                    totalZeroCounts, size(), 100.0 * totalZeroCounts / size()));
+        } else {
+            logger.info("No count is 0.0 thus no count needed to be imputed.");
+        }
+    }
+
+    /**
+     * Percentile of all the counts in the buffer, with the same estimate as
+     * {@link GATKProtectedMathUtils#selectPercentile}, without reordering nor copying the buffer.
+     */
+    private double percentile(final double percentile) {
+        final int n = size();
+        final double position = percentile * (n + 1) / 100;
+        if (n == 1 || position < 1) {
+            return sortableBitsToDouble(select(0));
+        } else if (position >= n) {
+            return sortableBitsToDouble(select(n - 1));
+        }
+        final int lowerIndex = (int) Math.floor(position) - 1;
+        final long lowerBits = select(lowerIndex);
+        final double lower = sortableBitsToDouble(lowerBits);
+        final double upper = sortableBitsToDouble(nextOrderStatistic(lowerIndex, lowerBits));
+        return lower + (position - Math.floor(position)) * (upper - lower);
+    }
+
+    /**
+     * Returns the {@link #toSortableBits sortable bits} of the k-th smallest count (0-based) by most-significant-digit
+     * radix selection: each pass counts the values sharing the digits found so far by their next digit, in a
+     * histogram per column summed afterwards, and picks the digit of the bucket holding the k-th value.
+     */
+    private long select(final int k) {
+        long prefix = 0;
+        long rank = k;
+        for (int shift = Long.SIZE - RADIX_BITS; shift >= 0; shift -= RADIX_BITS) {
+            final long prefixMask = shift == Long.SIZE - RADIX_BITS ? 0 : -1L << (shift + RADIX_BITS);
+            final long currentPrefix = prefix;
+            final int currentShift = shift;
+            final long[] histogram = IntStream.range(0, columnCount).parallel().mapToObj(c -> {
+                final long[] columnHistogram = new long[RADIX_BUCKETS];
+                for (int index = c * targetCount; index < (c + 1) * targetCount; index++) {
+                    final long bits = toSortableBits(buffer[index]);
+                    if ((bits & prefixMask) == currentPrefix) {
+                        columnHistogram[(int) ((bits >>> currentShift) & (RADIX_BUCKETS - 1))]++;
+                    }
+                }
+                return columnHistogram;
+            }).reduce(new long[RADIX_BUCKETS], (a, b) -> {
+                final long[] sum = new long[RADIX_BUCKETS];
+                for (int bucket = 0; bucket < RADIX_BUCKETS; bucket++) {
+                    sum[bucket] = a[bucket] + b[bucket];
+                }
+                return sum;
+            });
+            int digit = 0;
+            while (rank >= histogram[digit]) {
+                rank -= histogram[digit++];
+            }
+            prefix |= (long) digit << shift;
+        }
+        return prefix;
+    }
+
+    /**
+     * Returns the sortable bits of the (k + 1)-th smallest count given those of the k-th one: the same value if it
+     * is repeated beyond rank k, or else the smallest value greater than it.
+     */
+    private long nextOrderStatistic(final int k, final long kthBits) {
+        final long atMost = IntStream.range(0, columnCount).parallel().mapToLong(c -> {
+            long count = 0;
+            for (int index = c * targetCount; index < (c + 1) * targetCount; index++) {
+                if (Long.compareUnsigned(toSortableBits(buffer[index]), kthBits) <= 0) {
+                    count++;
+                }
+            }
+            return count;
+        }).sum();
+        if (atMost > k + 1) {
+            return kthBits;
+        }
+        return IntStream.range(0, columnCount).parallel().mapToLong(c -> {
+            long min = -1L;
+            for (int index = c * targetCount; index < (c + 1) * targetCount; index++) {
+                final long bits = toSortableBits(buffer[index]);
+                if (Long.compareUnsigned(bits, kthBits) > 0 && Long.compareUnsigned(bits, min) < 0) {
+                    min = bits;
+                }
+            }
+            return min;
+        }).reduce(-1L, (a, b) -> Long.compareUnsigned(a, b) <= 0 ? a : b);
+    }
+
+    /* maps a double to bits whose unsigned order is the numeric order of the doubles (-0.0 is before 0.0) */
+    private static long toSortableBits(final double value) {
+        final long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> (Long.SIZE - 1)) | Long.MIN_VALUE);
+    }
+
+    private static double sortableBitsToDouble(final long sortableBits) {
+        return Double.longBitsToDouble(sortableBits < 0 ? sortableBits ^ Long.MIN_VALUE : ~sortableBits);
+    }
+
+    /**
+     * Truncates the counts, divides them by the median of their column, and takes the log2, by column.
+     *
+     * @return the medians of the resulting columns
+     */
+    private double[] truncateNormalizeAndLog(final double bottomThreshold, final double topThreshold) {
+        return IntStream.range(0, columnCount).parallel().mapToDouble(c -> {
+            final int from = c * targetCount;
+            final int to = from + targetCount;
+            for (int index = from; index < to; index++) {
+                buffer[index] = Math.min(topThreshold, Math.max(bottomThreshold, buffer[index]));
+            }
+            final double[] column = Arrays.copyOfRange(buffer, from, to);
+            final double median = GATKProtectedMathUtils.selectMedian(column, 0, targetCount);
+            for (int index = from; index < to; index++) {
+                buffer[index] = Math.log(Math.max(HDF5PoNCreator.EPSILON, buffer[index] / median)) * INV_LN_2;
+            }
+            System.arraycopy(buffer, from, column, 0, targetCount);
+            return GATKProtectedMathUtils.selectMedian(column, 0, targetCount);
+        }).toArray();
+    }
+
+    private void subtract(final double value) {
+        IntStream.range(0, columnCount).parallel().forEach(c -> {
+            for (int index = c * targetCount; index < (c + 1) * targetCount; index++) {
+                buffer[index] -= value;
+            }
+        });
+    }
+}
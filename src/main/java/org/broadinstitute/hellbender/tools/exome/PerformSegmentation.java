@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.tools.exome;
 
 import org.broadinstitute.hellbender.cmdline.*;
 import org.broadinstitute.hellbender.cmdline.programgroups.CopyNumberProgramGroup;
+import org.broadinstitute.hellbender.utils.segmenter.CBSSegmenter;
 import org.broadinstitute.hellbender.utils.segmenter.RCBSSegmenter;
 
 import java.io.File;
@@ -49,6 +50,9 @@ public final class PerformSegmentation extends CommandLineProgram {
     public final static String UNDOSD_LONG_NAME="undoSD";
     public final static String UNDOSD_SHORT_NAME="undoSD";
 
+    public final static String JAVA_SEGMENTER_LONG_NAME="useJavaSegmenter";
+    public final static String JAVA_SEGMENTER_SHORT_NAME="javaCBS";
+
     @Argument(
             doc = "Tangent normalized read counts file",
             shortName = ExomeStandardArgumentDefinitions.TARGET_FILE_SHORT_NAME,
@@ -171,6 +175,16 @@ public final class PerformSegmentation extends CommandLineProgram {
     )
     protected Integer undoSD = 3;
 
+    @Argument(
+            doc = "(Experimental) Segment in-process with a Java port of DNAcopy's CBS instead of calling R.  It does " +
+                    "not reproduce DNAcopy's permutations or tail probabilities exactly, so splits whose p-value is " +
+                    "close to alpha may differ from the default.",
+            shortName = JAVA_SEGMENTER_SHORT_NAME,
+            fullName = JAVA_SEGMENTER_LONG_NAME,
+            optional = true
+    )
+    protected boolean useJavaSegmenter = false;
+
     @Override
     protected Object doWork() {
         final String sampleName = ReadCountCollectionUtils.getSampleNameForCLIsFromReadCountsFile(new File(tangentNormalizedCoverageFile));
@@ -179,7 +193,12 @@ public final class PerformSegmentation extends CommandLineProgram {
     }
 
     private void applySegmentation(final String sampleName, final String tangentFile, final String outFile) {
-        RCBSSegmenter.writeSegmentFile(sampleName, tangentFile, outFile, log, weightFile, alpha, nperm, pmethod,
-                minWidth, kmax, nmin, eta, trim, undoSplits, undoPrune, undoSD);
+        if (useJavaSegmenter) {
+            CBSSegmenter.writeSegmentFile(sampleName, tangentFile, outFile, log, weightFile, alpha, nperm, pmethod,
+                    minWidth, kmax, nmin, eta, trim, undoSplits, undoPrune, undoSD);
+        } else {
+            RCBSSegmenter.writeSegmentFile(sampleName, tangentFile, outFile, log, weightFile, alpha, nperm, pmethod,
+                    minWidth, kmax, nmin, eta, trim, undoSplits, undoPrune, undoSD);
+        }
     }
 }
@@ -3,14 +3,15 @@ package org.broadinstitute.hellbender.tools.exome;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
-import org.apache.commons.math3.linear.DefaultRealMatrixChangingVisitor;
-import org.apache.commons.math3.linear.DefaultRealMatrixPreservingVisitor;
 import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.stat.descriptive.moment.Variance;
 import org.broadinstitute.hellbender.utils.GATKProtectedMathUtils;
 import org.broadinstitute.hellbender.utils.Utils;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntToDoubleFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -25,6 +26,9 @@ public final class ReadCountCollection implements Serializable {
 
     static final long serialVersionUID = 337337337L;
 
+    /* number of targets per parallel task when accumulating column statistics */
+    private static final int TARGET_BLOCK_SIZE = 1024;
+
     /**
      * Unmodifiable target list in the row order of their counts in {@link #counts}.
      */
@@ -69,6 +73,19 @@ public final class ReadCountCollection implements Serializable {
         this(targets, columnNames, counts, true);
     }
 
+    /**
+     * Creates a new collection that takes ownership of its (unmodifiable) target and column-name lists and of the
+     * counts, without copying them, for {@link PanelCountsPreprocessor}.
+     * <p>
+     *     Only the dimensions are verified; the caller must not modify the counts afterwards.
+     * </p>
+     */
+    static ReadCountCollection ofOwnedCounts(final List<Target> targets, final List<String> columnNames, final RealMatrix counts) {
+        Utils.validateArg(counts.getRowDimension() == targets.size(), "number of count rows does not match the number of targets");
+        Utils.validateArg(counts.getColumnDimension() == columnNames.size(), "number of count columns does not match the number of column names");
+        return new ReadCountCollection(Collections.unmodifiableList(targets), Collections.unmodifiableList(columnNames), counts, false);
+    }
+
     /**
      * Creates a new collection with or without verifying field values and copying inputs.
      *
@@ -269,21 +286,33 @@ public final class ReadCountCollection implements Serializable {
      * is missing an interval.
      */
     public ReadCountCollection normalizeByColumnAverages(final boolean weightByTargetSize) {
-        final RealMatrix normalizedCounts = counts().copy();
+        return normalizeByColumnAverages(weightByTargetSize, false);
+    }
+
+    /**
+     * Divide coverage at each target and each column by the average of that column.
+     * @param weightByTargetSize whether to use a weighted average with weights given by target sizes
+     * @param inPlace whether to overwrite the counts of this collection rather than copying them, for when this
+     *                collection is not needed afterwards.
+     * @return a new collection, which shares its counts with this one if {@code inPlace} is {@code true}.
+     * @throws IllegalArgumentException if {@code weightByTargetSize} is {@code true} but any target
+     * is missing an interval.
+     */
+    public ReadCountCollection normalizeByColumnAverages(final boolean weightByTargetSize, final boolean inPlace) {
         final double[] columnWeightedMeans = calculateColumnWeightedMeans(weightByTargetSize);
-        normalizedCounts.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
-                @Override
-                public double visit(final int target, final int column, final double coverage) {
-                    return coverage / columnWeightedMeans[column];
-                }
+        final RealMatrix normalizedCounts = transformRows(inPlace, row -> {
+            for (int column = 0; column < row.length; column++) {
+                row[column] /= columnWeightedMeans[column];
+            }
         });
-
         return new ReadCountCollection(targets, columnNames, normalizedCounts, false);
     }
 
     private double[] calculateColumnWeightedMeans(final boolean weightByTargetSize) {
         if (!weightByTargetSize) {
-            return GATKProtectedMathUtils.columnMeans(counts);
+            final double[] result = calculateColumnWeightedSums(target -> 1.0);
+            final int targetCount = counts.getRowDimension();
+            return Arrays.stream(result).map(sum -> sum / targetCount).toArray();
         } else {
             final long[] weights;
             try {
@@ -292,40 +321,94 @@ public final class ReadCountCollection implements Serializable {
                 throw new IllegalArgumentException("Weighting by target size requested but at least one target lacks an interval");
             }
             final long totalWeight = Arrays.stream(weights).sum();
-
-            final double[] result = new double[counts.getColumnDimension()]; // elements initialized to 0.0
-
-            counts.walkInOptimizedOrder(new DefaultRealMatrixPreservingVisitor() {
-                @Override
-                public void visit(final int target, final int column, final double coverage) {
-                    result[column] += weights[target] * coverage / totalWeight;
-                }
-            });
-            return result;
+            final double[] result = calculateColumnWeightedSums(target -> weights[target]);
+            return Arrays.stream(result).map(sum -> sum / totalWeight).toArray();
         }
     }
 
+    /**
+     * Sums of the counts of each column weighted by target, accumulated over blocks of targets in parallel.
+     */
+    private double[] calculateColumnWeightedSums(final IntToDoubleFunction targetWeight) {
+        final int targetCount = counts.getRowDimension();
+        final int columnCount = counts.getColumnDimension();
+        final double[][] rows = counts instanceof Array2DRowRealMatrix ? ((Array2DRowRealMatrix) counts).getDataRef() : null;
+        return IntStream.range(0, (targetCount + TARGET_BLOCK_SIZE - 1) / TARGET_BLOCK_SIZE).parallel()
+                .mapToObj(block -> {
+                    final double[] sums = new double[columnCount];
+                    for (int target = block * TARGET_BLOCK_SIZE; target < Math.min(targetCount, (block + 1) * TARGET_BLOCK_SIZE); target++) {
+                        final double weight = targetWeight.applyAsDouble(target);
+                        final double[] row = rows != null ? rows[target] : counts.getRow(target);
+                        for (int column = 0; column < columnCount; column++) {
+                            sums[column] += weight * row[column];
+                        }
+                    }
+                    return sums;
+                })
+                .reduce((left, right) -> {
+                    for (int column = 0; column < columnCount; column++) {
+                        left[column] += right[column];
+                    }
+                    return left;
+                })
+                .orElseGet(() -> new double[columnCount]);
+    }
+
     /**
      * Express coverage in terms of Z scores with respect to the coverage distribution of the corresponding target.
      * @return a new collection.
      */
     public ReadCountCollection zScoreCounts() {
-        final RealMatrix zScoreCounts = counts().copy();    //we will edit the matrix in-place
-
-        final double[] targetMeans = GATKProtectedMathUtils.rowMeans(zScoreCounts);
-        final double[] targetVariances = GATKProtectedMathUtils.rowVariances(zScoreCounts);
-        final double[] targetStandardDeviations = Arrays.stream(targetVariances).map(Math::sqrt).toArray();
+        return zScoreCounts(false);
+    }
 
-        zScoreCounts.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
-            @Override
-            public double visit(final int target, final int column, final double coverage) {
-                return (coverage - targetMeans[target]) / targetStandardDeviations[target];
+    /**
+     * Express coverage in terms of Z scores with respect to the coverage distribution of the corresponding target.
+     * @param inPlace whether to overwrite the counts of this collection rather than copying them, for when this
+     *                collection is not needed afterwards.
+     * @return a new collection, which shares its counts with this one if {@code inPlace} is {@code true}.
+     */
+    public ReadCountCollection zScoreCounts(final boolean inPlace) {
+        // the mean and standard deviation of each target are calculated and applied while its counts are in cache:
+        final RealMatrix zScoreCounts = transformRows(inPlace, row -> {
+            final double targetMean = GATKProtectedMathUtils.mean(row);
+            final double targetStandardDeviation = Math.sqrt(new Variance().evaluate(row));
+            for (int column = 0; column < row.length; column++) {
+                row[column] = (row[column] - targetMean) / targetStandardDeviation;
             }
         });
-
         return new ReadCountCollection(targets, columnNames, zScoreCounts, false);
     }
 
+    /**
+     * Transforms the counts of each target in parallel.
+     * @param inPlace whether to transform the counts of this collection or a copy
+     * @param rowTransform transforms the counts of a target in place
+     * @return the transformed counts.
+     */
+    private RealMatrix transformRows(final boolean inPlace, final Consumer<double[]> rowTransform) {
+        final int targetCount = counts.getRowDimension();
+        if (inPlace && counts instanceof Array2DRowRealMatrix) {
+            final double[][] rows = ((Array2DRowRealMatrix) counts).getDataRef();
+            IntStream.range(0, targetCount).parallel().forEach(target -> rowTransform.accept(rows[target]));
+            return counts;
+        } else if (inPlace) {
+            IntStream.range(0, targetCount).parallel().forEach(target -> {
+                final double[] row = counts.getRow(target);
+                rowTransform.accept(row);
+                counts.setRow(target, row);
+            });
+            return counts;
+        } else {
+            final double[][] rows = new double[targetCount][];
+            IntStream.range(0, targetCount).parallel().forEach(target -> {
+                rows[target] = counts.getRow(target);
+                rowTransform.accept(rows[target]);
+            });
+            return new Array2DRowRealMatrix(rows, false);
+        }
+    }
+
     /**
      * Constructs the appropriate exception to report the presence of column names in the columns-to-keep set that are not present in
      * this read-count collection.
@@ -1,6 +1,5 @@
 package org.broadinstitute.hellbender.tools.exome;
 
-import htsjdk.samtools.util.Locatable;
 import org.apache.commons.collections4.list.SetUniqueList;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
@@ -295,7 +294,30 @@ public final class ReadCountCollectionUtils {
         Utils.nonNull(byKeySorted, "Targets cannot be null.");
         Utils.nonNull(comments, "Comments cannot be null.");
 
-        final boolean areTargetIntervalsAllPopulated = byKeySorted.keySet().stream().allMatch(t -> t != null);
+        writeReadCountsFromSimpleInterval(outFile, sampleName, new ArrayList<>(byKeySorted.keySet()),
+                byKeySorted.values().stream().mapToDouble(Number::doubleValue).toArray(), comments);
+    }
+
+    /**
+     * Write a read counts file of targets with coverage to file with dummy names, in the order given
+     * @param outFile File to write targets with coverage. Never {@code null}
+     * @param sampleName Name of sample being written. Never {@code null}
+     * @param intervals Simple-intervals of the targets. Never {@code null}
+     * @param coverages Coverage of each target, in the same order as {@code intervals}. Never {@code null}
+     * @param comments Comments to add to header of coverage file.
+     */
+    public static void writeReadCountsFromSimpleInterval(final File outFile, final String sampleName,
+                                                         final List<SimpleInterval> intervals, final double[] coverages,
+                                                         final String[] comments) {
+
+        Utils.nonNull(outFile, "Output file cannot be null.");
+        Utils.nonNull(sampleName, "Sample name cannot be null.");
+        Utils.nonNull(intervals, "Targets cannot be null.");
+        Utils.nonNull(coverages, "Coverages cannot be null.");
+        Utils.nonNull(comments, "Comments cannot be null.");
+        Utils.validateArg(intervals.size() == coverages.length, "There must be one coverage per target.");
+
+        final boolean areTargetIntervalsAllPopulated = intervals.stream().allMatch(t -> t != null);
         if (!areTargetIntervalsAllPopulated) {
             throw new UserException("Cannot write target coverage file with any null intervals.");
         }
@@ -306,18 +328,12 @@ public final class ReadCountCollectionUtils {
                 writer.writeComment(comment);
             }
 
-            for (final Locatable locatable : byKeySorted.keySet()) {
-                final SimpleInterval interval = new SimpleInterval(locatable);
-                final double coverage = byKeySorted.get(locatable).doubleValue();
-                writer.writeRecord(new ReadCountRecord.SingleSampleRecord(new Target(interval), coverage));
+            for (int i = 0; i < coverages.length; i++) {
+                writer.writeRecord(new ReadCountRecord.SingleSampleRecord(new Target(intervals.get(i)), coverages[i]));
             }
         } catch (final IOException e) {
             throw new UserException.CouldNotCreateOutputFile(outFile, e);
         }
-
-
-
-
     }
 
     /**
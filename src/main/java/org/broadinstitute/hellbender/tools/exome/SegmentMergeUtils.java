@@ -1,15 +1,12 @@
 package org.broadinstitute.hellbender.tools.exome;
 
-import com.google.common.primitives.Doubles;
 import htsjdk.samtools.util.Locatable;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.commons.math3.exception.InsufficientDataException;
 import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.RandomGeneratorFactory;
-import org.apache.commons.math3.stat.descriptive.rank.Median;
-import org.apache.commons.math3.stat.inference.KolmogorovSmirnovTest;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.tools.exome.alleliccount.AllelicCount;
+import org.broadinstitute.hellbender.utils.GATKProtectedMathUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.mcmc.PosteriorSummary;
@@ -17,6 +14,8 @@ import org.broadinstitute.hellbender.utils.param.ParamUtils;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 
 /**
  * Helper/utility class for merging segments.
@@ -121,30 +120,23 @@ public final class SegmentMergeUtils {
         Utils.nonNull(genome, "The genome cannot be null.");
 
         final Set<SimpleInterval> targetSegmentsSet = new HashSet<>(targetSegments);
-        final List<SimpleInterval> mergedSegments = new ArrayList<>(segments);
-        int index = 0;
-        while (index < mergedSegments.size()) {
-            final SimpleInterval segment = mergedSegments.get(index);
-            final int numSNPs = genome.getSNPs().targetCount(segment);
+        final SegmentNode<SimpleInterval> first = SegmentNode.link(segments);
+        final SmallSegments.SortedSegmentData sortedData = new SmallSegments.SortedSegmentData(genome);
+        SegmentNode<SimpleInterval> node = first;
+        while (node != null) {
+            final SimpleInterval segment = node.segment;
+            final int numSNPs = genome.getSNPIndex().count(segment);
             //if current segment is a spurious middle, merge it with an adjacent segment
             if (numSNPs == 0 && !targetSegmentsSet.contains(segment)) {
-                final MergeDirection direction =
-                        SmallSegments.calculateMergeDirection(mergedSegments, genome, index);
-                if (direction == MergeDirection.LEFT) {
-                    //current = merge(left, current), remove left, stay on current during next iteration
-                    mergedSegments.set(index, mergeSegments(mergedSegments.get(index - 1), segment));
-                    mergedSegments.remove(index - 1);
-                    index -= 2;
-                } else if (direction == MergeDirection.RIGHT) {
-                    //current = merge(current, right), remove right, stay on current during next iteration
-                    mergedSegments.set(index, mergeSegments(segment, mergedSegments.get(index + 1)));
-                    mergedSegments.remove(index + 1);
-                    index--;
+                final SegmentNode<SimpleInterval> merged = SmallSegments.mergeInDirection(node, sortedData);
+                if (merged != null) {
+                    node = merged;  //stay on merged segment during next iteration
+                    continue;
                 }
             }
-            index++; //if no merge performed, go to next segment during next iteration
+            node = node.next;   //if no merge performed, go to next segment during next iteration
         }
-        return mergedSegments;
+        return SegmentNode.toList(first);
     }
 
     /**
@@ -164,31 +156,24 @@ public final class SegmentMergeUtils {
         Utils.nonNull(segments, "The list of unioned segments cannot be null.");
         Utils.nonNull(genome, "The genome cannot be null.");
 
-        final List<SimpleInterval> mergedSegments = new ArrayList<>(segments);
-        int index = 0;
-        while (index < mergedSegments.size()) {
-            final SimpleInterval segment = mergedSegments.get(index);
-            final int numTargets = genome.getTargets().targetCount(segment);
+        final SegmentNode<SimpleInterval> first = SegmentNode.link(segments);
+        final SmallSegments.SortedSegmentData sortedData = new SmallSegments.SortedSegmentData(genome);
+        SegmentNode<SimpleInterval> node = first;
+        while (node != null) {
+            final int numTargets = genome.getTargetIndex().count(node.segment);
             //if current segment is small, merge it with an adjacent segment
             if (numTargets < targetNumberThreshold) {
-                final MergeDirection direction =
-                        SmallSegments.calculateMergeDirection(mergedSegments, genome, index);
-                if (direction == MergeDirection.LEFT) {
-                    //current = merge(left, current), remove left, stay on current during next iteration
-                    mergedSegments.set(index, mergeSegments(mergedSegments.get(index - 1), segment));
-                    mergedSegments.remove(index - 1);
-                    index -= 2;
-                } else if (direction == MergeDirection.RIGHT) {
-                    //current = merge(current, right), remove right, stay on current during next iteration
-                    mergedSegments.set(index, mergeSegments(segment, mergedSegments.get(index + 1)));
-                    mergedSegments.remove(index + 1);
-                    index--;
+                final SegmentNode<SimpleInterval> merged = SmallSegments.mergeInDirection(node, sortedData);
+                if (merged != null) {
+                    node = merged;  //stay on merged segment during next iteration
+                    continue;
                 }
             }
-            index++; //if no merge performed, go to next segment during next iteration
+            node = node.next;   //if no merge performed, go to next segment during next iteration
         }
         //contigs containing only a single small segment do not get merged; drop these segments
-        return dropSmallSegments(mergedSegments, genome.getTargets(), targetNumberThreshold);
+        return SegmentNode.toList(first).stream().filter(s -> genome.getTargetIndex().count(s) >= targetNumberThreshold)
+                .collect(Collectors.toList());
     }
 
     /**
@@ -211,21 +196,70 @@ public final class SegmentMergeUtils {
         ParamUtils.isPositiveOrZero(intervalThresholdMinorAlleleFraction,
                 "The threshold for minor-allele-fraction similar-segment merging cannot be negative.");
 
-        final List<ACNVModeledSegment> mergedSegments = new ArrayList<>(segments);
-        int index = 0;
-        while (index < mergedSegments.size() - 1) {
-            final ACNVModeledSegment segment1 = mergedSegments.get(index);
-            final ACNVModeledSegment segment2 = mergedSegments.get(index + 1);
+        final SegmentNode<ACNVModeledSegment> first = SegmentNode.link(segments);
+        SegmentNode<ACNVModeledSegment> node = first;
+        while (node != null && node.next != null) {
+            final ACNVModeledSegment segment1 = node.segment;
+            final ACNVModeledSegment segment2 = node.next.segment;
             if (segment1.getContig().equals(segment2.getContig()) &&
                     SimilarSegments.areSimilar(segment1, segment2,
                             intervalThresholdSegmentMean, intervalThresholdMinorAlleleFraction)) {
-                mergedSegments.set(index, SimilarSegments.merge(segment1, segment2));
-                mergedSegments.remove(index + 1);
-                index--; //if merge performed, stay on current segment during next iteration
+                node.mergeWithNext(SimilarSegments.merge(segment1, segment2));
+                continue;   //if merge performed, stay on current segment during next iteration
+            }
+            node = node.next;   //if no merge performed, go to next segment during next iteration
+        }
+        return SegmentNode.toList(first);
+    }
+
+    /**
+     * Node of a doubly linked list of segments.  The merging loops walk the list and replace a segment and one of its
+     * neighbors by their merge in constant time, rather than removing elements from the middle of an array list,
+     * which takes time linear in the number of segments.
+     */
+    private static final class SegmentNode<T> {
+        private T segment;
+        private SegmentNode<T> previous;
+        private SegmentNode<T> next;
+
+        private SegmentNode(final T segment, final SegmentNode<T> previous) {
+            this.segment = segment;
+            this.previous = previous;
+        }
+
+        //returns the node of the first of a list of segments, or null if the list is empty
+        private static <T> SegmentNode<T> link(final List<T> segments) {
+            SegmentNode<T> first = null;
+            SegmentNode<T> last = null;
+            for (final T segment : segments) {
+                final SegmentNode<T> node = new SegmentNode<>(segment, last);
+                if (last == null) {
+                    first = node;
+                } else {
+                    last.next = node;
+                }
+                last = node;
+            }
+            return first;
+        }
+
+        //returns a new, modifiable list of the segments from a node on
+        private static <T> List<T> toList(final SegmentNode<T> first) {
+            final List<T> segments = new ArrayList<>();
+            for (SegmentNode<T> node = first; node != null; node = node.next) {
+                segments.add(node.segment);
+            }
+            return segments;
+        }
+
+        //replaces the segment of this node by its merge with the next segment and unlinks the next node
+        private void mergeWithNext(final T mergedSegment) {
+            segment = mergedSegment;
+            next = next.next;
+            if (next != null) {
+                next.previous = this;
             }
-            index++; //if no merge performed, go to next segment during next iteration
         }
-        return mergedSegments;
     }
 
     /**
@@ -272,8 +306,7 @@ public final class SegmentMergeUtils {
      *             However, if the Kolmogorov-Smirnov distances are not sufficiently dissimilar, if they are both close
      *             to unity (i.e., if the alternate-allele fractions in neither the left nor the right segment overlap
      *             significantly with those in the center segment), or if there are not enough SNPs to calculate the
-     *             Kolmogorov-Smirnov distances (the Apache Commons implementation requires at least 2 data points
-     *             in each data set), we instead use the empirical inverse minor-allele fractions (which, ideally,
+     *             Kolmogorov-Smirnov distances (at least 2 data points are required in each data set), we instead use the empirical inverse minor-allele fractions (which, ideally,
      *             are proportional to total copy ratio and have a distribution that is practically unimodal) in each of
      *             the three segments.  Two distances between the two pairs of data sets are constructed using the
      *             Hodges-Lehmann estimator (which gives a measure of the difference in the location parameters of two
@@ -325,31 +358,83 @@ public final class SegmentMergeUtils {
         private static final int RANDOM_SEED = 42;
         private static final RandomGenerator rng =
                 RandomGeneratorFactory.createRandomGenerator(new Random(RANDOM_SEED));
-        //Kolmogorov-Smirnov test for small-segment merging
-        private static final int KOLMOGOROV_SMIRNOV_TEST_RANDOM_SEED = 42;
-        private static final RandomGenerator rngKolmogorovSmirnovTest =
-                RandomGeneratorFactory.createRandomGenerator(new Random(KOLMOGOROV_SMIRNOV_TEST_RANDOM_SEED));
-        private static final KolmogorovSmirnovTest kolmogorovSmirnovTest =
-                new KolmogorovSmirnovTest(rngKolmogorovSmirnovTest);
+
+        //minimum number of data points in each data set required to calculate the Kolmogorov-Smirnov distance
+        private static final int MINIMUM_KOLMOGOROV_SMIRNOV_DATA_SIZE = 2;
 
         /**
-         * Returns genomic distance between two segments (specified by their indices in a list), which should be given
+         * Sorted target coverages, alternate-allele fractions and inverse minor-allele fractions of segments.
+         * These are calculated the first time a segment is scored and reused while it remains unmerged, so that
+         * each segment is neither queried nor sorted again for each score it takes part in.
+         */
+        private static final class SortedSegmentData {
+            private final LocatableIndex targetIndex;
+            private final LocatableIndex snpIndex;
+            private final List<AllelicCount> snps;
+
+            //alternate-allele fractions and inverse minor-allele fractions of all SNPs, in the order of the SNP index;
+            //these are calculated the first time they are needed
+            private double[] snpAAFs;
+            private double[] snpInverseMAFs;
+
+            private final Map<SimpleInterval, double[]> coverages = new HashMap<>();
+            private final Map<SimpleInterval, double[]> aafs = new HashMap<>();
+            private final Map<SimpleInterval, double[]> inverseMAFs = new HashMap<>();
+
+            private SortedSegmentData(final Genome genome) {
+                targetIndex = genome.getTargetIndex();
+                snpIndex = genome.getSNPIndex();
+                snps = genome.getSNPs().targets();
+            }
+
+            private double[] coverages(final SimpleInterval segment) {
+                return coverages.computeIfAbsent(segment, s -> sorted(IntStream.range(targetIndex.fromIndex(s), targetIndex.toIndex(s))
+                        .mapToDouble(targetIndex::value)));
+            }
+
+            private double[] aafs(final SimpleInterval segment) {
+                if (snpAAFs == null) {
+                    snpAAFs = calculateAAFs(snps);
+                }
+                return aafs.computeIfAbsent(segment, s -> sorted(Arrays.stream(snpAAFs, snpIndex.fromIndex(s), snpIndex.toIndex(s))));
+            }
+
+            private double[] inverseMAFs(final SimpleInterval segment) {
+                if (snpInverseMAFs == null) {
+                    snpInverseMAFs = calculateInverseMAFs(snps);
+                }
+                return inverseMAFs.computeIfAbsent(segment, s -> sorted(Arrays.stream(snpInverseMAFs, snpIndex.fromIndex(s), snpIndex.toIndex(s))));
+            }
+
+            /**
+             * Forgets the data of a segment that is about to be merged.
+             */
+            private void remove(final SimpleInterval segment) {
+                coverages.remove(segment);
+                aafs.remove(segment);
+                inverseMAFs.remove(segment);
+            }
+
+            //NaNs are dropped, as they would be by the Median of the pairwise differences
+            private static double[] sorted(final DoubleStream values) {
+                return values.filter(v -> !Double.isNaN(v)).sorted().toArray();
+            }
+        }
+
+        /**
+         * Returns genomic distance between two segments, which should be given
          * in order from left to right and are assumed to be non-overlapping.
          * This distance is infinite if the segments are on different chromosomes.
-         * @param segments      list of segments
-         * @param leftIndex     index of left segment
-         * @param rightIndex    index of right segment
+         * @param leftSegment   left segment ({@code null} when checking distance to left of first segment)
+         * @param rightSegment  right segment ({@code null} when checking distance to right of last segment)
          * @return              genomic distance
          *                      (Double.POSITIVE_INFINITY if segments are on different chromosomes or
          *                      when checking distance to left (right) of first (last) segment)
          */
-        private static double genomicDistance(final List<SimpleInterval> segments,
-                                              final int leftIndex, final int rightIndex) {
-            if (leftIndex < 0 || leftIndex >= segments.size() || rightIndex < 0 || rightIndex >= segments.size()) {
+        private static double genomicDistance(final SimpleInterval leftSegment, final SimpleInterval rightSegment) {
+            if (leftSegment == null || rightSegment == null) {
                 return Double.POSITIVE_INFINITY;
             }
-            final SimpleInterval leftSegment = segments.get(leftIndex);
-            final SimpleInterval rightSegment = segments.get(rightIndex);
             if (leftSegment.getContig().equals(rightSegment.getContig())) {
                 final double distance = rightSegment.getStart() - leftSegment.getEnd();
                 if (distance < 0) {
@@ -362,18 +447,20 @@ public final class SegmentMergeUtils {
         }
 
         /**
-         * Given a segment specified by an index, returns a pair of scores for adjacent segments based on genomic
+         * Given a segment and its adjacent segments, returns a pair of scores for the adjacent segments based on genomic
          * distance; except for edge cases, the sum of the scores will be unity.
          * Scores are Double.NEGATIVE_INFINITY for adjacent segments that are on different chromosomes.
-         * @param segments  list of segments
-         * @param index     index of the center segment to consider
-         * @return          scores for adjacent segments based on genomic distance
-         *                  (Double.NEGATIVE_INFINITY for adjacent segments that are on different chromosomes)
+         * @param leftSegment   left adjacent segment ({@code null} if none)
+         * @param centerSegment center segment to consider
+         * @param rightSegment  right adjacent segment ({@code null} if none)
+         * @return              scores for adjacent segments based on genomic distance
+         *                      (Double.NEGATIVE_INFINITY for adjacent segments that are on different chromosomes)
          */
-        private static Pair<Double, Double> calculateGenomicDistanceScores(final List<SimpleInterval> segments,
-                                                                           final int index) {
-            final double leftDistance = genomicDistance(segments, index - 1, index);
-            final double rightDistance = genomicDistance(segments, index, index + 1);
+        private static Pair<Double, Double> calculateGenomicDistanceScores(final SimpleInterval leftSegment,
+                                                                           final SimpleInterval centerSegment,
+                                                                           final SimpleInterval rightSegment) {
+            final double leftDistance = genomicDistance(leftSegment, centerSegment);
+            final double rightDistance = genomicDistance(centerSegment, rightSegment);
 
             //edge cases (divide-by-zero, segments on edges of chromosomes)
             if (leftDistance == 0. && rightDistance == 0.) {
@@ -409,62 +496,69 @@ public final class SegmentMergeUtils {
         }
 
         /**
-         * Returns a distance between two data sets given by the two-sample Kolmogorov-Smirnov test statistic.
-         * @param data1     first data set
-         * @param data2     second data set
-         * @return          distance between data sets given by the two-sample Kolmogorov-Smirnov test statistic
+         * Returns a distance between two data sets given by the two-sample Kolmogorov-Smirnov test statistic,
+         * i.e., the largest absolute difference between their empirical cumulative distribution functions.
+         * @param sortedData1   first data set, sorted in ascending order
+         * @param sortedData2   second data set, sorted in ascending order
+         * @return              distance between data sets given by the two-sample Kolmogorov-Smirnov test statistic
          */
-        private static double kolmogorovSmirnovDistance(final double[] data1, final double[] data2) {
-            return kolmogorovSmirnovTest.kolmogorovSmirnovStatistic(data1, data2);
+        private static double kolmogorovSmirnovDistance(final double[] sortedData1, final double[] sortedData2) {
+            final int n1 = sortedData1.length;
+            final int n2 = sortedData2.length;
+            int rank1 = 0;
+            int rank2 = 0;
+            double distance = 0.;
+            while (rank1 < n1 && rank2 < n2) {
+                final double value = Math.min(sortedData1[rank1], sortedData2[rank2]);
+                //step past ties in both data sets before comparing the distribution functions
+                while (rank1 < n1 && sortedData1[rank1] == value) {
+                    rank1++;
+                }
+                while (rank2 < n2 && sortedData2[rank2] == value) {
+                    rank2++;
+                }
+                distance = Math.max(distance, Math.abs((double) rank1 / n1 - (double) rank2 / n2));
+            }
+            return distance;
         }
 
         /**
-         * Returns a list of the alternate-allele fractions for SNPs in a given segment.
-         * @param segment   segment to consider
+         * Returns the alternate-allele fractions of a list of SNPs.
          * @param snps      SNP-allele-count data to be segmented
-         * @return          list of alternate-allele fractions for SNPs in the segment
+         * @return          alternate-allele fractions of the SNPs
          */
-        private static List<Double> calculateAAFs(final SimpleInterval segment,
-                                                  final TargetCollection<AllelicCount> snps) {
-            return snps.targets(segment).stream().map(AllelicCount::estimateAltAlleleFraction).collect(Collectors.toList());
+        private static double[] calculateAAFs(final List<AllelicCount> snps) {
+            return snps.stream().mapToDouble(AllelicCount::estimateAltAlleleFraction).toArray();
         }
 
         /**
-         * Returns a list of the inverse minor-allele fractions (which, ideally, are proportional to total copy ratio)
-         * for SNPs in a given segment. Double.MIN_VALUE is added to the minor-allele fraction to avoid divide-by-zero
+         * Returns the inverse minor-allele fractions (which, ideally, are proportional to total copy ratio)
+         * of a list of SNPs. Double.MIN_VALUE is added to the minor-allele fraction to avoid divide-by-zero
          * cases and allelic bias is ignored.
-         * @param segment   segment to consider
          * @param snps      SNP-allele-count data to be segmented
-         * @return          list of inverse minor-allele fractions for SNPs in the segment
+         * @return          inverse minor-allele fractions of the SNPs
          */
-        private static List<Double> calculateInverseMAFs(final SimpleInterval segment,
-                                                         final TargetCollection<AllelicCount> snps) {
-            return snps.targets(segment).stream().map(a -> 1. / (Double.MIN_VALUE + a.estimateMinorAlleleFraction()))
-                    .collect(Collectors.toList());
+        private static double[] calculateInverseMAFs(final List<AllelicCount> snps) {
+            return snps.stream().mapToDouble(a -> 1. / (Double.MIN_VALUE + a.estimateMinorAlleleFraction())).toArray();
         }
 
         /**
          * Calculates the distance between two data sets based on the Hodges-Lehmann estimator.
-         * @param data1     first data set
-         * @param data2     second data set
-         * @return          distance between data sets based on the Hodges-Lehmann estimator
+         * The pairwise differences are not materialized; see {@link GATKProtectedMathUtils#hodgesLehmannShift}.
+         * @param sortedData1   first data set, sorted in ascending order
+         * @param sortedData2   second data set, sorted in ascending order
+         * @return              distance between data sets based on the Hodges-Lehmann estimator
          */
-        private static double hodgesLehmannDistance(final double[] data1, final double[] data2) {
-            double[] differences = new double[data1.length * data2.length];
-            for (int i = 0; i < data1.length; i++) {
-                for (int j = 0; j < data2.length; j++) {
-                    differences[i * data2.length + j] = data1[i] - data2[j];
-                }
-            }
-            return new Median().evaluate(differences);
+        private static double hodgesLehmannDistance(final double[] sortedData1, final double[] sortedData2) {
+            return GATKProtectedMathUtils.hodgesLehmannShift(sortedData1, sortedData2);
         }
 
         /**
          * Given three data sets (corresponding to left, center, and right segments), returns a pair of scores based on
          * the Hodges-Lehmann estimator between (left, center) and (center, right); the sum of the scores will be unity.
-         * @param leftData      data set for left segment
-         * @param centerData    data set for center segment
-         * @param rightData     data set for right segment
+         * @param leftData      data set for left segment, sorted in ascending order
+         * @param centerData    data set for center segment, sorted in ascending order
+         * @param rightData     data set for right segment, sorted in ascending order
          * @return              pair of scores based on the Hodges-Lehmann estimator
          */
         private static Pair<Double, Double> calculateHodgesLehmannScores(final double[] leftData,
@@ -487,42 +581,41 @@ public final class SegmentMergeUtils {
         }
 
         /**
-         * Given a segment specified by an index, returns a pair of scores for adjacent segments based on 2-sample
+         * Given a segment and its adjacent segments, returns a pair of scores for the adjacent segments based on 2-sample
          * Kolmogorov-Smirnov tests of the observed alternate-allele fractions; except for edge cases, the sum of the
          * scores will be unity. All segments are assumed to be on the same chromosome.
          * If any of the three segments is missing SNPs, both scores are Double.NEGATIVE_INFINITY.
-         * @param segments  list of segments
-         * @param snps      SNP-allele-count data to be segmented
-         * @param index     index of the center segment to consider
-         * @return          scores for adjacent segments based on 2-sample Kolmogorov-Smirnov tests
+         * @param leftSegment   left adjacent segment
+         * @param centerSegment center segment to consider
+         * @param rightSegment  right adjacent segment
+         * @param sortedData    sorted SNP data of the segments
+         * @return              scores for adjacent segments based on 2-sample Kolmogorov-Smirnov tests
          */
-        private static Pair<Double, Double> calculateSNPScores(final List<SimpleInterval> segments,
-                                                               final TargetCollection<AllelicCount> snps,
-                                                               final int index) {
-            final SimpleInterval leftSegment = segments.get(index - 1);
-            final SimpleInterval centerSegment = segments.get(index);
-            final SimpleInterval rightSegment = segments.get(index + 1);
+        private static Pair<Double, Double> calculateSNPScores(final SimpleInterval leftSegment,
+                                                               final SimpleInterval centerSegment,
+                                                               final SimpleInterval rightSegment,
+                                                               final SortedSegmentData sortedData) {
+            //calculate Kolmogorov-Smirnov distances based on alternate-allele-fractions in each segment
+            final double[] leftAAFs = sortedData.aafs(leftSegment);
+            final double[] centerAAFs = sortedData.aafs(centerSegment);
+            final double[] rightAAFs = sortedData.aafs(rightSegment);
 
             //check if any segment is missing SNPs
-            if (snps.targetCount(leftSegment) == 0 || snps.targetCount(centerSegment) == 0 ||
-                    snps.targetCount(rightSegment) == 0) {
+            if (leftAAFs.length == 0 || centerAAFs.length == 0 || rightAAFs.length == 0) {
                 return Pair.of(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
             }
 
-            //calculate Kolmogorov-Smirnov distances based on alternate-allele-fractions in each segment
-            final double[] leftAAFs = Doubles.toArray(calculateAAFs(leftSegment, snps));
-            final double[] centerAAFs = Doubles.toArray(calculateAAFs(centerSegment, snps));
-            final double[] rightAAFs = Doubles.toArray(calculateAAFs(rightSegment, snps));
-            try {
-                //if not enough alternate-allele fractions in any segment to use Apache Commons implementation of
-                //kolmogorovSmirnovStatistic, kolmogorovSmirnovDistance will throw an unchecked
-                //InsufficientDataException and the code after the catch block will be executed
+            //if not enough alternate-allele fractions in any segment to calculate the Kolmogorov-Smirnov distances,
+            //the code after this block will be executed
+            if (leftAAFs.length >= MINIMUM_KOLMOGOROV_SMIRNOV_DATA_SIZE &&
+                    centerAAFs.length >= MINIMUM_KOLMOGOROV_SMIRNOV_DATA_SIZE &&
+                    rightAAFs.length >= MINIMUM_KOLMOGOROV_SMIRNOV_DATA_SIZE) {
                 final double leftKSDistance = kolmogorovSmirnovDistance(leftAAFs, centerAAFs);
                 final double rightKSDistance = kolmogorovSmirnovDistance(centerAAFs, rightAAFs);
 
                 //edge case (divide-by-zero)
                 if (leftKSDistance == 0. && rightKSDistance == 0.) {
-                    //this is unlikely to occur using the Apache Commons implementation of kolmogorovSmirnovStatistic
+                    //this only occurs if all three data sets have the same empirical distribution
                     return Pair.of(0.5, 0.5);
                 }
 
@@ -540,74 +633,61 @@ public final class SegmentMergeUtils {
                             1. - rightKSDistance * rightSqrtN /
                                     (leftKSDistance * leftSqrtN + rightKSDistance * rightSqrtN));
                 }
-            } catch (final InsufficientDataException e) {
-                //do nothing here, continue below to use Hodges-Lehmann scores instead
             }
             //use Hodges-Lehmann scores computed using inverse minor-allele fractions
             //(which, ideally, are proportional to total copy ratio)
-            //will be executed after an InsufficientDataException or alternate-allele fractions in all segments
-            //are too similar or do not overlap appreciably
-            final double[] leftInverseMAFs = Doubles.toArray(calculateInverseMAFs(leftSegment, snps));
-            final double[] centerInverseMAFs = Doubles.toArray(calculateInverseMAFs(centerSegment, snps));
-            final double[] rightInverseMAFs = Doubles.toArray(calculateInverseMAFs(rightSegment, snps));
+            //will be executed if there are not enough alternate-allele fractions or alternate-allele fractions
+            //in all segments are too similar or do not overlap appreciably
+            final double[] leftInverseMAFs = sortedData.inverseMAFs(leftSegment);
+            final double[] centerInverseMAFs = sortedData.inverseMAFs(centerSegment);
+            final double[] rightInverseMAFs = sortedData.inverseMAFs(rightSegment);
 
             return calculateHodgesLehmannScores(leftInverseMAFs, centerInverseMAFs, rightInverseMAFs);
         }
 
         /**
-         * Returns a list of the coverages for targets in a given segment.
-         * @param segment   segment to consider
-         * @param targets   target-coverage data to be segmented
-         * @return          list of the coverages for targets in the segment
-         */
-        private static List<Double> makeCoverageList(final SimpleInterval segment,
-                                                     final TargetCollection<ReadCountRecord.SingleSampleRecord> targets) {
-            return targets.targets(segment).stream().map(ReadCountRecord.SingleSampleRecord::getCount).collect(Collectors.toList());
-        }
-
-        /**
-         * Given a segment specified by an index, returns a pair of scores for adjacent segments based on the
+         * Given a segment and its adjacent segments, returns a pair of scores for the adjacent segments based on the
          * Hodges-Lehmann estimators between the observed target coverages; except for edge cases,
          * the sum of the scores will be unity. All segments are assumed to be on the same chromosome.
          * If any of the three segments is missing targets, both scores are Double.NEGATIVE_INFINITY.
-         * @param segments  list of segments
-         * @param targets   target-coverage data to be segmented
-         * @param index     index of the center segment to consider
-         * @return          scores for adjacent segments based on Hodges-Lehmann estimators
+         * @param leftSegment   left adjacent segment
+         * @param centerSegment center segment to consider
+         * @param rightSegment  right adjacent segment
+         * @param sortedData    sorted target-coverage data of the segments
+         * @return              scores for adjacent segments based on Hodges-Lehmann estimators
          */
-        private static Pair<Double, Double> calculateTargetScores(final List<SimpleInterval> segments,
-                                                                  final TargetCollection<ReadCountRecord.SingleSampleRecord> targets,
-                                                                  final int index) {
-            final SimpleInterval leftSegment = segments.get(index - 1);
-            final SimpleInterval centerSegment = segments.get(index);
-            final SimpleInterval rightSegment = segments.get(index + 1);
+        private static Pair<Double, Double> calculateTargetScores(final SimpleInterval leftSegment,
+                                                                  final SimpleInterval centerSegment,
+                                                                  final SimpleInterval rightSegment,
+                                                                  final SortedSegmentData sortedData) {
+            final double[] leftCoverages = sortedData.coverages(leftSegment);
+            final double[] centerCoverages = sortedData.coverages(centerSegment);
+            final double[] rightCoverages = sortedData.coverages(rightSegment);
 
             //check if any segment is missing targets
-            if (targets.targetCount(leftSegment) == 0 || targets.targetCount(centerSegment) == 0 ||
-                    targets.targetCount(rightSegment) == 0) {
+            if (leftCoverages.length == 0 || centerCoverages.length == 0 || rightCoverages.length == 0) {
                 return Pair.of(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
             }
 
-            final double[] leftCoverages = Doubles.toArray(makeCoverageList(leftSegment, targets));
-            final double[] centerCoverages = Doubles.toArray(makeCoverageList(centerSegment, targets));
-            final double[] rightCoverages = Doubles.toArray(makeCoverageList(rightSegment, targets));
-
             return calculateHodgesLehmannScores(leftCoverages, centerCoverages, rightCoverages);
         }
 
         /**
-         * Given a segment specified by an index, returns the small-segment merge scores for merging with adjacent
-         * segments.
-         * @param segments  list of segments
-         * @param genome    target-coverage and SNP-allele-count data to be segmented
-         * @param index     index of the center segment to consider
-         * @return          pair of small-segment merge scores for merging with adjacent segments
-         *                  (Double.NEGATIVE_INFINITY for adjacent segments that are on different chromosomes)
+         * Given a segment and its adjacent segments, returns the small-segment merge scores for merging with the
+         * adjacent segments.
+         * @param leftSegment   left adjacent segment ({@code null} if none)
+         * @param centerSegment center segment to consider
+         * @param rightSegment  right adjacent segment ({@code null} if none)
+         * @param sortedData    sorted target-coverage and SNP-allele-count data of the segments
+         * @return              pair of small-segment merge scores for merging with adjacent segments
+         *                      (Double.NEGATIVE_INFINITY for adjacent segments that are on different chromosomes)
          */
-        private static Pair<Double, Double> calculateScores(final List<SimpleInterval> segments,
-                                                            final Genome genome,
-                                                            final int index) {
-            final Pair<Double, Double> genomicDistanceScores = calculateGenomicDistanceScores(segments, index);
+        private static Pair<Double, Double> calculateScores(final SimpleInterval leftSegment,
+                                                            final SimpleInterval centerSegment,
+                                                            final SimpleInterval rightSegment,
+                                                            final SortedSegmentData sortedData) {
+            final Pair<Double, Double> genomicDistanceScores =
+                    calculateGenomicDistanceScores(leftSegment, centerSegment, rightSegment);
 
             //if either adjacent segment on different chromosome or out of range, no need to do non-parametric tests
             if (genomicDistanceScores.getLeft() == Double.NEGATIVE_INFINITY ||
@@ -617,17 +697,15 @@ public final class SegmentMergeUtils {
 
             //first, try to use SNP scores based on 2-sample Kolmogorov-Smirnov test (or Hodges-Lehmann estimator, if no
             //appreciable overlap between samples, Kolmogorov-Smirnov distances are too similar, or not enough SNPs
-            //to use Apache Commons implementation of kolmogorovSmirnovStatistic)
-            final TargetCollection<AllelicCount> snps = genome.getSNPs();
-            final Pair<Double, Double> snpScores = calculateSNPScores(segments, snps, index);
+            //to calculate the Kolmogorov-Smirnov distances)
+            final Pair<Double, Double> snpScores = calculateSNPScores(leftSegment, centerSegment, rightSegment, sortedData);
             if (Math.max(snpScores.getLeft(), snpScores.getRight()) > SNP_SCORE_THRESHOLD) {
                 return snpScores;
             }
 
             //if any of the three segments is missing SNPs or the SNP scores are too similar,
             //try to use target scores based on Hodges-Lehmann estimator
-            final TargetCollection<ReadCountRecord.SingleSampleRecord> targets = genome.getTargets();
-            final Pair<Double, Double> targetScores = calculateTargetScores(segments, targets, index);
+            final Pair<Double, Double> targetScores = calculateTargetScores(leftSegment, centerSegment, rightSegment, sortedData);
             if (Math.max(targetScores.getLeft(), targetScores.getRight()) > TARGET_SCORE_THRESHOLD) {
                 return targetScores;
             }
@@ -638,22 +716,23 @@ public final class SegmentMergeUtils {
         }
 
         /**
-         * Given a segment specified by an index, returns the direction of the adjacent segment(s) with which it
+         * Given a segment, returns the direction of the adjacent segment(s) with which it
          * should be merged (i.e., the adjacent segment with higher small-segment merge score given by
          * {@link SegmentMergeUtils.SmallSegments#calculateScores}.
          * If both adjacent segments are on different chromosomes than the specified segment, returns
          * MergeDirection.NONE.
-         * @param segments          list of segments (from segment-union step)
-         * @param genome            target-coverage and SNP-allele-count data to be segmented
-         * @param index             index of the center segment to consider
+         * @param node              node of the center segment to consider in the list of segments (from segment-union step)
+         * @param sortedData        sorted target-coverage and SNP-allele-count data of the segments
          * @return                  direction of the adjacent segment with higher small-segment merge score
          *                          (MergeDirection.NONE if both adjacent segments are on different chromosomes)
          */
-        private static MergeDirection calculateMergeDirection(final List<SimpleInterval> segments,
-                                                              final Genome genome,
-                                                              final int index) {
-            Utils.validIndex(index, segments.size());
-            final Pair<Double, Double> scores = calculateScores(segments, genome, index);
+        private static MergeDirection calculateMergeDirection(final SegmentNode<SimpleInterval> node,
+                                                              final SortedSegmentData sortedData) {
+            final Pair<Double, Double> scores = calculateScores(
+                    node.previous == null ? null : node.previous.segment,
+                    node.segment,
+                    node.next == null ? null : node.next.segment,
+                    sortedData);
             if (scores.getLeft() > scores.getRight()) {
                 return MergeDirection.LEFT;
             }
@@ -670,6 +749,27 @@ public final class SegmentMergeUtils {
             }
             throw new GATKException.ShouldNeverReachHereException("Something went wrong during small-segment merging.");
         }
+
+        /**
+         * Merges a segment with the adjacent segment given by {@link SegmentMergeUtils.SmallSegments#calculateMergeDirection}.
+         * @param node          node of the segment to merge in the list of segments
+         * @param sortedData    sorted target-coverage and SNP-allele-count data of the segments, which is updated
+         * @return              node of the merged segment ({@code null} if no merge was performed)
+         */
+        private static SegmentNode<SimpleInterval> mergeInDirection(final SegmentNode<SimpleInterval> node,
+                                                                    final SortedSegmentData sortedData) {
+            final MergeDirection direction = calculateMergeDirection(node, sortedData);
+            //current = merge(left, current) or merge(current, right)
+            final SegmentNode<SimpleInterval> left =
+                    direction == MergeDirection.LEFT ? node.previous : direction == MergeDirection.RIGHT ? node : null;
+            if (left == null) {
+                return null;
+            }
+            sortedData.remove(left.segment);
+            sortedData.remove(left.next.segment);
+            left.mergeWithNext(mergeSegments(left.segment, left.next.segment));
+            return left;
+        }
     }
 
     /**
@@ -517,7 +517,7 @@ public final class SegmentUtils {
                 }
 
                 final SimpleInterval segment = new SimpleInterval(contig, start, end);
-                if (genome.getTargets().targetCount(segment) > 0 || genome.getSNPs().targetCount(segment) > 0) {
+                if (genome.getTargetIndex().count(segment) > 0 || genome.getSNPIndex().count(segment) > 0) {
                     segments.add(segment);
                 }
                 start = segment.getEnd() + 1;
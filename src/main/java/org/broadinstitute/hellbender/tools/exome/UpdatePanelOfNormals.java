@@ -0,0 +1,155 @@
+package org.broadinstitute.hellbender.tools.exome;
+
+import org.apache.spark.api.java.JavaSparkContext;
+import org.broadinstitute.hellbender.cmdline.Argument;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgramProperties;
+import org.broadinstitute.hellbender.cmdline.ExomeStandardArgumentDefinitions;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.cmdline.programgroups.CopyNumberProgramGroup;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SparkToggleCommandLineProgram;
+import org.broadinstitute.hellbender.utils.hdf5.HDF5PoNCreator;
+
+import java.io.File;
+import java.util.OptionalInt;
+
+/**
+ * Tool to add samples to an existing panel of normals (PoN) without re-creating it.
+ *
+ * <p>
+ * The input read-counts for the new samples have the same format as those for {@link CreatePanelOfNormals} and must
+ * cover all the targets in the PoN.  The existing panel samples are rescaled to the updated target factors rather than
+ * re-processed, and the reduced panel is updated incrementally rather than by a new SVD of all samples; see
+ * {@link HDF5PoNCreator#updatePoN HDF5PoNCreator.updatePoN} for details.  The result is therefore close to, but not
+ * the same as, the PoN that {@link CreatePanelOfNormals} would produce for all the samples.
+ * </p>
+ * <p>
+ * The output PoN records the update, along with those of the input PoN, in its provenance.
+ * </p>
+ */
+@CommandLineProgramProperties(
+        summary = "Adds samples to a Panel of Normals (PoN) given their proportional read counts, updating its reduction incrementally.  Supports Apache Spark for some operations.",
+        oneLineSummary = "Updates a Panel of Normals with new samples.",
+        programGroup = CopyNumberProgramGroup.class
+)
+public class UpdatePanelOfNormals extends SparkToggleCommandLineProgram {
+
+    static final long serialVersionUID = 42123133L;
+
+    public static final String KEEP_NUMBER_OF_EIGEN_SAMPLES = "keep";
+
+    public static final String NUMBER_OF_EIGEN_SAMPLES_DOCUMENTATION =
+            "Number of eigen samples to use for the updated reduced PoN. " +
+            "By default it will keep the number of eigen samples in the input PoN (value " + KEEP_NUMBER_OF_EIGEN_SAMPLES + ")";
+
+    @Argument(
+            doc = "Input PoN file.",
+            shortName = ExomeStandardArgumentDefinitions.PON_FILE_SHORT_NAME,
+            fullName = ExomeStandardArgumentDefinitions.PON_FILE_LONG_NAME,
+            optional = false
+    )
+    protected File ponFile = null;
+
+    @Argument(
+            doc = "Input proportional read counts for the samples to add to the panel of normals.",
+            shortName = StandardArgumentDefinitions.INPUT_SHORT_NAME,
+            fullName  = StandardArgumentDefinitions.INPUT_LONG_NAME,
+            optional  = false
+    )
+    protected File inputFile = null;
+
+    @Argument(
+            doc = "Output HDF5 file name.",
+            shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
+            fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME,
+            optional = false
+    )
+    protected File outFile = null;
+
+    @Argument(
+            doc = NUMBER_OF_EIGEN_SAMPLES_DOCUMENTATION,
+            shortName = CreatePanelOfNormals.NUMBER_OF_EIGEN_SAMPLES_SHORT_NAME,
+            fullName = CreatePanelOfNormals.NUMBER_OF_EIGEN_SAMPLES_FULL_NAME,
+            optional = true
+    )
+    protected String numberOfEigenSamples = KEEP_NUMBER_OF_EIGEN_SAMPLES;
+
+    @Argument(
+            doc = CreatePanelOfNormals.MAXIMUM_PERCENT_ZEROS_IN_COLUMN_DOCUMENTATION,
+            shortName = CreatePanelOfNormals.MAXIMUM_PERCENT_ZEROS_IN_COLUMN_SHORT_NAME,
+            fullName = CreatePanelOfNormals.MAXIMUM_PERCENT_ZEROS_IN_COLUMN_FULL_NAME,
+            optional = true
+    )
+    protected double maximumPercentZerosInColumn = CreatePanelOfNormals.DEFAULT_MAXIMUM_PERCENT_ZEROS_IN_COLUMN;
+
+    @Argument(
+            doc = CreatePanelOfNormals.COLUMN_EXTREME_THRESHOLD_PERCENTILE_DOCUMENTATION,
+            shortName = CreatePanelOfNormals.COLUMN_EXTREME_THRESHOLD_PERCENTILE_SHORT_NAME,
+            fullName = CreatePanelOfNormals.COLUMN_EXTREME_THRESHOLD_PERCENTILE_FULL_NAME,
+            optional = true
+    )
+    protected double columnExtremeThresholdPercentile = CreatePanelOfNormals.DEFAULT_COLUMN_OUTLIER_DROP_THRESHOLD_PERCENTILE;
+
+    @Argument(
+            doc = CreatePanelOfNormals.COUNT_TRUNCATE_PERCENTILE_DOCUMENTATION,
+            shortName = CreatePanelOfNormals.COUNT_TRUNCATE_PERCENTILE_SHORT_NAME,
+            fullName = CreatePanelOfNormals.COUNT_TRUNCATE_PERCENTILE_FULL_NAME,
+            optional = true
+    )
+    protected double outlierTruncatePercentileThresh = CreatePanelOfNormals.DEFAULT_OUTLIER_TRUNCATE_PERCENTILE_THRESHOLD;
+
+    @Argument(
+            doc = "Output file for the weights of each target.  By default, this simple text file is " +
+                    "written next to the pon file with the extension " + CreatePanelOfNormals.TARGET_WEIGHTS_FILE_APPEND + ".",
+            shortName = CreatePanelOfNormals.TARGET_WEIGHTS_SHORT_NAME,
+            fullName = CreatePanelOfNormals.TARGET_WEIGHTS_FULL_NAME,
+            optional = true
+    )
+    protected File targetWeightsOutFile = null;
+
+    @Override
+    protected void runPipeline(final JavaSparkContext ctx) {
+        if (targetWeightsOutFile == null) {
+            targetWeightsOutFile = new File(outFile + CreatePanelOfNormals.TARGET_WEIGHTS_FILE_APPEND);
+        }
+        checkPercentage(maximumPercentZerosInColumn, 100, CreatePanelOfNormals.MAXIMUM_PERCENT_ZEROS_IN_COLUMN_FULL_NAME);
+        checkPercentage(columnExtremeThresholdPercentile, 50, CreatePanelOfNormals.COLUMN_EXTREME_THRESHOLD_PERCENTILE_FULL_NAME);
+        checkPercentage(outlierTruncatePercentileThresh, 50, CreatePanelOfNormals.COUNT_TRUNCATE_PERCENTILE_FULL_NAME);
+
+        logger.info("Updating PoN " + ponFile + " with the samples in " + inputFile + "...");
+        HDF5PoNCreator.updatePoN(ctx, ponFile, inputFile, calculatePreferredNumberOfEigenSamples(), outFile,
+                columnExtremeThresholdPercentile, outlierTruncatePercentileThresh, maximumPercentZerosInColumn);
+
+        logger.info("Writing target weights file to " + targetWeightsOutFile + "...");
+        CreatePanelOfNormals.writeTargetWeightsFile(outFile, targetWeightsOutFile);
+        logger.info("Done...");
+    }
+
+    /**
+     * Composes the preferred number of eigen values optional given the user input.
+     *
+     * @return an empty optional if the user elected to keep the input PoN's number, otherwise
+     * a strictly positive integer.
+     */
+    private OptionalInt calculatePreferredNumberOfEigenSamples() {
+        if (numberOfEigenSamples.equalsIgnoreCase(KEEP_NUMBER_OF_EIGEN_SAMPLES)) {
+            return OptionalInt.empty();
+        }
+        try {
+            final int result = Integer.parseInt(numberOfEigenSamples);
+            if (result <= 0) {
+                throw new UserException.BadArgumentValue(CreatePanelOfNormals.NUMBER_OF_EIGEN_SAMPLES_FULL_NAME, "0 or negative values are not allowed: " + numberOfEigenSamples);
+            }
+            return OptionalInt.of(result);
+        } catch (final NumberFormatException ex) {
+            throw new UserException.BadArgumentValue(CreatePanelOfNormals.NUMBER_OF_EIGEN_SAMPLES_FULL_NAME,
+                    "it must be either '" + KEEP_NUMBER_OF_EIGEN_SAMPLES + "' or an integer value");
+        }
+    }
+
+    private static void checkPercentage(final double value, final double maximum, final String argumentName) {
+        if (value < 0 || value > maximum || Double.isNaN(value)) {
+            throw new UserException.BadArgumentValue(argumentName, "the value must be in the range [0, " + maximum + "]");
+        }
+    }
+}
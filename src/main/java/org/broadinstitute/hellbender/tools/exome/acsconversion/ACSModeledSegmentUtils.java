@@ -112,9 +112,9 @@ public class ACSModeledSegmentUtils {
         final double sigmaMinor = widthF/divisor;
         final double muMajor = tau * (1-f);
         final double sigmaMajor = sigmaMinor;
-        final int targetCount = genome.getTargets().targetCount(acnvModeledSegment.getInterval());
+        final int targetCount = genome.getTargetIndex().count(acnvModeledSegment.getInterval());
         final int segLabelCNLOH = 2;
-        final int hetCount = genome.getSNPs().targetCount(acnvModeledSegment.getInterval());
+        final int hetCount = genome.getSNPIndex().count(acnvModeledSegment.getInterval());
         return new ACSModeledSegment(acnvModeledSegment.getInterval(), ModeledSegment.NO_CALL, targetCount, segmentMeanInLog2CR,
                 hetCount, f, sigmaTau, muMinor, sigmaMinor, muMajor, sigmaMajor, segLabelCNLOH);
     }
@@ -2,7 +2,7 @@ package org.broadinstitute.hellbender.tools.exome.allelefraction;
 
 import org.broadinstitute.hellbender.tools.exome.alleliccount.AllelicCount;
 import org.broadinstitute.hellbender.tools.exome.SegmentedGenome;
-import org.broadinstitute.hellbender.tools.exome.TargetCollection;
+import org.broadinstitute.hellbender.tools.exome.LocatableIndex;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.mcmc.DataCollection;
 
@@ -35,15 +35,17 @@ public final class AlleleFractionData implements DataCollection {
         this.allelicPON = allelicPON;
         allelicCounts = new ArrayList<>();
         final List<SimpleInterval> segmentIntervals = segmentedGenome.getSegments();
-        final TargetCollection<AllelicCount> alleleCounts = segmentedGenome.getGenome().getSNPs();
+        final List<AllelicCount> alleleCounts = segmentedGenome.getGenome().getSNPs().targets();
+        final LocatableIndex snpIndex = segmentedGenome.getGenome().getSNPIndex();
 
         int startHet = 0;
         for (final SimpleInterval segment : segmentIntervals) {
             startHetsPerSegment.add(startHet);
-            final List<AllelicCount> countsInSegment = alleleCounts.targets(segment);
-            numHetsPerSegment.add(countsInSegment.size());
-            startHet += countsInSegment.size();
-            allelicCounts.addAll(countsInSegment);
+            final int fromIndex = snpIndex.fromIndex(segment);
+            final int toIndex = snpIndex.toIndex(segment);
+            numHetsPerSegment.add(toIndex - fromIndex);
+            startHet += toIndex - fromIndex;
+            allelicCounts.addAll(alleleCounts.subList(fromIndex, toIndex));
         }
 
         hetIndices = IntStream.range(0, allelicCounts.size()).boxed().collect(Collectors.toList());
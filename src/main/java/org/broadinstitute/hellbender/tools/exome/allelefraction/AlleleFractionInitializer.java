@@ -85,6 +85,30 @@ public final class AlleleFractionInitializer {
                 nextIterationLogLikelihood - previousIterationLogLikelihood > LOG_LIKELIHOOD_CONVERGENCE_THRESHOLD);
     }
 
+    /**
+     * Initializes the minor fractions of some segments given the remaining parameters of a state, e.g., one warm-started
+     * from a previous fit of the model to different segments.  The minor fractions of the segments are set to their
+     * maximum-likelihood estimates given the global parameters, which are not re-estimated; the other minor
+     * fractions are left unchanged.
+     * @param data                  data
+     * @param warmState             state with the global parameters and the minor fractions that are left unchanged
+     * @param isSegmentEstimated    whether the minor fraction of each segment is estimated
+     */
+    public AlleleFractionInitializer(final AlleleFractionData data, final AlleleFractionState warmState,
+                                     final boolean[] isSegmentEstimated) {
+        final AlleleFractionState.MinorFractions initialGuesses = initialMinorFractions(data);
+        final AlleleFractionState.MinorFractions minorFractions = new AlleleFractionState.MinorFractions(
+                IntStream.range(0, data.getNumSegments())
+                        .mapToObj(segment -> isSegmentEstimated[segment] ? initialGuesses.get(segment) : warmState.segmentMinorFraction(segment))
+                        .collect(Collectors.toList()));
+        state = new AlleleFractionState(warmState.meanBias(), warmState.biasVariance(), warmState.outlierProbability(), minorFractions);
+        final AlleleFractionState.MinorFractions estimatedMinorFractions = new AlleleFractionState.MinorFractions(
+                IntStream.range(0, data.getNumSegments())
+                        .mapToObj(segment -> isSegmentEstimated[segment] ? estimateMinorFraction(segment, data) : minorFractions.get(segment))
+                        .collect(Collectors.toList()));
+        state = new AlleleFractionState(warmState.meanBias(), warmState.biasVariance(), warmState.outlierProbability(), estimatedMinorFractions);
+    }
+
     /**
      *
      * @return the initialized state of the Allele Fraction Model
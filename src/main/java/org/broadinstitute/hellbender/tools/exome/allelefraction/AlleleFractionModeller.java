@@ -2,6 +2,8 @@ package org.broadinstitute.hellbender.tools.exome.allelefraction;
 
 import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.tools.exome.SegmentedGenome;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.mcmc.*;
 
 import java.util.*;
@@ -50,10 +52,34 @@ public final class AlleleFractionModeller {
     private final int numSegments;
 
     public AlleleFractionModeller(final SegmentedGenome segmentedGenome, final AllelicPanelOfNormals allelicPON) {
+        this(segmentedGenome, allelicPON, null);
+    }
+
+    /**
+     * Constructs an allele-fraction model given a {@link SegmentedGenome} whose segments were obtained from those of a
+     * previously fit model (e.g., by similar-segment merging), warm-started from the last posterior sample of that model.
+     * The global parameters and the minor fractions of segments that are also in the previous model are initialized
+     * to their last samples, and the latter are held fixed by {@link AlleleFractionModeller#fitMCMC(int, int)};
+     * only the minor fractions of new segments, initialized to their maximum-likelihood estimates given the
+     * global parameters, are sampled along with the global parameters.
+     * @param segmentedGenome       SegmentedGenome with segments and the same Genome as that of {@code previousModeller}
+     * @param allelicPON            allelic-bias panel of normals
+     * @param previousModeller      model for which {@link AlleleFractionModeller#fitMCMC(int, int)} has been called
+     */
+    public AlleleFractionModeller(final SegmentedGenome segmentedGenome, final AllelicPanelOfNormals allelicPON,
+                                  final AlleleFractionModeller previousModeller) {
         this.segmentedGenome = segmentedGenome;
         final AlleleFractionData data = new AlleleFractionData(segmentedGenome, allelicPON);
         numSegments = data.getNumSegments();
-        final AlleleFractionState initialState = new AlleleFractionInitializer(data).getInitializedState();
+        final boolean[] isSegmentSampled = new boolean[numSegments];
+        final AlleleFractionState initialState;
+        if (previousModeller == null) {
+            initialState = new AlleleFractionInitializer(data).getInitializedState();
+            Arrays.fill(isSegmentSampled, true);
+        } else {
+            initialState = new AlleleFractionInitializer(data, warmStartState(previousModeller, isSegmentSampled), isSegmentSampled)
+                    .getInitializedState();
+        }
 
         // Initialization got us to the mode of the likelihood
         // if we approximate conditionals as normal we can guess the width from the curvature at the mode and use as the step size
@@ -75,7 +101,7 @@ public final class AlleleFractionModeller {
         final ParameterSampler<Double, AlleleFractionParameter, AlleleFractionState, AlleleFractionData> outlierProbabilitySampler =
                 new AlleleFractionSamplers.OutlierProbabilitySampler(initialState, outlierProbabilityInitialStepSize);
         final ParameterSampler<AlleleFractionState.MinorFractions, AlleleFractionParameter, AlleleFractionState, AlleleFractionData> minorFractionsSampler =
-                new AlleleFractionSamplers.MinorFractionsSampler(initialState, minorFractionsInitialStepSizes);
+                new AlleleFractionSamplers.MinorFractionsSampler(initialState, minorFractionsInitialStepSizes, isSegmentSampled);
 
         model = new ParameterizedModel.GibbsBuilder<>(initialState, data)
                 .addParameterSampler(AlleleFractionParameter.MEAN_BIAS, meanBiasSampler, Double.class)
@@ -85,6 +111,30 @@ public final class AlleleFractionModeller {
                 .build();
     }
 
+    //returns the last sample of the previous model, with the minor fractions of segments it shares with this one mapped
+    //(and NaN for the other segments, which are marked as sampled)
+    private AlleleFractionState warmStartState(final AlleleFractionModeller previousModeller, final boolean[] isSegmentSampled) {
+        Utils.validateArg(previousModeller.segmentedGenome.getGenome() == segmentedGenome.getGenome(),
+                "The previous model must have been fit to the same genome.");
+        Utils.validateArg(!previousModeller.minorFractionsSamples.isEmpty(), "The previous model must have been fit.");
+        final int lastSample = previousModeller.minorFractionsSamples.size() - 1;
+        final List<SimpleInterval> previousSegments = previousModeller.segmentedGenome.getSegments();
+        final Map<SimpleInterval, Integer> previousSegmentIndices = IntStream.range(0, previousSegments.size()).boxed()
+                .collect(Collectors.toMap(previousSegments::get, Function.identity()));
+        final AlleleFractionState.MinorFractions previousMinorFractions = previousModeller.minorFractionsSamples.get(lastSample);
+        final List<Double> minorFractions = new ArrayList<>(numSegments);
+        for (int segment = 0; segment < numSegments; segment++) {
+            final Integer previousSegment = previousSegmentIndices.get(segmentedGenome.getSegments().get(segment));
+            //segments without hets have NaN samples and are simply re-estimated
+            final double previousMinorFraction = previousSegment == null ? Double.NaN : previousMinorFractions.get(previousSegment);
+            isSegmentSampled[segment] = Double.isNaN(previousMinorFraction);
+            minorFractions.add(previousMinorFraction);
+        }
+        return new AlleleFractionState(previousModeller.meanBiasSamples.get(lastSample),
+                previousModeller.biasVarianceSamples.get(lastSample), previousModeller.outlierProbabilitySamples.get(lastSample),
+                new AlleleFractionState.MinorFractions(minorFractions));
+    }
+
     /**
      * Adds {@code numSamples - numBurnIn} Markov-Chain Monte-Carlo samples of the parameter posteriors (generated using
      * Gibbs sampling) to the collections held internally.  The current {@link AlleleFractionState} held internally is used
@@ -144,14 +194,27 @@ public final class AlleleFractionModeller {
         final int numSegments = segmentedGenome.getSegments().size();
         final List<PosteriorSummary> posteriorSummaries = new ArrayList<>(numSegments);
         for (int segment = 0; segment < numSegments; segment++) {
-            final int j = segment;
-            final List<Double> minorFractionSamples =
-                    minorFractionsSamples.stream().map(s -> s.get(j)).collect(Collectors.toList());
-            posteriorSummaries.add(PosteriorSummaryUtils.calculateHighestPosteriorDensityAndDecilesSummary(minorFractionSamples, credibleIntervalAlpha, ctx));
+            posteriorSummaries.add(getMinorAlleleFractionPosteriorSummary(segment, credibleIntervalAlpha, ctx));
         }
         return posteriorSummaries;
     }
 
+    /**
+     * Returns a {@link PosteriorSummary} summarizing the minor-allele-fraction posterior for a single segment.
+     * Should only be called after {@link AlleleFractionModeller#fitMCMC(int, int)} has been called.
+     * @param segment               index of the segment
+     * @param credibleIntervalAlpha credible-interval alpha, must be in (0, 1)
+     * @param ctx                   {@link JavaSparkContext} used for mllib kernel density estimation
+     * @return                      {@link PosteriorSummary} summarizing the minor-allele-fraction posterior for the segment
+     */
+    public PosteriorSummary getMinorAlleleFractionPosteriorSummary(final int segment, final double credibleIntervalAlpha,
+                                                                   final JavaSparkContext ctx) {
+        Utils.validIndex(segment, segmentedGenome.getSegments().size());
+        final List<Double> minorFractionSamples =
+                minorFractionsSamples.stream().map(s -> s.get(segment)).collect(Collectors.toList());
+        return PosteriorSummaryUtils.calculateHighestPosteriorDensityAndDecilesSummary(minorFractionSamples, credibleIntervalAlpha, ctx);
+    }
+
     /**
      * Returns a Map of {@link PosteriorSummary} elements summarizing the global parameters.
      * Should only be called after {@link AlleleFractionModeller#fitMCMC(int, int)} has been called.
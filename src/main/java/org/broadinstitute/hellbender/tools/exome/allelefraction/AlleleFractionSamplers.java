@@ -5,8 +5,10 @@ import org.broadinstitute.hellbender.utils.mcmc.AdaptiveMetropolisSampler;
 import org.broadinstitute.hellbender.utils.mcmc.ParameterSampler;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Sampler classes for the allele-fraction model.
@@ -83,21 +85,39 @@ final class AlleleFractionSamplers {
         }
     }
 
-    // sample minor fractions of all segments
+    // sample minor fractions of all segments; the minor fractions of segments that are not sampled
+    // (e.g., those carried over from a previous fit) are held fixed
     protected static final class MinorFractionsSampler implements ParameterSampler<AlleleFractionState.MinorFractions, AlleleFractionParameter, AlleleFractionState, AlleleFractionData> {
         private final List<PerSegmentMinorFractionSampler> perSegmentSamplers = new ArrayList<>();
 
         public MinorFractionsSampler(final AlleleFractionState initialState,
                                      final List<Double> initialStepSizes) {
+            this(initialState, initialStepSizes, allSampled(initialStepSizes.size()));
+        }
+
+        public MinorFractionsSampler(final AlleleFractionState initialState,
+                                     final List<Double> initialStepSizes,
+                                     final boolean[] isSegmentSampled) {
             final int numSegments = initialStepSizes.size();
             for (int segment = 0; segment < numSegments; segment++) {
-                perSegmentSamplers.add(new PerSegmentMinorFractionSampler(segment, initialState, initialStepSizes.get(segment)));
+                perSegmentSamplers.add(isSegmentSampled[segment]
+                        ? new PerSegmentMinorFractionSampler(segment, initialState, initialStepSizes.get(segment))
+                        : null);
             }
         }
 
         public AlleleFractionState.MinorFractions sample(final RandomGenerator rng, final AlleleFractionState state, final AlleleFractionData data) {
-            return new AlleleFractionState.MinorFractions(perSegmentSamplers.stream()
-                    .map(sampler -> sampler.sample(rng, state, data)).collect(Collectors.toList()));
+            return new AlleleFractionState.MinorFractions(IntStream.range(0, perSegmentSamplers.size())
+                    .mapToObj(segment -> perSegmentSamplers.get(segment) == null
+                            ? state.segmentMinorFraction(segment)
+                            : perSegmentSamplers.get(segment).sample(rng, state, data))
+                    .collect(Collectors.toList()));
+        }
+
+        private static boolean[] allSampled(final int numSegments) {
+            final boolean[] isSegmentSampled = new boolean[numSegments];
+            Arrays.fill(isSegmentSampled, true);
+            return isSegmentSampled;
         }
     }
 }
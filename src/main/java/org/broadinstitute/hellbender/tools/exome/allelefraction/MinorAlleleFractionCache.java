@@ -9,8 +9,8 @@ import org.broadinstitute.hellbender.tools.exome.alleliccount.AllelicCount;
 import org.broadinstitute.hellbender.utils.GATKProtectedMathUtils;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A helper class to maintain a cache of computed maximum-likelihood estimates of minor allele fraction
@@ -26,20 +26,13 @@ public final class MinorAlleleFractionCache {
     private static final MaxEval BRENT_MAX_EVAL = new MaxEval(100);
     private static final double MINOR_ALLELE_FRACTION_RELATIVE_TOLERANCE = 0.00001;
     private static final double MINOR_ALLELE_FRACTION_ABSOLUTE_TOLERANCE = 0.00001;
-    private static final BrentOptimizer OPTIMIZER =
-            new BrentOptimizer(MINOR_ALLELE_FRACTION_RELATIVE_TOLERANCE, MINOR_ALLELE_FRACTION_ABSOLUTE_TOLERANCE);
 
-    private static final Map<MinorAlleleFractionCacheKey, Double> cache = new HashMap<>();
+    //the cache may be accessed concurrently, e.g., by models fit on different threads
+    private static final Map<MinorAlleleFractionCacheKey, Double> cache = new ConcurrentHashMap<>();
 
     public static double get(final int a, final int r, final double allelicBias) {
-        final MinorAlleleFractionCacheKey key = new MinorAlleleFractionCacheKey(a, r, allelicBias);
-        if (cache.containsKey(key)) {
-            return cache.get(key);
-        } else {
-            final double minorAlleleFraction = estimateMinorAlleleFraction(a, r, allelicBias);
-            cache.put(key, minorAlleleFraction);
-            return minorAlleleFraction;
-        }
+        return cache.computeIfAbsent(new MinorAlleleFractionCacheKey(a, r, allelicBias),
+                key -> estimateMinorAlleleFraction(a, r, allelicBias));
     }
 
     //See docs/CNVs/CNV-methods.pdf for derivation of likelihood
@@ -62,7 +55,10 @@ public final class MinorAlleleFractionCache {
             return GATKProtectedMathUtils.logSumExp(altMinorLogLikelihood, refMinorLogLikelihood);
         });
 
-        return OPTIMIZER.optimize(objective, GoalType.MAXIMIZE, searchInterval, BRENT_MAX_EVAL).getPoint();
+        //BrentOptimizer is stateful, so one is created per estimate
+        final BrentOptimizer optimizer =
+                new BrentOptimizer(MINOR_ALLELE_FRACTION_RELATIVE_TOLERANCE, MINOR_ALLELE_FRACTION_ABSOLUTE_TOLERANCE);
+        return optimizer.optimize(objective, GoalType.MAXIMIZE, searchInterval, BRENT_MAX_EVAL).getPoint();
     }
 
     /**
@@ -271,15 +271,17 @@ public class CNLOHCaller implements Serializable {
      *
      * This method is not thread-safe, since it initializes member attributes.
      *
+     * The responsibilities and the rho optimizations of each iteration are distributed over Spark if a context is
+     * given, and over the local fork-join pool otherwise.  Both give the same calls.
+     *
      * @param segments The segments with segment mean and minor allelic fraction estimates (typically from ACNV).
      * @param numIterations Number of EM iteration to run
-     * @param ctx This call requires Spark, so not {@code null}
+     * @param ctx Spark context to distribute the work over.  {@code null} to run locally.
      * @return Never {@code null}
      */
     public List<CNLOHCall> makeCalls(final List<ACNVModeledSegment> segments, final int numIterations, final JavaSparkContext ctx) {
         ParamUtils.isPositive(numIterations, "Must be more than zero iterations.");
         Utils.nonNull(segments);
-        Utils.nonNull(ctx, "Java SparkContext can't be null when attempting to make CNLOH and balance calls.");
 
         segmentMeanBiasInCR = calculateSegmentMeanBiasInCRSpace(segments);
         segmentMeanVarianceInCR = calculateVarianceOfCopyNeutralSegmentMeans(segments, segmentMeanBiasInCR);
@@ -287,8 +289,8 @@ public class CNLOHCaller implements Serializable {
         final CNLOHCallerModelState state = CNLOHCallerModelState.createInitialCNLOHCallerModelState(rhoThreshold, segments,
                 normalNumCopies, NUM_RHOS);
 
-        // Create a Spark RDD for the segments.
-        final JavaRDD<ACNVModeledSegment> segs = ctx.parallelize(segments);
+        // Create a Spark RDD for the segments, if running on Spark.
+        final JavaRDD<ACNVModeledSegment> segs = ctx == null ? null : ctx.parallelize(segments);
 
         List<CNLOHCall> cnlohCalls = null;
 
@@ -302,28 +304,17 @@ public class CNLOHCaller implements Serializable {
             //  there is no gain for broadcasting
 
             // Effectively, the responsibilities are a 4D array:  S x K x M x N.  We do the responsibility calculation
-            //  over the segments.  So the JavaRDD will be of length S.
-            // Update E_zsk_vsm_wsn (responsibilities) for each segment (Steps 1 & 2)  {K x M x N} in S entries.  The RDD is of length S.
-            final JavaRDD<double[][][]> responsibilitiesForSegs = segs.map(s -> calculateResponsibilities(state.getEffectivePhis(), state.getEffectivePis(), state.getRhos(),
-                    s.getMinorAlleleFractionPosteriorSummary().getCenter(),
-                    s.getMinorAlleleFractionPosteriorSummary().getLower(),
-                    s.getMinorAlleleFractionPosteriorSummary().getUpper(),
-                    Math.pow(2, s.getSegmentMeanPosteriorSummary().getCenter()) - segmentMeanBiasInCR,
-                    Math.pow(2, s.getSegmentMeanPosteriorSummary().getLower()) - segmentMeanBiasInCR,
-                    Math.pow(2, s.getSegmentMeanPosteriorSummary().getUpper()) - segmentMeanBiasInCR,
-                    state.getLambda(), state.getmVals(), state.getnVals()));
-
-            // Create an array (for each segment) that is a sum of responsibilities for each rho.  (length:K for S entries)
-            final JavaRDD<double[]> responsibilitiesByRhoForSegs = responsibilitiesForSegs.map(da -> sumOverSecondAndThirdDimension(da));
-            final JavaRDD<double[]> responsibilitiesByAllele1ForSegs = responsibilitiesForSegs.map(da -> sumOverFirstAndThirdDimension(da));
-            final JavaRDD<double[]> responsibilitiesByAllele2ForSegs = responsibilitiesForSegs.map(da -> sumOverFirstAndSecondDimension(da));
-
-            // Create arrays summed in one dimension (incl. over segs).
-            final double[] responsibilitiesByRho = sumOverSegments(responsibilitiesByRhoForSegs);
-            final double[] responsibilitiesByAllele1 = sumOverSegments(responsibilitiesByAllele1ForSegs);
-            final double[] responsibilitiesByAllele2 = sumOverSegments(responsibilitiesByAllele2ForSegs);
-
-            final List<double[][][]> responsibilitiesForSegsAsList = responsibilitiesForSegs.collect();
+            //  over the segments.  So the list will be of length S.
+            // Update E_zsk_vsm_wsn (responsibilities) for each segment (Steps 1 & 2)  {K x M x N} in S entries.
+            final List<double[][][]> responsibilitiesForSegsAsList = segs == null ?
+                    segments.parallelStream().map(s -> calculateResponsibilities(state, s)).collect(Collectors.toList()) :
+                    segs.map(s -> calculateResponsibilities(state, s)).collect();
+
+            // Create arrays summed in one dimension (incl. over segs).  These are cheap compared to the
+            //  responsibilities themselves, so they are done locally from the collected responsibilities.
+            final double[] responsibilitiesByRho = sumOverSegments(responsibilitiesForSegsAsList, this::sumOverSecondAndThirdDimension);
+            final double[] responsibilitiesByAllele1 = sumOverSegments(responsibilitiesForSegsAsList, this::sumOverFirstAndThirdDimension);
+            final double[] responsibilitiesByAllele2 = sumOverSegments(responsibilitiesForSegsAsList, this::sumOverFirstAndSecondDimension);
 
             // Update EffectivePhis (Step 3)
             logger.info("Updating effective phis (iteration " + i + " of " + numIterations +  ") ... ");
@@ -414,8 +405,19 @@ public class CNLOHCaller implements Serializable {
         }
     }
 
-    private double[] sumOverSegments(final JavaRDD<double[]> eZskBySeg) {
-        final double[][] eZskBySeg2D = eZskBySeg.collect().stream().toArray(double[][]::new); // S x K
+    private double[][][] calculateResponsibilities(final CNLOHCallerModelState state, final ACNVModeledSegment s) {
+        return calculateResponsibilities(state.getEffectivePhis(), state.getEffectivePis(), state.getRhos(),
+                s.getMinorAlleleFractionPosteriorSummary().getCenter(),
+                s.getMinorAlleleFractionPosteriorSummary().getLower(),
+                s.getMinorAlleleFractionPosteriorSummary().getUpper(),
+                Math.pow(2, s.getSegmentMeanPosteriorSummary().getCenter()) - segmentMeanBiasInCR,
+                Math.pow(2, s.getSegmentMeanPosteriorSummary().getLower()) - segmentMeanBiasInCR,
+                Math.pow(2, s.getSegmentMeanPosteriorSummary().getUpper()) - segmentMeanBiasInCR,
+                state.getLambda(), state.getmVals(), state.getnVals());
+    }
+
+    private double[] sumOverSegments(final List<double[][][]> responsibilitiesForSegs, final Function<double[][][], double[]> sumForSeg) {
+        final double[][] eZskBySeg2D = responsibilitiesForSegs.stream().map(sumForSeg).toArray(double[][]::new); // S x K
         final RealMatrix eZskBySegMatrix = MatrixUtils.createRealMatrix(eZskBySeg2D);
         return GATKProtectedMathUtils.columnSums(eZskBySegMatrix);
     }
@@ -610,20 +612,26 @@ public class CNLOHCaller implements Serializable {
 
         // Since, we pass in the entire responsibilities matrix, we need the correct index for each rho.  That, and the
         //  fact that this is a univariate objective function, means we need to create an instance for each rho.  And
-        //  then we blast across Spark.
+        //  then we blast across Spark, or across the local fork-join pool if there is no Spark context.
 
-        final List<Pair<? extends Function<Double, Double>, SearchInterval>> objectives = IntStream.range(0, rhos.length)
+        final List<Pair<? extends UnivariateFunction, SearchInterval>> objectives = IntStream.range(0, rhos.length)
                 .mapToObj(i -> new Pair<>(
-                        new Function<Double, Double>() {
+                        new UnivariateFunction() {
                             @Override
-                            public Double apply(Double rho) {
+                            public double value(final double rho) {
                                 return calculateESmnObjective(rho, segments, responsibilitiesBySeg, mVals, nVals, lambda, i);
                             }
                         },
                         new SearchInterval(0.0, 1.0, rhos[i])))
                 .collect(Collectors.toList());
 
-        final JavaRDD<Pair<? extends Function<Double, Double>, SearchInterval>> objectivesRDD = ctx.parallelize(objectives);
+        if (ctx == null) {
+            return objectives.parallelStream()
+                    .mapToDouble(objective -> optimizeIt(objective.getFirst(), objective.getSecond()))
+                    .toArray();
+        }
+
+        final JavaRDD<Pair<? extends UnivariateFunction, SearchInterval>> objectivesRDD = ctx.parallelize(objectives);
 
         final List<Double> resultsAsDouble = objectivesRDD
                 .map(objective -> optimizeIt(objective.getFirst(), objective.getSecond()))
@@ -641,10 +649,9 @@ public class CNLOHCaller implements Serializable {
                                           final List<double[][][]> responsibilitiesForSegsAsList,
                                           final int[] mVals, final int[] nVals, final double lambda, final int rhoIndex) {
 
-        // We will want to sum an entire matrix that is S x M x N for the given rho.
-        final double[][][] eSMN = new double[responsibilitiesForSegsAsList.size()][mVals.length][nVals.length];
-
-        // Populate eSMN
+        // We will want to sum an entire matrix that is S x M x N for the given rho.  This is accumulated in place,
+        //  since this function is evaluated many times by each optimization.
+        double result = 0;
         for (int s=0; s<responsibilitiesForSegsAsList.size(); s++) {
             final ACNVModeledSegment seg = segments.get(s);
             final double mafMode = seg.getMinorAlleleFractionPosteriorSummary().getCenter();
@@ -660,15 +667,15 @@ public class CNLOHCaller implements Serializable {
                     final double crLikelihood = calculateFcr(rho, mVals[m], nVals[n], lambda, crMode, crLow, crHigh,
                             segmentMeanVarianceInCR, normalNumCopies);
                     if ( ((rho > 1) || (rho < 0)) || ((rho > 0) && (rho < rhoThreshold)))  {
-                        eSMN[s][m][n] = MIN_L;
+                        result += MIN_L;
                     } else {
-                        eSMN[s][m][n] = responsibilitiesForSegsAsList.get(s)[rhoIndex][m][n] * Math.log(mafLikelihood * crLikelihood);
+                        result += responsibilitiesForSegsAsList.get(s)[rhoIndex][m][n] * Math.log(mafLikelihood * crLikelihood);
                     }
                 }
             }
         }
 
-        return GATKProtectedMathUtils.sum(eSMN);
+        return result;
     }
 
     private class QAlphaUnivariateFunction implements UnivariateFunction {
@@ -714,13 +721,13 @@ public class CNLOHCaller implements Serializable {
         }
     }
 
-    private double optimizeIt(final Function<Double, Double> objectiveFxn, final SearchInterval searchInterval) {
+    private double optimizeIt(final UnivariateFunction objectiveFxn, final SearchInterval searchInterval) {
         final MaxEval BRENT_MAX_EVAL = new MaxEval(1000);
         final double RELATIVE_TOLERANCE = 0.001;
         final double ABSOLUTE_TOLERANCE = 0.001;
         final BrentOptimizer OPTIMIZER = new BrentOptimizer(RELATIVE_TOLERANCE, ABSOLUTE_TOLERANCE);
 
-        final UnivariateObjectiveFunction objective = new UnivariateObjectiveFunction(x -> objectiveFxn.apply(x));
+        final UnivariateObjectiveFunction objective = new UnivariateObjectiveFunction(objectiveFxn);
         return OPTIMIZER.optimize(objective, GoalType.MAXIMIZE, searchInterval, BRENT_MAX_EVAL).getPoint();
     }
 }
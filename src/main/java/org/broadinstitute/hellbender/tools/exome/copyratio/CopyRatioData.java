@@ -3,9 +3,8 @@ package org.broadinstitute.hellbender.tools.exome.copyratio;
 import com.google.common.primitives.Doubles;
 import org.apache.commons.math3.stat.descriptive.moment.Mean;
 import org.apache.commons.math3.stat.descriptive.moment.Variance;
-import org.broadinstitute.hellbender.tools.exome.ReadCountRecord;
+import org.broadinstitute.hellbender.tools.exome.LocatableIndex;
 import org.broadinstitute.hellbender.tools.exome.SegmentedGenome;
-import org.broadinstitute.hellbender.tools.exome.TargetCollection;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.mcmc.DataCollection;
@@ -30,31 +29,32 @@ public final class CopyRatioData implements DataCollection {
     private final List<List<IndexedCoverage>> indexedCoveragesPerSegment = new ArrayList<>();
 
     public CopyRatioData(final SegmentedGenome segmentedGenome) {
-        final TargetCollection<ReadCountRecord.SingleSampleRecord> targetCoverages = segmentedGenome.getGenome().getTargets();
-        Utils.validateArg(targetCoverages.targetCount() > 0, "Cannot construct CopyRatioData with no target-coverage data.");
-        //construct list of coverages (in order corresponding to that of segments in SegmentedGenome;
+        final LocatableIndex targetCoverages = segmentedGenome.getGenome().getTargetIndex();
+        Utils.validateArg(targetCoverages.size() > 0, "Cannot construct CopyRatioData with no target-coverage data.");
+        //partition coverages with target indices by segment (in order corresponding to that of segments in SegmentedGenome;
         //this may not be in genomic order, depending on how the segments are sorted in the segment file,
-        //so we cannot simply take the list of coverages in the order from TargetCollection.targets()
+        //so we cannot simply take the list of coverages in the order from TargetCollection.targets())
         final List<SimpleInterval> segments = segmentedGenome.getSegments();
         numSegments = segments.size();
-        final List<Double> coverages = segments.stream()
-                .flatMap(s -> targetCoverages.targets(s).stream())
-                .map(ReadCountRecord.SingleSampleRecord::getCount)
-                .collect(Collectors.toList());
-        numTargets = coverages.size();
-        coverageMin = Collections.min(coverages);
-        coverageMax = Collections.max(coverages);
-        //partition coverages with target indices by segment
         int targetIndex = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
         for (final SimpleInterval segment : segments) {
-            final List<ReadCountRecord.SingleSampleRecord> targetCoveragesInSegment = targetCoverages.targets(segment);
-            final List<IndexedCoverage> indexedCoveragesInSegment = new ArrayList<>();
-            for (final ReadCountRecord.SingleSampleRecord targetCoverage : targetCoveragesInSegment) {
-                final double coverage = targetCoverage.getCount();
+            final int fromIndex = targetCoverages.fromIndex(segment);
+            final int toIndex = targetCoverages.toIndex(segment);
+            final List<IndexedCoverage> indexedCoveragesInSegment = new ArrayList<>(toIndex - fromIndex);
+            for (int index = fromIndex; index < toIndex; index++) {
+                final double coverage = targetCoverages.value(index);
+                min = Math.min(min, coverage);
+                max = Math.max(max, coverage);
                 indexedCoveragesInSegment.add(new IndexedCoverage(coverage, targetIndex++));
             }
             indexedCoveragesPerSegment.add(indexedCoveragesInSegment);
         }
+        Utils.validateArg(targetIndex > 0, "Cannot construct CopyRatioData with no targets in the segments.");
+        numTargets = targetIndex;
+        coverageMin = min;
+        coverageMax = max;
     }
 
     public int getNumSegments() {
@@ -3,10 +3,14 @@ package org.broadinstitute.hellbender.tools.exome.copyratio;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.tools.exome.Genome;
 import org.broadinstitute.hellbender.tools.exome.SegmentedGenome;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.mcmc.*;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Represents an ACNV segmented model for copy ratio fit to tangent-normalized log_2 target-coverage data.
@@ -42,6 +46,20 @@ public final class CopyRatioModeller {
      * @param segmentedGenome    SegmentedGenome with segments and a Genome
      */
     public CopyRatioModeller(final SegmentedGenome segmentedGenome) {
+        this(segmentedGenome, null);
+    }
+
+    /**
+     * Constructs a copy-ratio model given a {@link SegmentedGenome} whose segments were obtained from those of a
+     * previously fit model (e.g., by similar-segment merging), warm-started from the last posterior sample of that model.
+     * The global parameters and outlier indicators are initialized to their last samples.  The means of segments
+     * that are also in the previous model are initialized to their last samples and are held fixed by
+     * {@link CopyRatioModeller#fitMCMC(int, int)}; only the means of new segments, initialized to their empirical
+     * estimates, are sampled along with the global parameters.
+     * @param segmentedGenome       SegmentedGenome with segments and the same Genome as that of {@code previousModeller}
+     * @param previousModeller      model for which {@link CopyRatioModeller#fitMCMC(int, int)} has been called
+     */
+    public CopyRatioModeller(final SegmentedGenome segmentedGenome, final CopyRatioModeller previousModeller) {
         this.segmentedGenome = segmentedGenome;
 
         //load segmented coverages from SegmentedGenome into CopyRatioData
@@ -60,9 +78,17 @@ public final class CopyRatioModeller {
         //the outlier-probability parameter should be interpreted accordingly
         final double outlierUniformLogLikelihood = -Math.log(coverageMax - coverageMin);
 
-        //use empirical segment means and empirical average variance across segments to initialize CopyRatioState
-        final CopyRatioState initialState = new CopyRatioState(varianceEstimate, CopyRatioModeller.OUTLIER_PROBABILITY_INITIAL,
-                        data.estimateSegmentMeans(), new CopyRatioState.OutlierIndicators(Collections.nCopies(data.getNumTargets(), false)));
+        //use empirical segment means and empirical average variance across segments to initialize CopyRatioState,
+        //unless warm-starting from the last sample of a previous model
+        final CopyRatioState initialState;
+        final boolean[] isSegmentSampled = new boolean[data.getNumSegments()];
+        if (previousModeller == null) {
+            initialState = new CopyRatioState(varianceEstimate, CopyRatioModeller.OUTLIER_PROBABILITY_INITIAL,
+                    data.estimateSegmentMeans(), new CopyRatioState.OutlierIndicators(Collections.nCopies(data.getNumTargets(), false)));
+            Arrays.fill(isSegmentSampled, true);
+        } else {
+            initialState = warmStartState(data, previousModeller, isSegmentSampled);
+        }
 
         //define ParameterSamplers
         final ParameterSampler<Double, CopyRatioParameter, CopyRatioState, CopyRatioData> varianceSampler =
@@ -70,7 +96,7 @@ public final class CopyRatioModeller {
         final ParameterSampler<Double, CopyRatioParameter, CopyRatioState, CopyRatioData> outlierProbabilitySampler =
                 new CopyRatioSamplers.OutlierProbabilitySampler(OUTLIER_PROBABILITY_PRIOR_ALPHA, OUTLIER_PROBABILITY_PRIOR_BETA);
         final ParameterSampler<CopyRatioState.SegmentMeans, CopyRatioParameter, CopyRatioState, CopyRatioData> segmentMeansSampler =
-                new CopyRatioSamplers.SegmentMeansSampler(coverageMin, coverageMax, meanSliceSamplingWidth);
+                new CopyRatioSamplers.SegmentMeansSampler(coverageMin, coverageMax, meanSliceSamplingWidth, isSegmentSampled);
         final ParameterSampler<CopyRatioState.OutlierIndicators, CopyRatioParameter, CopyRatioState, CopyRatioData> outlierIndicatorsSampler =
                 new CopyRatioSamplers.OutlierIndicatorsSampler(outlierUniformLogLikelihood);
 
@@ -82,6 +108,35 @@ public final class CopyRatioModeller {
                 .build();
     }
 
+    //initializes the state to the last sample of the previous model, mapping the means of segments it shares with this one
+    //and marking the other segments as sampled
+    private CopyRatioState warmStartState(final CopyRatioData data, final CopyRatioModeller previousModeller,
+                                          final boolean[] isSegmentSampled) {
+        Utils.validateArg(previousModeller.segmentedGenome.getGenome() == segmentedGenome.getGenome(),
+                "The previous model must have been fit to the same genome.");
+        Utils.validateArg(!previousModeller.segmentMeansSamples.isEmpty(), "The previous model must have been fit.");
+        final int lastSample = previousModeller.segmentMeansSamples.size() - 1;
+        final List<SimpleInterval> previousSegments = previousModeller.segmentedGenome.getSegments();
+        final Map<SimpleInterval, Integer> previousSegmentIndices = IntStream.range(0, previousSegments.size()).boxed()
+                .collect(Collectors.toMap(previousSegments::get, Function.identity()));
+        final CopyRatioState.SegmentMeans previousMeans = previousModeller.segmentMeansSamples.get(lastSample);
+        final CopyRatioState.SegmentMeans empiricalMeans = data.estimateSegmentMeans();
+        final List<Double> means = new ArrayList<>(data.getNumSegments());
+        for (int segment = 0; segment < data.getNumSegments(); segment++) {
+            final Integer previousSegment = previousSegmentIndices.get(segmentedGenome.getSegments().get(segment));
+            isSegmentSampled[segment] = previousSegment == null;
+            means.add(previousSegment == null ? empiricalMeans.get(segment) : previousMeans.get(previousSegment));
+        }
+        //merged segments may cover targets that were between segments and hence not modeled previously,
+        //in which case the outlier indicators do not correspond
+        final CopyRatioState.OutlierIndicators previousIndicators = previousModeller.outlierIndicatorsSamples.get(lastSample);
+        final CopyRatioState.OutlierIndicators indicators = previousIndicators.size() == data.getNumTargets()
+                ? previousIndicators
+                : new CopyRatioState.OutlierIndicators(Collections.nCopies(data.getNumTargets(), false));
+        return new CopyRatioState(previousModeller.varianceSamples.get(lastSample),
+                previousModeller.outlierProbabilitySamples.get(lastSample), new CopyRatioState.SegmentMeans(means), indicators);
+    }
+
     /**
      * Adds {@code numSamples - numBurnIn} Markov-Chain Monte-Carlo samples of the parameter posteriors (generated using
      * Gibbs sampling) to the collections held internally.  The current {@link CopyRatioState} held internally is used
@@ -160,14 +215,27 @@ public final class CopyRatioModeller {
         final int numSegments = segmentedGenome.getSegments().size();
         final List<PosteriorSummary> posteriorSummaries = new ArrayList<>(numSegments);
         for (int segment = 0; segment < numSegments; segment++) {
-            final int j = segment;
-            final List<Double> meanSamples =
-                    segmentMeansSamples.stream().map(s -> s.get(j)).collect(Collectors.toList());
-            posteriorSummaries.add(PosteriorSummaryUtils.calculateHighestPosteriorDensityAndDecilesSummary(meanSamples, credibleIntervalAlpha, ctx));
+            posteriorSummaries.add(getSegmentMeanPosteriorSummary(segment, credibleIntervalAlpha, ctx));
         }
         return posteriorSummaries;
     }
 
+    /**
+     * Returns a {@link PosteriorSummary} summarizing the segment-mean posterior for a single segment.
+     * Should only be called after {@link CopyRatioModeller#fitMCMC(int, int)} has been called.
+     * @param segment               index of the segment
+     * @param credibleIntervalAlpha credible-interval alpha, must be in (0, 1)
+     * @param ctx                   {@link JavaSparkContext} used for mllib kernel density estimation
+     * @return                      {@link PosteriorSummary} summarizing the segment-mean posterior for the segment
+     */
+    public PosteriorSummary getSegmentMeanPosteriorSummary(final int segment, final double credibleIntervalAlpha,
+                                                           final JavaSparkContext ctx) {
+        Utils.validIndex(segment, segmentedGenome.getSegments().size());
+        final List<Double> meanSamples =
+                segmentMeansSamples.stream().map(s -> s.get(segment)).collect(Collectors.toList());
+        return PosteriorSummaryUtils.calculateHighestPosteriorDensityAndDecilesSummary(meanSamples, credibleIntervalAlpha, ctx);
+    }
+
     /**
      * Returns a Map of {@link PosteriorSummary} elements summarizing the global parameters.
      * Should only be called after {@link CopyRatioModeller#fitMCMC(int, int)} has been called.
@@ -79,15 +79,19 @@ final class CopyRatioSamplers {
     //samples log conditional posteriors for the segment-mean parameters, assuming uniform priors bounded by minimum and maximum coverage;
     //for each segment s, this is given by the product of Gaussian likelihoods for each non-outlier target t:
     //  log[product_{non-outlier t in s} exp(-(coverage_t - mean_s)^2 / (2 * variance))] + constant
+    //the means of segments that are not sampled (e.g., those carried over from a previous fit) are held fixed
     protected static final class SegmentMeansSampler implements ParameterSampler<CopyRatioState.SegmentMeans, CopyRatioParameter, CopyRatioState, CopyRatioData> {
         private final double coverageMin;
         private final double coverageMax;
         private final double meanSliceSamplingWidth;
+        private final boolean[] isSegmentSampled;
 
-        public SegmentMeansSampler(final double coverageMin, final double coverageMax, final double meanSliceSamplingWidth) {
+        public SegmentMeansSampler(final double coverageMin, final double coverageMax, final double meanSliceSamplingWidth,
+                                   final boolean[] isSegmentSampled) {
             this.coverageMin = coverageMin;
             this.coverageMax = coverageMax;
             this.meanSliceSamplingWidth = meanSliceSamplingWidth;
+            this.isSegmentSampled = isSegmentSampled.clone();
         }
 
         public CopyRatioState.SegmentMeans sample(final RandomGenerator rng, final CopyRatioState state, final CopyRatioData dataCollection) {
@@ -96,6 +100,8 @@ final class CopyRatioSamplers {
                 final List<CopyRatioData.IndexedCoverage> indexedCoveragesInSegment = dataCollection.getIndexedCoveragesInSegment(segment);
                 if (indexedCoveragesInSegment.size() == 0) {
                     means.add(Double.NaN);
+                } else if (!isSegmentSampled[segment]) {
+                    means.add(state.segmentMean(segment));
                 } else {
                     final Function<Double, Double> logConditionalPDF = newMean ->
                             indexedCoveragesInSegment.stream()
@@ -1,8 +1,6 @@
 package org.broadinstitute.hellbender.tools.exome.pulldown;
 
-import org.apache.commons.lang3.tuple.Pair;
-
-import java.util.Collection;
+import org.broadinstitute.hellbender.utils.Utils;
 
 /**
  * Balanced model prior for heterozygous pileups, i.e. allele fraction = 1/2.
@@ -16,11 +14,13 @@ public final class BalancedHeterozygousPileupPriorModel extends HeterozygousPile
 
     /**
      * Calculates the log likelihood of heterozygosity assuming allele fraction = 1/2
-     * @param coeffs list of (alpha, beta) tuples
+     * @param alphas alpha coefficients
+     * @param betas beta coefficients, as many as {@code alphas}
      * @return any double value
      */
     @Override
-    public double getHetLogLikelihood(final Collection<? extends Pair<Double, Double>> coeffs) {
-        return getHetLogLikelihoodFixedAlleleFraction(0.5, coeffs);
+    public double getHetLogLikelihood(final double[] alphas, final double[] betas) {
+        Utils.validateArg(alphas.length == betas.length, "There must be as many alpha as beta coefficients.");
+        return getHetLogLikelihoodFixedAlleleFraction(0.5, alphas, betas);
     }
 }
@@ -1,29 +1,22 @@
 package org.broadinstitute.hellbender.tools.exome.pulldown;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.Sets;
-import htsjdk.samtools.*;
-import htsjdk.samtools.filter.DuplicateReadFilter;
-import htsjdk.samtools.filter.NotPrimaryAlignmentFilter;
-import htsjdk.samtools.filter.SamRecordFilter;
-import htsjdk.samtools.reference.ReferenceSequenceFileWalker;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.ValidationStringency;
 import htsjdk.samtools.util.IntervalList;
 import htsjdk.samtools.util.SamLocusIterator;
 import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.math3.util.FastMath;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.exceptions.GATKException;
-import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.exome.alleliccount.AllelicCount;
 import org.broadinstitute.hellbender.tools.exome.alleliccount.AllelicCountTableColumn;
 import org.broadinstitute.hellbender.utils.*;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 /**
  * A Bayesian heterozygous SNP pulldown calculator. Base qualities are taken into account
@@ -35,48 +28,132 @@ import java.util.stream.Collectors;
 
 public final class BayesianHetPulldownCalculator {
 
-    private final Logger logger = LogManager.getLogger(BayesianHetPulldownCalculator.class);
-
     /**
-     * A simple class to handle base read and mapping error probabilitites
+     * Read and mapping error probabilities of the reads in a pileup, grouped by read base in primitive arrays.
+     *
+     * Along with each pair of error probabilities, we keep the log likelihoods of the read base being
+     * (log(1 - e_read - 3 e_map / 4)) or not being (log(e_read / 3 + e_map / 4)) the true base of the site, so that
+     * they can be looked up from precomputed tables rather than calculated per read.
      */
     @VisibleForTesting
-    static final class BaseQuality {
-        private final double readErrorProbability, mappingErrorProbability;
+    static final class PileupBaseQualities {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final int[] sizes = new int[NUCLEOTIDES.length];
+        private final double[][] readErrorProbabilities = new double[NUCLEOTIDES.length][];
+        private final double[][] mappingErrorProbabilities = new double[NUCLEOTIDES.length][];
+        private final double[][] matchLogLikelihoods = new double[NUCLEOTIDES.length][];
+        private final double[][] mismatchLogLikelihoods = new double[NUCLEOTIDES.length][];
+
+        /**
+         * Adds a read to the pileup, given its base and error probabilities
+         */
+        void add(final Nucleotide base, final double readErrorProbability, final double mappingErrorProbability) {
+            add(base, readErrorProbability, mappingErrorProbability,
+                    calculateMatchLogLikelihood(readErrorProbability, mappingErrorProbability),
+                    calculateMismatchLogLikelihood(readErrorProbability, mappingErrorProbability));
+        }
+
+        private void add(final Nucleotide base, final double readErrorProbability, final double mappingErrorProbability,
+                         final double matchLogLikelihood, final double mismatchLogLikelihood) {
+            final int b = base.ordinal();
+            final int size = sizes[b];
+            if (readErrorProbabilities[b] == null) {
+                readErrorProbabilities[b] = new double[INITIAL_CAPACITY];
+                mappingErrorProbabilities[b] = new double[INITIAL_CAPACITY];
+                matchLogLikelihoods[b] = new double[INITIAL_CAPACITY];
+                mismatchLogLikelihoods[b] = new double[INITIAL_CAPACITY];
+            } else if (size == readErrorProbabilities[b].length) {
+                readErrorProbabilities[b] = Arrays.copyOf(readErrorProbabilities[b], 2 * size);
+                mappingErrorProbabilities[b] = Arrays.copyOf(mappingErrorProbabilities[b], 2 * size);
+                matchLogLikelihoods[b] = Arrays.copyOf(matchLogLikelihoods[b], 2 * size);
+                mismatchLogLikelihoods[b] = Arrays.copyOf(mismatchLogLikelihoods[b], 2 * size);
+            }
+            readErrorProbabilities[b][size] = readErrorProbability;
+            mappingErrorProbabilities[b][size] = mappingErrorProbability;
+            matchLogLikelihoods[b][size] = matchLogLikelihood;
+            mismatchLogLikelihoods[b][size] = mismatchLogLikelihood;
+            sizes[b]++;
+        }
 
-        BaseQuality(final double readErrorProbability, final double mappingErrorProbability) {
-            this.readErrorProbability = readErrorProbability;
-            this.mappingErrorProbability = mappingErrorProbability;
+        /**
+         * Number of reads with the given base
+         */
+        int size(final Nucleotide base) {
+            return sizes[base.ordinal()];
         }
 
-        double getReadErrorProbability() { return readErrorProbability; }
-        double getMappingErrorProbability() { return mappingErrorProbability; }
+        /**
+         * Sum of the log likelihoods of the reads with the given base, assuming that the true base is {@code base}
+         */
+        private double sumMatchLogLikelihoods(final Nucleotide base) {
+            return sum(matchLogLikelihoods[base.ordinal()], sizes[base.ordinal()]);
+        }
+
+        /**
+         * Sum of the log likelihoods of the reads with the given base, assuming that the true base is another one
+         */
+        private double sumMismatchLogLikelihoods(final Nucleotide base) {
+            return sum(mismatchLogLikelihoods[base.ordinal()], sizes[base.ordinal()]);
+        }
+
+        private static double sum(final double[] values, final int size) {
+            double result = 0;
+            for (int i = 0; i < size; i++) {
+                result += values[i];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A covered site whose pileup is waiting to be genotyped
+     */
+    private static final class LocusPileup {
+        private final SimpleInterval interval;
+        private final Nucleotide refBase;
+        private final int totalReadCount;
+        private final PileupBaseQualities baseQualities;
+
+        private LocusPileup(final SimpleInterval interval, final Nucleotide refBase, final int totalReadCount,
+                            final PileupBaseQualities baseQualities) {
+            this.interval = interval;
+            this.refBase = refBase;
+            this.totalReadCount = totalReadCount;
+            this.baseQualities = baseQualities;
+        }
     }
 
     private final HeterozygousPileupPriorModel hetPrior;
 
     private static final Nucleotide[] BASES = {Nucleotide.A, Nucleotide.C, Nucleotide.T, Nucleotide.G};
 
-    private final File refFile;
+    /* all values that a read base can take, including ambiguous and invalid codes */
+    private static final Nucleotide[] NUCLEOTIDES = Nucleotide.values();
+
     private final IntervalList snpIntervals;
+    private final PileupEngine pileupEngine;
 
     private final int readDepthThreshold;
-    private final int minMappingQuality;
-    private final int minBaseQuality;
-    private final ValidationStringency validationStringency;
 
     /* experimental */
     private final double errorProbabilityAdjustmentFactor;
 
-    /* interval threshold for indexing for SamLocusIterator */
-    private static final int MAX_INTERVALS_FOR_INDEX = 25000;
-
     /* default priors */
     private static final double DEFAULT_PRIOR_REF_HOM = 0.5; /* a homozygous site being the ref allele */
     private static final double DEFAULT_PRIOR_HET = 0.5; /* a site being heterozygous */
 
-    /* approximate number of status updates printed to log */
-    private static final int NUMBER_OF_SITES_PER_LOGGED_STATUS_UPDATE = 10000;
+    /* sizes of the error probability and log likelihood tables; base and mapping qualities outside are computed directly */
+    private static final int BASE_QUALITY_TABLE_SIZE = Byte.MAX_VALUE + 1;
+    private static final int MAPPING_QUALITY_TABLE_SIZE = 256;
+
+    /* error probabilities by phred base and mapping quality, adjusted by errorProbabilityAdjustmentFactor */
+    private final double[] readErrorProbabilityTable = new double[BASE_QUALITY_TABLE_SIZE];
+    private final double[] mappingErrorProbabilityTable = new double[MAPPING_QUALITY_TABLE_SIZE];
+
+    /* log likelihoods of a read (mis)matching the true base, by phred base and mapping quality */
+    private final double[][] matchLogLikelihoodTable = new double[BASE_QUALITY_TABLE_SIZE][MAPPING_QUALITY_TABLE_SIZE];
+    private final double[][] mismatchLogLikelihoodTable = new double[BASE_QUALITY_TABLE_SIZE][MAPPING_QUALITY_TABLE_SIZE];
 
     /**
      * Constructor of {@link BayesianHetPulldownCalculator} object
@@ -99,46 +176,91 @@ public final class BayesianHetPulldownCalculator {
         ParamUtils.isPositiveOrZero(minMappingQuality, "Minimum mapping quality must be nonnegative.");
         ParamUtils.isPositiveOrZero(minBaseQuality, "Minimum base quality must be nonnegative.");
 
-        this.refFile = Utils.nonNull(refFile);
+        ParamUtils.isPositive(minMappingQuality, "Minimum mapping quality must be a positive integer");
+        ParamUtils.isPositive(minBaseQuality, "Minimum base quality must be a positive integer");
+
         this.snpIntervals = Utils.nonNull(snpIntervals);
-        this.minMappingQuality = ParamUtils.isPositive(minMappingQuality, "Minimum mapping quality must be a positive integer");
-        this.minBaseQuality = ParamUtils.isPositive(minBaseQuality, "Minimum base quality must be a positive integer");
+        this.pileupEngine = new PileupEngine(refFile, minMappingQuality, minBaseQuality,
+                Utils.nonNull(validationStringency));
         this.readDepthThreshold = ParamUtils.isPositive(readDepthThreshold, "Read depth threshold must be a positive integer");
-        this.validationStringency = Utils.nonNull(validationStringency);
         this.errorProbabilityAdjustmentFactor = ParamUtils.isPositive(errorProbabilityAdjustmentFactor,
                 "Error adjustment factor must be positive.");
         this.hetPrior = Utils.nonNull(hetPrior);
+        initializeLikelihoodTables();
+    }
+
+    /**
+     * Precompute the error probabilities and the log likelihood terms for all pairs of base and mapping qualities
+     */
+    private void initializeLikelihoodTables() {
+        for (int baseQuality = 0; baseQuality < BASE_QUALITY_TABLE_SIZE; baseQuality++) {
+            readErrorProbabilityTable[baseQuality] = getReadErrorProbability(baseQuality);
+        }
+        for (int mappingQuality = 0; mappingQuality < MAPPING_QUALITY_TABLE_SIZE; mappingQuality++) {
+            mappingErrorProbabilityTable[mappingQuality] = getMappingErrorProbability(mappingQuality);
+        }
+        for (int baseQuality = 0; baseQuality < BASE_QUALITY_TABLE_SIZE; baseQuality++) {
+            for (int mappingQuality = 0; mappingQuality < MAPPING_QUALITY_TABLE_SIZE; mappingQuality++) {
+                matchLogLikelihoodTable[baseQuality][mappingQuality] = calculateMatchLogLikelihood(
+                        readErrorProbabilityTable[baseQuality], mappingErrorProbabilityTable[mappingQuality]);
+                mismatchLogLikelihoodTable[baseQuality][mappingQuality] = calculateMismatchLogLikelihood(
+                        readErrorProbabilityTable[baseQuality], mappingErrorProbabilityTable[mappingQuality]);
+            }
+        }
+    }
+
+    private double getReadErrorProbability(final int baseQuality) {
+        return errorProbabilityAdjustmentFactor * QualityUtils.qualToErrorProb((byte) baseQuality);
+    }
+
+    private double getMappingErrorProbability(final int mappingQuality) {
+        return errorProbabilityAdjustmentFactor * QualityUtils.qualToErrorProb(mappingQuality);
+    }
+
+    /**
+     * Log likelihood of a read base given that it is the true base of the site
+     */
+    private static double calculateMatchLogLikelihood(final double readErrorProbability,
+                                                      final double mappingErrorProbability) {
+        return FastMath.log(1 - readErrorProbability - 3 * mappingErrorProbability / 4);
+    }
+
+    /**
+     * Log likelihood of a read base given that it is not the true base of the site
+     */
+    private static double calculateMismatchLogLikelihood(final double readErrorProbability,
+                                                         final double mappingErrorProbability) {
+        return FastMath.log(readErrorProbability / 3 + mappingErrorProbability / 4);
     }
 
     /**
      * Calculate the log likelihood of a read pileup is composed of a single nucelotide {@code expectedNucleotide}
-     * @param baseQualities map of bases to list of their calling error probabilities
+     * @param baseQualities error probabilities of the pileup by base
      * @param expectedNucleotide the expected nucleotide
      * @return the log likelihood
      */
-    private double getSingletonLogLikelihood(final Map<Nucleotide, List<BaseQuality>> baseQualities,
-                                             final Nucleotide expectedNucleotide) {
-        return baseQualities.get(expectedNucleotide).stream()
-                .mapToDouble(bq -> FastMath.log(1 - bq.getReadErrorProbability() -
-                        3 * bq.getMappingErrorProbability() / 4)).sum() +
-                baseQualities.keySet().stream()
-                        .filter(nucl -> nucl != expectedNucleotide)
-                        .map(baseQualities::get).mapToDouble(bqlist -> bqlist.stream()
-                        .mapToDouble(bq -> FastMath.log(bq.getReadErrorProbability() / 3 +
-                                bq.getMappingErrorProbability() / 4)).sum()).sum();
+    private static double getSingletonLogLikelihood(final PileupBaseQualities baseQualities,
+                                                    final Nucleotide expectedNucleotide) {
+        double result = baseQualities.sumMatchLogLikelihoods(expectedNucleotide);
+        for (final Nucleotide base : NUCLEOTIDES) {
+            if (base != expectedNucleotide) {
+                result += baseQualities.sumMismatchLogLikelihoods(base);
+            }
+        }
+        return result;
     }
 
     /**
      * Calculate the log likelihood of a SNP site being homozygous for a given read pileup
      * (see CNV-method.pdf for details)
-     * @param baseQualities map of bases to list of their calling error probabilities at the SNP site
+     * @param baseQualities error probabilities of the pileup at the SNP site by base
      * @param refNucleotide the ref allele nucleotide
      * @param altNucleotide the alt allele nucleotide
      * @param homRefPrior the prior probability of the ref allele given that the site is homozygous
      * @return the log likelihood
      */
     @VisibleForTesting
-    double getHomLogLikelihood(final Map<Nucleotide, List<BaseQuality>> baseQualities,
+    double getHomLogLikelihood(final PileupBaseQualities baseQualities,
                                final Nucleotide refNucleotide, final Nucleotide altNucleotide,
                                final double homRefPrior) {
         /* return the sum of |hom,ref) and |hom,alt) likelihoods */
@@ -151,63 +273,70 @@ public final class BayesianHetPulldownCalculator {
      * Calculate the log likelihood of a SNP site being heterozygous for a given read pileup
      * (see CNV-method.pdf for details)
      *
-     * @param baseQualities map of bases to list of their calling error probabilities at the SNP site
+     * @param baseQualities error probabilities of the pileup at the SNP site by base
      * @param refNucleotide the ref allele nucleotide
      * @param altNucleotide the alt allele nucleotide
      * @return the log likelihood
      */
     @VisibleForTesting
-    double getHetLogLikelihood(final Map<Nucleotide, List<BaseQuality>> baseQualities,
+    double getHetLogLikelihood(final PileupBaseQualities baseQualities,
                                final Nucleotide refNucleotide, final Nucleotide altNucleotide) {
         /* non-Ref-Alt entries */
-        final double errorLogLikelihood = Sets.difference(baseQualities.keySet(),
-                new HashSet<>(Arrays.asList(refNucleotide, altNucleotide))).stream()
-                .map(baseQualities::get).mapToDouble(bqlist -> bqlist.stream()
-                        .mapToDouble(bq -> FastMath.log(bq.getReadErrorProbability() / 3 +
-                                bq.getMappingErrorProbability() / 4))
-                        .sum())
-                .sum();
+        double errorLogLikelihood = 0;
+        for (final Nucleotide base : NUCLEOTIDES) {
+            if (base != refNucleotide && base != altNucleotide) {
+                errorLogLikelihood += baseQualities.sumMismatchLogLikelihoods(base);
+            }
+        }
 
-        final List<ImmutablePair<Double, Double>> coeffs = new ArrayList<>();
+        final int refCount = baseQualities.size(refNucleotide);
+        final int altCount = baseQualities.size(altNucleotide);
+        final double[] alphas = new double[refCount + altCount];
+        final double[] betas = new double[refCount + altCount];
 
         /* Ref entries in the pile up */
-        baseQualities.get(refNucleotide).stream().forEach(bq ->coeffs.add(new ImmutablePair<>(
-                        bq.getReadErrorProbability() / 3 + bq.getMappingErrorProbability() / 4,
-                        1 - 4 * bq.getReadErrorProbability() / 3 - bq.getMappingErrorProbability() / 4)));
+        final double[] refReadErrorProbabilities = baseQualities.readErrorProbabilities[refNucleotide.ordinal()];
+        final double[] refMappingErrorProbabilities = baseQualities.mappingErrorProbabilities[refNucleotide.ordinal()];
+        for (int i = 0; i < refCount; i++) {
+            final double readErrorProbability = refReadErrorProbabilities[i];
+            final double mappingErrorProbability = refMappingErrorProbabilities[i];
+            alphas[i] = readErrorProbability / 3 + mappingErrorProbability / 4;
+            betas[i] = 1 - 4 * readErrorProbability / 3 - mappingErrorProbability / 4;
+        }
 
         /* Alt entries in the pile up */
-        baseQualities.get(altNucleotide).stream().forEach(bq -> coeffs.add(new ImmutablePair<>(
-                        1 - bq.getReadErrorProbability() - 3 * bq.getMappingErrorProbability() / 4,
-                        -1 + 4 * bq.getReadErrorProbability() / 3 + bq.getMappingErrorProbability())));
+        final double[] altReadErrorProbabilities = baseQualities.readErrorProbabilities[altNucleotide.ordinal()];
+        final double[] altMappingErrorProbabilities = baseQualities.mappingErrorProbabilities[altNucleotide.ordinal()];
+        for (int i = 0; i < altCount; i++) {
+            final double readErrorProbability = altReadErrorProbabilities[i];
+            final double mappingErrorProbability = altMappingErrorProbabilities[i];
+            alphas[refCount + i] = 1 - readErrorProbability - 3 * mappingErrorProbability / 4;
+            betas[refCount + i] = -1 + 4 * readErrorProbability / 3 + mappingErrorProbability;
+        }
 
-        return hetPrior.getHetLogLikelihood(coeffs) + errorLogLikelihood;
+        return hetPrior.getHetLogLikelihood(alphas, betas) + errorLogLikelihood;
     }
 
     /**
-     * Returns map of base-pair to error probabilities at a given locus. All reads are considered (not just ACTG)
+     * Returns the error probabilities at a given locus by base. All reads are considered (not just ACTG)
      * @param locus locus
-     * @return map of base-pair to error probabilities
+     * @return error probabilities by base
      */
-    private Map<Nucleotide, List<BaseQuality>> getPileupBaseQualities(final SamLocusIterator.LocusInfo locus) {
-        final Map<Nucleotide, List<BaseQuality>> baseQualities = locus.getRecordAndPositions().stream()
-                .map(rp -> new ImmutablePair<>(
-                        Nucleotide.valueOf(rp.getReadBase()),
-                        new BaseQuality(
-                                errorProbabilityAdjustmentFactor * QualityUtils.qualToErrorProb(rp.getBaseQuality()),
-                                errorProbabilityAdjustmentFactor * QualityUtils.qualToErrorProb(rp.getRecord().getMappingQuality())
-                        )
-                )).collect(Collectors.groupingBy(
-                        ImmutablePair::getLeft,
-                        Collectors.mapping(ImmutablePair::getRight, Collectors.toList()))
-                );
-
-        /* make sure that the main bases {A, C, T, G} are included in the map */
-        for (final Nucleotide base : BASES) {
-            if (!baseQualities.containsKey(base)) {
-                baseQualities.put(base, new ArrayList<>());
+    private PileupBaseQualities getPileupBaseQualities(final SamLocusIterator.LocusInfo locus) {
+        final PileupBaseQualities baseQualities = new PileupBaseQualities();
+        for (final SamLocusIterator.RecordAndOffset rp : locus.getRecordAndPositions()) {
+            final Nucleotide base = Nucleotide.valueOf(rp.getReadBase());
+            final int baseQuality = rp.getBaseQuality();
+            final int mappingQuality = rp.getRecord().getMappingQuality();
+            if (0 <= baseQuality && baseQuality < BASE_QUALITY_TABLE_SIZE &&
+                    0 <= mappingQuality && mappingQuality < MAPPING_QUALITY_TABLE_SIZE) {
+                baseQualities.add(base, readErrorProbabilityTable[baseQuality], mappingErrorProbabilityTable[mappingQuality],
+                        matchLogLikelihoodTable[baseQuality][mappingQuality],
+                        mismatchLogLikelihoodTable[baseQuality][mappingQuality]);
+            } else {
+                baseQualities.add(base, getReadErrorProbability(baseQuality), getMappingErrorProbability(mappingQuality));
             }
         }
-
         return baseQualities;
     }
 
@@ -245,16 +374,16 @@ public final class BayesianHetPulldownCalculator {
      *     </li>
      * </ul>
      *
-     * @param baseQualities map from bases to error probabilities
+     * @param baseQualities error probabilities by base
      * @param refBase the ref allele base
      * @return the likely alt allele
      */
     @VisibleForTesting
-    static Nucleotide inferAltFromPileup(final Map<Nucleotide, List<BaseQuality>> baseQualities,
+    static Nucleotide inferAltFromPileup(final PileupBaseQualities baseQualities,
                                                 final Nucleotide refBase) {
         /* sort the bases in the descending order by their frequency */
         final Nucleotide[] bases = BASES.clone();
-        Arrays.sort(bases, (L, R) -> Integer.compare(baseQualities.get(R).size(), baseQualities.get(L).size()));
+        Arrays.sort(bases, (L, R) -> Integer.compare(baseQualities.size(R), baseQualities.size(L)));
         /* pick the base with highest frequency, skip over ref */
         for (Nucleotide base : bases) {
             if (base != refBase) {
@@ -264,29 +393,7 @@ public final class BayesianHetPulldownCalculator {
 
         /* we shouldn't be here unless the baseErrorProbabilities is malformed */
         throw new GATKException.ShouldNeverReachHereException("The Alt base can not be inferred from the " +
-                "pileup. The size of the pileup is: " + baseQualities.size());
-    }
-
-    /**
-     * Returns a {@link SamLocusIterator} object for a given {@link SamReader} and {@link IntervalList} with filters
-     * on minimum base quality and minimum mapping quality
-     *
-     * @param samReader a SamReader object
-     * @return a SamLocusIterator object
-     */
-    private SamLocusIterator getSamLocusIteratorWithDefaultFilters(final SamReader samReader) {
-        final SamLocusIterator locusIterator = new SamLocusIterator(samReader, snpIntervals, true);
-
-        /* set read and locus filters */
-        final List<SamRecordFilter> samFilters = Arrays.asList(new NotPrimaryAlignmentFilter(),
-                new DuplicateReadFilter());
-        locusIterator.setSamFilters(samFilters);
-        locusIterator.setEmitUncoveredLoci(false);
-        locusIterator.setIncludeNonPfReads(false);
-        locusIterator.setMappingQualityScoreCutoff(minMappingQuality);
-        locusIterator.setQualityScoreCutoff(minBaseQuality);
-
-        return locusIterator;
+                "pileup. The size of the pileup is: " + Arrays.stream(NUCLEOTIDES).mapToInt(baseQualities::size).sum());
     }
 
     /**
@@ -307,60 +414,75 @@ public final class BayesianHetPulldownCalculator {
      * @return Pulldown of heterozygous SNP sites in 1-based format
      */
     public Pulldown getHetPulldown(final File bamFile, final double hetCallingStringency) {
-        /* log odds from stringency */
-        final double hetThresholdLogOdds = FastMath.log(FastMath.pow(10, hetCallingStringency) - 1);
-
-        try (final SamReader bamReader = SamReaderFactory.makeDefault().validationStringency(validationStringency)
-                .referenceSequence(refFile).open(bamFile);
-             final ReferenceSequenceFileWalker refWalker = new ReferenceSequenceFileWalker(this.refFile)) {
-            if (bamReader.getFileHeader().getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
-                throw new UserException.BadInput("BAM file " + bamFile.toString() + " must be coordinate sorted.");
-            }
-
-            final Pulldown hetPulldown = new Pulldown(bamReader.getFileHeader());
-            final SamLocusIterator locusIterator = getSamLocusIteratorWithDefaultFilters(bamReader);
-
-            final int totalNumberOfSNPs = snpIntervals.size();
-            logger.info("Examining " + totalNumberOfSNPs + " sites in total...");
-            int locusCount = 0;
-            for (final SamLocusIterator.LocusInfo locus : locusIterator) {
-                if (locusCount % NUMBER_OF_SITES_PER_LOGGED_STATUS_UPDATE == 0) {
-                    logger.info("Examined " + locusCount + " covered sites.");
-                }
-                locusCount++;
-
-                final int totalReadCount = locus.getRecordAndPositions().size();
-                if (totalReadCount <= readDepthThreshold) {
-                    continue;
-                }
-
-                final Map<Nucleotide, List<BaseQuality>> baseQualities = getPileupBaseQualities(locus);
-                final Nucleotide refBase = Nucleotide.valueOf(refWalker.get(locus.getSequenceIndex())
-                        .getBases()[locus.getPosition() - 1]);
-                final Nucleotide altBase = inferAltFromPileup(baseQualities, refBase);
-
-                /* calculate Het log odds */
-                final double hetLogLikelihood = getHetLogLikelihood(baseQualities, refBase, altBase);
-                final double homLogLikelihood = getHomLogLikelihood(baseQualities, refBase, altBase,
-                        DEFAULT_PRIOR_REF_HOM);
-                final double hetLogOdds = (hetLogLikelihood + FastMath.log(DEFAULT_PRIOR_HET)) -
-                        (homLogLikelihood + FastMath.log(1 - DEFAULT_PRIOR_HET));
-
-                if (hetLogOdds > hetThresholdLogOdds) {
-                    hetPulldown.add(new AllelicCount(
-                            new SimpleInterval(locus.getSequenceName(), locus.getPosition(), locus.getPosition()),
-                            baseQualities.get(refBase).size(), baseQualities.get(altBase).size(),
-                            refBase, altBase, totalReadCount, hetLogOdds));
-                }
-            }
+        final double hetThresholdLogOdds = getHetThresholdLogOdds(hetCallingStringency);
+        /* the pileups are collected sequentially, but genotyped in parallel chunks */
+        final List<AllelicCount> hetSites = pileupEngine.walk(bamFile, snpIntervals, this::getLocusPileup,
+                locusPileup -> getHetSite(locusPileup, hetThresholdLogOdds));
+        return toPulldown(pileupEngine.getHeader(bamFile), hetSites);
+    }
 
-            logger.info(locusCount + " covered sites out of " + totalNumberOfSNPs + " total sites were examined.");
+    /**
+     * Calculates the Het pulldowns of a normal BAM file, as in {@link BayesianHetPulldownCalculator#getHetPulldown},
+     * and of a matched tumor BAM file at the normal Het sites, as in
+     * {@link BayesianHetPulldownCalculator#getTumorHetPulldownFromNormalPulldown}.  If the BAM files and the
+     * reference are indexed, regions of the tumor are walked as soon as the corresponding regions of the normal
+     * have been genotyped, rather than after the whole normal.
+     *
+     * @param normalBamFile the normal BAM file
+     * @param tumorBamFile the tumor BAM file
+     * @param hetCallingStringency strigency for calling a Het site
+     * @return normal and tumor Het pulldowns
+     */
+    public Pair<Pulldown, Pulldown> getNormalAndTumorHetPulldowns(final File normalBamFile, final File tumorBamFile,
+                                                                  final double hetCallingStringency) {
+        final double hetThresholdLogOdds = getHetThresholdLogOdds(hetCallingStringency);
+        final Pair<List<AllelicCount>, List<AllelicCount>> hetSites = pileupEngine.walkMatched(
+                normalBamFile, tumorBamFile, snpIntervals, this::getLocusPileup,
+                locusPileup -> getHetSite(locusPileup, hetThresholdLogOdds),
+                this::getTumorSite);
+        return new ImmutablePair<>(
+                toPulldown(pileupEngine.getHeader(normalBamFile), hetSites.getLeft()),
+                toPulldown(pileupEngine.getHeader(tumorBamFile), hetSites.getRight()));
+    }
 
-            return hetPulldown;
+    /**
+     * Returns the log odds threshold for calling a Het site from the stringency.
+     */
+    private static double getHetThresholdLogOdds(final double hetCallingStringency) {
+        return FastMath.log(FastMath.pow(10, hetCallingStringency) - 1);
+    }
 
-        } catch (final IOException | SAMFormatException e) {
-            throw new UserException(e.getMessage());
+    /**
+     * Returns the pileup at a locus, or {@code null} if the read depth is not above the threshold.
+     */
+    private LocusPileup getLocusPileup(final SamLocusIterator.LocusInfo locus, final Nucleotide refBase) {
+        final int totalReadCount = locus.getRecordAndPositions().size();
+        if (totalReadCount <= readDepthThreshold) {
+            return null;
         }
+        return new LocusPileup(new SimpleInterval(locus.getSequenceName(), locus.getPosition(), locus.getPosition()),
+                refBase, totalReadCount, getPileupBaseQualities(locus));
+    }
+
+    /**
+     * Returns the {@link AllelicCount} of a site if it is called Het, and {@code null} otherwise.
+     */
+    private AllelicCount getHetSite(final LocusPileup locusPileup, final double hetThresholdLogOdds) {
+        final PileupBaseQualities baseQualities = locusPileup.baseQualities;
+        final Nucleotide refBase = locusPileup.refBase;
+        final Nucleotide altBase = inferAltFromPileup(baseQualities, refBase);
+
+        /* calculate Het log odds */
+        final double hetLogLikelihood = getHetLogLikelihood(baseQualities, refBase, altBase);
+        final double homLogLikelihood = getHomLogLikelihood(baseQualities, refBase, altBase,
+                DEFAULT_PRIOR_REF_HOM);
+        final double hetLogOdds = (hetLogLikelihood + FastMath.log(DEFAULT_PRIOR_HET)) -
+                (homLogLikelihood + FastMath.log(1 - DEFAULT_PRIOR_HET));
+
+        return hetLogOdds > hetThresholdLogOdds ?
+                new AllelicCount(locusPileup.interval, baseQualities.size(refBase), baseQualities.size(altBase),
+                        refBase, altBase, locusPileup.totalReadCount, hetLogOdds) :
+                null;
     }
 
     /**
@@ -376,60 +498,49 @@ public final class BayesianHetPulldownCalculator {
      * @return tumor Het pulldown
      */
     public Pulldown getTumorHetPulldownFromNormalPulldown(final File tumorBamFile, final Pulldown normalHetPulldown) {
-        try (final SamReader bamReader = SamReaderFactory.makeDefault().validationStringency(validationStringency)
-                .referenceSequence(refFile).open(tumorBamFile)) {
-            if (bamReader.getFileHeader().getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
-                throw new UserException.BadInput("BAM file " + tumorBamFile.toString() + " must be coordinate sorted.");
-            }
+        /* get a map of SimpleIntervals in the pulldown to their index */
+        final Map<SimpleInterval, Integer> normalPulldownIndexMap = normalHetPulldown.getSimpleIntervalToIndexMap();
 
-            final Pulldown tumorHetPulldown = new Pulldown(bamReader.getFileHeader());
-            final SamLocusIterator locusIterator = getSamLocusIteratorWithDefaultFilters(bamReader);
-
-            /* get a map of SimpleIntervals in the pulldown to their index */
-            final Map<SimpleInterval, Integer> normalPulldownIndexMap = normalHetPulldown.getSimpleIntervalToIndexMap();
-
-            final int totalNumberOfSNPs = snpIntervals.size();
-            logger.info("Examining " + totalNumberOfSNPs + " sites in total...");
-            int locusCount = 0;
-            for (final SamLocusIterator.LocusInfo locus : locusIterator) {
-                if (locusCount % NUMBER_OF_SITES_PER_LOGGED_STATUS_UPDATE == 0) {
-                    logger.info("Examined " + locusCount + " covered sites.");
-                }
-                locusCount++;
-
-                final int totalReadCount = locus.getRecordAndPositions().size();
-                if (totalReadCount <= readDepthThreshold) {
-                    continue;
-                }
-
-                /* find the AllelicCount from the normal pulldown */
-                int indexInNormalPulldown;
-                try {
-                    indexInNormalPulldown = normalPulldownIndexMap.get(
+        final List<AllelicCount> tumorSites = pileupEngine.walk(tumorBamFile, snpIntervals,
+                (locus, refBase) -> {
+                    /* find the AllelicCount from the normal pulldown */
+                    final Integer indexInNormalPulldown = normalPulldownIndexMap.get(
                             new SimpleInterval(locus.getSequenceName(), locus.getPosition(), locus.getPosition()));
-                } catch (NullPointerException e) {
-                    throw new GATKException.ShouldNeverReachHereException("Can not find the required AllelicCount " +
-                            "object in the normal pulldown. Stopping.");
-                }
-
-                /* just count the alt and ref nucleotide and add to the tumor pulldown */
-                final Nucleotide.Counter baseCounts = getPileupBaseCounts(locus);
-                tumorHetPulldown.add(new AllelicCount(
-                        new SimpleInterval(locus.getSequenceName(), locus.getPosition(), locus.getPosition()),
-                        (int) baseCounts.get(normalHetPulldown.getCounts().get(indexInNormalPulldown).getRefNucleotide()),
-                        (int) baseCounts.get(normalHetPulldown.getCounts().get(indexInNormalPulldown).getAltNucleotide()),
-                        normalHetPulldown.getCounts().get(indexInNormalPulldown).getRefNucleotide(),
-                        normalHetPulldown.getCounts().get(indexInNormalPulldown).getAltNucleotide(),
-                        totalReadCount)
-                );
-            }
+                    if (indexInNormalPulldown == null) {
+                        throw new GATKException.ShouldNeverReachHereException("Can not find the required AllelicCount " +
+                                "object in the normal pulldown. Stopping.");
+                    }
+                    return getTumorSite(locus, refBase, normalHetPulldown.getCounts().get(indexInNormalPulldown));
+                },
+                Function.identity());
+        return toPulldown(pileupEngine.getHeader(tumorBamFile), tumorSites);
+    }
 
-            logger.info(locusCount + " covered sites out of " + totalNumberOfSNPs + " total sites were examined.");
+    /**
+     * Returns the ref and alt counts of the alleles of a normal Het site in a tumor pileup, or {@code null} if the
+     * read depth is not above the threshold.
+     */
+    private AllelicCount getTumorSite(final SamLocusIterator.LocusInfo locus, final Nucleotide refBase,
+                                      final AllelicCount normalHetSite) {
+        final int totalReadCount = locus.getRecordAndPositions().size();
+        if (totalReadCount <= readDepthThreshold) {
+            return null;
+        }
 
-            return tumorHetPulldown;
+        /* just count the alt and ref nucleotide */
+        final Nucleotide.Counter baseCounts = getPileupBaseCounts(locus);
+        return new AllelicCount(
+                new SimpleInterval(locus.getSequenceName(), locus.getPosition(), locus.getPosition()),
+                (int) baseCounts.get(normalHetSite.getRefNucleotide()),
+                (int) baseCounts.get(normalHetSite.getAltNucleotide()),
+                normalHetSite.getRefNucleotide(),
+                normalHetSite.getAltNucleotide(),
+                totalReadCount);
+    }
 
-        } catch (final IOException | SAMFormatException e) {
-            throw new UserException(e.getMessage());
-        }
+    private static Pulldown toPulldown(final SAMFileHeader header, final List<AllelicCount> hetSites) {
+        final Pulldown hetPulldown = new Pulldown(header);
+        hetSites.forEach(hetPulldown::add);
+        return hetPulldown;
     }
 }
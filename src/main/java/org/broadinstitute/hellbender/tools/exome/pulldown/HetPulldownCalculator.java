@@ -1,25 +1,20 @@
 package org.broadinstitute.hellbender.tools.exome.pulldown;
 
 import com.google.common.annotations.VisibleForTesting;
-import htsjdk.samtools.*;
-import htsjdk.samtools.filter.DuplicateReadFilter;
-import htsjdk.samtools.filter.NotPrimaryAlignmentFilter;
-import htsjdk.samtools.filter.SamRecordFilter;
-import htsjdk.samtools.reference.ReferenceSequenceFileWalker;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.ValidationStringency;
 import htsjdk.samtools.util.IntervalList;
 import htsjdk.samtools.util.SamLocusIterator;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.math3.stat.inference.AlternativeHypothesis;
 import org.apache.commons.math3.stat.inference.BinomialTest;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.exome.alleliccount.AllelicCount;
 import org.broadinstitute.hellbender.utils.Nucleotide;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -31,21 +26,11 @@ import java.util.List;
 public final class HetPulldownCalculator {
     public static final Nucleotide[] BASES = {Nucleotide.A, Nucleotide.C, Nucleotide.G, Nucleotide.T};
 
-    private final Logger logger = LogManager.getLogger(HetPulldownCalculator.class);
-
-    private final File refFile;
     private final IntervalList snpIntervals;
+    private final PileupEngine pileupEngine;
 
-    private final int minMappingQuality;
-    private final int minBaseQuality;
-    private final ValidationStringency validationStringency;
-
-    private static final int NUMBER_OF_SITES_PER_LOGGED_STATUS_UPDATE = 10000;
     private static final double HET_ALLELE_FRACTION = 0.5;
 
-    //set interval threshold for indexing for SamLocusIterator
-    private static final int MAX_INTERVALS_FOR_INDEX = 25000;
-
     /**
      * Constructs a {@link HetPulldownCalculator} object for calculating {@link Pulldown} objects from files
      * containing a reference genome and an interval list of common SNP sites.  Reads and bases below the specified
@@ -59,13 +44,8 @@ public final class HetPulldownCalculator {
     public HetPulldownCalculator(final File refFile, final File snpFile,
                                  final int minMappingQuality, final int minBaseQuality,
                                  final ValidationStringency validationStringency) {
-        ParamUtils.isPositiveOrZero(minMappingQuality, "Minimum mapping quality must be nonnegative.");
-        ParamUtils.isPositiveOrZero(minBaseQuality, "Minimum base quality must be nonnegative.");
-        this.refFile = refFile;
+        this.pileupEngine = new PileupEngine(refFile, minMappingQuality, minBaseQuality, validationStringency);
         this.snpIntervals = IntervalList.fromFile(snpFile);
-        this.minMappingQuality = minMappingQuality;
-        this.minBaseQuality = minBaseQuality;
-        this.validationStringency = validationStringency;
     }
 
     /**
@@ -134,6 +114,33 @@ public final class HetPulldownCalculator {
         return getHetPulldown(tumorBAMFile, normalHetIntervals, SampleType.TUMOR, -1, minReadCount);
     }
 
+    /**
+     * Returns the normal and tumor pulldowns given by {@link HetPulldownCalculator#getNormal} and
+     * {@link HetPulldownCalculator#getTumor}, respectively, with the tumor evaluated at the normal heterozygous
+     * sites.  If the BAM files and the reference are indexed, regions of the tumor are walked as soon as the
+     * corresponding regions of the normal have been, rather than after the whole normal.
+     * @param normalBAMFile     sorted BAM file for normal sample
+     * @param tumorBAMFile      sorted BAM file for tumor sample
+     * @param pvalThreshold     p-value threshold for two-sided binomial test, used for normal sample
+     * @param minReadCount      minimum number of total reads that must be present at a het site
+     * @return                  normal and tumor Pulldowns of heterozygous SNP sites in 1-based format
+     */
+    public Pair<Pulldown, Pulldown> getNormalAndTumor(final File normalBAMFile, final File tumorBAMFile,
+                                                      final double pvalThreshold, final int minReadCount) {
+        ParamUtils.inRange(pvalThreshold, 0., 1., "p-value threshold must be in [0, 1].");
+        final Pair<List<AllelicCount>, List<AllelicCount>> hetSites = pileupEngine.walkMatched(
+                normalBAMFile, tumorBAMFile, snpIntervals,
+                (locus, refBase) -> getSiteBaseCounts(locus, refBase, minReadCount),
+                siteBaseCounts -> getHetSite(siteBaseCounts, SampleType.NORMAL, pvalThreshold),
+                (locus, refBase, normalHetSite) -> {
+                    final SiteBaseCounts siteBaseCounts = getSiteBaseCounts(locus, refBase, minReadCount);
+                    return siteBaseCounts == null ? null : getHetSite(siteBaseCounts, SampleType.TUMOR, -1);
+                });
+        return new ImmutablePair<>(
+                toPulldown(pileupEngine.getHeader(normalBAMFile), hetSites.getLeft()),
+                toPulldown(pileupEngine.getHeader(tumorBAMFile), hetSites.getRight()));
+    }
+
     /**
      * For a normal or tumor sample, returns a data structure giving (intervals, reference counts, alternate counts),
      * where intervals give positions of likely heterozygous SNP sites.
@@ -157,6 +164,10 @@ public final class HetPulldownCalculator {
      *         Only these sites are output.
      *     </ul>
      * </p>
+     * <p>
+     *     Pileups are walked by a {@link PileupEngine}, in parallel regions if the BAM file and the reference
+     *     are indexed.
+     * </p>
      * @param bamFile           sorted BAM file for sample
      * @param snpIntervals      IntervalList of SNP sites
      * @param sampleType        flag indicating type of sample (SampleType.NORMAL or SampleType.TUMOR)
@@ -167,63 +178,64 @@ public final class HetPulldownCalculator {
      */
     private Pulldown getHetPulldown(final File bamFile, final IntervalList snpIntervals, final SampleType sampleType,
                                     final double pvalThreshold, final int minimumRawReads) {
-        try (final SamReader bamReader = SamReaderFactory.makeDefault().validationStringency(validationStringency)
-                .referenceSequence(refFile).open(bamFile);
-             final ReferenceSequenceFileWalker refWalker = new ReferenceSequenceFileWalker(this.refFile)) {
-            if (bamReader.getFileHeader().getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
-                throw new UserException.BadInput("BAM file " + bamFile.toString() + " must be coordinate sorted.");
-            }
-
-            final Pulldown hetPulldown = new Pulldown(bamReader.getFileHeader());
-
-            final int totalNumberOfSNPs = snpIntervals.size();
-            final SamLocusIterator locusIterator = new SamLocusIterator(bamReader, snpIntervals,
-                    totalNumberOfSNPs < MAX_INTERVALS_FOR_INDEX);
-
-            //set read and locus filters [note: read counts match IGV, but off by a few from pysam.mpileup]
-            final List<SamRecordFilter> samFilters = Arrays.asList(new NotPrimaryAlignmentFilter(),
-                    new DuplicateReadFilter());
-            locusIterator.setSamFilters(samFilters);
-            locusIterator.setEmitUncoveredLoci(false);
-            locusIterator.setIncludeNonPfReads(false);
-            locusIterator.setMappingQualityScoreCutoff(minMappingQuality);
-            locusIterator.setQualityScoreCutoff(minBaseQuality);
-
-            logger.info("Examining " + totalNumberOfSNPs + " sites in total...");
-            int locusCount = 0;
-            for (final SamLocusIterator.LocusInfo locus : locusIterator) {
-                if (locusCount % NUMBER_OF_SITES_PER_LOGGED_STATUS_UPDATE == 0) {
-                    logger.info("Examined " + locusCount + " covered sites.");
-                }
-                locusCount++;
-
-                //include N, etc. reads here
-                final int totalReadCount = locus.getRecordAndPositions().size();
-                if (totalReadCount < minimumRawReads) {
-                    continue;
-                }
-
-                final Nucleotide.Counter baseCounts = getPileupBaseCounts(locus);
-                //only include total ACGT counts in binomial test (exclude N, etc.)
-                final int totalBaseCount = Arrays.stream(BASES).mapToInt(b -> (int) baseCounts.get(b)).sum();
-
-                if (sampleType == SampleType.NORMAL &&
-                        !isPileupHetCompatible(baseCounts, totalBaseCount, pvalThreshold)) {
-                    continue;
-                }
-
-                final Nucleotide refBase = Nucleotide.valueOf(refWalker.get(locus.getSequenceIndex()).getBases()[locus.getPosition() - 1]);
-                final int refReadCount = (int) baseCounts.get(refBase);
-                final int altReadCount = totalBaseCount - refReadCount;
-
-                hetPulldown.add(new AllelicCount(
-                        new SimpleInterval(locus.getSequenceName(), locus.getPosition(), locus.getPosition()),
-                        refReadCount, altReadCount));
-            }
-            logger.info(locusCount + " covered sites out of " + totalNumberOfSNPs + " total sites were examined.");
-            return hetPulldown;
-        } catch (final IOException | SAMFormatException e) {
-            throw new UserException(e.getMessage());
+        final List<AllelicCount> hetSites = pileupEngine.walk(bamFile, snpIntervals,
+                (locus, refBase) -> getSiteBaseCounts(locus, refBase, minimumRawReads),
+                siteBaseCounts -> getHetSite(siteBaseCounts, sampleType, pvalThreshold));
+        return toPulldown(pileupEngine.getHeader(bamFile), hetSites);
+    }
+
+    /**
+     * Base-pair counts at a covered site.
+     */
+    private static final class SiteBaseCounts {
+        private final SimpleInterval interval;
+        private final Nucleotide refBase;
+        private final Nucleotide.Counter baseCounts;
+
+        private SiteBaseCounts(final SimpleInterval interval, final Nucleotide refBase,
+                               final Nucleotide.Counter baseCounts) {
+            this.interval = interval;
+            this.refBase = refBase;
+            this.baseCounts = baseCounts;
+        }
+    }
+
+    /**
+     * Returns the base-pair counts at a locus, or {@code null} if there are fewer than {@code minimumRawReads} reads.
+     */
+    private static SiteBaseCounts getSiteBaseCounts(final SamLocusIterator.LocusInfo locus, final Nucleotide refBase,
+                                                    final int minimumRawReads) {
+        //include N, etc. reads here
+        final int totalReadCount = locus.getRecordAndPositions().size();
+        if (totalReadCount < minimumRawReads) {
+            return null;
+        }
+        return new SiteBaseCounts(new SimpleInterval(locus.getSequenceName(), locus.getPosition(), locus.getPosition()),
+                refBase, getPileupBaseCounts(locus));
+    }
+
+    /**
+     * Returns the {@link AllelicCount} at a site, or {@code null} if a normal sample fails the binomial test.
+     */
+    private static AllelicCount getHetSite(final SiteBaseCounts siteBaseCounts, final SampleType sampleType,
+                                           final double pvalThreshold) {
+        final Nucleotide.Counter baseCounts = siteBaseCounts.baseCounts;
+        //only include total ACGT counts in binomial test (exclude N, etc.)
+        final int totalBaseCount = Arrays.stream(BASES).mapToInt(b -> (int) baseCounts.get(b)).sum();
+
+        if (sampleType == SampleType.NORMAL &&
+                !isPileupHetCompatible(baseCounts, totalBaseCount, pvalThreshold)) {
+            return null;
         }
+
+        final int refReadCount = (int) baseCounts.get(siteBaseCounts.refBase);
+        final int altReadCount = totalBaseCount - refReadCount;
+        return new AllelicCount(siteBaseCounts.interval, refReadCount, altReadCount);
+    }
+
+    private static Pulldown toPulldown(final SAMFileHeader header, final List<AllelicCount> hetSites) {
+        final Pulldown hetPulldown = new Pulldown(header);
+        hetSites.forEach(hetPulldown::add);
+        return hetPulldown;
     }
 }
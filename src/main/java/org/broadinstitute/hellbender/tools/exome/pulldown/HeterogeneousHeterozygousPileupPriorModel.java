@@ -1,17 +1,14 @@
 package org.broadinstitute.hellbender.tools.exome.pulldown;
 
 import com.google.common.annotations.VisibleForTesting;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.math3.analysis.integration.gauss.GaussIntegrator;
 import org.apache.commons.math3.analysis.integration.gauss.GaussIntegratorFactory;
 import org.apache.commons.math3.util.FastMath;
 import org.broadinstitute.hellbender.utils.GATKProtectedMathUtils;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 import java.util.stream.IntStream;
 
 /**
@@ -39,15 +36,15 @@ public final class HeterogeneousHeterozygousPileupPriorModel extends Heterozygou
 
     /* integration quadrature */
     @VisibleForTesting
-    final List<Double> gaussIntegrationWeights = new ArrayList<>();
-    private final List<Double> gaussIntegrationLogWeights = new ArrayList<>();
+    double[] gaussIntegrationWeights;
+    private double[] gaussIntegrationLogWeights;
     @VisibleForTesting
-    final List<Double> gaussIntegrationAbscissas = new ArrayList<>();
+    double[] gaussIntegrationAbscissas;
 
     /* allele fraction prior for Het sites */
     @VisibleForTesting
-    final List<Double> alleleFractionPriors = new ArrayList<>();
-    private final List<Double> alleleFractionLogPriors = new ArrayList<>();
+    double[] alleleFractionPriors;
+    private double[] alleleFractionLogPriors;
 
     /* minimum order of the integration quadrature */
     private static final int MIN_QUADRATURE_ORDER = 50;
@@ -84,7 +81,7 @@ public final class HeterogeneousHeterozygousPileupPriorModel extends Heterozygou
 
     /**
      * Initilizes the quadrature for calculating allele ratio integrals in
-     * {@link HeterogeneousHeterozygousPileupPriorModel#getHetLogLikelihood(List)}
+     * {@link HeterogeneousHeterozygousPileupPriorModel#getHetLogLikelihood(double[], double[])}
      *
      * @param numIntegPoints  number of points in the quadrature
      */
@@ -95,19 +92,13 @@ public final class HeterogeneousHeterozygousPileupPriorModel extends Heterozygou
                 minHetAlleleFraction, 1.0 - minHetAlleleFraction);
 
         /* abscissas */
-        gaussIntegrationAbscissas.clear();
-        gaussIntegrationAbscissas.addAll(IntStream.range(0, numIntegPoints).
-                mapToDouble(gaussIntegrator::getPoint).boxed().collect(Collectors.toList()));
+        gaussIntegrationAbscissas = IntStream.range(0, numIntegPoints).mapToDouble(gaussIntegrator::getPoint).toArray();
 
         /* weights */
-        gaussIntegrationWeights.clear();
-        gaussIntegrationWeights.addAll(IntStream.range(0, numIntegPoints).
-                mapToDouble(gaussIntegrator::getWeight).boxed().collect(Collectors.toList()));
+        gaussIntegrationWeights = IntStream.range(0, numIntegPoints).mapToDouble(gaussIntegrator::getWeight).toArray();
 
         /* log of weights */
-        gaussIntegrationLogWeights.clear();
-        gaussIntegrationLogWeights.addAll(gaussIntegrationWeights.stream().
-                mapToDouble(FastMath::log).boxed().collect(Collectors.toList()));
+        gaussIntegrationLogWeights = Arrays.stream(gaussIntegrationWeights).map(FastMath::log).toArray();
     }
 
     /**
@@ -146,15 +137,11 @@ public final class HeterogeneousHeterozygousPileupPriorModel extends Heterozygou
      * quadrature
      */
     private void initializeHetAlleleFractionPrior() {
-        alleleFractionPriors.clear();
-        alleleFractionPriors.addAll(gaussIntegrationAbscissas.stream()
-                .mapToDouble(this::calculateAlleleFractionPriorDistribution)
-                .boxed().collect(Collectors.toList()));
+        alleleFractionPriors = Arrays.stream(gaussIntegrationAbscissas)
+                .map(this::calculateAlleleFractionPriorDistribution).toArray();
 
         /* calculate the log prior */
-        alleleFractionLogPriors.clear();
-        alleleFractionLogPriors.addAll(alleleFractionPriors.stream()
-                .map(FastMath::log).collect(Collectors.toList()));
+        alleleFractionLogPriors = Arrays.stream(alleleFractionPriors).map(FastMath::log).toArray();
     }
 
     /**
@@ -162,24 +149,19 @@ public final class HeterogeneousHeterozygousPileupPriorModel extends Heterozygou
      * likelihoods of the alt/ret portion of reads in the pileup
      * (see CNV-method.pdf for details)
      *
-     * @param coeffs list of (alpha_k, beta_k) tuples
+     * @param alphas alpha_k coefficients
+     * @param betas beta_k coefficients, as many as {@code alphas}
      * @return log likelihood
      */
     @Override
-    public double getHetLogLikelihood(final Collection<? extends Pair<Double, Double>> coeffs) {
-        final ArrayList<Double> refAltLogLikelihoodList = new ArrayList<>(gaussIntegrationAbscissas.size());
-        refAltLogLikelihoodList.addAll(
-                gaussIntegrationAbscissas.stream()
-                        .map(f -> getHetLogLikelihoodFixedAlleleFraction(f, coeffs))
-                        .collect(Collectors.toList()));
-
-        final ArrayList<Double> logLikelihoodIntegrandWithPriorAndWeights = new ArrayList<>(gaussIntegrationAbscissas.size());
-        logLikelihoodIntegrandWithPriorAndWeights.addAll(
-                IntStream.range(0, gaussIntegrationAbscissas.size())
-                        .mapToDouble(i -> refAltLogLikelihoodList.get(i) + gaussIntegrationLogWeights.get(i) +
-                                alleleFractionLogPriors.get(i))
-                        .boxed().collect(Collectors.toList()));
-
+    public double getHetLogLikelihood(final double[] alphas, final double[] betas) {
+        Utils.validateArg(alphas.length == betas.length, "There must be as many alpha as beta coefficients.");
+        final double[] logLikelihoodIntegrandWithPriorAndWeights = new double[gaussIntegrationAbscissas.length];
+        for (int i = 0; i < gaussIntegrationAbscissas.length; i++) {
+            logLikelihoodIntegrandWithPriorAndWeights[i] =
+                    getHetLogLikelihoodFixedAlleleFraction(gaussIntegrationAbscissas[i], alphas, betas) +
+                            gaussIntegrationLogWeights[i] + alleleFractionLogPriors[i];
+        }
         return GATKProtectedMathUtils.logSumExp(logLikelihoodIntegrandWithPriorAndWeights);
     }
 }
@@ -1,10 +1,7 @@
 package org.broadinstitute.hellbender.tools.exome.pulldown;
 
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.math3.util.FastMath;
 
-import java.util.Collection;
-
 /**
  * Model prior for heterozygous pileups
  *
@@ -20,34 +17,37 @@ public abstract class HeterozygousPileupPriorModel {
      *
      *    l_k = log(alpha_k * alleleFraction + beta_k),
      *
-     * to the log likelihood. The list of (alpha_k, beta_k) tuples are provided by {@code coeffs}. These
+     * to the log likelihood. The (alpha_k, beta_k) tuples are provided by {@code alphas} and {@code betas}. These
      * coefficients are calculated according to the read and mapping qualtities (see CNV-methods.pdf for details).
      *
      * Note that the full heterozygosity likelihood must be further adjusted according to the non-ref and non-alt
      * reads. For example, see {@link BayesianHetPulldownCalculator::getHetLogLikelihood}.
      *
      * @param alleleFraction the ref to alt allele fraction
-     * @param coeffs list of (alpha, beta) tuples
+     * @param alphas alpha coefficients
+     * @param betas beta coefficients, as many as {@code alphas}
      * @return any double value
      */
     protected double getHetLogLikelihoodFixedAlleleFraction(final double alleleFraction,
-                                                            final Collection<? extends Pair<Double, Double>> coeffs) {
-        return coeffs.stream()
-                .mapToDouble(dat -> dat.getLeft() + alleleFraction * dat.getRight())
-                .map(FastMath::log)
-                .sum();
+                                                            final double[] alphas, final double[] betas) {
+        double result = 0;
+        for (int k = 0; k < alphas.length; k++) {
+            result += FastMath.log(alphas[k] + alleleFraction * betas[k]);
+        }
+        return result;
     }
 
     /**
      * To be implemented by concrete models that extend this class.
      *
      * Note: concrete prior models weight the fixed allele fraction likelihoods, as given by
-     * {@link HeterozygousPileupPriorModel#getHetLogLikelihoodFixedAlleleFraction(double, Collection)},
+     * {@link HeterozygousPileupPriorModel#getHetLogLikelihoodFixedAlleleFraction(double, double[], double[])},
      * with the to-be-implemented allele fraction prior. For example, see
      * {@link HeterogeneousHeterozygousPileupPriorModel}.
      *
-     * @param coeffs list of (alpha, beta) tuples
+     * @param alphas alpha coefficients
+     * @param betas beta coefficients, as many as {@code alphas}
      * @return any double value
      */
-    public abstract double getHetLogLikelihood(final Collection<? extends Pair<Double, Double>> coeffs);
+    public abstract double getHetLogLikelihood(final double[] alphas, final double[] betas);
 }
@@ -0,0 +1,350 @@
+package org.broadinstitute.hellbender.tools.exome.pulldown;
+
+import htsjdk.samtools.*;
+import htsjdk.samtools.filter.DuplicateReadFilter;
+import htsjdk.samtools.filter.NotPrimaryAlignmentFilter;
+import htsjdk.samtools.filter.SamRecordFilter;
+import htsjdk.samtools.reference.ReferenceSequenceFile;
+import htsjdk.samtools.reference.ReferenceSequenceFileFactory;
+import htsjdk.samtools.reference.ReferenceSequenceFileWalker;
+import htsjdk.samtools.util.Interval;
+import htsjdk.samtools.util.IntervalList;
+import htsjdk.samtools.util.Locatable;
+import htsjdk.samtools.util.SamLocusIterator;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Nucleotide;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Walks the pileups of coordinate-sorted BAM files at a list of sites for the pulldown calculators.
+ *
+ * <p>
+ *     If the BAM file and the reference are both indexed, the sites are partitioned by contig into regions of at
+ *     most {@link PileupEngine#MAX_SITES_PER_REGION} positions, and the regions are walked in parallel, each with its
+ *     own {@link SamReader}.  Otherwise, all sites are walked in a single pass.  Either way, the pileup of each site
+ *     is first summarized as it is walked (e.g., into base counts) and the summaries are then processed (e.g.,
+ *     genotyped) in parallel chunks.  Results are returned in coordinate order, so they can be added to
+ *     a {@link Pulldown} as they are.
+ * </p>
+ */
+final class PileupEngine {
+    private static final Logger logger = LogManager.getLogger(PileupEngine.class);
+
+    /* interval threshold for indexing for SamLocusIterator when walking all sites in a single pass */
+    private static final int MAX_INTERVALS_FOR_INDEX = 25000;
+
+    /* maximum number of positions in a region that is walked by a single reader */
+    static final int MAX_SITES_PER_REGION = 10000;
+
+    /* maximum number of reference bases held at once by a region walked by position */
+    private static final int REFERENCE_WINDOW_SIZE = 100000;
+
+    /* number of summarized sites that are processed in parallel at once */
+    private static final int NUMBER_OF_SITES_PER_CHUNK = 10000;
+
+    /* approximate number of status updates printed to log */
+    private static final int NUMBER_OF_SITES_PER_LOGGED_STATUS_UPDATE = 10000;
+
+    private final File refFile;
+    private final int minMappingQuality;
+    private final int minBaseQuality;
+    private final ValidationStringency validationStringency;
+
+    /**
+     * Summarizes the pileup at a covered site.
+     *
+     * @param <P> type of the summary
+     */
+    @FunctionalInterface
+    interface PileupSummarizer<P> {
+        /**
+         * @param locus the pileup
+         * @param refBase reference base at the site
+         * @return the summary, or {@code null} if the site should be skipped
+         */
+        P summarize(final SamLocusIterator.LocusInfo locus, final Nucleotide refBase);
+    }
+
+    /**
+     * Summarizes the tumor pileup at a covered site that was kept from the matched normal.
+     *
+     * @param <N> type of the result for the normal
+     * @param <T> type of the summary
+     */
+    @FunctionalInterface
+    interface MatchedPileupSummarizer<N, T> {
+        /**
+         * @param locus the tumor pileup
+         * @param refBase reference base at the site
+         * @param normalResult result for the normal at the site
+         * @return the summary, or {@code null} if the site should be skipped
+         */
+        T summarize(final SamLocusIterator.LocusInfo locus, final Nucleotide refBase, final N normalResult);
+    }
+
+    /**
+     * @param refFile           file containing the reference
+     * @param minMappingQuality minimum mapping quality required for reads to be included in pileup
+     * @param minBaseQuality    minimum base quality required for bases to be included in pileup
+     * @param validationStringency  validation stringency to use for reading BAM files
+     */
+    PileupEngine(final File refFile, final int minMappingQuality, final int minBaseQuality,
+                 final ValidationStringency validationStringency) {
+        this.refFile = Utils.nonNull(refFile);
+        this.minMappingQuality = ParamUtils.isPositiveOrZero(minMappingQuality, "Minimum mapping quality must be nonnegative.");
+        this.minBaseQuality = ParamUtils.isPositiveOrZero(minBaseQuality, "Minimum base quality must be nonnegative.");
+        this.validationStringency = Utils.nonNull(validationStringency);
+    }
+
+    /**
+     * Returns the header of a BAM file, checking that it is coordinate sorted.
+     */
+    SAMFileHeader getHeader(final File bamFile) {
+        try (final SamReader bamReader = openBam(bamFile)) {
+            final SAMFileHeader header = bamReader.getFileHeader();
+            if (header.getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
+                throw new UserException.BadInput("BAM file " + bamFile.toString() + " must be coordinate sorted.");
+            }
+            return header;
+        } catch (final IOException | SAMFormatException e) {
+            throw new UserException(e.getMessage());
+        }
+    }
+
+    /**
+     * Walks the covered sites of a BAM file.
+     *
+     * @param bamFile       coordinate-sorted BAM file
+     * @param sites         sites to walk
+     * @param summarizer    summarizes the pileup at each covered site, as it is walked
+     * @param processor     processes the summaries, in parallel; returns {@code null} for sites to be dropped
+     * @return results of {@code processor}, in the order of the sites
+     */
+    <P, T> List<T> walk(final File bamFile, final IntervalList sites, final PileupSummarizer<P> summarizer,
+                        final Function<P, T> processor) {
+        Utils.nonNull(sites);
+        Utils.nonNull(summarizer);
+        Utils.nonNull(processor);
+        getHeader(bamFile);
+
+        final List<IntervalList> regions = partition(sites, isRegionParallel(bamFile));
+        final AtomicInteger locusCount = new AtomicInteger();
+        logger.info("Examining " + sites.size() + " sites in total in " + regions.size() + " region(s)...");
+        final List<T> results = regions.parallelStream()
+                .map(region -> walkRegion(bamFile, region, regions.size() > 1, summarizer, processor, locusCount))
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        logger.info(locusCount.get() + " covered sites out of " + sites.size() + " total sites were examined.");
+        return results;
+    }
+
+    /**
+     * Walks the covered sites of a normal BAM file and, at the sites kept from the normal, of a tumor BAM file.
+     * Regions are walked concurrently, so that the tumor pileups of a region can be walked while the normal pileups
+     * of others are being walked.
+     *
+     * @param normalBamFile     coordinate-sorted normal BAM file
+     * @param tumorBamFile      coordinate-sorted tumor BAM file
+     * @param sites             sites to walk in the normal
+     * @param normalSummarizer  summarizes the normal pileup at each covered site, as it is walked
+     * @param normalProcessor   processes the normal summaries, in parallel; returns {@code null} for sites to be dropped
+     * @param tumorSummarizer   summarizes the tumor pileup at each covered site kept from the normal, given the result
+     *                          for the normal at that site; returns {@code null} for sites to be dropped
+     * @return results for the normal and the tumor, each in the order of the sites
+     */
+    <P, N extends Locatable, T> Pair<List<N>, List<T>> walkMatched(final File normalBamFile, final File tumorBamFile,
+                                                                     final IntervalList sites,
+                                                                     final PileupSummarizer<P> normalSummarizer,
+                                                                     final Function<P, N> normalProcessor,
+                                                                     final MatchedPileupSummarizer<N, T> tumorSummarizer) {
+        Utils.nonNull(sites);
+        Utils.nonNull(normalSummarizer);
+        Utils.nonNull(normalProcessor);
+        Utils.nonNull(tumorSummarizer);
+        final SAMFileHeader normalHeader = getHeader(normalBamFile);
+        getHeader(tumorBamFile);
+
+        final List<IntervalList> regions = partition(sites, isRegionParallel(normalBamFile) && isRegionParallel(tumorBamFile));
+        final AtomicInteger normalLocusCount = new AtomicInteger();
+        final AtomicInteger tumorLocusCount = new AtomicInteger();
+        logger.info("Examining " + sites.size() + " sites in total in " + regions.size() + " region(s)...");
+        final List<ImmutablePair<List<N>, List<T>>> resultsByRegion = regions.parallelStream()
+                .map(region -> {
+                    final boolean useIndex = regions.size() > 1;
+                    final List<N> normalResults = walkRegion(normalBamFile, region, useIndex, normalSummarizer,
+                            normalProcessor, normalLocusCount);
+                    if (normalResults.isEmpty()) {
+                        return new ImmutablePair<List<N>, List<T>>(normalResults, Collections.emptyList());
+                    }
+                    final Map<SimpleInterval, N> normalResultsBySite = new HashMap<>();
+                    final IntervalList tumorRegion = new IntervalList(normalHeader);
+                    for (final N normalResult : normalResults) {
+                        normalResultsBySite.put(new SimpleInterval(normalResult), normalResult);
+                        tumorRegion.add(new Interval(normalResult.getContig(), normalResult.getStart(), normalResult.getEnd()));
+                    }
+                    final List<T> tumorResults = walkRegion(tumorBamFile, tumorRegion, useIndex,
+                            (locus, refBase) -> tumorSummarizer.summarize(locus, refBase, normalResultsBySite.get(
+                                    new SimpleInterval(locus.getSequenceName(), locus.getPosition(), locus.getPosition()))),
+                            Function.identity(), tumorLocusCount);
+                    return new ImmutablePair<>(normalResults, tumorResults);
+                })
+                .collect(Collectors.toList());
+        logger.info(normalLocusCount.get() + " covered normal sites and " + tumorLocusCount.get() +
+                " covered tumor sites out of " + sites.size() + " total sites were examined.");
+        return new ImmutablePair<>(
+                resultsByRegion.stream().flatMap(p -> p.getLeft().stream()).collect(Collectors.toList()),
+                resultsByRegion.stream().flatMap(p -> p.getRight().stream()).collect(Collectors.toList()));
+    }
+
+    /**
+     * Regions can only be walked independently if both the BAM file and the reference can be queried by position.
+     */
+    private boolean isRegionParallel(final File bamFile) {
+        try (final SamReader bamReader = openBam(bamFile);
+             final ReferenceSequenceFile reference = ReferenceSequenceFileFactory.getReferenceSequenceFile(refFile)) {
+            return bamReader.hasIndex() && reference.isIndexed();
+        } catch (final IOException | SAMFormatException e) {
+            throw new UserException(e.getMessage());
+        }
+    }
+
+    /**
+     * Partitions sites into regions of at most {@link PileupEngine#MAX_SITES_PER_REGION} positions on a single
+     * contig, in coordinate order, or returns all sites as a single region if {@code isRegionParallel} is false.
+     *
+     * <p>
+     *     Positions covered by more than one site are only included once, but abutting sites are not merged, so that
+     *     regions can be split between them; sites longer than the space left in a region are split as well.
+     * </p>
+     */
+    static List<IntervalList> partition(final IntervalList sites, final boolean isRegionParallel) {
+        if (!isRegionParallel) {
+            return Collections.singletonList(sites);
+        }
+        final List<IntervalList> regions = new ArrayList<>();
+        IntervalList region = null;
+        String regionContig = null;
+        int regionSize = 0;
+        String lastContig = null;
+        int lastEnd = 0;
+        for (final Interval site : sites.sorted().getIntervals()) {
+            final boolean isSameContig = site.getContig().equals(lastContig);
+            int start = isSameContig ? Math.max(site.getStart(), lastEnd + 1) : site.getStart();
+            lastEnd = isSameContig ? Math.max(lastEnd, site.getEnd()) : site.getEnd();
+            lastContig = site.getContig();
+            while (start <= site.getEnd()) {
+                if (region == null || regionSize == MAX_SITES_PER_REGION || !regionContig.equals(site.getContig())) {
+                    region = new IntervalList(sites.getHeader());
+                    regionContig = site.getContig();
+                    regionSize = 0;
+                    regions.add(region);
+                }
+                final int end = Math.min(site.getEnd(), start + MAX_SITES_PER_REGION - regionSize - 1);
+                region.add(start == site.getStart() && end == site.getEnd() ? site : new Interval(site.getContig(), start, end));
+                regionSize += end - start + 1;
+                start = end + 1;
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Walks the covered sites of a region with its own readers.
+     *
+     * @param useIndex whether the region is a single-contig part of the sites, whose reads and reference bases are
+     *                 queried by position; otherwise, the region contains all sites and is walked in a single pass
+     */
+    private <P, T> List<T> walkRegion(final File bamFile, final IntervalList region, final boolean useIndex,
+                                      final PileupSummarizer<P> summarizer, final Function<P, T> processor,
+                                      final AtomicInteger locusCount) {
+        final List<T> results = new ArrayList<>();
+        try (final SamReader bamReader = openBam(bamFile);
+             final ReferenceSequenceFile reference = ReferenceSequenceFileFactory.getReferenceSequenceFile(refFile)) {
+            final SamLocusIterator locusIterator = new SamLocusIterator(bamReader, region,
+                    useIndex || region.size() < MAX_INTERVALS_FOR_INDEX);
+
+            //set read and locus filters [note: read counts match IGV, but off by a few from pysam.mpileup]
+            final List<SamRecordFilter> samFilters = Arrays.asList(new NotPrimaryAlignmentFilter(),
+                    new DuplicateReadFilter());
+            locusIterator.setSamFilters(samFilters);
+            locusIterator.setEmitUncoveredLoci(false);
+            locusIterator.setIncludeNonPfReads(false);
+            locusIterator.setMappingQualityScoreCutoff(minMappingQuality);
+            locusIterator.setQualityScoreCutoff(minBaseQuality);
+
+            final Function<SamLocusIterator.LocusInfo, Nucleotide> refBases = getRefBases(reference, region, useIndex);
+            final List<P> chunk = new ArrayList<>();
+            for (final SamLocusIterator.LocusInfo locus : locusIterator) {
+                if (locusCount.getAndIncrement() % NUMBER_OF_SITES_PER_LOGGED_STATUS_UPDATE == 0) {
+                    logger.info("Examined " + locusCount.get() + " covered sites.");
+                }
+                final P summary = summarizer.summarize(locus, refBases.apply(locus));
+                if (summary != null) {
+                    chunk.add(summary);
+                }
+                if (chunk.size() == NUMBER_OF_SITES_PER_CHUNK) {
+                    process(chunk, processor, results);
+                    chunk.clear();
+                }
+            }
+            process(chunk, processor, results);
+            return results;
+        } catch (final IOException | SAMFormatException e) {
+            throw new UserException(e.getMessage());
+        }
+    }
+
+    private static <P, T> void process(final List<P> chunk, final Function<P, T> processor, final List<T> results) {
+        results.addAll(chunk.parallelStream().map(processor).filter(Objects::nonNull).collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns the reference base of each locus of a region.  Indexed regions are on a single contig and their loci are
+     * walked in order of position, so their bases are queried in windows of at most
+     * {@link PileupEngine#REFERENCE_WINDOW_SIZE} bases that slide along the region; otherwise, the reference is walked
+     * contig by contig.
+     */
+    private static Function<SamLocusIterator.LocusInfo, Nucleotide> getRefBases(final ReferenceSequenceFile reference,
+                                                                               final IntervalList region,
+                                                                               final boolean useIndex) {
+        if (useIndex && region.size() > 0) {
+            final String contig = region.getIntervals().get(0).getContig();
+            final int regionEnd = region.getIntervals().stream().mapToInt(Interval::getEnd).max().getAsInt();
+            return new Function<SamLocusIterator.LocusInfo, Nucleotide>() {
+                private int windowStart = 0;
+                private byte[] bases = new byte[0];
+
+                @Override
+                public Nucleotide apply(final SamLocusIterator.LocusInfo locus) {
+                    final int position = locus.getPosition();
+                    if (position < windowStart || position >= windowStart + bases.length) {
+                        windowStart = position;
+                        bases = reference.getSubsequenceAt(contig, position,
+                                Math.min(regionEnd, position + REFERENCE_WINDOW_SIZE - 1)).getBases();
+                    }
+                    return Nucleotide.valueOf(bases[position - windowStart]);
+                }
+            };
+        }
+        final ReferenceSequenceFileWalker refWalker = new ReferenceSequenceFileWalker(reference);
+        return locus -> Nucleotide.valueOf(refWalker.get(locus.getSequenceIndex()).getBases()[locus.getPosition() - 1]);
+    }
+
+    private SamReader openBam(final File bamFile) {
+        return SamReaderFactory.makeDefault().validationStringency(validationStringency)
+                .referenceSequence(refFile).open(Utils.nonNull(bamFile));
+    }
+}
@@ -0,0 +1,115 @@
+package org.broadinstitute.hellbender.tools.genome;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Read counts in fixed-size genomic bins, kept in a primitive array per contig and indexed by
+ * (contig index in the sequence dictionary, bin index).  A read is counted in the bin containing its start,
+ * where bin {@code i} of a contig starts at {@code i * binsize + 1}.
+ *
+ * <p>
+ *     Arrays are only allocated for contigs that have reads, so that instances can be used as zero values for
+ *     aggregating over Spark partitions.
+ * </p>
+ */
+final class BinnedReadCounts implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int binsize;
+    private final int[] contigLengths;
+    private final long[][] counts;
+    private long totalCount = 0;
+
+    /**
+     * @param sequenceDictionary dictionary giving the contig indices and lengths. Never {@code null}
+     * @param binsize size of each bin
+     */
+    BinnedReadCounts(final SAMSequenceDictionary sequenceDictionary, final int binsize) {
+        Utils.nonNull(sequenceDictionary);
+        this.binsize = ParamUtils.isPositive(binsize, "Bin size must be positive.");
+        contigLengths = sequenceDictionary.getSequences().stream().mapToInt(SAMSequenceRecord::getSequenceLength).toArray();
+        counts = new long[contigLengths.length][];
+    }
+
+    /**
+     * Counts a read.
+     *
+     * @param contigIndex index of the contig of the read in the sequence dictionary
+     * @param start 1-based start of the read
+     * @return this instance
+     */
+    BinnedReadCounts add(final int contigIndex, final int start) {
+        final int binIndex = start / binsize;
+        if (counts[contigIndex] == null) {
+            counts[contigIndex] = new long[contigLengths[contigIndex] / binsize + 1];
+        }
+        if (binIndex >= counts[contigIndex].length) {
+            throw new IllegalArgumentException("Read start " + start + " is past the end of contig " + contigIndex + ".");
+        }
+        counts[contigIndex][binIndex]++;
+        totalCount++;
+        return this;
+    }
+
+    /**
+     * Adds the counts of another instance with the same dictionary and bin size to this one.
+     *
+     * @return this instance
+     */
+    BinnedReadCounts merge(final BinnedReadCounts other) {
+        Utils.nonNull(other);
+        Utils.validateArg(other.binsize == binsize && other.counts.length == counts.length,
+                "Cannot merge read counts with different bins.");
+        for (int contigIndex = 0; contigIndex < counts.length; contigIndex++) {
+            final long[] otherCounts = other.counts[contigIndex];
+            if (otherCounts == null) {
+                continue;
+            }
+            if (counts[contigIndex] == null) {
+                counts[contigIndex] = otherCounts.clone();
+            } else {
+                for (int binIndex = 0; binIndex < otherCounts.length; binIndex++) {
+                    counts[contigIndex][binIndex] += otherCounts[binIndex];
+                }
+            }
+        }
+        totalCount += other.totalCount;
+        return this;
+    }
+
+    /**
+     * Total number of reads counted, including those in bins that are not output.
+     */
+    long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the read counts of bins, in the same order.  A bin that does not start at a bin boundary, or whose
+     * bin has no reads, has a count of zero.
+     *
+     * @param bins bins to look up.  Never {@code null}
+     * @param sequenceDictionary dictionary used to construct this instance.  Never {@code null}
+     */
+    double[] getCounts(final List<SimpleInterval> bins, final SAMSequenceDictionary sequenceDictionary) {
+        Utils.nonNull(bins);
+        Utils.nonNull(sequenceDictionary);
+        final double[] result = new double[bins.size()];
+        for (int i = 0; i < result.length; i++) {
+            final SimpleInterval bin = bins.get(i);
+            final long[] contigCounts = counts[sequenceDictionary.getSequenceIndex(bin.getContig())];
+            if (contigCounts != null && (bin.getStart() - 1) % binsize == 0) {
+                final int binIndex = (bin.getStart() - 1) / binsize;
+                result[i] = binIndex < contigCounts.length ? contigCounts[binIndex] : 0;
+            }
+        }
+        return result;
+    }
+}
@@ -1,6 +1,10 @@
 package org.broadinstitute.hellbender.tools.genome;
 
+import htsjdk.samtools.QueryInterval;
+import htsjdk.samtools.SAMRecordIterator;
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.spark.api.java.JavaRDD;
@@ -17,6 +21,7 @@ import org.broadinstitute.hellbender.tools.exome.*;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
 
 import java.io.File;
 import java.io.IOException;
@@ -27,7 +32,9 @@ import java.util.stream.Collectors;
         summary = "Calculate coverage on a WGS bam file using Spark.  This creates a set of pseudo-targets that span" +
                 "the entire genome.  Use the 'binsize' parameter to specify the size of each interval.  By default, any " +
                 "contigs X, Y, M, and MT are excluded.\n" +
-        "Please see the " + SparkGenomeReadCounts.DROP_NON_AUTOSOMES_LONG_NAME + " option if using this tool on a non-human genome.",
+        "Please see the " + SparkGenomeReadCounts.DROP_NON_AUTOSOMES_LONG_NAME + " option if using this tool on a non-human genome.\n" +
+        "Coverage can also be collected on the driver from an indexed bam file, one contig per thread, with the " +
+                SparkGenomeReadCounts.COUNT_BY_CONTIG_LONG_NAME + " option.",
         oneLineSummary = "Calculate coverage on a WGS bam file using Spark",
         programGroup = CopyNumberProgramGroup.class)
 public class SparkGenomeReadCounts extends GATKSparkTool {
@@ -68,6 +75,18 @@ public class SparkGenomeReadCounts extends GATKSparkTool {
     )
     protected File outputFile;
 
+    protected static final String COUNT_BY_CONTIG_SHORT_NAME = "byContig";
+    protected static final String COUNT_BY_CONTIG_LONG_NAME = "countByContig";
+
+    @Argument(doc = "Collect coverage on the driver, querying the indexed reads file with one thread per contig, " +
+            "instead of with a Spark job.  The Spark context is still created, so this is mostly useful with a local " +
+            "Spark master.  The reads file must be indexed.",
+            fullName = COUNT_BY_CONTIG_LONG_NAME,
+            shortName = COUNT_BY_CONTIG_SHORT_NAME,
+            optional = true
+    )
+    protected boolean countByContig = false;
+
     /**
      * Determine the intervals to consider for coverage collection.  Honors the keepAutosome parameter.
      *
@@ -116,19 +135,19 @@ public class SparkGenomeReadCounts extends GATKSparkTool {
         final ReadFilter filter = makeGenomeReadFilter();
         final SAMSequenceDictionary sequenceDictionary = getReferenceSequenceDictionary();
 
-        logger.info("Starting Spark coverage collection...");
         final long coverageCollectionStartTime = System.currentTimeMillis();
-        final JavaRDD<GATKRead> rawReads = getReads();
-        final JavaRDD<GATKRead> reads = rawReads.filter(read -> filter.test(read));
-        final JavaRDD<SimpleInterval> readIntervals = reads
-                .filter(read -> sequenceDictionary.getSequence(read.getContig()) != null)
-                .map(read -> SparkGenomeReadCounts.createKey(read, sequenceDictionary, binsize));
-        final Map<SimpleInterval, Long> byKey = readIntervals.countByValue();
-        final Set<SimpleInterval> readIntervalKeySet = byKey.keySet();
-        final long totalReads = byKey.values().stream().mapToLong(v -> v).sum();
+        final BinnedReadCounts binnedReadCounts;
+        if (countByContig) {
+            logger.info("Starting coverage collection by contig...");
+            binnedReadCounts = countReadsByContig(filter, sequenceDictionary);
+        } else {
+            logger.info("Starting Spark coverage collection...");
+            binnedReadCounts = countReads(filter, sequenceDictionary);
+        }
+        final long totalReads = binnedReadCounts.getTotalCount();
         final long coverageCollectionEndTime = System.currentTimeMillis();
-        logger.info(String.format("Finished the spark coverage collection with %d targets and %d reads. Elapse of %d seconds",
-                readIntervalKeySet.size(), totalReads, (coverageCollectionEndTime - coverageCollectionStartTime) / 1000));
+        logger.info(String.format("Finished the coverage collection with %d reads. Elapse of %d seconds",
+                totalReads, (coverageCollectionEndTime - coverageCollectionStartTime) / 1000));
 
         final String[] commentsForProportionalCoverage = {commentsForRawCoverage[0], commentsForRawCoverage[1],
                 String.format("##title = Proportional coverage counts in %d base bins for WGS (total reads: %d)",
@@ -143,61 +162,91 @@ public class SparkGenomeReadCounts extends GATKSparkTool {
         logger.info(String.format("Finished creating genome bins. Elapse of %d seconds",
                 (createGenomeBinsEndTime - createGenomeBinsStartTime) / 1000));
 
-        logger.info("Creating missing genome bins...");
-        final long createMissingGenomeBinsStartTime = System.currentTimeMillis();
-        logger.info("Creating missing genome bins: Creating a mutable mapping...");
-        final Map<SimpleInterval, Long> byKeyMutable = new HashMap<>();
-        byKeyMutable.putAll(byKey);
-
-        logger.info("Creating missing genome bins: Populating mutable mapping with zero counts for empty regions...");
-        fullGenomeBins.stream().forEach(b -> byKeyMutable.putIfAbsent(b, 0l));
-
-        final long createMissingGenomeBinsEndTime = System.currentTimeMillis();
-        logger.info(String.format("Finished creating missing genome bins. Elapse of %d seconds",
-                (createMissingGenomeBinsEndTime - createMissingGenomeBinsStartTime) / 1000));
-
-        logger.info("Creating final map...");
-        final long createFinalMapStartTime = System.currentTimeMillis();
-        final SortedMap<SimpleInterval, Long> byKeySorted = new TreeMap<>(IntervalUtils.LEXICOGRAPHICAL_ORDER_COMPARATOR);
-        byKeySorted.putAll(byKeyMutable);
-        final long createFinalMapEndTime = System.currentTimeMillis();
-        logger.info(String.format("Finished creating final map. Elapse of %d seconds",
-                (createFinalMapEndTime - createFinalMapStartTime) / 1000));
-
-        logger.info("Creating proportional coverage... ");
-        final long pCovFileStartTime = System.currentTimeMillis();
-        final SortedMap<SimpleInterval, Double> byKeyProportionalSorted = new TreeMap<>(IntervalUtils.LEXICOGRAPHICAL_ORDER_COMPARATOR);
-        byKeySorted.entrySet().stream().forEach(e -> byKeyProportionalSorted.put(e.getKey(), (double) e.getValue() / totalReads));
-        final long pCovFileEndTime = System.currentTimeMillis();
-        logger.info(String.format("Finished creating proportional coverage map. Elapse of %d seconds",
-                (pCovFileEndTime - pCovFileStartTime) / 1000));
+        logger.info("Creating coverage of genome bins...");
+        final double[] rawCoverage = binnedReadCounts.getCounts(fullGenomeBins, sequenceDictionary);
+        final double[] proportionalCoverage = Arrays.stream(rawCoverage).map(c -> c / totalReads).toArray();
 
         logger.info("Writing raw coverage file ...");
         final long writingCovFileStartTime = System.currentTimeMillis();
-        ReadCountCollectionUtils.writeReadCountsFromSimpleInterval(new File(outputFile.getAbsolutePath() + RAW_COV_OUTPUT_EXTENSION), sampleName, byKeySorted, commentsForRawCoverage);
+        ReadCountCollectionUtils.writeReadCountsFromSimpleInterval(new File(outputFile.getAbsolutePath() + RAW_COV_OUTPUT_EXTENSION),
+                sampleName, fullGenomeBins, rawCoverage, commentsForRawCoverage);
         final long writingCovFileEndTime = System.currentTimeMillis();
         logger.info(String.format("Finished writing coverage file. Elapse of %d seconds",
                 (writingCovFileEndTime - writingCovFileStartTime) / 1000));
 
         logger.info("Writing proportional coverage file ...");
         final long writingPCovFileStartTime = System.currentTimeMillis();
-        ReadCountCollectionUtils.writeReadCountsFromSimpleInterval(outputFile, sampleName, byKeyProportionalSorted,
-                commentsForProportionalCoverage);
+        ReadCountCollectionUtils.writeReadCountsFromSimpleInterval(outputFile, sampleName, fullGenomeBins,
+                proportionalCoverage, commentsForProportionalCoverage);
         final long writingPCovFileEndTime = System.currentTimeMillis();
         logger.info(String.format("Finished writing proportional coverage file. Elapse of %d seconds",
                 (writingPCovFileEndTime - writingPCovFileStartTime) / 1000));
     }
 
-    private List<SimpleInterval> createFullGenomeBins(final int binsize){
-        return IntervalUtils.cutToShards(getIntervals(), binsize);
+    /**
+     * Counts reads in bins on Spark.  Each partition counts into its own {@link BinnedReadCounts}, and these
+     * are merged with a tree aggregate.
+     */
+    private BinnedReadCounts countReads(final ReadFilter filter, final SAMSequenceDictionary sequenceDictionary) {
+        final JavaRDD<GATKRead> rawReads = getReads();
+        final JavaRDD<GATKRead> reads = rawReads.filter(read -> filter.test(read));
+        return reads
+                .filter(read -> sequenceDictionary.getSequence(read.getContig()) != null)
+                .treeAggregate(new BinnedReadCounts(sequenceDictionary, binsize),
+                        (counts, read) -> counts.add(sequenceDictionary.getSequenceIndex(read.getContig()), read.getStart()),
+                        BinnedReadCounts::merge);
+    }
+
+    /**
+     * Counts reads in bins on the driver, without a Spark job.  The intervals of each contig are queried from the
+     * indexed reads file by a separate reader, and the contigs are processed in parallel.
+     */
+    private BinnedReadCounts countReadsByContig(final ReadFilter filter, final SAMSequenceDictionary sequenceDictionary) {
+        final File readsFile = new File(readArguments.getReadFilesNames().get(0));
+        final Map<String, List<SimpleInterval>> intervalsByContig = getIntervals().stream()
+                .collect(Collectors.groupingBy(SimpleInterval::getContig, LinkedHashMap::new, Collectors.toList()));
+        return intervalsByContig.values().parallelStream()
+                .map(intervals -> countReadsInContig(readsFile, intervals, filter, sequenceDictionary))
+                .reduce(BinnedReadCounts::merge)
+                .orElseGet(() -> new BinnedReadCounts(sequenceDictionary, binsize));
     }
 
-    private static SimpleInterval createKey(final GATKRead read, final SAMSequenceDictionary sequenceDictionary, final int binsize){
-        final String contig = read.getContig();
-        final int newStart = (read.getStart()/binsize)*binsize+1;
-        final int newEnd = Math.min(newStart + binsize - 1, sequenceDictionary.getSequence(contig).getSequenceLength());
+    private BinnedReadCounts countReadsInContig(final File readsFile, final List<SimpleInterval> intervals,
+                                                final ReadFilter filter, final SAMSequenceDictionary sequenceDictionary) {
+        final BinnedReadCounts counts = new BinnedReadCounts(sequenceDictionary, binsize);
+        final SamReaderFactory factory = SamReaderFactory.makeDefault();
+        if (referenceArguments.getReferenceFileName() != null) {
+            factory.referenceSequence(new File(referenceArguments.getReferenceFileName()));
+        }
+        try (final SamReader reader = factory.open(readsFile)) {
+            if (!reader.hasIndex()) {
+                throw new UserException.BadInput("The reads file " + readsFile + " must be indexed to collect coverage by contig.");
+            }
+            final String contig = intervals.get(0).getContig();
+            final int readsContigIndex = reader.getFileHeader().getSequenceIndex(contig);
+            if (readsContigIndex < 0) {
+                return counts;
+            }
+            final QueryInterval[] queryIntervals = QueryInterval.optimizeIntervals(intervals.stream()
+                    .map(i -> new QueryInterval(readsContigIndex, i.getStart(), i.getEnd()))
+                    .toArray(QueryInterval[]::new));
+            final int contigIndex = sequenceDictionary.getSequenceIndex(contig);
+            try (final SAMRecordIterator iterator = reader.queryOverlapping(queryIntervals)) {
+                while (iterator.hasNext()) {
+                    final GATKRead read = new SAMRecordToGATKReadAdapter(iterator.next());
+                    if (filter.test(read)) {
+                        counts.add(contigIndex, read.getStart());
+                    }
+                }
+            }
+            return counts;
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(readsFile, e);
+        }
+    }
 
-        return new SimpleInterval(contig, newStart, newEnd);
+    private List<SimpleInterval> createFullGenomeBins(final int binsize){
+        return IntervalUtils.cutToShards(getIntervals(), binsize);
     }
 
     @Override
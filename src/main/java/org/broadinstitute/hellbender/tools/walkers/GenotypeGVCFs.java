@@ -21,9 +21,9 @@ import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.argumentcollections.DbsnpArgumentCollection;
 import org.broadinstitute.hellbender.cmdline.programgroups.VariantProgramGroup;
 import org.broadinstitute.hellbender.engine.FeatureContext;
-import org.broadinstitute.hellbender.engine.ReadsContext;
+import org.broadinstitute.hellbender.engine.GVCFSiteWalker;
 import org.broadinstitute.hellbender.engine.ReferenceContext;
-import org.broadinstitute.hellbender.engine.VariantWalker;
+import org.broadinstitute.hellbender.tools.walkers.annotator.QualByDepth;
 import org.broadinstitute.hellbender.tools.walkers.annotator.VariantAnnotatorEngine;
 import org.broadinstitute.hellbender.tools.walkers.genotyper.GenotypeCalculationArgumentCollection;
 import org.broadinstitute.hellbender.tools.walkers.genotyper.GenotypeLikelihoodsCalculationModel;
@@ -47,6 +47,7 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 /**
@@ -58,9 +59,16 @@ import java.util.Set;
  * HaplotypeCaller, or result from combining such gVCF files using CombineGVCFs. This tool will produce correct genotype
  * likelihoods, re-genotype the newly merged record, and then re-annotate it.</p>
  *
+ * <p>
+ * Several gVCFs (e.g., one per sample) can be genotyped jointly without combining them first: they are merged on the
+ * fly in a single streaming pass, taking into account the reference blocks of each input.  With --shardThreads,
+ * shards of the genome are genotyped in parallel (each thread with its own genotyping and annotation engines) and
+ * written in order.  The random jitter of the capped QD is drawn from a generator seeded from the site, so the output
+ * does not depend on the number of threads.</p>
+ *
  * <h3>Input</h3>
  * <p>
- * One HaplotypeCaller gVCF to genotype
+ * One or more HaplotypeCaller gVCFs to genotype
  * </p>
  *
  * <h3>Output</h3>
@@ -73,6 +81,7 @@ import java.util.Set;
  * gatk-launch GenotypeGVCFs \
  *   -R reference.fasta \
  *   -V sample1.g.vcf \
+ *   -V sample2.g.vcf \
  *   -O output.vcf
  * </pre>
  *
@@ -86,10 +95,22 @@ import java.util.Set;
  * for non-diploid organisms.</p>
  *
  */
-@CommandLineProgramProperties(summary = "genotype a gvcf file to produce a vcf", oneLineSummary = "genotype a gvcf file", programGroup = VariantProgramGroup.class)
-public final class GenotypeGVCFs extends VariantWalker {
+@CommandLineProgramProperties(summary = "genotype one or more gvcf files to produce a vcf", oneLineSummary = "genotype gvcf files", programGroup = VariantProgramGroup.class)
+public final class GenotypeGVCFs extends GVCFSiteWalker {
 
     public static final String PHASED_HOM_VAR_STRING = "1|1";
+
+    /* base of the seeds of the random generators of the capped QD of each site */
+    private static final long SITE_RANDOM_SEED = 47382911L;
+
+    /* QualByDepth is computed by the SiteGenotyper rather than the annotation engine, see qualByDepth() */
+    private static final String QUAL_BY_DEPTH = QualByDepth.class.getSimpleName();
+
+    /* as in QualByDepth: QDs of at least MAX_QD_BEFORE_FIXING are replaced by IDEAL_HIGH_QD plus Gaussian jitter */
+    private static final double MAX_QD_BEFORE_FIXING = 35;
+    private static final double IDEAL_HIGH_QD = 30;
+    private static final double QD_JITTER_SIGMA = 3;
+
     @Argument(fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
             doc="File to which variants should be written", optional=false)
     private File outputFile;
@@ -115,10 +136,7 @@ public final class GenotypeGVCFs extends VariantWalker {
     @ArgumentCollection
     private final DbsnpArgumentCollection dbsnp = new DbsnpArgumentCollection();
 
-    // the genotyping engine
-    private GenotypingEngine<?> genotypingEngine;
-    // the annotation engine
-    private VariantAnnotatorEngine annotationEngine;
+    private SampleList samples;
 
     private VariantContextWriter vcfWriter;
 
@@ -130,18 +148,18 @@ public final class GenotypeGVCFs extends VariantWalker {
     @Override
     public void onTraversalStart() {
         final VCFHeader inputVCFHeader = getHeaderForVariants();
-        final SampleList samples = new IndexedSampleList(inputVCFHeader.getGenotypeSamples()); //todo should this be getSampleNamesInOrder?
-
-        genotypingEngine = new MinimalGenotypingEngine(createUAC(), samples, new GeneralPloidyFailOverAFCalculatorProvider(genotypeArgs));
-        annotationEngine = VariantAnnotatorEngine.ofSelectedMinusExcluded(Collections.emptyList(), annotationsToUse, Collections.<String>emptyList(), dbsnp.dbsnp, Collections.emptyList());
+        samples = new IndexedSampleList(inputVCFHeader.getGenotypeSamples()); //todo should this be getSampleNamesInOrder?
 
-        setupVCFWriter(inputVCFHeader, samples);
+        setupVCFWriter(inputVCFHeader, samples, new SiteGenotyper());
     }
 
-    private void setupVCFWriter(VCFHeader inputVCFHeader, SampleList samples) {
+    private void setupVCFWriter(VCFHeader inputVCFHeader, SampleList samples, SiteGenotyper genotyper) {
         final Set<VCFHeaderLine> headerLines = new LinkedHashSet<>(inputVCFHeader.getMetaDataInInputOrder());
-        headerLines.addAll(annotationEngine.getVCFAnnotationDescriptions());
-        headerLines.addAll(genotypingEngine.getAppropriateVCFInfoHeaders());
+        headerLines.addAll(genotyper.annotationEngine.getVCFAnnotationDescriptions());
+        if ( genotyper.annotateQualByDepth ) {
+            headerLines.add(GATKVCFHeaderLines.getInfoLine(GATKVCFConstants.QUAL_BY_DEPTH_KEY));
+        }
+        headerLines.addAll(genotyper.genotypingEngine.getAppropriateVCFInfoHeaders());
 
         // add headers for annotations added by this tool
         headerLines.add(new VCFSimpleHeaderLine(GATKVCFConstants.SYMBOLIC_ALLELE_DEFINITION_HEADER_TAG, GATKVCFConstants.SPANNING_DELETION_SYMBOLIC_ALLELE_NAME_DEPRECATED, "Represents any possible spanning deletion allele at this location"));
@@ -161,53 +179,139 @@ public final class GenotypeGVCFs extends VariantWalker {
     }
 
     @Override
-    public void apply(VariantContext vc, ReadsContext reads, ReferenceContext ref, FeatureContext features ) {
-        ref.setWindow(10,10);
-        final VariantContext mergedVC = ReferenceConfidenceVariantContextMerger.merge(Collections.singletonList(vc), vc, includeNonVariants ? ref.getBase() : null, true, false);
-        final VariantContext regenotypedVC = regenotypeVC(mergedVC, ref, features, includeNonVariants);
-        if (regenotypedVC != null) {
-            vcfWriter.add(regenotypedVC);
-        }
+    public SiteProcessor makeSiteProcessor() {
+        return new SiteGenotyper();
     }
 
+    @Override
+    public void writeSiteOutput(final VariantContext output) {
+        vcfWriter.add(output);
+    }
 
     /**
-     * Re-genotype (and re-annotate) a combined genomic VC
-     * @return a new VariantContext or null if the site turned monomorphic and we don't want such sites
+     * Merges, re-genotypes and re-annotates the records at each site, with its own engines.
      */
-    private VariantContext regenotypeVC(final VariantContext originalVC, final ReferenceContext ref, final FeatureContext features, boolean includeNonVariants) {
-        Utils.nonNull(originalVC);
-
-        VariantContext result = originalVC;
-        if ( result.isVariant() ) {
-            // only re-genotype polymorphic sites
-            VariantContext regenotypedVC = genotypingEngine.calculateGenotypes(result, GenotypeLikelihoodsCalculationModel.SNP, null);
-            if (regenotypedVC == null || regenotypedVC.isSymbolic()) {
-                if (!includeNonVariants) {
+    private final class SiteGenotyper implements SiteProcessor {
+        // the genotyping engine
+        private final GenotypingEngine<?> genotypingEngine = new MinimalGenotypingEngine(createUAC(), samples, new GeneralPloidyFailOverAFCalculatorProvider(genotypeArgs));
+        // the annotation engine, but for the QD
+        private final VariantAnnotatorEngine annotationEngine = VariantAnnotatorEngine.ofSelectedMinusExcluded(Collections.emptyList(), annotationsToUse, Collections.singletonList(QUAL_BY_DEPTH), dbsnp.dbsnp, Collections.emptyList());
+        private final boolean annotateQualByDepth = annotationsToUse.contains(QUAL_BY_DEPTH);
+
+        @Override
+        public VariantContext apply(List<VariantContext> vcs, ReferenceContext ref, FeatureContext features ) {
+            ref.setWindow(10,10);
+            // the first record starts at the site
+            final VariantContext mergedVC = ReferenceConfidenceVariantContextMerger.merge(vcs, vcs.get(0), includeNonVariants ? ref.getBase() : null, true, false);
+            return regenotypeVC(mergedVC, ref, features, includeNonVariants);
+        }
+
+        /**
+         * Re-genotype (and re-annotate) a combined genomic VC
+         * @return a new VariantContext or null if the site turned monomorphic and we don't want such sites
+         */
+        private VariantContext regenotypeVC(final VariantContext originalVC, final ReferenceContext ref, final FeatureContext features, boolean includeNonVariants) {
+            Utils.nonNull(originalVC);
+
+            VariantContext result = originalVC;
+            if ( result.isVariant() ) {
+                // only re-genotype polymorphic sites
+                VariantContext regenotypedVC = genotypingEngine.calculateGenotypes(result, GenotypeLikelihoodsCalculationModel.SNP, null);
+                if (regenotypedVC == null || regenotypedVC.isSymbolic()) {
+                    if (!includeNonVariants) {
+                        return null;
+                    }
+                } else {
+                    regenotypedVC = GATKVariantContextUtils.reverseTrimAlleles(regenotypedVC);
+                    result = addGenotypingAnnotations(originalVC.getAttributes(), regenotypedVC);
+                }
+            }
+
+            // if it turned monomorphic then we either need to ignore or fix such sites
+            // Note that the order of these actions matters and is different for polymorphic and monomorphic sites.
+            if ( result.isMonomorphicInSamples() ) {
+                if ( !includeNonVariants) {
                     return null;
+                } else {
+                    // For monomorphic sites we need to make sure e.g. the hom ref genotypes are created and only then are passed to the annotation engine.
+                    final VariantContext reannotated = new VariantContextBuilder(result).genotypes(cleanupGenotypeAnnotations(result, true)).make();
+                    return annotate(reannotated, features, ref);
                 }
             } else {
-                regenotypedVC = GATKVariantContextUtils.reverseTrimAlleles(regenotypedVC);
-                result = addGenotypingAnnotations(originalVC.getAttributes(), regenotypedVC);
+                // For polymorphic sites we need to make sure e.g. the SB tag is sent to the annotation engine and then removed later.
+                final VariantContext reannotated = annotate(result, features, ref);
+                return new VariantContextBuilder(reannotated).genotypes(cleanupGenotypeAnnotations(reannotated, false)).make();
             }
+
         }
 
-        // if it turned monomorphic then we either need to ignore or fix such sites
-        // Note that the order of these actions matters and is different for polymorphic and monomorphic sites.
-        if ( result.isMonomorphicInSamples() ) {
-            if ( !includeNonVariants) {
-                return null;
-            } else {
-                // For monomorphic sites we need to make sure e.g. the hom ref genotypes are created and only then are passed to the annotation engine.
-                final VariantContext reannotated = new VariantContextBuilder(result).genotypes(cleanupGenotypeAnnotations(result, true)).make();
-                return annotationEngine.annotateContext(reannotated, features, ref, null, a -> true);
+        private VariantContext annotate(final VariantContext vc, final FeatureContext features, final ReferenceContext ref) {
+            final VariantContext annotated = annotationEngine.annotateContext(vc, features, ref, null, a -> true);
+            if ( !annotateQualByDepth ) {
+                return annotated;
             }
-        } else {
-            // For polymorphic sites we need to make sure e.g. the SB tag is sent to the annotation engine and then removed later.
-            final VariantContext reannotated = annotationEngine.annotateContext(result, features, ref, null, a -> true);
-            return new VariantContextBuilder(reannotated).genotypes(cleanupGenotypeAnnotations(reannotated, false)).make();
+            final String qd = qualByDepth(vc);
+            return qd == null ? annotated : new VariantContextBuilder(annotated).attribute(GATKVCFConstants.QUAL_BY_DEPTH_KEY, qd).make();
         }
+    }
+
+    /**
+     * Computes the QD of a site as {@link QualByDepth} does, but drawing the jitter of a capped QD from a generator
+     * seeded from the site instead of the generator shared by all threads, so that it does not depend on the order in
+     * which the sites are annotated.
+     *
+     * @return the formatted QD, or {@code null} if it is undefined at the site
+     */
+    @VisibleForTesting
+    static String qualByDepth(final VariantContext vc) {
+        if ( !vc.hasLog10PError() ) {
+            return null;
+        }
+        final int depth = variantDepth(vc.getGenotypes());
+        if ( depth == 0 ) {
+            return null;
+        }
+        double qd = -10.0 * vc.getLog10PError() / depth;
+        if ( qd >= MAX_QD_BEFORE_FIXING ) {
+            qd = IDEAL_HIGH_QD + new Random(siteSeed(vc)).nextGaussian() * QD_JITTER_SIGMA;
+        }
+        return String.format("%.2f", qd);
+    }
+
+    /**
+     * Depth of the het and hom-var genotypes of a site, as in {@link QualByDepth}: the total of their ADs, restricted
+     * to those with more than one alt read if there are any, or else of their DPs when they have no AD.
+     */
+    private static int variantDepth(final GenotypesContext genotypes) {
+        int depth = 0;
+        int adRestrictedDepth = 0;
+        for ( final Genotype genotype : genotypes ) {
+            if ( !genotype.isHet() && !genotype.isHomVar() ) {
+                continue;
+            }
+            if ( genotype.hasAD() ) {
+                final int[] ad = genotype.getAD();
+                int totalADDepth = 0;
+                for ( final int alleleDepth : ad ) {
+                    totalADDepth += alleleDepth;
+                }
+                if ( totalADDepth != 0 ) {
+                    if ( totalADDepth - ad[0] > 1 ) {
+                        adRestrictedDepth += totalADDepth;
+                    }
+                    depth += totalADDepth;
+                    continue;
+                }
+            }
+            if ( genotype.hasDP() ) {
+                depth += genotype.getDP();
+            }
+        }
+        return adRestrictedDepth > 0 ? adRestrictedDepth : depth;
+    }
 
+    private static long siteSeed(final VariantContext vc) {
+        return (SITE_RANDOM_SEED * 31 + vc.getContig().hashCode()) * 31 + vc.getStart();
     }
 
     /**
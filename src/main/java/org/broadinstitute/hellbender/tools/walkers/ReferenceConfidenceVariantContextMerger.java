@@ -18,6 +18,7 @@ import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -31,24 +32,8 @@ import java.util.stream.Collectors;
  *
  * @author Valentin Ruano-Rubio &lt;valentin@broadinstitute.org&gt;
  */
-@SuppressWarnings({"rawtypes","unchecked"}) //TODO fix uses of untyped Comparable.
 final class ReferenceConfidenceVariantContextMerger {
 
-    /**
-     * Combine annotation values by computing the medianish middle element
-     * @param values a list of integers
-     * @return the median element
-     */
-    private static <T extends Comparable<? super T>> T combineAnnotationValues(final List<T> values) {
-        Utils.nonEmpty(values);
-        final int size = values.size();
-        if ( size == 1 ) { return values.get(0); }
-        else {
-            final List<T> sorted = values.stream().sorted().collect(Collectors.toList());
-            return sorted.get(size / 2);
-        }
-    }
-
     /**
      * Merges VariantContexts from gVCFs into a single hybrid.
      * Assumes that none of the input records are filtered.
@@ -87,15 +72,20 @@ final class ReferenceConfidenceVariantContextMerger {
 
         final Set<String> rsIDs = new LinkedHashSet<>(1); // most of the time there's one id
         int depth = 0;
-        final Map<String, List<Comparable>> annotationMap = new LinkedHashMap<>();
+        final Map<String, AnnotationValues> annotationMap = new LinkedHashMap<>();
 
-        final GenotypesContext genotypes = GenotypesContext.create();
+        int genotypeCount = 0;
+        for ( final VariantContext vc : vcs ) {
+            genotypeCount += vc.getNSamples();
+        }
+        final GenotypesContext genotypes = GenotypesContext.create(genotypeCount);
+        final GenotypeIndexMapCache genotypeIndexMaps = new GenotypeIndexMapCache();
 
         for ( final VCWithNewAlleles vcWithNewAlleles : vcAndNewAllelePairs ) {
             final VariantContext vc = vcWithNewAlleles.getVc();
             final List<Allele> remappedAlleles = vcWithNewAlleles.getNewAlleles();
 
-            genotypes.addAll(mergeRefConfidenceGenotypes(vc, remappedAlleles, allelesList, samplesAreUniquified));
+            mergeRefConfidenceGenotypes(vc, remappedAlleles, allelesList, samplesAreUniquified, genotypeIndexMaps, genotypes);
             depth += calculateVCDepth(vc);
 
             if ( loc.getStart() != vc.getStart() ) {
@@ -201,12 +191,15 @@ final class ReferenceConfidenceVariantContextMerger {
             this.isSpanningEvent = isSpanningEvent;
         }
 
-        public List<Allele> filterAllelesForFinalSet() {
-            return newAlleles.stream().filter(a -> !a.equals(GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE))
-                    .filter(a -> !a.isReference())
-                    .filter(a -> !(a.isSymbolic() && vc.isSymbolic())) // skip <*DEL> if there isn't a real alternate allele.
-                    .filter(Allele::isCalled) // skip NO_CALL
-                    .collect(Collectors.toList());
+        public void addAllelesForFinalSet(final Set<Allele> finalAlleleSet) {
+            for ( final Allele a : newAlleles ) {
+                if ( !a.equals(GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE)
+                        && !a.isReference()
+                        && !(a.isSymbolic() && vc.isSymbolic()) // skip <*DEL> if there isn't a real alternate allele.
+                        && a.isCalled() ) { // skip NO_CALL
+                    finalAlleleSet.add(a);
+                }
+            }
         }
 
         // record whether it's also a spanning deletion/event (we know this because the VariantContext type is no
@@ -235,13 +228,13 @@ final class ReferenceConfidenceVariantContextMerger {
         // Reference goes first
         finalAlleleSet.add(refAllele);
 
-        final List<Allele> collected = vcAndNewAllelePairs.stream()
-                .flatMap(vcWithNewAlleles -> vcWithNewAlleles.filterAllelesForFinalSet().stream())
-                .collect(Collectors.toList());
-        finalAlleleSet.addAll(collected);
-
-        final boolean sawSpanningDeletion = vcAndNewAllelePairs.stream().anyMatch(VCWithNewAlleles::isSpanningDeletion);
-        final boolean sawNonSpanningEvent = vcAndNewAllelePairs.stream().anyMatch(VCWithNewAlleles::isNonSpanningEvent);
+        boolean sawSpanningDeletion = false;
+        boolean sawNonSpanningEvent = false;
+        for ( final VCWithNewAlleles vcWithNewAlleles : vcAndNewAllelePairs ) {
+            vcWithNewAlleles.addAllelesForFinalSet(finalAlleleSet);
+            sawSpanningDeletion = sawSpanningDeletion || vcWithNewAlleles.isSpanningDeletion();
+            sawNonSpanningEvent = sawNonSpanningEvent || vcWithNewAlleles.isNonSpanningEvent();
+        }
 
         // Add <DEL> and <NON_REF> to the end if at all required in in the output.
         if ( sawSpanningDeletion && (sawNonSpanningEvent || !removeNonRefSymbolicAllele) ) {
@@ -262,20 +255,23 @@ final class ReferenceConfidenceVariantContextMerger {
         if ( vc.hasAttribute(VCFConstants.DEPTH_KEY) ) {
             return vc.getAttributeAsInt(VCFConstants.DEPTH_KEY, 0);
         } else { // handle the gVCF case from the HaplotypeCaller
-            return vc.getGenotypes().stream()
-                    .mapToInt(ReferenceConfidenceVariantContextMerger::getBestDepthValue)
-                    .sum();
+            int depth = 0;
+            for ( final Genotype gt : vc.getGenotypes() ) {
+                depth += getBestDepthValue(gt);
+            }
+            return depth;
         }
     }
 
-    private static Map<String, Object> mergeAttributes(int depth, Map<String, List<Comparable>> annotationMap) {
+    private static Map<String, Object> mergeAttributes(int depth, Map<String, AnnotationValues> annotationMap) {
         final Map<String, Object> attributes = new LinkedHashMap<>();
 
         // when combining annotations use the median value from all input vcs which had annotations provided
-        annotationMap.entrySet().stream()
-                .filter(p -> !p.getValue().isEmpty())
-                .forEachOrdered(p -> attributes.put(p.getKey(), combineAnnotationValues(p.getValue()))
-        );
+        for ( final Map.Entry<String, AnnotationValues> p : annotationMap.entrySet() ) {
+            if ( !p.getValue().isEmpty() ) {
+                attributes.put(p.getKey(), p.getValue().combine());
+            }
+        }
 
         if ( depth > 0 ) {
             attributes.put(VCFConstants.DEPTH_KEY, String.valueOf(depth));
@@ -346,25 +342,20 @@ final class ReferenceConfidenceVariantContextMerger {
      * @param annotationMap              map of annotations for combining later
      */
     @VisibleForTesting
-    static <T extends Comparable<? super T>> void addReferenceConfidenceAttributes(final Map<String, Object> myAttributes,
-                                                         final Map<String, List<Comparable>> annotationMap) {
+    static void addReferenceConfidenceAttributes(final Map<String, Object> myAttributes,
+                                                 final Map<String, AnnotationValues> annotationMap) {
         for ( final Map.Entry<String, Object> p : myAttributes.entrySet() ) {
             final String key = p.getKey();
             final Object value = p.getValue();
 
-            // add the annotation values to a list for combining later
-            List<Comparable> values = annotationMap.get(key);
-            if( values == null ) {
-                values = new ArrayList<>();
-                annotationMap.put(key, values);
-            }
+            // add the annotation values to an accumulator for combining later
+            final AnnotationValues values = annotationMap.computeIfAbsent(key, k -> new AnnotationValues());
             try {
                 final String stringValue = value.toString();
-                // Branch to avoid unintentional, implicit type conversions that occur with the ? operator.
                 if (stringValue.contains(".")) {
-                    values.add(Double.parseDouble(stringValue));
+                    values.addDouble(Double.parseDouble(stringValue));
                 } else {
-                    values.add(Integer.parseInt(stringValue));
+                    values.addInteger(Integer.parseInt(stringValue));
                 }
             } catch (final NumberFormatException e) {
                 // nothing to do
@@ -373,6 +364,53 @@ final class ReferenceConfidenceVariantContextMerger {
         }
     }
 
+    /**
+     * Numeric values of an annotation across the merged contexts, held in a primitive array.
+     * Values are either all integers or all doubles in well-formed inputs.
+     */
+    @VisibleForTesting
+    static final class AnnotationValues {
+        private double[] values = new double[4];
+        private int size;
+        private boolean hasDouble;
+
+        void addInteger(final int value) {
+            add(value);
+        }
+
+        void addDouble(final double value) {
+            hasDouble = true;
+            add(value);
+        }
+
+        private void add(final double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Combine annotation values by computing the medianish middle element
+         * @return the median element, an {@link Integer} if all the values are integers and a {@link Double} otherwise
+         */
+        Object combine() {
+            Utils.validateArg(size > 0, "there are no values to combine");
+            final double median;
+            if ( size == 1 ) {
+                median = values[0];
+            } else {
+                Arrays.sort(values, 0, size);
+                median = values[size / 2];
+            }
+            return hasDouble ? Double.valueOf(median) : Integer.valueOf((int) median);
+        }
+    }
+
     /**
      * prefix an allele with additional reference bases if extraBaseCount > 0
      */
@@ -395,18 +433,18 @@ final class ReferenceConfidenceVariantContextMerger {
      * @param remappedAlleles       the list of remapped alleles for the sample
      * @param targetAlleles         the list of target alleles
      * @param samplesAreUniquified  true if sample names have been uniquified
+     * @param genotypeIndexMaps     genotype index maps of the current merge
+     * @param mergedGenotypes       genotypes to which the merged genotypes are added
      */
-    private static GenotypesContext mergeRefConfidenceGenotypes(final VariantContext vc,
+    private static void mergeRefConfidenceGenotypes(final VariantContext vc,
                                                     final List<Allele> remappedAlleles,
                                                     final List<Allele> targetAlleles,
-                                                    final boolean samplesAreUniquified) {
-        final GenotypesContext mergedGenotypes = GenotypesContext.create();
-        final int maximumPloidy = vc.getMaxPloidy(GATKVariantContextUtils.DEFAULT_PLOIDY);
-        // the map is different depending on the ploidy, so in order to keep this method flexible (mixed ploidies)
-        // we need to get a map done (lazily inside the loop) for each ploidy, up to the maximum possible.
-        final int[][] genotypeIndexMapsByPloidy = new int[maximumPloidy + 1][];
+                                                    final boolean samplesAreUniquified,
+                                                    final GenotypeIndexMapCache genotypeIndexMaps,
+                                                    final GenotypesContext mergedGenotypes) {
         final int maximumAlleleCount = Math.max(remappedAlleles.size(),targetAlleles.size());
-        int[] perSampleIndexesOfRelevantAlleles;
+        // the same for all the samples, so computed (lazily inside the loop) once
+        int[] perSampleIndexesOfRelevantAlleles = null;
 
         for ( final Genotype g : vc.getGenotypes() ) {
             final String name;
@@ -419,19 +457,76 @@ final class ReferenceConfidenceVariantContextMerger {
             final GenotypeBuilder genotypeBuilder = new GenotypeBuilder(g).alleles(GATKVariantContextUtils.noCallAlleles(g.getPloidy()));
             genotypeBuilder.name(name);
             if (g.hasPL()) {
-                // lazy initialization of the genotype index map by ploidy.
-                perSampleIndexesOfRelevantAlleles = getIndexesOfRelevantAlleles(remappedAlleles, targetAlleles, vc.getStart(), g);
-                final int[] genotypeIndexMapByPloidy = genotypeIndexMapsByPloidy[ploidy] == null
-                            ? new GenotypeLikelihoodCalculators().getInstance(ploidy, maximumAlleleCount).genotypeIndexMap(perSampleIndexesOfRelevantAlleles) //probably horribly slow
-                            : genotypeIndexMapsByPloidy[ploidy];
+                if (perSampleIndexesOfRelevantAlleles == null) {
+                    perSampleIndexesOfRelevantAlleles = getIndexesOfRelevantAlleles(remappedAlleles, targetAlleles, vc.getStart(), g);
+                }
+                // the map is different depending on the ploidy, so in order to keep this method flexible (mixed ploidies)
+                // we need to get a map for the ploidy of each sample.
+                final int[] genotypeIndexMapByPloidy = genotypeIndexMaps.get(ploidy, maximumAlleleCount, perSampleIndexesOfRelevantAlleles);
                 final int[] PLs = generatePL(g, genotypeIndexMapByPloidy);
                 final int[] AD = g.hasAD() ? generateAD(g.getAD(), perSampleIndexesOfRelevantAlleles) : null;
                 genotypeBuilder.PL(PLs).AD(AD);
             }
             mergedGenotypes.add(genotypeBuilder.make());
         }
+    }
 
-        return mergedGenotypes;
+    /**
+     * Genotype index maps of a merge, by ploidy, allele count and mapping of the indexes of the alleles.
+     * Most input contexts share a few of them (e.g., all the reference blocks at a site), so they are computed once
+     * per merge rather than once per sample.
+     */
+    private static final class GenotypeIndexMapCache {
+        private final Map<GenotypeIndexMapKey, int[]> maps = new HashMap<>();
+        private GenotypeLikelihoodCalculators calculators;
+
+        /**
+         * @return the genotype index map, which must not be modified
+         */
+        int[] get(final int ploidy, final int alleleCount, final int[] indexesOfRelevantAlleles) {
+            final GenotypeIndexMapKey key = new GenotypeIndexMapKey(ploidy, alleleCount, indexesOfRelevantAlleles);
+            int[] map = maps.get(key);
+            if (map == null) {
+                if (calculators == null) {
+                    calculators = new GenotypeLikelihoodCalculators();
+                }
+                map = calculators.getInstance(ploidy, alleleCount).genotypeIndexMap(indexesOfRelevantAlleles);
+                maps.put(key, map);
+            }
+            return map;
+        }
+    }
+
+    private static final class GenotypeIndexMapKey {
+        private final int ploidy;
+        private final int alleleCount;
+        private final int[] indexesOfRelevantAlleles;
+        private final int hashCode;
+
+        private GenotypeIndexMapKey(final int ploidy, final int alleleCount, final int[] indexesOfRelevantAlleles) {
+            this.ploidy = ploidy;
+            this.alleleCount = alleleCount;
+            this.indexesOfRelevantAlleles = indexesOfRelevantAlleles;
+            hashCode = (31 * ploidy + alleleCount) * 31 + Arrays.hashCode(indexesOfRelevantAlleles);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof GenotypeIndexMapKey)) {
+                return false;
+            }
+            final GenotypeIndexMapKey otherKey = (GenotypeIndexMapKey) other;
+            return ploidy == otherKey.ploidy && alleleCount == otherKey.alleleCount
+                    && Arrays.equals(indexesOfRelevantAlleles, otherKey.indexesOfRelevantAlleles);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
     }
 
     /**
@@ -1,6 +1,5 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
-import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import org.broadinstitute.hellbender.cmdline.Argument;
 import org.broadinstitute.hellbender.cmdline.ArgumentCollection;
@@ -11,8 +10,6 @@ import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 
-import java.util.List;
-
 
 /**
  * Call germline SNPs and indels via local re-assembly of haplotypes
@@ -206,15 +203,15 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
 
     @Override
     public void apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
-        final List<VariantContext> callsInRegion = hcEngine.callRegion(region, featureContext);
-
-        for ( final VariantContext call : callsInRegion ) {
+        final SimpleInterval shardBounds = getCurrentReadShardBounds();
+        // Calls are written as they are made, so that the reference confidence of a region is never held in memory at once
+        hcEngine.callRegion(region, featureContext, call -> {
             // Only include calls that start within the current read shard (as opposed to the padded regions around it).
             // This is critical to avoid duplicating events that span shard boundaries!
-            if ( getCurrentReadShardBounds().contains(new SimpleInterval(call.getContig(), call.getStart(), call.getStart())) ) {
+            if ( shardBounds.contains(new SimpleInterval(call.getContig(), call.getStart(), call.getStart())) ) {
                 vcfWriter.add(call);
             }
-        }
+        });
     }
 
     @Override
@@ -178,6 +178,21 @@ public class HaplotypeCallerArgumentCollection extends AssemblyBasedCallerArgume
     @Argument(fullName = "captureAssemblyFailureBAM", shortName = "captureAssemblyFailureBAM", doc = "Write a BAM called assemblyFailure.bam capturing all of the reads that were in the active region when the assembler failed for any reason", optional = true)
     public boolean captureAssemblyFailureBAM = false;
 
+    /**
+     * If specified, per-stage run times and work counts (reads, haplotypes, PairHMM cells, ...) are collected for every
+     * assembly region and summarized in this file at the end of the run. This argument is intended for benchmarking.
+     */
+    @Hidden
+    @Argument(fullName = "profileOutput", shortName = "profileOutput", doc = "File to which per-stage profiling metrics are written", optional = true)
+    public String profileOutput = null;
+
+    /**
+     * Only used together with profileOutput. If positive, a summary of the profile so far is logged at most this often.
+     */
+    @Hidden
+    @Argument(fullName = "profileLogIntervalSeconds", shortName = "profileLogIntervalSeconds", doc = "Interval, in seconds, at which profiling summaries are logged (0 to disable)", optional = true)
+    public int profileLogIntervalSeconds = 0;
+
     // Parameters to control read error correction
     /**
      * Enabling this argument may cause fundamental problems with the assembly graph itself.
@@ -51,6 +51,7 @@ import org.broadinstitute.hellbender.utils.variant.writers.GVCFWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * The core engine for the HaplotypeCaller that does all of the actual work of the tool.
@@ -97,6 +98,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
     // writes Haplotypes to a bam file when the -bamout option is specified
     private HaplotypeBAMWriter haplotypeBAMWriter;
 
+    private HaplotypeCallerProfiler profiler;
+
     private Set<String> sampleSet;
     private SampleList samplesList;
 
@@ -140,8 +143,6 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      */
     private static final int READ_QUALITY_FILTER_THRESHOLD = 20;
 
-    private static final List<VariantContext> NO_CALLS = Collections.emptyList();
-
     private final static Allele FAKE_REF_ALLELE = Allele.create("N", true); // used in isActive function to call into UG Engine. Should never appear anywhere in a VCF file
     private final static Allele FAKE_ALT_ALLELE = Allele.create("<FAKE_ALT>", false); // used in isActive function to call into UG Engine. Should never appear anywhere in a VCF file
 
@@ -168,6 +169,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
     private void initialize() {
         // Note: order of operations matters here!
 
+        profiler = new HaplotypeCallerProfiler(hcArgs.profileOutput != null, hcArgs.profileLogIntervalSeconds);
+
         initializeSamples();
 
         // Must be called after initializeSamples()
@@ -342,6 +345,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         assemblyEngine.setRecoverDanglingBranches(!hcArgs.assemblerArgs.doNotRecoverDanglingBranches);
         assemblyEngine.setMinDanglingBranchLength(hcArgs.assemblerArgs.minDanglingBranchLength);
         assemblyEngine.setMinBaseQualityToUseInAssembly(hcArgs.MIN_BASE_QUALTY_SCORE);
+        assemblyEngine.setHaplotypeAlignmentCacheSize(hcArgs.assemblerArgs.haplotypeAlignmentCacheSize);
+        assemblyEngine.setProfiler(profiler);
 
         if ( hcArgs.assemblerArgs.graphOutput != null ) {
             assemblyEngine.setGraphWriter(new File(hcArgs.assemblerArgs.graphOutput));
@@ -356,7 +361,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
     private ReadLikelihoodCalculationEngine createLikelihoodCalculationEngine() {
         switch ( hcArgs.likelihoodEngineImplementation) {
             case PairHMM:
-                return new PairHMMLikelihoodCalculationEngine((byte) hcArgs.likelihoodArgs.gcpHMM, hcArgs.likelihoodArgs.pairHMM, log10GlobalReadMismappingRate, hcArgs.pcrErrorModel);
+                return new PairHMMLikelihoodCalculationEngine((byte) hcArgs.likelihoodArgs.gcpHMM, hcArgs.likelihoodArgs.pairHMM, log10GlobalReadMismappingRate, hcArgs.pcrErrorModel, hcArgs.likelihoodArgs.readLikelihoodCacheSize);
             case Random:
                 return new RandomLikelihoodCalculationEngine();
             default:
@@ -524,9 +529,35 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      * @return List of variants discovered in the region (may be empty)
      */
     public List<VariantContext> callRegion( final AssemblyRegion region, final FeatureContext features ) {
+        final List<VariantContext> result = new ArrayList<>();
+        callRegion(region, features, result::add);
+        return result;
+    }
+
+    /**
+     * Generate variant calls for an assembly region, passing them to {@code consumer} as they are made.
+     *
+     * <p>In reference confidence mode this avoids holding a variant context for every position of the region
+     * in memory before they are written out.</p>
+     *
+     * @param region region to assemble and perform variant calling on
+     * @param features Features overlapping the assembly region
+     * @param consumer receives the variants discovered in the region (maybe none) in genomic order
+     */
+    public void callRegion( final AssemblyRegion region, final FeatureContext features, final Consumer<VariantContext> consumer ) {
+        Utils.nonNull(consumer, "the consumer cannot be null");
+        profiler.startRegion();
+        try {
+            callRegionStages(region, features, consumer);
+        } finally {
+            profiler.endRegion();
+        }
+    }
+
+    private void callRegionStages( final AssemblyRegion region, final FeatureContext features, final Consumer<VariantContext> consumer ) {
         if ( hcArgs.justDetermineActiveRegions ) {
             // we're benchmarking ART and/or the active region determination code in the HC, just leave without doing any work
-            return NO_CALLS;
+            return;
         }
 
         if ( hcArgs.sampleNameToUse != null ) {
@@ -535,7 +566,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         if( ! region.isActive() ) {
             // Not active so nothing to do!
-            return referenceModelForNoVariation(region, true);
+            referenceModelForNoVariation(region, true, consumer);
+            return;
         }
 
         final List<VariantContext> givenAlleles = new ArrayList<>();
@@ -548,15 +580,21 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
             // No alleles found in this region so nothing to do!
             if ( givenAlleles.isEmpty() ) {
-                return referenceModelForNoVariation(region, true);
+                referenceModelForNoVariation(region, true, consumer);
+                return;
             }
         } else if( region.size() == 0 ) {
             // No reads here so nothing to do!
-            return referenceModelForNoVariation(region, true);
+            referenceModelForNoVariation(region, true, consumer);
+            return;
         }
 
+        profiler.count(HaplotypeCallerProfiler.Counter.READS, region.size());
+
         // run the local assembler, getting back a collection of information on how we should proceed
+        final long assemblyStart = profiler.start();
         final AssemblyResultSet untrimmedAssemblyResult = assembleReads(region, givenAlleles);
+        profiler.stop(HaplotypeCallerProfiler.Stage.ASSEMBLY, assemblyStart);
 
         final SortedSet<VariantContext> allVariationEvents = untrimmedAssemblyResult.getVariationEvents();
         // TODO - line bellow might be unnecessary : it might be that assemblyResult will always have those alleles anyway
@@ -566,7 +604,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         final AssemblyRegionTrimmer.Result trimmingResult = trimmer.trim(region, allVariationEvents);
 
         if ( ! trimmingResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
-            return referenceModelForNoVariation(region, false);
+            referenceModelForNoVariation(region, false, consumer);
+            return;
         }
 
         final AssemblyResultSet assemblyResult =
@@ -579,24 +618,28 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         //TODO - on the originalActiveRegion?
         //TODO - if you move this up you might have to consider to change referenceModelForNoVariation
         //TODO - that does also filter reads.
+        final long filteringStart = profiler.start();
         final Collection<GATKRead> filteredReads = filterNonPassingReads(regionForGenotyping);
         final Map<String, List<GATKRead>> perSampleFilteredReadList = splitReadsBySample(filteredReads);
+        profiler.stop(HaplotypeCallerProfiler.Stage.READ_FILTERING, filteringStart);
 
         // abort early if something is out of the acceptable range
         // TODO is this ever true at this point??? perhaps GGA. Need to check.
         if( ! assemblyResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
-            return referenceModelForNoVariation(region, false);
+            referenceModelForNoVariation(region, false, consumer);
+            return;
         }
 
         // For sure this is not true if gVCF is on.
         if ( hcArgs.dontGenotype ) {
-            return NO_CALLS; // user requested we not proceed
+            return; // user requested we not proceed
         }
 
         // TODO is this ever true at this point??? perhaps GGA. Need to check.
         if ( regionForGenotyping.size() == 0 && ! hcArgs.disableOptimizations ) {
             // no reads remain after filtering so nothing else to do!
-            return referenceModelForNoVariation(region, false);
+            referenceModelForNoVariation(region, false, consumer);
+            return;
         }
 
         // evaluate each sample's reads against all haplotypes
@@ -604,8 +647,14 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         final Map<String,List<GATKRead>> reads = splitReadsBySample(regionForGenotyping.getReads());
 
         // Calculate the likelihoods: CPU intensive part.
+        final long likelihoodsStart = profiler.start();
         final ReadLikelihoods<Haplotype> readLikelihoods =
                 likelihoodCalculationEngine.computeReadLikelihoods(assemblyResult, samplesList, reads);
+        profiler.stop(HaplotypeCallerProfiler.Stage.READ_LIKELIHOODS, likelihoodsStart);
+        if ( profiler.isEnabled() ) {
+            profiler.count(HaplotypeCallerProfiler.Counter.HAPLOTYPES, haplotypes.size());
+            profiler.count(HaplotypeCallerProfiler.Counter.PAIR_HMM_CELLS, countPairHMMCells(haplotypes, reads));
+        }
 
         // Realign reads to their best haplotype.
         final Map<GATKRead, GATKRead> readRealignments = realignReadsToTheirBestHaplotype(readLikelihoods, assemblyResult.getReferenceHaplotype(), assemblyResult.getPaddedReferenceLoc());
@@ -617,6 +666,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         //  haplotype containing C as reference (and vice versa).  Now this is fine if all possible haplotypes are included
         //  in the genotyping, but we lose information if we select down to a few haplotypes.  [EB]
 
+        final long genotypingStart = profiler.start();
         final HaplotypeCallerGenotypingEngine.CalledHaplotypes calledHaplotypes = genotypingEngine.assignGenotypeLikelihoods(
                 haplotypes,
                 readLikelihoods,
@@ -628,6 +678,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
                 (hcArgs.assemblerArgs.consensusMode ? Collections.<VariantContext>emptyList() : givenAlleles),
                 emitReferenceConfidence(),
                 readsHeader);
+        profiler.stop(HaplotypeCallerProfiler.Stage.GENOTYPING, genotypingStart);
+        profiler.count(HaplotypeCallerProfiler.Counter.CALLS, calledHaplotypes.getCalls().size());
 
         if ( haplotypeBAMWriter != null ) {
             final Set<Haplotype> calledHaplotypeSet = new HashSet<>(calledHaplotypes.getCalledHaplotypes());
@@ -645,27 +697,28 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         if ( emitReferenceConfidence() ) {
             if ( !containsCalls(calledHaplotypes) ) {
                 // no called all of the potential haplotypes
-                return referenceModelForNoVariation(region, false);
+                referenceModelForNoVariation(region, false, consumer);
             }
             else {
-                final List<VariantContext> result = new LinkedList<>();
                 // output left-flanking non-variant section:
                 if (trimmingResult.hasLeftFlankingRegion()) {
-                    result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantLeftFlankRegion(), false));
+                    referenceModelForNoVariation(trimmingResult.nonVariantLeftFlankRegion(), false, consumer);
                 }
                 // output variant containing region.
-                result.addAll(referenceConfidenceModel.calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
+                final long refConfidenceStart = profiler.start();
+                final int refConfidenceSites = referenceConfidenceModel.calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
                         calledHaplotypes.getCalledHaplotypes(), assemblyResult.getPaddedReferenceLoc(), regionForGenotyping,
-                        readLikelihoods, genotypingEngine.getPloidyModel(), calledHaplotypes.getCalls()));
+                        readLikelihoods, genotypingEngine.getPloidyModel(), calledHaplotypes.getCalls(), consumer);
+                profiler.stop(HaplotypeCallerProfiler.Stage.REFERENCE_CONFIDENCE, refConfidenceStart);
+                profiler.count(HaplotypeCallerProfiler.Counter.REFERENCE_CONFIDENCE_SITES, refConfidenceSites);
                 // output right-flanking non-variant section:
                 if (trimmingResult.hasRightFlankingRegion()) {
-                    result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantRightFlankRegion(), false));
+                    referenceModelForNoVariation(trimmingResult.nonVariantRightFlankRegion(), false, consumer);
                 }
-                return result;
             }
         }
         else {
-            return calledHaplotypes.getCalls();
+            calledHaplotypes.getCalls().forEach(consumer);
         }
     }
 
@@ -759,26 +812,28 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      *
      * @param region the region to return a no-variation result
      * @param needsToBeFinalized should the region be finalized before computing the ref model (should be false if already done)
-     * @return a list of variant contexts (can be empty) to emit for this ref region
+     * @param consumer receives the variant contexts (maybe none) to emit for this ref region
      */
-    private List<VariantContext> referenceModelForNoVariation(final AssemblyRegion region, final boolean needsToBeFinalized) {
+    private void referenceModelForNoVariation(final AssemblyRegion region, final boolean needsToBeFinalized, final Consumer<VariantContext> consumer) {
         if ( emitReferenceConfidence() ) {
             //TODO - why the activeRegion cannot manage its own one-time finalization and filtering?
             //TODO - perhaps we can remove the last parameter of this method and the three lines bellow?
             if ( needsToBeFinalized ) {
                 finalizeRegion(region);
             }
+            final long filteringStart = profiler.start();
             filterNonPassingReads(region);
+            profiler.stop(HaplotypeCallerProfiler.Stage.READ_FILTERING, filteringStart);
 
+            final long refConfidenceStart = profiler.start();
             final SimpleInterval paddedLoc = region.getExtendedSpan();
             final Haplotype refHaplotype = createReferenceHaplotype(region, paddedLoc);
             final List<Haplotype> haplotypes = Collections.singletonList(refHaplotype);
-            return referenceConfidenceModel.calculateRefConfidence(refHaplotype, haplotypes,
+            final int refConfidenceSites = referenceConfidenceModel.calculateRefConfidence(refHaplotype, haplotypes,
                     paddedLoc, region, createDummyStratifiedReadMap(refHaplotype, samplesList, region),
-                    genotypingEngine.getPloidyModel(), Collections.emptyList());
-        }
-        else {
-            return NO_CALLS;
+                    genotypingEngine.getPloidyModel(), Collections.emptyList(), consumer);
+            profiler.stop(HaplotypeCallerProfiler.Stage.REFERENCE_CONFIDENCE, refConfidenceStart);
+            profiler.count(HaplotypeCallerProfiler.Counter.REFERENCE_CONFIDENCE_SITES, refConfidenceSites);
         }
     }
 
@@ -802,9 +857,36 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
     public void shutdown() {
         likelihoodCalculationEngine.close();
 
+        if ( assemblyEngine.getHaplotypeAlignmentCache() != null ) {
+            assemblyEngine.getHaplotypeAlignmentCache().logStatistics(logger);
+        }
+
         if ( haplotypeBAMWriter != null ) {
             haplotypeBAMWriter.close();
         }
+
+        if ( hcArgs.profileOutput != null ) {
+            profiler.logSummary();
+            profiler.writeMetrics(new File(hcArgs.profileOutput));
+        }
+    }
+
+    /**
+     * Number of PairHMM matrix cells needed to evaluate every read against every haplotype, a measure of
+     * likelihood-calculation work that is independent of the PairHMM implementation.
+     */
+    private static long countPairHMMCells(final List<Haplotype> haplotypes, final Map<String, List<GATKRead>> readsBySample) {
+        long totalHaplotypeLength = 0;
+        for ( final Haplotype haplotype : haplotypes ) {
+            totalHaplotypeLength += haplotype.length();
+        }
+        long totalReadLength = 0;
+        for ( final List<GATKRead> sampleReads : readsBySample.values() ) {
+            for ( final GATKRead read : sampleReads ) {
+                totalReadLength += read.getLength();
+            }
+        }
+        return totalReadLength * totalHaplotypeLength;
     }
 
     private void finalizeRegion( final AssemblyRegion region ) {
@@ -867,6 +949,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
             }
         }
         activeRegion.removeAll(readsToRemove);
+        profiler.count(HaplotypeCallerProfiler.Counter.FILTERED_READS, readsToRemove.size());
         return readsToRemove;
     }
 
@@ -0,0 +1,266 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.tsv.TableColumnCollection;
+import org.broadinstitute.hellbender.utils.tsv.TableUtils;
+import org.broadinstitute.hellbender.utils.tsv.TableWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Low-overhead per-stage timing and counters for {@link HaplotypeCallerEngine}.
+ *
+ * <p>Times and counts are accumulated per assembly region between {@link #startRegion()} and {@link #endRegion()};
+ * each region's totals are then added to a power-of-two histogram per metric, from which the summary written by
+ * {@link #writeMetrics(File)} is computed. Recording a value is a couple of array updates and timing a stage is two
+ * calls to {@link System#nanoTime()}, so the overhead is negligible next to the work of a region.</p>
+ *
+ * <p>A disabled profiler ignores all calls. Instances are not thread-safe.</p>
+ */
+public final class HaplotypeCallerProfiler {
+
+    private static final Logger logger = LogManager.getLogger(HaplotypeCallerProfiler.class);
+
+    /**
+     * Timed stages of {@link HaplotypeCallerEngine#callRegion}. {@code SMITH_WATERMAN} is the part of
+     * {@code ASSEMBLY} spent aligning assembled haplotypes to the reference.
+     */
+    public enum Stage {
+        READ_FILTERING, ASSEMBLY, SMITH_WATERMAN, READ_LIKELIHOODS, GENOTYPING, REFERENCE_CONFIDENCE
+    }
+
+    /**
+     * Counted quantities of {@link HaplotypeCallerEngine#callRegion}.
+     */
+    public enum Counter {
+        READS, FILTERED_READS, HAPLOTYPES, PAIR_HMM_CELLS, CALLS, REFERENCE_CONFIDENCE_SITES
+    }
+
+    public static final TableColumnCollection COLUMNS = new TableColumnCollection(
+            "METRIC", "UNIT", "TOTAL", "REGIONS", "MEAN", "MAX", "P50_UPPER_BOUND", "P90_UPPER_BOUND", "P99_UPPER_BOUND");
+
+    private final boolean enabled;
+    private final long logIntervalNanos;
+
+    private final long[] regionStageNanos = new long[Stage.values().length];
+    private final long[] regionCounts = new long[Counter.values().length];
+
+    private final Map<Stage, Histogram> stageHistograms = new EnumMap<>(Stage.class);
+    private final Map<Counter, Histogram> counterHistograms = new EnumMap<>(Counter.class);
+    private final Map<Integer, Histogram> assemblyNanosByKmerSize = new TreeMap<>();
+
+    private long regions = 0;
+    private long lastLogNanos;
+
+    /**
+     * @param enabled whether to record anything at all
+     * @param logIntervalSeconds if positive, a summary is logged at most this often as regions complete
+     */
+    public HaplotypeCallerProfiler(final boolean enabled, final int logIntervalSeconds) {
+        Utils.validateArg(logIntervalSeconds >= 0, "logIntervalSeconds must be non-negative");
+        this.enabled = enabled;
+        this.logIntervalNanos = TimeUnit.SECONDS.toNanos(logIntervalSeconds);
+        for (final Stage stage : Stage.values()) {
+            stageHistograms.put(stage, new Histogram());
+        }
+        for (final Counter counter : Counter.values()) {
+            counterHistograms.put(counter, new Histogram());
+        }
+        this.lastLogNanos = System.nanoTime();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return a start time to pass to {@link #stop}, or 0 if disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Adds the time elapsed since {@code startNanos} to the given stage of the current region.
+     */
+    public void stop(final Stage stage, final long startNanos) {
+        if (enabled) {
+            regionStageNanos[stage.ordinal()] += System.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * Adds the time elapsed since {@code startNanos} to the assembly time for the given kmer size.
+     */
+    public void stopKmerAssembly(final int kmerSize, final long startNanos) {
+        if (enabled) {
+            assemblyNanosByKmerSize.computeIfAbsent(kmerSize, k -> new Histogram()).add(System.nanoTime() - startNanos);
+        }
+    }
+
+    public void count(final Counter counter, final long value) {
+        if (enabled) {
+            regionCounts[counter.ordinal()] += value;
+        }
+    }
+
+    public void startRegion() {
+        if (enabled) {
+            Arrays.fill(regionStageNanos, 0);
+            Arrays.fill(regionCounts, 0);
+        }
+    }
+
+    /**
+     * Folds the current region's totals into the histograms and logs a summary if the log interval has elapsed.
+     */
+    public void endRegion() {
+        if (!enabled) {
+            return;
+        }
+        regions++;
+        for (final Stage stage : Stage.values()) {
+            stageHistograms.get(stage).add(regionStageNanos[stage.ordinal()]);
+        }
+        for (final Counter counter : Counter.values()) {
+            counterHistograms.get(counter).add(regionCounts[counter.ordinal()]);
+        }
+        if (logIntervalNanos > 0) {
+            final long now = System.nanoTime();
+            if (now - lastLogNanos >= logIntervalNanos) {
+                lastLogNanos = now;
+                logSummary();
+            }
+        }
+    }
+
+    public long getRegions() {
+        return regions;
+    }
+
+    public long getTotalNanos(final Stage stage) {
+        return stageHistograms.get(stage).total;
+    }
+
+    public long getTotal(final Counter counter) {
+        return counterHistograms.get(counter).total;
+    }
+
+    public void logSummary() {
+        if (!enabled) {
+            return;
+        }
+        final StringBuilder builder = new StringBuilder("HaplotypeCaller profile after ").append(regions).append(" regions:");
+        for (final Stage stage : Stage.values()) {
+            builder.append(String.format(" %s=%.1fs", stage, getTotalNanos(stage) / 1e9));
+        }
+        for (final Counter counter : Counter.values()) {
+            builder.append(' ').append(counter).append('=').append(getTotal(counter));
+        }
+        logger.info(builder.toString());
+    }
+
+    /**
+     * Writes one row per stage, counter and assembly kmer size, with per-region summary statistics.
+     * Times are reported in microseconds.
+     */
+    public void writeMetrics(final File outputFile) {
+        Utils.nonNull(outputFile);
+        final List<MetricRow> rows = new ArrayList<>();
+        for (final Stage stage : Stage.values()) {
+            rows.add(new MetricRow(stage.name(), "us", stageHistograms.get(stage), 1e-3));
+        }
+        for (final Map.Entry<Integer, Histogram> entry : assemblyNanosByKmerSize.entrySet()) {
+            rows.add(new MetricRow("ASSEMBLY_KMER_" + entry.getKey(), "us", entry.getValue(), 1e-3));
+        }
+        for (final Counter counter : Counter.values()) {
+            rows.add(new MetricRow(counter.name(), "count", counterHistograms.get(counter), 1.0));
+        }
+        try (final TableWriter<MetricRow> writer = TableUtils.writer(outputFile, COLUMNS, (row, dataLine) -> {
+                final Histogram histogram = row.histogram;
+                dataLine.append(row.name)
+                        .append(row.unit)
+                        .append(histogram.total * row.scale)
+                        .append(histogram.count)
+                        .append(histogram.count == 0 ? 0.0 : histogram.total * row.scale / histogram.count)
+                        .append(histogram.max * row.scale)
+                        .append(histogram.quantileUpperBound(0.5) * row.scale)
+                        .append(histogram.quantileUpperBound(0.9) * row.scale)
+                        .append(histogram.quantileUpperBound(0.99) * row.scale);
+            })) {
+            writer.writeAllRecords(rows);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(outputFile, e);
+        }
+    }
+
+    private static final class MetricRow {
+        private final String name;
+        private final String unit;
+        private final Histogram histogram;
+        private final double scale;
+
+        MetricRow(final String name, final String unit, final Histogram histogram, final double scale) {
+            this.name = name;
+            this.unit = unit;
+            this.histogram = histogram;
+            this.scale = scale;
+        }
+    }
+
+    /**
+     * Histogram of non-negative values over power-of-two bins: bin 0 holds 0 and bin {@code b > 0} holds values
+     * in [2^(b-1), 2^b).
+     */
+    static final class Histogram {
+        private final long[] bins = new long[Long.SIZE + 1];
+        private long count = 0;
+        private long total = 0;
+        private long max = 0;
+
+        void add(final long value) {
+            final long nonNegative = Math.max(0, value);
+            bins[Long.SIZE - Long.numberOfLeadingZeros(nonNegative)]++;
+            count++;
+            total += nonNegative;
+            max = Math.max(max, nonNegative);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getTotal() {
+            return total;
+        }
+
+        /**
+         * @return the exclusive upper bound of the bin containing the given quantile, capped by the maximum
+         */
+        long quantileUpperBound(final double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            final long rank = (long) Math.ceil(quantile * count);
+            long cumulative = 0;
+            for (int bin = 0; bin < bins.length; bin++) {
+                cumulative += bins[bin];
+                if (cumulative >= rank) {
+                    return bin == 0 ? 0 : Math.min(max, bin >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << bin) - 1);
+                }
+            }
+            return max;
+        }
+    }
+}
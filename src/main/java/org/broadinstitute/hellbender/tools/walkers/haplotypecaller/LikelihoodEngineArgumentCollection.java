@@ -37,4 +37,13 @@ public final class LikelihoodEngineArgumentCollection {
     @Argument(fullName="phredScaledGlobalReadMismappingRate", shortName="globalMAPQ", doc="The global assumed mismapping rate for reads", optional = true)
     public int phredScaledGlobalReadMismappingRate = 45;
 
+    /**
+     * Reads in the padding of one assembly region are often evaluated again against the same haplotypes in the next
+     * region. With a positive value, the PairHMM likelihoods of up to this many reads are cached and reused when the same
+     * read (same bases and qualities) is evaluated against the same haplotypes. Caching does not change the results.
+     */
+    @Advanced
+    @Argument(fullName="readLikelihoodCacheSize", shortName="readLikelihoodCacheSize", doc="Number of reads whose PairHMM likelihoods are cached for reuse (0 to disable)", optional = true)
+    public int readLikelihoodCacheSize = 0;
+
 }
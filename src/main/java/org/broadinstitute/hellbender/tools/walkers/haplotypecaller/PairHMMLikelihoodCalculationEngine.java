@@ -22,6 +22,8 @@ import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -74,6 +76,29 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
 
     private final PCRErrorModel pcrErrorModel;
 
+    /**
+     * Cache of previously computed likelihoods, or {@code null} if every read is evaluated from scratch.
+     */
+    private final ReadLikelihoodCache readLikelihoodCache;
+
+    /**
+     * Orders haplotypes so that consecutive ones of the same length share as long a prefix as possible;
+     * the PairHMM only recomputes the matrix columns past the shared prefix of consecutive haplotypes.
+     */
+    private static final Comparator<Haplotype> HAPLOTYPE_PREFIX_ORDER = (h1, h2) -> {
+        final byte[] bases1 = h1.getBases();
+        final byte[] bases2 = h2.getBases();
+        if (bases1.length != bases2.length) {
+            return Integer.compare(bases1.length, bases2.length);
+        }
+        for (int i = 0; i < bases1.length; i++) {
+            if (bases1[i] != bases2[i]) {
+                return Byte.compare(bases1[i], bases2[i]);
+            }
+        }
+        return 0;
+    };
+
     /**
      * The expected rate of random sequencing errors for a read originating from its true haplotype.
      *
@@ -100,6 +125,23 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
                                               final PairHMM.Implementation hmmType,
                                               final double log10globalReadMismappingRate,
                                               final PCRErrorModel pcrErrorModel) {
+        this(constantGCP, hmmType, log10globalReadMismappingRate, pcrErrorModel, 0);
+    }
+
+    /**
+     * Create a new PairHMMLikelihoodCalculationEngine that reuses the likelihoods of reads seen in previous calls
+     *
+     * @param constantGCP the gap continuation penalty to use with the PairHMM
+     * @param hmmType the type of the HMM to use
+     * @param log10globalReadMismappingRate the global mismapping probability, in log10(prob) units
+     * @param pcrErrorModel model to correct for PCR indel artifacts
+     * @param readLikelihoodCacheSize maximum number of reads whose likelihoods are kept for reuse, or 0 to disable caching
+     */
+    public PairHMMLikelihoodCalculationEngine(final byte constantGCP,
+                                              final PairHMM.Implementation hmmType,
+                                              final double log10globalReadMismappingRate,
+                                              final PCRErrorModel pcrErrorModel,
+                                              final int readLikelihoodCacheSize) {
         Utils.nonNull(hmmType, "hmmType is null");
         Utils.nonNull(pcrErrorModel, "pcrErrorModel is null");
         if (constantGCP < 0){
@@ -108,16 +150,25 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         if (log10globalReadMismappingRate > 0){
             throw new IllegalArgumentException("log10globalReadMismappingRate must be negative");
         }
+        if (readLikelihoodCacheSize < 0){
+            throw new IllegalArgumentException("readLikelihoodCacheSize must be non-negative");
+        }
         this.constantGCP = constantGCP;
         this.log10globalReadMismappingRate = log10globalReadMismappingRate;
         this.pcrErrorModel = pcrErrorModel;
         this.pairHMM = hmmType.makeNewHMM();
+        this.readLikelihoodCache = readLikelihoodCacheSize == 0 ? null : new ReadLikelihoodCache(readLikelihoodCacheSize);
 
         initializePCRErrorModel();
 
         this.likelihoodsStream = makeLikelihoodStream();
     }
 
+    @VisibleForTesting
+    ReadLikelihoodCache getReadLikelihoodCache() {
+        return readLikelihoodCache;
+    }
+
     private PrintStream makeLikelihoodStream() {
         try {
             return writeLikelihoodsToFile ? new PrintStream(new FileOutputStream(new File(LIKELIHOODS_FILENAME))) : null;
@@ -131,6 +182,9 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         if ( likelihoodsStream != null ) {
             likelihoodsStream.close();
         }
+        if ( readLikelihoodCache != null ) {
+            readLikelihoodCache.logStatistics(logger);
+        }
         pairHMM.close();
     }
 
@@ -149,7 +203,7 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         final ReadLikelihoods<Haplotype> result = new ReadLikelihoods<>(samples, haplotypes, perSampleReadList);
         final int sampleCount = result.numberOfSamples();
         for (int i = 0; i < sampleCount; i++) {
-            computeReadLikelihoods(result.sampleMatrix(i));
+            computeReadLikelihoods(samples.getSample(i), result.sampleMatrix(i));
         }
 
         result.normalizeLikelihoods(false, log10globalReadMismappingRate);
@@ -214,27 +268,93 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         pairHMM.initialize(haplotypes, perSampleReadList, readMaxLength, haplotypeMaxLength);
     }
 
-    private void computeReadLikelihoods(final LikelihoodMatrix<Haplotype> likelihoods) {
+    private void computeReadLikelihoods(final String sample, final LikelihoodMatrix<Haplotype> likelihoods) {
+        final List<ReadLikelihoodCache.ReadKey> readKeys = readLikelihoodCache == null ? null : new ArrayList<>(likelihoods.numberOfReads());
+
         // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
-        final List<GATKRead> processedReads = modifyReadQualities(likelihoods.reads());
+        final List<GATKRead> processedReads = modifyReadQualities(likelihoods.reads(), readKeys);
 
-        final Map<GATKRead, byte[]> gapContinuationPenalties = buildGapContinuationPenalties(processedReads, constantGCP);
+        if ( readLikelihoodCache == null ) {
+            final Map<GATKRead, byte[]> gapContinuationPenalties = buildGapContinuationPenalties(processedReads, constantGCP);
 
-        // Run the PairHMM to calculate the log10 likelihood of each (processed) reads' arising from each haplotype
-        pairHMM.computeLog10Likelihoods(likelihoods, processedReads, gapContinuationPenalties);
+            // Run the PairHMM to calculate the log10 likelihood of each (processed) reads' arising from each haplotype
+            pairHMM.computeLog10Likelihoods(likelihoods, processedReads, gapContinuationPenalties);
+        } else {
+            computeReadLikelihoodsWithCache(sample, likelihoods, processedReads, readKeys);
+        }
 
         writeDebugLikelihoods(likelihoods);
     }
 
+    /**
+     * Fills the likelihoods of reads whose values against all haplotypes are cached, and runs the PairHMM only on the rest.
+     *
+     * The remaining reads are evaluated against the haplotypes sorted by {@link #HAPLOTYPE_PREFIX_ORDER} so that the
+     * PairHMM can share matrix columns between consecutive haplotypes; this does not change any individual likelihood.
+     */
+    private void computeReadLikelihoodsWithCache(final String sample,
+                                                 final LikelihoodMatrix<Haplotype> likelihoods,
+                                                 final List<GATKRead> processedReads,
+                                                 final List<ReadLikelihoodCache.ReadKey> readKeys) {
+        final List<Haplotype> haplotypes = likelihoods.alleles();
+        final int haplotypeCount = haplotypes.size();
+        final ReadLikelihoodCache.HaplotypeKeys haplotypeKeys = readLikelihoodCache.haplotypeKeys(haplotypes);
+        final double[] readLikelihoods = new double[haplotypeCount];
+
+        final List<Integer> uncachedReadIndices = new ArrayList<>();
+        for (int r = 0; r < processedReads.size(); r++) {
+            if (readLikelihoodCache.lookup(readKeys.get(r), haplotypeKeys, readLikelihoods)) {
+                for (int h = 0; h < haplotypeCount; h++) {
+                    likelihoods.set(h, r, readLikelihoods[h]);
+                }
+            } else {
+                uncachedReadIndices.add(r);
+            }
+        }
+        if (uncachedReadIndices.isEmpty()) {
+            return;
+        }
+
+        final List<GATKRead> uncachedReads = new ArrayList<>(uncachedReadIndices.size());
+        final List<GATKRead> uncachedProcessedReads = new ArrayList<>(uncachedReadIndices.size());
+        for (final int r : uncachedReadIndices) {
+            uncachedReads.add(likelihoods.reads().get(r));
+            uncachedProcessedReads.add(processedReads.get(r));
+        }
+        final List<Haplotype> sortedHaplotypes = new ArrayList<>(haplotypes);
+        sortedHaplotypes.sort(HAPLOTYPE_PREFIX_ORDER);
+        final ReadLikelihoods<Haplotype> uncachedLikelihoods = new ReadLikelihoods<>(new IndexedSampleList(sample),
+                new IndexedAlleleList<>(sortedHaplotypes), Collections.singletonMap(sample, uncachedReads));
+        final LikelihoodMatrix<Haplotype> uncachedMatrix = uncachedLikelihoods.sampleMatrix(0);
+
+        final long startNanos = System.nanoTime();
+        pairHMM.computeLog10Likelihoods(uncachedMatrix, uncachedProcessedReads, buildGapContinuationPenalties(uncachedProcessedReads, constantGCP));
+        readLikelihoodCache.recordComputation((long) uncachedReads.size() * haplotypeCount, System.nanoTime() - startNanos);
+
+        final int[] sortedHaplotypeIndex = new int[haplotypeCount];
+        for (int h = 0; h < haplotypeCount; h++) {
+            sortedHaplotypeIndex[h] = uncachedMatrix.indexOfAllele(haplotypes.get(h));
+        }
+        for (int i = 0; i < uncachedReadIndices.size(); i++) {
+            final int r = uncachedReadIndices.get(i);
+            for (int h = 0; h < haplotypeCount; h++) {
+                readLikelihoods[h] = uncachedMatrix.get(sortedHaplotypeIndex[h], i);
+                likelihoods.set(h, r, readLikelihoods[h]);
+            }
+            readLikelihoodCache.store(readKeys.get(r), haplotypeKeys, readLikelihoods);
+        }
+    }
+
     /**
      * Pre-processing of the reads to be evaluated at the current location from the current sample.
      * We apply the PCR Error Model, and cap the minimum base, insertion, and deletion qualities of each read.
      * Modified copies of reads are packed into a new list, while original reads are retained for downstream use
      *
      * @param reads The original list of unmodified reads
+     * @param readKeys if not {@code null}, the read likelihood cache key of each processed read is appended to it
      * @return processedReads. A new list of reads, in the same order, whose qualities have been altered by PCR error model and minimal quality thresholding
      */
-    private List<GATKRead> modifyReadQualities(final List<GATKRead> reads) {
+    private List<GATKRead> modifyReadQualities(final List<GATKRead> reads, final List<ReadLikelihoodCache.ReadKey> readKeys) {
         final List<GATKRead> result = new ArrayList<>(reads.size());
 
         for (final GATKRead read : reads) {
@@ -251,6 +371,9 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
 
             // Create a new copy of the read and sets its base qualities to the modified versions.
             result.add(createQualityModifiedRead(read, readBases, readQuals, readInsQuals, readDelQuals));
+            if ( readKeys != null ) {
+                readKeys.add(ReadLikelihoodCache.readKey(readBases, readQuals, readInsQuals, readDelQuals));
+            }
         }
         return result;
     }
@@ -308,6 +431,8 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
 
     private byte[] pcrIndelErrorModelCache;
 
+    private final TandemRepeatAnnotator tandemRepeatAnnotator = new TandemRepeatAnnotator(MAX_STR_UNIT_LENGTH, MAX_REPEAT_LENGTH);
+
     private void initializePCRErrorModel() {
         if ( !pcrErrorModel.hasRateFactor() ) {
             return;
@@ -332,8 +457,10 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
             return;
         }
 
+        // same repeat lengths as findTandemRepeatUnits(readBases, i-1), computed for all offsets in a single pass
+        final int[] repeatLengths = tandemRepeatAnnotator.annotate(readBases);
         for ( int i = 1; i < readBases.length; i++ ) {
-            final int repeatLength = findTandemRepeatUnits(readBases, i-1).getRight();
+            final int repeatLength = repeatLengths[i-1];
             readInsQuals[i-1] = (byte) Math.min(0xff & readInsQuals[i - 1], 0xff & pcrIndelErrorModelCache[repeatLength]);
             readDelQuals[i-1] = (byte) Math.min(0xff & readDelQuals[i - 1], 0xff & pcrIndelErrorModelCache[repeatLength]);
         }
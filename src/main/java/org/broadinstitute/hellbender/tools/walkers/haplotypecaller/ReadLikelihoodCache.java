@@ -0,0 +1,258 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of PairHMM log10 likelihoods, used by {@link PairHMMLikelihoodCalculationEngine}
+ * to avoid re-evaluating reads in the padding of one assembly region against the same haplotypes in the next one.
+ *
+ * <p>A read is identified by the content of its quality-modified copy (bases, base qualities, insertion and deletion
+ * qualities), since reads are re-clipped and re-copied for every region; a haplotype is identified by its bases.
+ * Together with the engine's constant gap continuation penalty these fully determine the PairHMM result.</p>
+ *
+ * <p>Each read keeps only its likelihoods against the haplotypes of the last region it was scored in, as a primitive
+ * array: a read that is scored again against a different set of haplotypes replaces its entry, so the memory held per
+ * read is bounded by the number of haplotypes of a single region.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public final class ReadLikelihoodCache {
+
+    private final int maxReads;
+
+    private final Map<ReadKey, Entry> cache;
+
+    /**
+     * The haplotypes of the last call to {@link #haplotypeKeys}, shared by the entries stored against them.
+     */
+    private HaplotypeKeys lastHaplotypeKeys;
+
+    private long readLookups = 0;
+    private long readHits = 0;
+    private long cellsReused = 0;
+    private long cellsComputed = 0;
+    private long computeNanos = 0;
+
+    /**
+     * @param maxReads maximum number of reads whose likelihoods are kept; must be positive
+     */
+    public ReadLikelihoodCache(final int maxReads) {
+        Utils.validateArg(maxReads > 0, "maxReads must be positive");
+        this.maxReads = maxReads;
+        this.cache = new LinkedHashMap<ReadKey, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<ReadKey, Entry> eldest) {
+                return size() > ReadLikelihoodCache.this.maxReads;
+            }
+        };
+    }
+
+    /**
+     * Wraps the bases of each haplotype in a key, so that they are hashed only once per batch of reads.
+     * Consecutive calls with the same haplotypes, as for the samples of one region, return the same instance.
+     */
+    HaplotypeKeys haplotypeKeys(final List<Haplotype> haplotypes) {
+        final List<BasesKey> keys = new ArrayList<>(haplotypes.size());
+        for (final Haplotype haplotype : haplotypes) {
+            keys.add(new BasesKey(haplotype.getBases()));
+        }
+        if (lastHaplotypeKeys == null || !lastHaplotypeKeys.keys.equals(keys)) {
+            lastHaplotypeKeys = new HaplotypeKeys(keys);
+        }
+        return lastHaplotypeKeys;
+    }
+
+    static ReadKey readKey(final byte[] bases, final byte[] quals, final byte[] insQuals, final byte[] delQuals) {
+        return new ReadKey(bases, quals, insQuals, delQuals);
+    }
+
+    /**
+     * Fills {@code log10Likelihoods} with the cached likelihoods of a read against every haplotype.
+     *
+     * @return {@code true} iff the likelihoods of the read against all of the haplotypes were cached; otherwise
+     *         the content of {@code log10Likelihoods} is undefined
+     */
+    boolean lookup(final ReadKey read, final HaplotypeKeys haplotypes, final double[] log10Likelihoods) {
+        readLookups++;
+        final Entry entry = cache.get(read);
+        if (entry == null) {
+            return false;
+        }
+        final int haplotypeCount = haplotypes.size();
+        if (entry.haplotypes == haplotypes) {
+            System.arraycopy(entry.log10Likelihoods, 0, log10Likelihoods, 0, haplotypeCount);
+        } else {
+            for (int i = 0; i < haplotypeCount; i++) {
+                final int index = entry.haplotypes.indexOf(haplotypes.keys.get(i));
+                if (index < 0) {
+                    return false;
+                }
+                log10Likelihoods[i] = entry.log10Likelihoods[index];
+            }
+        }
+        readHits++;
+        cellsReused += haplotypeCount;
+        return true;
+    }
+
+    /**
+     * Records the likelihoods of a read against each haplotype, replacing those against any previous haplotypes.
+     */
+    void store(final ReadKey read, final HaplotypeKeys haplotypes, final double[] log10Likelihoods) {
+        cache.put(read, new Entry(haplotypes, Arrays.copyOf(log10Likelihoods, haplotypes.size())));
+    }
+
+    /**
+     * Records the cost of a PairHMM computation, used to estimate the time saved by the cache.
+     */
+    void recordComputation(final long cells, final long nanos) {
+        cellsComputed += cells;
+        computeNanos += nanos;
+    }
+
+    public long getReadLookups() {
+        return readLookups;
+    }
+
+    public long getReadHits() {
+        return readHits;
+    }
+
+    public long getCellsReused() {
+        return cellsReused;
+    }
+
+    /**
+     * @return estimated PairHMM time saved, in seconds, based on the average time per computed read-haplotype pair
+     */
+    public double getEstimatedSecondsSaved() {
+        return cellsComputed == 0 ? 0.0 : cellsReused * (computeNanos / (double) cellsComputed) / 1e9;
+    }
+
+    public void logStatistics(final Logger logger) {
+        Utils.nonNull(logger);
+        logger.info(String.format("Read likelihood cache: %d of %d reads reused (hit rate %.3f), %d read-haplotype likelihoods reused, %d computed, ~%.2f s of PairHMM time saved",
+                readHits, readLookups, readLookups == 0 ? Double.NaN : readHits / (double) readLookups, cellsReused, cellsComputed, getEstimatedSecondsSaved()));
+    }
+
+    /**
+     * The haplotypes a read was scored against, in the order of its likelihoods.
+     */
+    static final class HaplotypeKeys {
+        private final List<BasesKey> keys;
+        private Map<BasesKey, Integer> indices;
+
+        private HaplotypeKeys(final List<BasesKey> keys) {
+            this.keys = keys;
+        }
+
+        int size() {
+            return keys.size();
+        }
+
+        /**
+         * @return the index of a haplotype, or -1 if it is not one of these
+         */
+        int indexOf(final BasesKey key) {
+            if (indices == null) {
+                indices = new HashMap<>(keys.size() * 2);
+                for (int i = 0; i < keys.size(); i++) {
+                    indices.put(keys.get(i), i);
+                }
+            }
+            final Integer index = indices.get(key);
+            return index == null ? -1 : index;
+        }
+    }
+
+    /**
+     * The likelihoods of a read against the haplotypes of the last region it was scored in.
+     */
+    private static final class Entry {
+        private final HaplotypeKeys haplotypes;
+        private final double[] log10Likelihoods;
+
+        private Entry(final HaplotypeKeys haplotypes, final double[] log10Likelihoods) {
+            this.haplotypes = haplotypes;
+            this.log10Likelihoods = log10Likelihoods;
+        }
+    }
+
+    /**
+     * Content-based key over a byte array, with its hash computed once.
+     */
+    static final class BasesKey {
+        private final byte[] bases;
+        private final int hashCode;
+
+        BasesKey(final byte[] bases) {
+            this.bases = bases;
+            this.hashCode = Arrays.hashCode(bases);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final BasesKey that = (BasesKey) o;
+            return hashCode == that.hashCode && Arrays.equals(bases, that.bases);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Content-based key over the bases and (modified) qualities of a read.
+     */
+    static final class ReadKey {
+        private final byte[] bases;
+        private final byte[] quals;
+        private final byte[] insQuals;
+        private final byte[] delQuals;
+        private final int hashCode;
+
+        ReadKey(final byte[] bases, final byte[] quals, final byte[] insQuals, final byte[] delQuals) {
+            this.bases = bases;
+            this.quals = quals;
+            this.insQuals = insQuals;
+            this.delQuals = delQuals;
+            this.hashCode = ((Arrays.hashCode(bases) * 31 + Arrays.hashCode(quals)) * 31 + Arrays.hashCode(insQuals)) * 31 + Arrays.hashCode(delQuals);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final ReadKey that = (ReadKey) o;
+            return hashCode == that.hashCode && Arrays.equals(bases, that.bases) && Arrays.equals(quals, that.quals)
+                    && Arrays.equals(insQuals, that.insQuals) && Arrays.equals(delQuals, that.delQuals);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
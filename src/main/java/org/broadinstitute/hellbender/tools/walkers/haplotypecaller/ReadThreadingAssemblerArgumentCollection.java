@@ -111,6 +111,15 @@ public final class ReadThreadingAssemblerArgumentCollection implements ArgumentC
     @Argument(fullName="minPruning", shortName="minPruning", doc = "Minimum support to not prune paths in the graph", optional = true)
     public int MIN_PRUNE_FACTOR = 2;
 
+    /**
+     * Every haplotype discovered by the assembler is aligned back to the reference with Smith-Waterman. The same haplotype
+     * is often rediscovered with several kmer sizes and in overlapping padded regions; with a positive value, up to this
+     * many alignments are cached and reused. Caching does not change the results.
+     */
+    @Advanced
+    @Argument(fullName="haplotypeAlignmentCacheSize", shortName="haplotypeAlignmentCacheSize", doc = "Number of haplotype-to-reference alignments to cache (0 to disable)", optional = true)
+    public int haplotypeAlignmentCacheSize = 0;
+
     @Hidden
     @Argument(fullName="debugGraphTransformations", shortName="debugGraphTransformations", doc="Write DOT formatted graph files out of the assembler for only this graph size", optional = true)
     public boolean debugGraphTransformations = false;
@@ -35,9 +35,13 @@ import org.broadinstitute.hellbender.tools.walkers.genotyper.IndependentSampleGe
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Code for estimating the reference confidence
@@ -99,6 +103,46 @@ public final class ReferenceConfidenceModel {
     private static final double INDEL_LIKELIHOOD = QualityUtils.qualToErrorProbLog10(INDEL_QUAL);
     private static final int IDX_HOM_REF = 0;
 
+    private static final int NUMBER_OF_QUALS = 256;
+
+    /**
+     * log10 probability that a base call is right, indexed by its (unsigned) quality byte.
+     */
+    private static final double[] QUAL_TO_PROB_LOG10 = new double[NUMBER_OF_QUALS];
+
+    /**
+     * log10 probability that a base call is a specific wrong base, indexed by its (unsigned) quality byte.
+     */
+    private static final double[] QUAL_TO_ERROR_PROB_LOG10_ONE_THIRD = new double[NUMBER_OF_QUALS];
+
+    static {
+        for (int qual = 0; qual < NUMBER_OF_QUALS; qual++) {
+            QUAL_TO_PROB_LOG10[qual] = QualityUtils.qualToProbLog10((byte) qual);
+            QUAL_TO_ERROR_PROB_LOG10_ONE_THIRD[qual] = QualityUtils.qualToErrorProbLog10((byte) qual) + MathUtils.LOG10_ONE_THIRD;
+        }
+    }
+
+    /**
+     * Per-ploidy tables of the heterozygous genotype likelihood terms contributed by a single base call,
+     * see {@link #hetLikelihoodTable(int)}.
+     */
+    private double[][] hetLikelihoodTables = new double[INITIAL_INDEL_LK_CACHE_PLOIDY_CAPACITY + 1][];
+
+    /**
+     * Reusable buffers for the ref-vs-any genotype likelihoods and the ref/non-ref depths of the current position.
+     */
+    private double[] refVsAnyLikelihoods = new double[0];
+    private double[] cappedLikelihoods = new double[0];
+    private final int[] refVsAnyDepths = new int[2];
+
+    /**
+     * Site and hom-ref genotype allele lists, shared by all the reference confidence contexts with the same reference
+     * base (and ploidy); the genotype lists are cleared whenever the ploidy changes.
+     */
+    private final Map<Allele, List<Allele>> refSiteAlleles = new HashMap<>();
+    private final Map<Allele, List<Allele>> homRefGenotypeAlleles = new HashMap<>();
+    private int homRefGenotypeAllelesPloidy = -1;
+
     /**
      * Create a new ReferenceConfidenceModel
      *
@@ -160,6 +204,31 @@ public final class ReferenceConfidenceModel {
                                                        final ReadLikelihoods<Haplotype> readLikelihoods,
                                                        final PloidyModel ploidyModel,
                                                        final List<VariantContext> variantCalls) {
+        final List<VariantContext> results = new ArrayList<>(activeRegion.getSpan().size());
+        calculateRefConfidence(refHaplotype, calledHaplotypes, paddedReferenceLoc, activeRegion, readLikelihoods, ploidyModel, variantCalls, results::add);
+        return results;
+    }
+
+    /**
+     * Calculate the reference confidence for a single sample given the its read data, passing the variant contexts
+     * to {@code consumer} as they are made instead of collecting them, so that a caller that writes them out does not
+     * hold one context per position of the region in memory.
+     *
+     * <p>The contexts passed to {@code consumer}, in order, are those returned by
+     * {@link #calculateRefConfidence(Haplotype, Collection, SimpleInterval, AssemblyRegion, ReadLikelihoods, PloidyModel, List)}
+     * with the same arguments.</p>
+     *
+     * @param consumer receives each variant context in genomic order
+     * @return the number of variant contexts passed to {@code consumer}
+     */
+    public int calculateRefConfidence(final Haplotype refHaplotype,
+                                      final Collection<Haplotype> calledHaplotypes,
+                                      final SimpleInterval paddedReferenceLoc,
+                                      final AssemblyRegion activeRegion,
+                                      final ReadLikelihoods<Haplotype> readLikelihoods,
+                                      final PloidyModel ploidyModel,
+                                      final List<VariantContext> variantCalls,
+                                      final Consumer<VariantContext> consumer) {
         Utils.nonNull(refHaplotype, "refHaplotype cannot be null");
         Utils.nonNull(calledHaplotypes, "calledHaplotypes cannot be null");
         if ( !calledHaplotypes.contains(refHaplotype)) throw new IllegalArgumentException("calledHaplotypes must contain the refHaplotype");
@@ -169,52 +238,87 @@ public final class ReferenceConfidenceModel {
         if ( readLikelihoods.numberOfSamples() != 1 ) throw new IllegalArgumentException("readLikelihoods must contain exactly one sample but it contained " + readLikelihoods.numberOfSamples());
         if ( refHaplotype.length() != activeRegion.getExtendedSpan().size() ) throw new IllegalArgumentException("refHaplotype " + refHaplotype.length() + " and activeRegion location size " + activeRegion.getSpan().size() + " are different");
         Utils.nonNull(ploidyModel, "the ploidy model cannot be null");
+        Utils.nonNull(consumer, "the consumer cannot be null");
         final int ploidy = ploidyModel.samplePloidy(0); // the first sample = the only sample in reference-confidence mode.
 
         final SimpleInterval refSpan = activeRegion.getSpan();
-        final List<ReadPileup> refPileups = getPileupsOverReference(refHaplotype, calledHaplotypes, paddedReferenceLoc, activeRegion, refSpan, readLikelihoods);
         final byte[] ref = refHaplotype.getBases();
-        final List<VariantContext> results = new ArrayList<>(refSpan.size());
         final String sampleName = readLikelihoods.getSample(0);
 
         final int globalRefOffset = refSpan.getStart() - activeRegion.getExtendedSpan().getStart();
-        for ( final ReadPileup pileup : refPileups ) {
-            final Locatable curPos = pileup.getLocation();
-            final int offset = curPos.getStart() - refSpan.getStart();
+        final VariantContextBuilder vcb = new VariantContextBuilder().source("HC").chr(refSpan.getContig());
+        final GenotypeBuilder gb = new GenotypeBuilder(sampleName);
 
-            final VariantContext overlappingSite = getOverlappingVariantContext(curPos, variantCalls);
-            if ( overlappingSite != null && overlappingSite.getStart() == curPos.getStart() ) {
-                results.add(overlappingSite);
+        // Stream the pileups over the span instead of materializing them all; positions without data share one empty pileup
+        final LocusIteratorByState libs = new LocusIteratorByState(activeRegion.getReads().iterator(), LocusIteratorByState.NO_DOWNSAMPLING,
+                true, samples.asSetOfSamples(), false, activeRegion.getHeader());
+        final ReadPileup emptyPileup = new ReadPileup(refSpan);
+        AlignmentContext next = libs.advanceToLocus(refSpan.getStart(), true);
+        for ( int curPos = refSpan.getStart(); curPos <= refSpan.getEnd(); curPos++ ) {
+            final ReadPileup pileup;
+            if ( next != null && next.getLocation().getStart() == curPos ) {
+                pileup = next.getBasePileup();
+                next = libs.hasNext() ? libs.next() : null;
+            } else {
+                pileup = emptyPileup;
+            }
+            final int offset = curPos - refSpan.getStart();
+
+            final VariantContext overlappingSite = getOverlappingVariantContext(refSpan.getContig(), curPos, variantCalls);
+            if ( overlappingSite != null && overlappingSite.getStart() == curPos ) {
+                consumer.accept(overlappingSite);
             } else {
                 // otherwise emit a reference confidence variant context
-                results.add(makeReferenceConfidenceVariantContext(ploidy, ref, sampleName, globalRefOffset, pileup, curPos, offset));
+                consumer.accept(makeReferenceConfidenceVariantContext(ploidy, ref, vcb, gb, globalRefOffset, pileup, curPos, offset));
             }
         }
 
-        return results;
+        return refSpan.size();
     }
 
+    /**
+     * Makes the reference confidence context of a single position, reusing the builders and the allele lists shared
+     * by all the positions with the same reference base.
+     */
     private VariantContext makeReferenceConfidenceVariantContext(final int ploidy,
                                                                  final byte[] ref,
-                                                                 final String sampleName,
+                                                                 final VariantContextBuilder vcb,
+                                                                 final GenotypeBuilder gb,
                                                                  final int globalRefOffset,
                                                                  final ReadPileup pileup,
-                                                                 final Locatable curPos,
+                                                                 final int curPos,
                                                                  final int offset) {
         // Assume infinite population on a single sample.
         final int refOffset = offset + globalRefOffset;
         final byte refBase = ref[refOffset];
-        final RefVsAnyResult homRefCalc = calcGenotypeLikelihoodsOfRefVsAny(ploidy, pileup, refBase, BASE_QUAL_THRESHOLD, null);
+        final int likelihoodCount = ploidy + 1;
+        if ( refVsAnyLikelihoods.length != likelihoodCount ) {
+            refVsAnyLikelihoods = new double[likelihoodCount];
+            cappedLikelihoods = new double[likelihoodCount];
+        }
+        Arrays.fill(refVsAnyLikelihoods, 0.0);
+        refVsAnyDepths[0] = refVsAnyDepths[1] = 0;
+        accumulateRefVsAnyLikelihoods(ploidy, pileup, refBase, BASE_QUAL_THRESHOLD, null, refVsAnyLikelihoods, refVsAnyDepths);
 
         final Allele refAllele = Allele.create(refBase, true);
-        final List<Allele> refSiteAlleles = Arrays.asList(refAllele, GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE);
-        final VariantContextBuilder vcb = new VariantContextBuilder("HC", curPos.getContig(), curPos.getStart(), curPos.getStart(), refSiteAlleles);
-        final GenotypeBuilder gb = new GenotypeBuilder(sampleName, GATKVariantContextUtils.homozygousAlleleList(refAllele, ploidy));
-        gb.AD(homRefCalc.getAD());
-        gb.DP(homRefCalc.getDP());
-
-        // genotype likelihood calculation
-        final GenotypeLikelihoods snpGLs = GenotypeLikelihoods.fromLog10Likelihoods(homRefCalc.getGenotypeLikelihoodsCappedByHomRefLikelihood());
+        if ( homRefGenotypeAllelesPloidy != ploidy ) {
+            homRefGenotypeAlleles.clear();
+            homRefGenotypeAllelesPloidy = ploidy;
+        }
+        vcb.start(curPos).stop(curPos).alleles(refSiteAlleles.computeIfAbsent(refAllele,
+                a -> Collections.unmodifiableList(Arrays.asList(a, GATKVCFConstants.NON_REF_SYMBOLIC_ALLELE))));
+        gb.reset(true);
+        gb.alleles(homRefGenotypeAlleles.computeIfAbsent(refAllele,
+                a -> Collections.unmodifiableList(GATKVariantContextUtils.homozygousAlleleList(a, ploidy))));
+        gb.AD(new int[]{refVsAnyDepths[0], refVsAnyDepths[1]});
+        gb.DP(refVsAnyDepths[0] + refVsAnyDepths[1]);
+
+        // genotype likelihood calculation, capping the het and hom var likelihoods by the hom ref likelihood;
+        // the capped likelihoods only live until the PLs are extracted below, so their buffer is reused
+        for (int i = 0; i < likelihoodCount; i++) {
+            cappedLikelihoods[i] = Math.min(refVsAnyLikelihoods[i], refVsAnyLikelihoods[0]);
+        }
+        final GenotypeLikelihoods snpGLs = GenotypeLikelihoods.fromLog10Likelihoods(cappedLikelihoods);
         final int nIndelInformativeReads = calcNIndelInformativeReads(pileup, refOffset, ref, indelInformativeDepthIndelSize);
         final GenotypeLikelihoods indelGLs = getIndelPLs(ploidy,nIndelInformativeReads);
 
@@ -229,8 +333,7 @@ public final class ReferenceConfidenceModel {
         gb.GQ((int) (-10 * getGQForHomRef(leastConfidenceGLs)));
         gb.PL(leastConfidenceGLs.getAsPLs());
 
-        vcb.genotypes(gb.make());
-        return vcb.make();
+        return vcb.genotypes(gb.make()).make();
     }
 
     /**
@@ -314,85 +417,100 @@ public final class ReferenceConfidenceModel {
                                                         final MathUtils.RunningAverage hqSoftClips) {
 
         final int likelihoodCount = ploidy + 1;
+        final RefVsAnyResult result = new RefVsAnyResult(likelihoodCount);
+        final int[] depths = new int[2];
+        accumulateRefVsAnyLikelihoods(ploidy, pileup, refBase, minBaseQual, hqSoftClips, result.getGenotypeLikelihoods(), depths);
+        result.incrementRefAD(depths[0]);
+        result.incrementNonRefAD(depths[1]);
+        return result;
+    }
+
+    /**
+     * Adds the ref-vs-any genotype likelihoods of the pileup into {@code likelihoods} and its ref and non-ref depths into
+     * {@code depths}, looking up the per-base-call terms in precomputed per-quality tables.
+     */
+    private void accumulateRefVsAnyLikelihoods(final int ploidy,
+                                               final ReadPileup pileup,
+                                               final byte refBase,
+                                               final byte minBaseQual,
+                                               final MathUtils.RunningAverage hqSoftClips,
+                                               final double[] likelihoods,
+                                               final int[] depths) {
+        final int likelihoodCount = ploidy + 1;
         final double log10Ploidy = MathUtils.log10(ploidy);
+        final int hetCount = likelihoodCount - 2;
+        final double[] hetLikelihoods = hetCount > 0 ? hetLikelihoodTable(ploidy) : null;
 
-        final RefVsAnyResult result = new RefVsAnyResult(likelihoodCount);
         int readCount = 0;
-        for (final PileupElement p : pileup) {
-            final byte qual = p.isDeletion() ? REF_MODEL_DELETION_QUAL : p.getQual();
-            if (!p.isDeletion() && qual <= minBaseQual) {
+        for (final PileupElement element : pileup) {
+            final byte qual = element.isDeletion() ? REF_MODEL_DELETION_QUAL : element.getQual();
+            if (!element.isDeletion() && qual <= minBaseQual) {
                 continue;
             }
             readCount++;
-            applyPileupElementRefVsNonRefLikelihoodAndCount(refBase, likelihoodCount, log10Ploidy, result, p, qual, hqSoftClips);
+            final boolean isAlt = element.getBase() != refBase || element.isDeletion() || element.isBeforeDeletionStart()
+                    || element.isAfterDeletionEnd() || element.isBeforeInsertion() || element.isAfterInsertion() || element.isNextToSoftClip();
+            final int qualIndex = qual & 0xFF;
+            final double referenceLikelihood;
+            final double nonRefLikelihood;
+            if (isAlt) {
+                nonRefLikelihood = QUAL_TO_PROB_LOG10[qualIndex];
+                referenceLikelihood = QUAL_TO_ERROR_PROB_LOG10_ONE_THIRD[qualIndex];
+                depths[1]++;
+            } else {
+                referenceLikelihood = QUAL_TO_PROB_LOG10[qualIndex];
+                nonRefLikelihood = QUAL_TO_ERROR_PROB_LOG10_ONE_THIRD[qualIndex];
+                depths[0]++;
+            }
+            // Homozygous likelihoods don't need the logSum trick.
+            likelihoods[0] += referenceLikelihood + log10Ploidy;
+            likelihoods[likelihoodCount - 1] += nonRefLikelihood + log10Ploidy;
+            // Heterozygous likelihoods need the logSum trick, which is precomputed:
+            if (hetLikelihoods != null) {
+                final int hetOffset = ((isAlt ? NUMBER_OF_QUALS : 0) + qualIndex) * hetCount;
+                for (int i = 1; i <= hetCount; i++) {
+                    likelihoods[i] += hetLikelihoods[hetOffset + i - 1];
+                }
+            }
+            if (isAlt && hqSoftClips != null && element.isNextToSoftClip()) {
+                hqSoftClips.add(AlignmentUtils.calcNumHighQualitySoftClips(element.getRead(), HQ_BASE_QUALITY_SOFTCLIP_THRESHOLD));
+            }
         }
         final double denominator = readCount * log10Ploidy;
         for (int i = 0; i < likelihoodCount; i++) {
-            result.addGenotypeLikelihood(i, -denominator);
-        }
-        return result;
-    }
-
-    private void applyPileupElementRefVsNonRefLikelihoodAndCount(final byte refBase, final int likelihoodCount, final double log10Ploidy, final RefVsAnyResult result, final PileupElement element, final byte qual, final MathUtils.RunningAverage hqSoftClips) {
-        final boolean isAlt = element.getBase() != refBase || element.isDeletion() || element.isBeforeDeletionStart()
-                || element.isAfterDeletionEnd() || element.isBeforeInsertion() || element.isAfterInsertion() || element.isNextToSoftClip();
-        final double referenceLikelihood;
-        final double nonRefLikelihood;
-        if (isAlt) {
-            nonRefLikelihood = QualityUtils.qualToProbLog10(qual);
-            referenceLikelihood = QualityUtils.qualToErrorProbLog10(qual) + MathUtils.LOG10_ONE_THIRD;
-            result.incrementNonRefAD(1);
-        } else {
-            referenceLikelihood = QualityUtils.qualToProbLog10(qual);
-            nonRefLikelihood = QualityUtils.qualToErrorProbLog10(qual) + MathUtils.LOG10_ONE_THIRD;
-            result.incrementRefAD(1);
-        }
-        // Homozygous likelihoods don't need the logSum trick.
-        result.addGenotypeLikelihood(0, referenceLikelihood + log10Ploidy);
-        result.addGenotypeLikelihood(likelihoodCount - 1, nonRefLikelihood + log10Ploidy);
-        // Heterozygous likelihoods need the logSum trick:
-        for (int i = 1, j = likelihoodCount - 2; i < likelihoodCount - 1; i++, j--) {
-            result.addGenotypeLikelihood(i,
-                    MathUtils.approximateLog10SumLog10(
-                            referenceLikelihood + MathUtils.log10(j),
-                            nonRefLikelihood + MathUtils.log10(i)));
-        }
-        if (isAlt && hqSoftClips != null && element.isNextToSoftClip()) {
-            hqSoftClips.add(AlignmentUtils.calcNumHighQualitySoftClips(element.getRead(), HQ_BASE_QUALITY_SOFTCLIP_THRESHOLD));
+            likelihoods[i] += -denominator;
         }
     }
 
     /**
-     * Get a list of pileups that span the entire active region span, in order, one for each position
+     * Returns the heterozygous genotype likelihood terms contributed by a single base call for the given ploidy
+     * (which must be at least 2): the entry at {@code ((isAlt ? 256 : 0) + qual) * (ploidy - 1) + i - 1} is the
+     * contribution to the genotype with {@code i} non-ref alleles of a base call with that (unsigned) quality.
      */
-    private List<ReadPileup> getPileupsOverReference(final Haplotype refHaplotype,
-                                                           final Collection<Haplotype> calledHaplotypes,
-                                                           final SimpleInterval paddedReferenceLoc,
-                                                           final AssemblyRegion activeRegion,
-                                                           final SimpleInterval activeRegionSpan,
-                                                           final ReadLikelihoods<Haplotype> readLikelihoods) {
-        if ( !calledHaplotypes.contains(refHaplotype)) throw new IllegalArgumentException("calledHaplotypes must contain the refHaplotype");
-        if ( readLikelihoods.numberOfSamples() != 1 ) throw new IllegalArgumentException("readLikelihoods must contain exactly one sample but it contained " + readLikelihoods.numberOfSamples());
-
-        final List<GATKRead> reads = activeRegion.getReads();
-
-        final LocusIteratorByState libs = new LocusIteratorByState(reads.iterator(), LocusIteratorByState.NO_DOWNSAMPLING,
-                true, samples.asSetOfSamples(), false, activeRegion.getHeader());
+    private double[] hetLikelihoodTable(final int ploidy) {
+        if (hetLikelihoodTables.length <= ploidy) {
+            hetLikelihoodTables = Arrays.copyOf(hetLikelihoodTables, ploidy << 1);
+        }
+        if (hetLikelihoodTables[ploidy] != null) {
+            return hetLikelihoodTables[ploidy];
+        }
 
-        final int startPos = activeRegionSpan.getStart();
-        final List<ReadPileup> pileups = new ArrayList<>(activeRegionSpan.getEnd() - startPos);
-        AlignmentContext next = libs.advanceToLocus(startPos, true);
-        for ( int curPos = startPos; curPos <= activeRegionSpan.getEnd(); curPos++ ) {
-            if ( next != null && next.getLocation().getStart() == curPos ) {
-                pileups.add(next.getBasePileup());
-                next = libs.hasNext() ? libs.next() : null;
-            } else {
-                // no data, so we create empty pileups
-                pileups.add(new ReadPileup(new SimpleInterval(activeRegionSpan.getContig(), curPos, curPos)));
+        final int hetCount = ploidy - 1;
+        final double[] result = new double[2 * NUMBER_OF_QUALS * hetCount];
+        for (int alt = 0; alt < 2; alt++) {
+            for (int qual = 0; qual < NUMBER_OF_QUALS; qual++) {
+                final double referenceLikelihood = alt == 1 ? QUAL_TO_ERROR_PROB_LOG10_ONE_THIRD[qual] : QUAL_TO_PROB_LOG10[qual];
+                final double nonRefLikelihood = alt == 1 ? QUAL_TO_PROB_LOG10[qual] : QUAL_TO_ERROR_PROB_LOG10_ONE_THIRD[qual];
+                final int offset = (alt * NUMBER_OF_QUALS + qual) * hetCount;
+                for (int i = 1, j = ploidy - 1; i <= hetCount; i++, j--) {
+                    result[offset + i - 1] = MathUtils.approximateLog10SumLog10(
+                            referenceLikelihood + MathUtils.log10(j),
+                            nonRefLikelihood + MathUtils.log10(i));
+                }
             }
         }
-
-        return pileups;
+        hetLikelihoodTables[ploidy] = result;
+        return result;
     }
 
     /**
@@ -404,10 +522,14 @@ public final class ReferenceConfidenceModel {
      */
     @VisibleForTesting
     VariantContext getOverlappingVariantContext(final Locatable curPos, final Collection<VariantContext> maybeOverlapping) {
-        final SimpleInterval curPosSI = new SimpleInterval(curPos);
+        Utils.nonNull(curPos);
+        return getOverlappingVariantContext(curPos.getContig(), curPos.getStart(), maybeOverlapping);
+    }
+
+    private static VariantContext getOverlappingVariantContext(final String contig, final int position, final Collection<VariantContext> maybeOverlapping) {
         VariantContext overlaps = null;
         for ( final VariantContext vc : maybeOverlapping ) {
-            if ( curPosSI.overlaps(vc) ) {
+            if ( vc.getContig().equals(contig) && vc.getStart() <= position && position <= vc.getEnd() ) {
                 if ( overlaps == null || vc.getStart() > overlaps.getStart() ) {
                     overlaps = vc;
                 }
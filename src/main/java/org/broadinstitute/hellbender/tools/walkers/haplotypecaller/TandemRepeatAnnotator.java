@@ -0,0 +1,107 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+/**
+ * Computes the tandem repeat length used by the PCR indel error model at every offset of a read.
+ *
+ * <p>For every offset {@code o} but the last one the result is identical to
+ * {@code PairHMMLikelihoodCalculationEngine.findTandemRepeatUnits(bases, o).getRight()}: the shortest unit that occurs
+ * at least twice in a row starting at {@code o + 1} is chosen (or the single base at {@code o + 1} if there is none),
+ * and its number of consecutive copies starting at {@code o + 1} is added to its number of consecutive copies ending
+ * at {@code o}.</p>
+ *
+ * <p>Both counts are derived from runs of period-{@code u} matches ({@code bases[q] == bases[q + u]}), computed in one
+ * forward and one backward sweep per unit length, so the total work is O(read length * max unit length).
+ * Scratch buffers are reused across calls; nothing is allocated once they have grown to the longest read seen.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public final class TandemRepeatAnnotator {
+
+    private final int maxUnitLength;
+
+    private final int maxRepeatLength;
+
+    /** forwardRun[q] is the number of consecutive positions p >= q with bases[p] == bases[p + u] */
+    private int[] forwardRun = new int[0];
+
+    /** backwardRun[q] is the number of consecutive positions p <= q with bases[p] == bases[p + u] */
+    private int[] backwardRun = new int[0];
+
+    /** unit length chosen so far for each offset, or 0 if no unit repeats yet */
+    private int[] chosenUnitLength = new int[0];
+
+    private int[] repeatLengths = new int[0];
+
+    /**
+     * @param maxUnitLength longest repeat unit to consider
+     * @param maxRepeatLength repeat lengths are capped at this value
+     */
+    public TandemRepeatAnnotator(final int maxUnitLength, final int maxRepeatLength) {
+        Utils.validateArg(maxUnitLength > 0, "maxUnitLength must be positive");
+        Utils.validateArg(maxRepeatLength > 0, "maxRepeatLength must be positive");
+        this.maxUnitLength = maxUnitLength;
+        this.maxRepeatLength = maxRepeatLength;
+    }
+
+    /**
+     * Computes the capped tandem repeat length at each offset {@code 0 .. bases.length - 2} of {@code bases}.
+     *
+     * @param bases the read bases
+     * @return a buffer owned by this annotator whose first {@code bases.length - 1} entries hold the repeat lengths;
+     *         its content is only valid until the next call
+     */
+    public int[] annotate(final byte[] bases) {
+        Utils.nonNull(bases, "bases is null");
+        final int length = bases.length;
+        ensureCapacity(length);
+        if (length < 2) {
+            return repeatLengths;
+        }
+
+        for (int unitLength = 1; unitLength <= maxUnitLength && unitLength < length; unitLength++) {
+            computeRuns(bases, unitLength);
+            // a unit of this length fits after offset o only if o + unitLength < length
+            final int lastOffset = length - 1 - unitLength;
+            for (int offset = 0; offset <= lastOffset; offset++) {
+                if (unitLength == 1) {
+                    // the single base at offset + 1 is the fallback when no unit repeats
+                    chosenUnitLength[offset] = 0;
+                    repeatLengths[offset] = repeatLength(offset, 1);
+                }
+                if (chosenUnitLength[offset] == 0 && forwardRun[offset + 1] >= unitLength) {
+                    chosenUnitLength[offset] = unitLength;
+                    repeatLengths[offset] = repeatLength(offset, unitLength);
+                }
+            }
+        }
+        return repeatLengths;
+    }
+
+    private int repeatLength(final int offset, final int unitLength) {
+        final int forwardCopies = 1 + forwardRun[offset + 1] / unitLength;
+        final int backwardCopies = backwardRun[offset] / unitLength;
+        return Math.min(forwardCopies + backwardCopies, maxRepeatLength);
+    }
+
+    private void computeRuns(final byte[] bases, final int unitLength) {
+        final int lastComparable = bases.length - unitLength - 1;
+        forwardRun[lastComparable + 1] = 0;
+        for (int q = lastComparable; q >= 0; q--) {
+            forwardRun[q] = bases[q] == bases[q + unitLength] ? forwardRun[q + 1] + 1 : 0;
+        }
+        for (int q = 0; q <= lastComparable; q++) {
+            backwardRun[q] = bases[q] == bases[q + unitLength] ? (q == 0 ? 0 : backwardRun[q - 1]) + 1 : 0;
+        }
+    }
+
+    private void ensureCapacity(final int length) {
+        if (forwardRun.length < length + 1) {
+            forwardRun = new int[length + 1];
+            backwardRun = new int[length + 1];
+            chosenUnitLength = new int[length + 1];
+            repeatLengths = new int[length + 1];
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.Cigar;
+import htsjdk.samtools.CigarElement;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.CigarUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of haplotype-to-reference Smith-Waterman alignments as computed by
+ * {@link CigarUtils#calculateCigar(byte[], byte[])}.
+ *
+ * <p>Entries are keyed by the content of the reference window and of the haplotype, so the same haplotype rediscovered
+ * with a different kmer size or in an overlapping padded region is aligned only once. Failed alignments
+ * ({@code null} cigars) are cached as well.</p>
+ *
+ * <p>Cached alignments are held as unmodifiable lists of (immutable) {@link CigarElement}s shared by all hits;
+ * since {@link Cigar} itself is mutable each call wraps them in a fresh {@link Cigar}, so callers can never corrupt
+ * the cache.</p>
+ *
+ * <p>The cache holds references to the byte arrays it is given; callers must not modify them afterwards.
+ * Instances are not thread-safe.</p>
+ */
+public final class HaplotypeAlignmentCache {
+
+    /** Marks a cached failed alignment, for which {@link CigarUtils#calculateCigar} returned {@code null}. */
+    private static final List<CigarElement> FAILED_ALIGNMENT = Collections.emptyList();
+
+    private final int maxSize;
+
+    private final Map<AlignmentKey, List<CigarElement>> cache;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param maxSize maximum number of alignments to keep; must be positive
+     */
+    public HaplotypeAlignmentCache(final int maxSize) {
+        Utils.validateArg(maxSize > 0, "maxSize must be positive");
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<AlignmentKey, List<CigarElement>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<AlignmentKey, List<CigarElement>> eldest) {
+                final boolean evict = size() > HaplotypeAlignmentCache.this.maxSize;
+                if (evict) {
+                    evictions++;
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * Returns the alignment of {@code haplotypeBases} to {@code referenceBases}, computing it only if it is not cached.
+     *
+     * @return exactly what {@link CigarUtils#calculateCigar(byte[], byte[])} would return, as a new {@link Cigar}
+     */
+    public Cigar calculateCigar(final byte[] referenceBases, final byte[] haplotypeBases) {
+        Utils.nonNull(referenceBases, "referenceBases is null");
+        Utils.nonNull(haplotypeBases, "haplotypeBases is null");
+        final AlignmentKey key = new AlignmentKey(referenceBases, haplotypeBases);
+        List<CigarElement> elements = cache.get(key);
+        if (elements != null) {
+            hits++;
+        } else {
+            misses++;
+            final Cigar cigar = CigarUtils.calculateCigar(referenceBases, haplotypeBases);
+            elements = cigar == null ? FAILED_ALIGNMENT : Collections.unmodifiableList(new ArrayList<>(cigar.getCigarElements()));
+            cache.put(key, elements);
+        }
+        if (elements == FAILED_ALIGNMENT) {
+            return null;
+        }
+        return new Cigar(elements);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return fraction of lookups answered from the cache, or {@link Double#NaN} if there were no lookups
+     */
+    public double getHitRate() {
+        final long lookups = hits + misses;
+        return lookups == 0 ? Double.NaN : hits / (double) lookups;
+    }
+
+    public void logStatistics(final Logger logger) {
+        Utils.nonNull(logger);
+        logger.info(String.format("Haplotype alignment cache: %d hits, %d misses (hit rate %.3f), %d evictions, %d entries",
+                hits, misses, getHitRate(), evictions, cache.size()));
+    }
+
+    /**
+     * Content-based key over the reference window and haplotype bases.
+     */
+    private static final class AlignmentKey {
+        private final byte[] referenceBases;
+        private final byte[] haplotypeBases;
+        private final int hashCode;
+
+        AlignmentKey(final byte[] referenceBases, final byte[] haplotypeBases) {
+            this.referenceBases = referenceBases;
+            this.haplotypeBases = haplotypeBases;
+            this.hashCode = 31 * Arrays.hashCode(referenceBases) + Arrays.hashCode(haplotypeBases);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            final AlignmentKey that = (AlignmentKey) o;
+            return hashCode == that.hashCode
+                    && Arrays.equals(haplotypeBases, that.haplotypeBases)
+                    && (referenceBases == that.referenceBases || Arrays.equals(referenceBases, that.referenceBases));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
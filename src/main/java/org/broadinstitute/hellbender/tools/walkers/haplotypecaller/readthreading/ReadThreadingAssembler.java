@@ -12,6 +12,7 @@ import org.broadinstitute.hellbender.engine.AssemblyRegion;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResult;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResultSet;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCallerProfiler;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.ReadErrorCorrector;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.*;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
@@ -66,6 +67,10 @@ public final class ReadThreadingAssembler {
     private File debugGraphOutputPath = null;  //Where to write debug graphs, if unset it defaults to the current working dir
     private File graphOutputPath = null;
 
+    private HaplotypeAlignmentCache haplotypeAlignmentCache = null;  //if null, every haplotype is aligned to the reference
+
+    private HaplotypeCallerProfiler profiler = new HaplotypeCallerProfiler(false, 0);
+
     public ReadThreadingAssembler(final int maxAllowedPathsForReadThreadingAssembler, final List<Integer> kmerSizes, final boolean dontIncreaseKmerSizesForCycles, final boolean allowNonUniqueKmersInRef, final int numPruningSamples) {
         if ( maxAllowedPathsForReadThreadingAssembler < 1 ) {
             throw new IllegalArgumentException("numBestHaplotypesPerGraph should be >= 1 but got " + maxAllowedPathsForReadThreadingAssembler);
@@ -214,7 +219,7 @@ public final class ReadThreadingAssembler {
                 final KBestHaplotype kBestHaplotype = bestHaplotypes.next();
                 final Haplotype h = kBestHaplotype.haplotype();
                 if( !returnHaplotypes.contains(h) ) {
-                    final Cigar cigar = CigarUtils.calculateCigar(refHaplotype.getBases(), h.getBases());
+                    final Cigar cigar = alignToReference(refHaplotype, h);
 
                     if ( cigar == null ) {
                         failedCigars++; // couldn't produce a meaningful alignment of haplotype to reference, fail quietly
@@ -279,6 +284,22 @@ public final class ReadThreadingAssembler {
         return new ArrayList<>(returnHaplotypes);
 
     }
+
+    /**
+     * Aligns a haplotype to the reference haplotype, reusing a previous alignment of the same bases when the
+     * alignment cache is enabled
+     * @param refHaplotype the reference haplotype
+     * @param haplotype the haplotype to align
+     * @return the cigar of the haplotype against the reference, or {@code null} if it could not be aligned
+     */
+    private Cigar alignToReference(final Haplotype refHaplotype, final Haplotype haplotype) {
+        final long start = profiler.start();
+        final Cigar cigar = haplotypeAlignmentCache == null ? CigarUtils.calculateCigar(refHaplotype.getBases(), haplotype.getBases())
+                : haplotypeAlignmentCache.calculateCigar(refHaplotype.getBases(), haplotype.getBases());
+        profiler.stop(HaplotypeCallerProfiler.Stage.SMITH_WATERMAN, start);
+        return cigar;
+    }
+
     /**
      * We use CigarOperator.N as the signal that an incomplete or too divergent bubble was found during bubble traversal
      * @param c the cigar to test
@@ -391,7 +412,9 @@ public final class ReadThreadingAssembler {
 
         // first, try using the requested kmer sizes
         for ( final int kmerSize : kmerSizes ) {
+            final long start = profiler.start();
             addResult(results, createGraph(reads, refHaplotype, kmerSize, givenHaplotypes, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header));
+            profiler.stopKmerAssembly(kmerSize, start);
         }
 
         // if none of those worked, iterate over larger sizes if allowed to do so
@@ -401,7 +424,9 @@ public final class ReadThreadingAssembler {
             while ( results.isEmpty() && numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT ) {
                 // on the last attempt we will allow low complexity graphs
                 final boolean lastAttempt = numIterations == MAX_KMER_ITERATIONS_TO_ATTEMPT;
+                final long start = profiler.start();
                 addResult(results, createGraph(reads, refHaplotype, kmerSize, givenHaplotypes, lastAttempt, lastAttempt, header));
+                profiler.stopKmerAssembly(kmerSize, start);
                 kmerSize += KMER_SIZE_ITERATION_INCREASE;
                 numIterations++;
             }
@@ -632,6 +657,30 @@ public final class ReadThreadingAssembler {
         this.justReturnRawGraph = justReturnRawGraph;
     }
 
+    /**
+     * Enables caching of haplotype-to-reference alignments across kmer sizes and assembly regions.
+     *
+     * @param maxSize maximum number of alignments to keep, or 0 to disable the cache
+     */
+    public void setHaplotypeAlignmentCacheSize(final int maxSize) {
+        Utils.validateArg(maxSize >= 0, "maxSize must be non-negative");
+        this.haplotypeAlignmentCache = maxSize == 0 ? null : new HaplotypeAlignmentCache(maxSize);
+    }
+
+    /**
+     * @return the haplotype-to-reference alignment cache, or {@code null} if caching is disabled
+     */
+    public HaplotypeAlignmentCache getHaplotypeAlignmentCache() {
+        return haplotypeAlignmentCache;
+    }
+
+    /**
+     * Sets the profiler that receives per-kmer-size graph construction times and haplotype alignment times.
+     */
+    public void setProfiler(final HaplotypeCallerProfiler profiler) {
+        this.profiler = Utils.nonNull(profiler);
+    }
+
     public void setRemovePathsNotConnectedToRef(final boolean removePathsNotConnectedToRef) {
         this.removePathsNotConnectedToRef = removePathsNotConnectedToRef;
     }
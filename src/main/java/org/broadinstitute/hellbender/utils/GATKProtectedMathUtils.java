@@ -8,9 +8,11 @@ import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.apache.commons.math3.util.Pair;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -279,4 +281,235 @@ public class GATKProtectedMathUtils {
             return secondSmallest - smallest;
         }
     }
+
+    /**
+     * Computes a percentile of {@code values[from, to)} by selection rather than sorting, with the same estimate
+     * as {@link Percentile} (i.e., its default, legacy estimation type).
+     *
+     * <p>The values in the range are reordered by this call, and must not be NaN.</p>
+     *
+     * @param values the values.  Never {@code null}
+     * @param from index of the first value in the range (inclusive)
+     * @param to index of the last value in the range (exclusive)
+     * @param percentile the percentile, in (0, 100]
+     * @return NaN if the range is empty
+     */
+    public static double selectPercentile(final double[] values, final int from, final int to, final double percentile) {
+        Utils.nonNull(values);
+        Utils.validateArg(0 <= from && from <= to && to <= values.length, "Invalid range of values.");
+        Utils.validateArg(percentile > 0 && percentile <= 100, "Percentile must be in (0, 100].");
+        final int n = to - from;
+        if (n == 0) {
+            return Double.NaN;
+        } else if (n == 1) {
+            return values[from];
+        }
+        final double position = percentile * (n + 1) / 100;
+        if (position < 1) {
+            return min(values, from, to);
+        } else if (position >= n) {
+            return max(values, from, to);
+        }
+        final int lowerIndex = from + (int) Math.floor(position) - 1;
+        final double lower = select(values, from, to, lowerIndex);
+        /* after the selection, the next order statistic is the minimum of the values above the lower one */
+        final double upper = min(values, lowerIndex + 1, to);
+        return lower + (position - Math.floor(position)) * (upper - lower);
+    }
+
+    /**
+     * Computes the median of {@code values[from, to)} by selection, as {@link #selectPercentile} with 50.
+     */
+    public static double selectMedian(final double[] values, final int from, final int to) {
+        return selectPercentile(values, from, to, 50);
+    }
+
+    /**
+     * Computes the two-sample Hodges-Lehmann estimator, the median of the differences {@code x[i] - y[j]} over all
+     * pairs, with the same estimate as {@link org.apache.commons.math3.stat.descriptive.rank.Median} applied to those
+     * differences.
+     *
+     * <p>
+     *     The differences are never materialized.  They form a matrix whose rows and columns are sorted, in which the
+     *     order statistics are found by randomized selection (Monahan, 1984): a pivot is drawn among the remaining
+     *     candidates, the differences below it are counted by walking the staircase boundary of each row in
+     *     {@code O(n + m)} and the candidates on the wrong side of it are discarded.  The expected running time is
+     *     {@code O((n + m) log(n m))} and the extra memory {@code O(n + m)}.
+     * </p>
+     *
+     * @param sortedX first sample, sorted in ascending order and with no NaN.  Never {@code null}
+     * @param sortedY second sample, sorted in ascending order and with no NaN.  Never {@code null}
+     * @return NaN if either sample is empty
+     */
+    public static double hodgesLehmannShift(final double[] sortedX, final double[] sortedY) {
+        Utils.nonNull(sortedX);
+        Utils.nonNull(sortedY);
+        final long count = (long) sortedX.length * sortedY.length;
+        if (count == 0) {
+            return Double.NaN;
+        }
+        final SortedDifferences differences = new SortedDifferences(sortedX, sortedY);
+        if (count % 2 == 1) {
+            return differences.select((count + 1) / 2);
+        }
+        final double lower = differences.select(count / 2);
+        final double upper = differences.select(count / 2 + 1);
+        return lower + 0.5 * (upper - lower);
+    }
+
+    /**
+     * Implicit matrix of the differences {@code x[i] - y[m - 1 - j]}, which is ascending along both rows and columns.
+     */
+    private static final class SortedDifferences {
+        /* when no more candidates than this are left, they are sorted explicitly */
+        private static final int MINIMUM_CANDIDATES_FOR_PIVOTING = 64;
+
+        private final double[] x;
+        private final double[] y;
+        private final int m;
+        private final Random random = new Random(13);
+
+        private SortedDifferences(final double[] x, final double[] y) {
+            this.x = x;
+            this.y = y;
+            this.m = y.length;
+        }
+
+        private double get(final int i, final int j) {
+            return x[i] - y[m - 1 - j];
+        }
+
+        /**
+         * Returns the k-th (1-based) smallest difference.
+         */
+        private double select(final long k) {
+            final int n = x.length;
+            /* candidates of row i are in [low[i], high[i]); those before low[i] are known to be smaller */
+            final int[] low = new int[n];
+            final int[] high = new int[n];
+            Arrays.fill(high, m);
+            final int[] lessThan = new int[n];
+            final int[] lessOrEqual = new int[n];
+            while (true) {
+                long candidates = 0;
+                long discardedBelow = 0;
+                for (int i = 0; i < n; i++) {
+                    candidates += high[i] - low[i];
+                    discardedBelow += low[i];
+                }
+                if (candidates <= MINIMUM_CANDIDATES_FOR_PIVOTING) {
+                    final double[] remaining = new double[(int) candidates];
+                    int index = 0;
+                    for (int i = 0; i < n; i++) {
+                        for (int j = low[i]; j < high[i]; j++) {
+                            remaining[index++] = get(i, j);
+                        }
+                    }
+                    Arrays.sort(remaining);
+                    return remaining[(int) (k - discardedBelow - 1)];
+                }
+                final double pivot = drawCandidate(low, high, (long) (random.nextDouble() * candidates));
+                countBelow(pivot, false, lessThan);
+                countBelow(pivot, true, lessOrEqual);
+                long totalLessThan = 0;
+                long totalLessOrEqual = 0;
+                for (int i = 0; i < n; i++) {
+                    totalLessThan += lessThan[i];
+                    totalLessOrEqual += lessOrEqual[i];
+                }
+                if (k <= totalLessThan) {
+                    for (int i = 0; i < n; i++) {
+                        high[i] = Math.min(high[i], lessThan[i]);
+                    }
+                } else if (k > totalLessOrEqual) {
+                    for (int i = 0; i < n; i++) {
+                        low[i] = Math.max(low[i], lessOrEqual[i]);
+                    }
+                } else {
+                    return pivot;
+                }
+            }
+        }
+
+        private double drawCandidate(final int[] low, final int[] high, final long rank) {
+            long remaining = rank;
+            for (int i = 0; i < low.length; i++) {
+                final int rowCandidates = high[i] - low[i];
+                if (remaining < rowCandidates) {
+                    return get(i, low[i] + (int) remaining);
+                }
+                remaining -= rowCandidates;
+            }
+            throw new IllegalStateException("the candidate rank is out of range");
+        }
+
+        /**
+         * Counts, for each row, the differences less than (or, if {@code inclusive}, equal to) the pivot; as rows
+         * are ascending these form a prefix of each row, which becomes shorter as the row index grows.
+         */
+        private void countBelow(final double pivot, final boolean inclusive, final int[] result) {
+            int j = m;
+            for (int i = 0; i < x.length; i++) {
+                while (j > 0 && (inclusive ? get(i, j - 1) > pivot : get(i, j - 1) >= pivot)) {
+                    j--;
+                }
+                result[i] = j;
+            }
+        }
+    }
+
+    /**
+     * Reorders {@code values[from, to)} so that the value at {@code index} is the one that would be there if the
+     * range were sorted, with no greater values before it and no lesser values after it (quickselect).
+     */
+    private static double select(final double[] values, final int from, final int to, final int index) {
+        int low = from;
+        int high = to - 1;
+        while (low < high) {
+            final double pivot = medianOfThree(values[low], values[(low + high) >>> 1], values[high]);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    final double swap = values[i];
+                    values[i++] = values[j];
+                    values[j--] = swap;
+                }
+            }
+            if (index <= j) {
+                high = j;
+            } else if (index >= i) {
+                low = i;
+            } else {
+                break;
+            }
+        }
+        return values[index];
+    }
+
+    private static double medianOfThree(final double a, final double b, final double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static double min(final double[] values, final int from, final int to) {
+        double result = values[from];
+        for (int i = from + 1; i < to; i++) {
+            result = Math.min(result, values[i]);
+        }
+        return result;
+    }
+
+    private static double max(final double[] values, final int from, final int to) {
+        double result = values[from];
+        for (int i = from + 1; i < to; i++) {
+            result = Math.max(result, values[i]);
+        }
+        return result;
+    }
 }
@@ -36,6 +36,21 @@ public final class HDF5File implements AutoCloseable {
      */
     private static final String PATH_ELEMENT_SEPARATOR = "/";
 
+    /**
+     * Maximum number of elements in the intermediate buffers used to read or write blocks of a matrix.
+     */
+    private static final int MAXIMUM_BLOCK_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Target number of elements in each chunk of chunked matrix data-sets (1 MB of doubles).
+     */
+    private static final int TARGET_CHUNK_SIZE = 1 << 17;
+
+    /**
+     * Maximum deflate compression level supported by HDF5.
+     */
+    public static final int MAXIMUM_COMPRESSION_LEVEL = 9;
+
     /**
      * Reference to the underlying HDF5 file location.
      */
@@ -236,20 +251,238 @@ public final class HDF5File implements AutoCloseable {
                 throw new GATKException(
                         String.format("expected 2D double matrix for data-set '%s' in '%s' but it is %d-D", fullPath, file, dimensions.length));
             }
-            final int rows = (int) dimensions[0];
-            final int columns = (int) dimensions[1];
-            final int size = rows * columns;
-            final double[] values = new double[size];
-            final int code = H5.H5Dread_double(dataSetId, typeId, HDF5Constants.H5S_ALL, HDF5Constants.H5S_ALL, HDF5Constants.H5P_DEFAULT, values);
-            if (code < 0) {
-                throw new GATKException(String.format("getting double matrix from data-set '%s' in file '%s' resulted in code: %d", fullPath, file, code));
+            return readRows(fullPath, dataSetId, typeId, dimensions, 0, checkArrayLength(fullPath, dimensions[0], "rows"));
+        });
+    }
+
+    /**
+     * Returns the dimensions of a data-set.
+     *
+     * @param fullPath the path.
+     * @return never {@code null}, one element per dimension.
+     * @throws IllegalArgumentException if {@code fullPath} is {@code null}.
+     * @throws GATKException if {@code fullPath} does not exist or is not a data-set.
+     */
+    public long[] readDimensions(final String fullPath) {
+        return readDataset(fullPath, (dataSetId, typeId, dimensions) -> dimensions);
+    }
+
+    /**
+     * Reads consecutive rows of a double matrix without reading the rest of it.
+     *
+     * @param fullPath the path.
+     * @param firstRow the index of the first row to read.
+     * @param rowCount the number of rows to read.
+     * @return never {@code null}, a {@code rowCount x columns} array.
+     * @throws IllegalArgumentException if {@code fullPath} is {@code null} or the requested rows are out of range.
+     * @throws GATKException if {@code fullPath} does not exist, contains the wrong data type (non-double) or
+     *    its dimension is not 2.
+     */
+    public double[][] readDoubleMatrixRows(final String fullPath, final long firstRow, final int rowCount) {
+        return readDataset(fullPath, (dataSetId, typeId, dimensions) -> {
+            checkMatrixBlock(fullPath, dimensions, 0, firstRow, rowCount);
+            return readRows(fullPath, dataSetId, typeId, dimensions, firstRow, rowCount);
+        });
+    }
+
+    /**
+     * Reads consecutive columns of a double matrix without reading the rest of it.
+     *
+     * @param fullPath the path.
+     * @param firstColumn the index of the first column to read.
+     * @param columnCount the number of columns to read.
+     * @return never {@code null}, a {@code rows x columnCount} array.
+     * @throws IllegalArgumentException if {@code fullPath} is {@code null} or the requested columns are out of range.
+     * @throws GATKException if {@code fullPath} does not exist, contains the wrong data type (non-double) or
+     *    its dimension is not 2.
+     */
+    public double[][] readDoubleMatrixColumns(final String fullPath, final long firstColumn, final int columnCount) {
+        return readDataset(fullPath, (dataSetId, typeId, dimensions) -> {
+            checkMatrixBlock(fullPath, dimensions, 1, firstColumn, columnCount);
+            return readColumns(fullPath, dataSetId, typeId, dimensions, firstColumn, columnCount);
+        });
+    }
+
+    /**
+     * Iterates over a double matrix in blocks of consecutive rows, so that it can be processed without holding all of
+     * it in memory.
+     *
+     * @param fullPath the path.
+     * @param blockRowCount the number of rows in each block; the last block may have fewer.
+     * @return never {@code null}, an iterator over {@code blockRowCount x columns} arrays.
+     * @throws IllegalArgumentException if {@code fullPath} is {@code null} or {@code blockRowCount} is not positive.
+     * @throws GATKException if {@code fullPath} does not exist or its dimension is not 2.
+     */
+    public Iterator<double[][]> readDoubleMatrixRowBlocks(final String fullPath, final int blockRowCount) {
+        Utils.validateArg(blockRowCount > 0, "the number of rows in a block must be positive");
+        final long rows = readMatrixDimensions(fullPath)[0];
+        return new BlockIterator(rows, blockRowCount, (first, count) -> readDoubleMatrixRows(fullPath, first, count));
+    }
+
+    /**
+     * Iterates over a double matrix in blocks of consecutive columns, so that it can be processed without holding all
+     * of it in memory.
+     *
+     * @param fullPath the path.
+     * @param blockColumnCount the number of columns in each block; the last block may have fewer.
+     * @return never {@code null}, an iterator over {@code rows x blockColumnCount} arrays.
+     * @throws IllegalArgumentException if {@code fullPath} is {@code null} or {@code blockColumnCount} is not positive.
+     * @throws GATKException if {@code fullPath} does not exist or its dimension is not 2.
+     */
+    public Iterator<double[][]> readDoubleMatrixColumnBlocks(final String fullPath, final int blockColumnCount) {
+        Utils.validateArg(blockColumnCount > 0, "the number of columns in a block must be positive");
+        final long columns = readMatrixDimensions(fullPath)[1];
+        return new BlockIterator(columns, blockColumnCount, (first, count) -> readDoubleMatrixColumns(fullPath, first, count));
+    }
+
+    /**
+     * Iterator over consecutive blocks of rows or columns of a matrix.
+     */
+    private static final class BlockIterator implements Iterator<double[][]> {
+
+        @FunctionalInterface
+        private interface BlockReader {
+            double[][] read(long first, int count);
+        }
+
+        private final long total;
+        private final int blockSize;
+        private final BlockReader reader;
+        private long next = 0;
+
+        private BlockIterator(final long total, final int blockSize, final BlockReader reader) {
+            this.total = total;
+            this.blockSize = blockSize;
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < total;
+        }
+
+        @Override
+        public double[][] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
-            final double[][] result = new double[rows][columns];
-            for (int i = 0; i < result.length; i++) {
-                System.arraycopy(values, i * columns, result[i], 0, columns);
+            final int count = (int) Math.min(blockSize, total - next);
+            final double[][] result = reader.read(next, count);
+            next += count;
+            return result;
+        }
+    }
+
+    /**
+     * Reads the dimensions of a matrix data-set, checking that it is 2-D.
+     */
+    private long[] readMatrixDimensions(final String fullPath) {
+        final long[] dimensions = readDimensions(fullPath);
+        if (dimensions.length != 2) {
+            throw new GATKException(
+                    String.format("expected 2D double matrix for data-set '%s' in '%s' but it is %d-D", fullPath, file, dimensions.length));
+        }
+        return dimensions;
+    }
+
+    /**
+     * Checks that a block of rows ({@code axis == 0}) or columns ({@code axis == 1}) lies within a matrix data-set.
+     */
+    private void checkMatrixBlock(final String fullPath, final long[] dimensions, final int axis, final long first, final long count) {
+        if (dimensions.length != 2) {
+            throw new GATKException(
+                    String.format("expected 2D double matrix for data-set '%s' in '%s' but it is %d-D", fullPath, file, dimensions.length));
+        }
+        if (first < 0 || count < 0 || first + count > dimensions[axis]) {
+            final String what = axis == 0 ? "rows" : "columns";
+            throw new IllegalArgumentException(String.format("%s [%d, %d) are out of range for data-set '%s' in '%s' with %d %s",
+                    what, first, first + count, fullPath, file, dimensions[axis], what));
+        }
+    }
+
+    /**
+     * Checks that a data-set dimension can be the length of a Java array.
+     */
+    private int checkArrayLength(final String fullPath, final long dimension, final String what) {
+        if (dimension > Integer.MAX_VALUE) {
+            throw new GATKException(String.format("data-set '%s' in '%s' has too many %s to be held in an array: %d", fullPath, file, what, dimension));
+        }
+        return (int) dimension;
+    }
+
+    /**
+     * Reads rows of a matrix data-set, a bounded number of elements at a time so that no full-size intermediate copy is made.
+     */
+    private double[][] readRows(final String fullPath, final int dataSetId, final int typeId, final long[] dimensions,
+                                final long firstRow, final int rowCount) throws HDF5Exception {
+        final int columns = checkArrayLength(fullPath, dimensions[1], "columns");
+        final double[][] result = new double[rowCount][columns];
+        if (columns == 0) {
+            return result;
+        }
+        final int rowsPerRead = Math.max(1, Math.min(rowCount, MAXIMUM_BLOCK_BUFFER_SIZE / columns));
+        final double[] buffer = new double[rowsPerRead * columns];
+        for (int start = 0; start < rowCount; start += rowsPerRead) {
+            final int count = Math.min(rowsPerRead, rowCount - start);
+            readBlock(fullPath, dataSetId, typeId, new long[] {firstRow + start, 0}, new long[] {count, columns}, buffer);
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(buffer, i * columns, result[start + i], 0, columns);
             }
+        }
+        return result;
+    }
+
+    /**
+     * Reads columns of a matrix data-set, a bounded number of elements at a time so that no full-size intermediate copy is made.
+     */
+    private double[][] readColumns(final String fullPath, final int dataSetId, final int typeId, final long[] dimensions,
+                                   final long firstColumn, final int columnCount) throws HDF5Exception {
+        final int rows = checkArrayLength(fullPath, dimensions[0], "rows");
+        final double[][] result = new double[rows][columnCount];
+        if (columnCount == 0) {
             return result;
-        });
+        }
+        final int rowsPerRead = Math.max(1, Math.min(rows, MAXIMUM_BLOCK_BUFFER_SIZE / columnCount));
+        final double[] buffer = new double[rowsPerRead * columnCount];
+        for (int start = 0; start < rows; start += rowsPerRead) {
+            final int count = Math.min(rowsPerRead, rows - start);
+            readBlock(fullPath, dataSetId, typeId, new long[] {start, firstColumn}, new long[] {count, columnCount}, buffer);
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(buffer, i * columnCount, result[start + i], 0, columnCount);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads a rectangular block (hyperslab) of a matrix data-set into a row-major buffer.
+     */
+    private void readBlock(final String fullPath, final int dataSetId, final int typeId, final long[] start, final long[] count,
+                           final double[] buffer) throws HDF5Exception {
+        int fileSpaceId = -1;
+        int memorySpaceId = -1;
+        try {
+            fileSpaceId = openDataSpace(fullPath, dataSetId);
+            checkH5Result(H5.H5Sselect_hyperslab(fileSpaceId, HDF5Constants.H5S_SELECT_SET, start, null, count, null),
+                    () -> String.format("problem selecting a block of data-set '%s' in file '%s'", fullPath, file));
+            memorySpaceId = checkH5Result(H5.H5Screate_simple(count.length, count, null),
+                    () -> String.format("problem creating the memory space to read data-set '%s' in file '%s'", fullPath, file));
+            final int code = H5.H5Dread_double(dataSetId, typeId, memorySpaceId, fileSpaceId, HDF5Constants.H5P_DEFAULT, buffer);
+            if (code < 0) {
+                throw new GATKException(String.format("getting double matrix block from data-set '%s' in file '%s' resulted in code: %d", fullPath, file, code));
+            }
+        } finally {
+            closeDataSpaces(fileSpaceId, memorySpaceId);
+        }
+    }
+
+    /**
+     * Closes data-spaces, ignoring those with id {@code -1} (never opened) and any error.
+     */
+    private void closeDataSpaces(final int ... dataSpaceIds) {
+        for (final int dataSpaceId : dataSpaceIds) {
+            if (dataSpaceId != -1) { try { H5.H5Sclose(dataSpaceId); } catch (final HDF5LibraryException ex) {} }
+        }
     }
 
     /**
@@ -291,11 +524,11 @@ public final class HDF5File implements AutoCloseable {
          * @param typeId the target data-set's type.
          * @param dimensions the dimensions of the data-set.
          * @return might be {@code null}, is up to the implementation.
-         * @throws HDF5LibraryException forwarding errors originated in the HD5F library.
+         * @throws HDF5Exception forwarding errors originated in the HD5F library.
          * @throws GATKException for any exceptional circumstance that make the returned value invalid (e.g. unexpected
          *  data-type or dimensions).
          */
-        T apply(int dataSetId, int typeId, long[] dimensions) throws HDF5LibraryException;
+        T apply(int dataSetId, int typeId, long[] dimensions) throws HDF5Exception;
     }
 
     /**
@@ -316,7 +549,7 @@ public final class HDF5File implements AutoCloseable {
      * </p>
      *
      * <p>
-     *     The data-reading lambda may throw exceptions such as {@link GATKException} or {@link HDF5LibraryException}
+     *     The data-reading lambda may throw exceptions such as {@link GATKException} or {@link HDF5Exception}
      *     to indicate issues with
      *     the data (wrong type, wrong dimensions, etc.).
      * </p>
@@ -345,7 +578,7 @@ public final class HDF5File implements AutoCloseable {
             final long[] dimensions = new long[dimNum];
             H5.H5Sget_simple_extent_dims(dataSpaceId, dimensions, null);
             return datasetReader.apply(dataSetId,typeId,dimensions);
-        } catch (final HDF5LibraryException ex) {
+        } catch (final HDF5Exception ex) {
             throw new GATKException(String.format("exception when reading from data-set '%s' in file '%s': %s", fullPath, file, ex.getMessage()), ex);
         } finally {
             closeResources(fullPath, typeId, dataSetId, dataSpaceId);
@@ -753,6 +986,250 @@ public final class HDF5File implements AutoCloseable {
         return makeDataset(fullPath, basicTypeCopyIdSupplier(HDF5Constants.H5T_INTEL_F64), dimensions, value);
     }
 
+    /**
+     * Creates or overwrites a double 2D matrix at particular position in the underlying HDF5 file using chunked,
+     * optionally compressed, storage.
+     *
+     * <p>
+     *     The matrix is written in blocks of rows, so no full-size copy of it is made.
+     * </p>
+     *
+     * @param fullPath the path where to place the double matrix in the HDF5 file.
+     * @param value the matrix to write.
+     * @param compressionLevel the deflate compression level, from 0 (no compression) to {@link #MAXIMUM_COMPRESSION_LEVEL}.
+     * @return true iff the new data-set had to be created (none existed for that path).
+     * @throws IllegalArgumentException if {@code fullPath} or {@code value} is {@code null}, {@code value} is empty or
+     *    not rectangular, or {@code compressionLevel} is out of range.
+     * @throws GATKException if there was any low-level issue accessing the HDF5 file or an existing data-set at
+     *    {@code fullPath} has different dimensions.
+     */
+    public boolean makeDoubleMatrix(final String fullPath, final double[][] value, final int compressionLevel) {
+        Utils.nonNull(value, "the value provided cannot be null");
+        if (value.length == 0) {
+            throw new IllegalArgumentException("the value provided must have some elements");
+        }
+        final int columnCount = Utils.nonNull(value[0], "the input value array cannot contain nulls: 0").length;
+        final boolean created = makeChunkedDoubleMatrix(fullPath, value.length, columnCount, compressionLevel);
+        writeDoubleMatrixRows(fullPath, 0, value);
+        return created;
+    }
+
+    /**
+     * Creates a double 2D matrix data-set with chunked, optionally compressed, storage without writing its content.
+     *
+     * <p>
+     *     The content is then written in blocks of rows or columns using {@link #writeDoubleMatrixRows},
+     *     {@link #writeDoubleMatrixColumns}, {@link #writeDoubleMatrixRowBlocks} or {@link #writeDoubleMatrixColumnBlocks},
+     *     so that matrices larger than the available memory, or with more than 2<sup>31</sup> elements, can be stored.
+     *     Chunks are roughly square so that both row and column blocks can be accessed efficiently.
+     * </p>
+     *
+     * @param fullPath the path where to place the double matrix in the HDF5 file.
+     * @param rows the number of rows.
+     * @param columns the number of columns.
+     * @param compressionLevel the deflate compression level, from 0 (no compression) to {@link #MAXIMUM_COMPRESSION_LEVEL}.
+     * @return true iff the new data-set had to be created; an existing data-set with the same dimensions is reused.
+     * @throws IllegalArgumentException if {@code fullPath} is {@code null}, either dimension is not positive or
+     *    {@code compressionLevel} is out of range.
+     * @throws GATKException if there was any low-level issue accessing the HDF5 file or an existing data-set at
+     *    {@code fullPath} has different dimensions.
+     */
+    public boolean makeChunkedDoubleMatrix(final String fullPath, final long rows, final long columns, final int compressionLevel) {
+        Utils.nonNull(fullPath, "the path cannot be null");
+        Utils.validateArg(rows > 0 && columns > 0, "the matrix must have some elements");
+        Utils.validateArg(compressionLevel >= 0 && compressionLevel <= MAXIMUM_COMPRESSION_LEVEL,
+                "the compression level must be between 0 and " + MAXIMUM_COMPRESSION_LEVEL);
+        checkCanWrite();
+        final long[] dimensions = new long[] { rows, columns };
+        final Pair<String, String> pathAndName = splitPathInParentAndName(fullPath);
+        makeGroup(pathAndName.getLeft());
+        final int childType = findOutGroupChildType(pathAndName.getLeft(), pathAndName.getRight(), fullPath);
+        if (childType == HDF5Constants.H5G_DATASET) {
+            if (!Arrays.equals(readDimensions(fullPath), dimensions)) {
+                throw new GATKException(String.format("problem trying to write dataset %s in file %s: the existing dataset has different dimensions", fullPath, file));
+            }
+            return false;
+        } else if (childType != HDF5Constants.H5G_UNKNOWN) {
+            throw new GATKException(String.format("problem trying to write dataset %s in file %s: there is a collision with a non-dataset object", fullPath, file));
+        }
+        final Supplier<String> errorMessage = () -> String.format("problem trying to create dataset %s in file %s", fullPath, file);
+        int typeId = -1;
+        int dataSpaceId = -1;
+        int propertiesId = -1;
+        int dataSetId = -1;
+        try {
+            typeId = basicTypeCopyIdSupplier(HDF5Constants.H5T_INTEL_F64).getAsInt();
+            dataSpaceId = checkH5Result(H5.H5Screate_simple(dimensions.length, dimensions, null), errorMessage);
+            propertiesId = checkH5Result(H5.H5Pcreate(HDF5Constants.H5P_DATASET_CREATE), errorMessage);
+            checkH5Result(H5.H5Pset_chunk(propertiesId, dimensions.length, chunkDimensions(rows, columns)), errorMessage);
+            if (compressionLevel > 0) {
+                if (H5.H5Zfilter_avail(HDF5Constants.H5Z_FILTER_DEFLATE) <= 0) {
+                    throw new GATKException(String.format("problem trying to create dataset %s in file %s: deflate compression is not available", fullPath, file));
+                }
+                checkH5Result(H5.H5Pset_deflate(propertiesId, compressionLevel), errorMessage);
+            }
+            dataSetId = checkH5Result(H5.H5Dcreate(fileId, fullPath, typeId, dataSpaceId,
+                    HDF5Constants.H5P_DEFAULT, propertiesId, HDF5Constants.H5P_DEFAULT), errorMessage);
+            return true;
+        } catch (final HDF5Exception ex) {
+            throw new GATKException(errorMessage.get(), ex);
+        } finally {
+            if (dataSetId != -1) { try { H5.H5Dclose(dataSetId); } catch (final HDF5LibraryException ex) {} }
+            if (propertiesId != -1) { try { H5.H5Pclose(propertiesId); } catch (final HDF5LibraryException ex) {} }
+            closeDataSpaces(dataSpaceId);
+            if (typeId != -1) { try { H5.H5Tclose(typeId); } catch (final HDF5LibraryException ex) {} }
+        }
+    }
+
+    /**
+     * Roughly square chunk dimensions with about {@link #TARGET_CHUNK_SIZE} elements, capped by the matrix dimensions.
+     */
+    private static long[] chunkDimensions(final long rows, final long columns) {
+        final long side = (long) Math.sqrt(TARGET_CHUNK_SIZE);
+        long chunkColumns = Math.min(columns, side);
+        final long chunkRows = Math.min(rows, Math.max(1, TARGET_CHUNK_SIZE / chunkColumns));
+        chunkColumns = Math.min(columns, Math.max(chunkColumns, TARGET_CHUNK_SIZE / chunkRows));
+        return new long[] { chunkRows, chunkColumns };
+    }
+
+    /**
+     * Writes consecutive rows of an existing double matrix data-set, leaving the rest of it untouched.
+     *
+     * @param fullPath the path of the data-set.
+     * @param firstRow the index of the first row to write.
+     * @param values the rows to write; each must have as many elements as the data-set has columns.
+     * @throws IllegalArgumentException if {@code fullPath} or {@code values} is {@code null}, {@code values} has the wrong
+     *    number of columns or the rows are out of range.
+     * @throws GATKException if {@code fullPath} does not exist, is not a double matrix or there was any low-level issue.
+     */
+    public void writeDoubleMatrixRows(final String fullPath, final long firstRow, final double[][] values) {
+        writeMatrixBlock(fullPath, 0, firstRow, values);
+    }
+
+    /**
+     * Writes consecutive columns of an existing double matrix data-set, leaving the rest of it untouched.
+     *
+     * @param fullPath the path of the data-set.
+     * @param firstColumn the index of the first column to write.
+     * @param values a {@code rows x columnCount} array with the columns to write.
+     * @throws IllegalArgumentException if {@code fullPath} or {@code values} is {@code null}, {@code values} has the wrong
+     *    number of rows or the columns are out of range.
+     * @throws GATKException if {@code fullPath} does not exist, is not a double matrix or there was any low-level issue.
+     */
+    public void writeDoubleMatrixColumns(final String fullPath, final long firstColumn, final double[][] values) {
+        writeMatrixBlock(fullPath, 1, firstColumn, values);
+    }
+
+    /**
+     * Writes the whole content of an existing double matrix data-set from consecutive blocks of rows.
+     *
+     * @param fullPath the path of the data-set.
+     * @param blocks blocks of rows, from the first row onwards, as in {@link #writeDoubleMatrixRows}.
+     * @throws IllegalArgumentException if {@code fullPath} or {@code blocks} is {@code null} or the blocks do not add up to
+     *    the dimensions of the data-set.
+     * @throws GATKException if {@code fullPath} does not exist, is not a double matrix or there was any low-level issue.
+     */
+    public void writeDoubleMatrixRowBlocks(final String fullPath, final Iterator<double[][]> blocks) {
+        writeMatrixBlocks(fullPath, 0, blocks);
+    }
+
+    /**
+     * Writes the whole content of an existing double matrix data-set from consecutive blocks of columns.
+     *
+     * @param fullPath the path of the data-set.
+     * @param blocks blocks of columns, from the first column onwards, as in {@link #writeDoubleMatrixColumns}.
+     * @throws IllegalArgumentException if {@code fullPath} or {@code blocks} is {@code null} or the blocks do not add up to
+     *    the dimensions of the data-set.
+     * @throws GATKException if {@code fullPath} does not exist, is not a double matrix or there was any low-level issue.
+     */
+    public void writeDoubleMatrixColumnBlocks(final String fullPath, final Iterator<double[][]> blocks) {
+        writeMatrixBlocks(fullPath, 1, blocks);
+    }
+
+    private void writeMatrixBlocks(final String fullPath, final int axis, final Iterator<double[][]> blocks) {
+        Utils.nonNull(blocks, "the blocks cannot be null");
+        final long total = readMatrixDimensions(fullPath)[axis];
+        long next = 0;
+        while (blocks.hasNext()) {
+            final double[][] block = Utils.nonNull(blocks.next(), "the blocks cannot contain nulls");
+            writeMatrixBlock(fullPath, axis, next, block);
+            next += axis == 0 ? block.length : (block.length == 0 ? 0 : block[0].length);
+        }
+        if (next != total) {
+            throw new IllegalArgumentException(String.format("the blocks provided cover %d of the %d %s of data-set '%s'",
+                    next, total, axis == 0 ? "rows" : "columns", fullPath));
+        }
+    }
+
+    /**
+     * Writes a block of rows ({@code axis == 0}) or columns ({@code axis == 1}) of a matrix data-set, a bounded number
+     * of elements at a time.
+     */
+    private void writeMatrixBlock(final String fullPath, final int axis, final long first, final double[][] values) {
+        Utils.nonNull(fullPath, "the path cannot be null");
+        Utils.nonNull(values, "the value provided cannot be null");
+        checkCanWrite();
+        checkIsOpen();
+        int dataSetId = -1;
+        int typeId = -1;
+        try {
+            dataSetId = openDataset(fullPath);
+            typeId = openType(fullPath, dataSetId);
+            final long[] dimensions = readDimensions(fullPath);
+            final int rowCount = axis == 0 ? values.length : checkArrayLength(fullPath, dimensions[0], "rows");
+            final int columnCount = axis == 1 ? (values.length == 0 ? 0 : Utils.nonNull(values[0], "the input value array cannot contain nulls: 0").length)
+                    : checkArrayLength(fullPath, dimensions[1], "columns");
+            checkMatrixBlock(fullPath, dimensions, axis, first, axis == 0 ? rowCount : columnCount);
+            if (values.length != rowCount) {
+                throw new IllegalArgumentException(String.format("expected %d rows to write to data-set '%s' but there are %d", rowCount, fullPath, values.length));
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (Utils.nonNull(values[i], "some row data is null: " + i).length != columnCount) {
+                    throw new IllegalArgumentException("some rows in the input value matrix has different number of elements");
+                }
+            }
+            if (rowCount == 0 || columnCount == 0) {
+                return;
+            }
+            final long firstRow = axis == 0 ? first : 0;
+            final long firstColumn = axis == 1 ? first : 0;
+            final int rowsPerWrite = Math.max(1, Math.min(rowCount, MAXIMUM_BLOCK_BUFFER_SIZE / columnCount));
+            final double[] buffer = new double[rowsPerWrite * columnCount];
+            for (int start = 0; start < rowCount; start += rowsPerWrite) {
+                final int count = Math.min(rowsPerWrite, rowCount - start);
+                for (int i = 0; i < count; i++) {
+                    System.arraycopy(values[start + i], 0, buffer, i * columnCount, columnCount);
+                }
+                writeBlock(fullPath, dataSetId, typeId, new long[] {firstRow + start, firstColumn}, new long[] {count, columnCount}, buffer);
+            }
+        } catch (final HDF5Exception ex) {
+            throw new GATKException(String.format("problem writing dataset %s in file %s", fullPath, file), ex);
+        } finally {
+            if (typeId != -1) try { H5.H5Tclose(typeId); } catch (final HDF5LibraryException ex) {}
+            if (dataSetId != -1) try { H5.H5Dclose(dataSetId);} catch (final HDF5LibraryException ex) {}
+        }
+    }
+
+    /**
+     * Writes a rectangular block (hyperslab) of a matrix data-set from a row-major buffer.
+     */
+    private void writeBlock(final String fullPath, final int dataSetId, final int typeId, final long[] start, final long[] count,
+                            final double[] buffer) throws HDF5Exception {
+        int fileSpaceId = -1;
+        int memorySpaceId = -1;
+        try {
+            fileSpaceId = openDataSpace(fullPath, dataSetId);
+            checkH5Result(H5.H5Sselect_hyperslab(fileSpaceId, HDF5Constants.H5S_SELECT_SET, start, null, count, null),
+                    () -> String.format("problem selecting a block of data-set '%s' in file '%s'", fullPath, file));
+            memorySpaceId = checkH5Result(H5.H5Screate_simple(count.length, count, null),
+                    () -> String.format("problem creating the memory space to write data-set '%s' in file '%s'", fullPath, file));
+            checkH5Result(H5.H5Dwrite_double(dataSetId, typeId, memorySpaceId, fileSpaceId, HDF5Constants.H5P_DEFAULT, buffer),
+                    () -> String.format("error trying to write a block of data-set %s in file %s", fullPath, file));
+        } finally {
+            closeDataSpaces(fileSpaceId, memorySpaceId);
+        }
+    }
+
     /**
      * Creates or overwrites a string matrix dataset given its full path within the HDF5 file and values.
      *
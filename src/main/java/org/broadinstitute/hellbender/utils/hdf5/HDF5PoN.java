@@ -88,6 +88,19 @@ public final class HDF5PoN implements PoN {
     private final static String TARGET_VARIANCES_GROUP_NAME = "/target_variances";
     private final static String TARGET_VARIANCES_PATH = TARGET_VARIANCES_GROUP_NAME + "/block0_values";
 
+    private final static String PROVENANCE_GROUP_NAME = "/provenance";
+    private final static String PROVENANCE_PATH = PROVENANCE_GROUP_NAME + "/values";
+
+    /**
+     * Deflate compression level of the matrix data-sets; 0 (none) as panel values compress poorly.
+     */
+    private final static int MATRIX_COMPRESSION_LEVEL = 0;
+
+    /**
+     * Approximate number of matrix elements read or written at a time.
+     */
+    private final static int READ_WRITE_BLOCK_SIZE = 1 << 20;
+
     private final HDF5File file;
 
     private final Lazy<List<String>> targetNames;
@@ -291,22 +304,20 @@ public final class HDF5PoN implements PoN {
     public RealMatrix getNormalizedCounts() {
         // Note the check uses sample names as number of rows and targets as number of columns.  This is due to the
         //  transposed storage.  The returned matrix is still targets (rows) x samples (columns).
-        return readMatrixAndCheckDimensions(NORMALIZED_PCOV_PATH, sampleNames.get().size(), targetNames.get().size())
-                .transpose();
+        return readMatrixAndCheckDimensions(NORMALIZED_PCOV_PATH, sampleNames.get().size(), targetNames.get().size(), true);
     }
 
     @Override
     public RealMatrix getLogNormalizedCounts() {
         // Note the check uses sample names as number of rows and targets as number of columns.  This is due to the
         //  transposed storage.  The returned matrix is still targets (rows) x samples (columns).
-        return readMatrixAndCheckDimensions(LOG_NORMALS_PATH, getPanelSampleNames().size(), getPanelTargetNames().size())
-                .transpose();
+        return readMatrixAndCheckDimensions(LOG_NORMALS_PATH, getPanelSampleNames().size(), getPanelTargetNames().size(), true);
     }
 
     @Override
     public RealMatrix getLogNormalizedPInverseCounts() {
         return readMatrixAndCheckDimensions(LOG_NORMALS_PINV_PATH, getPanelSampleNames().size(),
-                getPanelTargetNames().size());
+                getPanelTargetNames().size(), false);
     }
 
     @Override
@@ -315,14 +326,14 @@ public final class HDF5PoN implements PoN {
         //  transposed storage.  The returned matrix is still targets (rows) x pseudo-samples (columns).
         return readMatrixAndCheckDimensions(REDUCED_PON_PATH,
                 c -> c <= getPanelSampleNames().size(),
-                r -> r == reducedTargetNames.get().size()).transpose();
+                r -> r == reducedTargetNames.get().size(), true);
     }
 
     @Override
     public RealMatrix getReducedPanelPInverseCounts() {
         return readMatrixAndCheckDimensions(REDUCED_PON_PINV_PATH,
                 r -> r <= getPanelSampleNames().size(),
-                c -> c == reducedTargetNames.get().size());
+                c -> c == reducedTargetNames.get().size(), false);
     }
 
     @Override
@@ -330,6 +341,18 @@ public final class HDF5PoN implements PoN {
         return file.readDouble(VERSION_PATH);
     }
 
+    /**
+     * Returns the provenance records of this PoN, one per creation or update step, oldest first.
+     *
+     * @return never {@code null}, but empty if the PoN predates provenance records.
+     */
+    public List<String> getProvenance() {
+        if (!file.isPresent(PROVENANCE_PATH)) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(file.readStringArray(PROVENANCE_PATH)));
+    }
+
     /**
      * Reads a matrix from the underlying PoN file.
      * @param fullPath the full path to the matrix data-set within the HDF5 file.
@@ -341,42 +364,100 @@ public final class HDF5PoN implements PoN {
         return new Array2DRowRealMatrix(values,false);
     }
 
+    /**
+     * Reads the transpose of a matrix from the underlying PoN file, in blocks of rows so that no full-size
+     * intermediate copy is made.
+     * @param fullPath the full path to the matrix data-set within the HDF5 file.
+     * @param dimensions the dimensions of the data-set.
+     * @return never {@code null}.
+     * @throws GATKException if the matrix does not exist or any other HDF5 level error occurred.
+     */
+    private RealMatrix readTransposedMatrix(final String fullPath, final long[] dimensions) {
+        final int rows = (int) dimensions[0];
+        final int columns = (int) dimensions[1];
+        final double[][] result = new double[columns][rows];
+        final Iterator<double[][]> blocks = file.readDoubleMatrixRowBlocks(fullPath, Math.max(1, READ_WRITE_BLOCK_SIZE / Math.max(1, columns)));
+        int row = 0;
+        while (blocks.hasNext()) {
+            for (final double[] values : blocks.next()) {
+                for (int column = 0; column < columns; column++) {
+                    result[column][row] = values[column];
+                }
+                row++;
+            }
+        }
+        return new Array2DRowRealMatrix(result, false);
+    }
+
     /**
      * Reads a matrix from the underlying PoN file and check its dimensions.
      * @param fullPath the target data-set full path within the HDF5 file.
      * @param expectedRowCount the expected number of rows.
      * @param expectedColumnCount the expected number of columns.
+     * @param transpose whether to return the transpose of the matrix with the expected dimensions.
      * @return GATKException if the result matrix dimensions do not match the expectations or
      *  any other cause as described in {@link #readMatrix(String)}.
      */
-    private RealMatrix readMatrixAndCheckDimensions(final String fullPath, final int expectedRowCount, final int expectedColumnCount) {
-        return readMatrixAndCheckDimensions(fullPath, r -> r == expectedRowCount, c -> c == expectedColumnCount);
+    private RealMatrix readMatrixAndCheckDimensions(final String fullPath, final int expectedRowCount, final int expectedColumnCount, final boolean transpose) {
+        return readMatrixAndCheckDimensions(fullPath, r -> r == expectedRowCount, c -> c == expectedColumnCount, transpose);
     }
 
     /**
      * Reads a matrix from the underlying PoN file and check its dimensions.
+     *
+     * <p>
+     *     The data-set may be stored either with the expected dimensions or transposed; either way the matrix is read
+     *     directly in the requested orientation.
+     * </p>
      * @param fullPath the target data-set full path within the HDF5 file.
      * @param expectedRowCount a predicate that returns true iff its argument is an expected number of rows.
      * @param expectedColumnCount a predicate that returns true iff its argument is an expected number of columns.
+     * @param transpose whether to return the transpose of the matrix with the expected dimensions.
      * @return GATKException if the result matrix dimensions do not match the expectations or
      *  any other cause as described in {@link #readMatrix(String)}.
      */
-    private RealMatrix readMatrixAndCheckDimensions(final String fullPath, final IntPredicate expectedRowCount, final IntPredicate expectedColumnCount) {
-        final RealMatrix result = readMatrix(fullPath);
-        if (expectedRowCount.test(result.getRowDimension())
-                && expectedColumnCount.test(result.getColumnDimension())) {
-            return result;
+    private RealMatrix readMatrixAndCheckDimensions(final String fullPath, final IntPredicate expectedRowCount, final IntPredicate expectedColumnCount,
+                                                    final boolean transpose) {
+        final long[] dimensions = file.readDimensions(fullPath);
+        if (dimensions.length != 2) {
+            throw new GATKException(String.format("expected 2D double matrix for data-set '%s' in '%s' but it is %d-D",
+                    fullPath, file.getFile(), dimensions.length));
         }
-        final RealMatrix transpose = result.transpose();
-        if (!expectedRowCount.test(transpose.getRowDimension())) {
-            throw new GATKException(String.format("wrong number of rows in '%s' matrix from file '%s': %d",
-                    fullPath, file.getFile(), result.getRowDimension()));
+        final int rows = (int) dimensions[0];
+        final int columns = (int) dimensions[1];
+        final boolean storedWithExpectedDimensions = expectedRowCount.test(rows) && expectedColumnCount.test(columns);
+        if (!storedWithExpectedDimensions) {
+            if (!expectedRowCount.test(columns)) {
+                throw new GATKException(String.format("wrong number of rows in '%s' matrix from file '%s': %d",
+                        fullPath, file.getFile(), rows));
+            }
+            if (!expectedColumnCount.test(rows)) {
+                throw new GATKException(String.format("wrong number of columns in '%s' from file '%s': %d",
+                        fullPath, file.getFile(), columns));
+            }
         }
-        if (!expectedColumnCount.test(transpose.getColumnDimension())) {
-            throw new GATKException(String.format("wrong number of columns in '%s' from file '%s': %d",
-                    fullPath, file.getFile(), result.getColumnDimension()));
+        return storedWithExpectedDimensions == transpose ? readTransposedMatrix(fullPath, dimensions) : readMatrix(fullPath);
+    }
+
+    /**
+     * Writes a matrix, or its transpose, as a chunked data-set in blocks of rows so that no full-size copy is made.
+     * @param fullPath the target data-set full path within the HDF5 file.
+     * @param matrix the matrix to write.
+     * @param transpose whether to store the transpose of {@code matrix}.
+     */
+    private void writeMatrix(final String fullPath, final RealMatrix matrix, final boolean transpose) {
+        Utils.nonNull(matrix);
+        final int rows = transpose ? matrix.getColumnDimension() : matrix.getRowDimension();
+        final int columns = transpose ? matrix.getRowDimension() : matrix.getColumnDimension();
+        file.makeChunkedDoubleMatrix(fullPath, rows, columns, MATRIX_COMPRESSION_LEVEL);
+        final int blockRows = Math.max(1, READ_WRITE_BLOCK_SIZE / Math.max(1, columns));
+        for (int start = 0; start < rows; start += blockRows) {
+            final double[][] block = new double[Math.min(blockRows, rows - start)][];
+            for (int i = 0; i < block.length; i++) {
+                block[i] = transpose ? matrix.getColumn(start + i) : matrix.getRow(start + i);
+            }
+            file.writeDoubleMatrixRows(fullPath, start, block);
         }
-        return transpose;
     }
 
     /// Write interface:
@@ -430,27 +511,27 @@ public final class HDF5PoN implements PoN {
      * @param normalizedCounts the normalized read counts.
      */
     public void setNormalCounts(final RealMatrix normalizedCounts) {
-        file.makeDoubleMatrix(NORMALIZED_PCOV_PATH, normalizedCounts.transpose().getData());
+        writeMatrix(NORMALIZED_PCOV_PATH, normalizedCounts, true);
     }
 
     public void setReducedPanelCounts(final RealMatrix counts) {
         Utils.nonNull(counts);
-        file.makeDoubleMatrix(REDUCED_PON_PATH, counts.transpose().getData());
+        writeMatrix(REDUCED_PON_PATH, counts, true);
     }
 
     public void setLogNormalPInverseCounts(final RealMatrix counts) {
         Utils.nonNull(counts);
-        file.makeDoubleMatrix(LOG_NORMALS_PINV_PATH, counts.getData());
+        writeMatrix(LOG_NORMALS_PINV_PATH, counts, false);
     }
 
     public void setLogNormalCounts(final RealMatrix counts) {
         Utils.nonNull(counts);
-        file.makeDoubleMatrix(LOG_NORMALS_PATH, counts.transpose().getData());
+        writeMatrix(LOG_NORMALS_PATH, counts, true);
     }
 
     public void setReducedPanelPInverseCounts(final RealMatrix counts) {
         Utils.nonNull(counts);
-        file.makeDoubleMatrix(REDUCED_PON_PINV_PATH, counts.getData());
+        writeMatrix(REDUCED_PON_PINV_PATH, counts, false);
     }
 
     public void setPanelSampleNames(final List<String> names) {
@@ -494,6 +575,17 @@ public final class HDF5PoN implements PoN {
         setTargetValues(targets, RAW_TARGETS_PATH);
     }
 
+    /**
+     * Changes the provenance records of the PoN.
+     *
+     * @param records the new provenance records, oldest first.
+     * @throws IllegalArgumentException if {@code records} is {@code null} or contains any {@code null}.
+     */
+    public void setProvenance(final List<String> records) {
+        checkNameList(records);
+        file.makeStringArray(PROVENANCE_PATH, records.toArray(new String[records.size()]));
+    }
+
     public void setTargetVariances(final double[] targetVariances) {
         if (targetVariances.length != panelTargets.get().size()) {
             throw new GATKException(String.format("Writing wrong number of elements in the target variances attempted to file '%s': %d != %d", file.getFile(), targetVariances.length, panelTargets.get().size()));
@@ -6,8 +6,13 @@ import com.google.common.primitives.Doubles;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.DecompositionSolver;
 import org.apache.commons.math3.linear.DefaultRealMatrixChangingVisitor;
+import org.apache.commons.math3.linear.LUDecomposition;
 import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
 import org.apache.commons.math3.stat.descriptive.rank.Median;
 import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.apache.logging.log4j.LogManager;
@@ -16,6 +21,7 @@ import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.exome.*;
+import org.broadinstitute.hellbender.utils.GATKProtectedMathUtils;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.MatrixSummaryUtils;
 import org.broadinstitute.hellbender.utils.Utils;
@@ -45,6 +51,15 @@ final public class HDF5PoNCreator {
 
     private static final Logger logger = LogManager.getLogger(HDF5PoNCreator.class);
 
+    /**
+     * Random vectors used to check the pseudo-inverse of the rescaled panel log-normals on updates.
+     */
+    private static final int LEFT_INVERSE_CHECK_VECTORS = 3;
+
+    private static final long LEFT_INVERSE_CHECK_SEED = 1337L;
+
+    private static final double LEFT_INVERSE_CHECK_TOLERANCE = 1e-6;
+
     private HDF5PoNCreator() {}
 
     /**
@@ -117,24 +132,13 @@ final public class HDF5PoNCreator {
             writeTargetFactorNormalizeReadCountsAndTargetFactors(outputHDF5Filename, readCounts, targetFactors, initialTargets.targets());
         }
 
-        // Remove column and targets with too many zeros and targets with extreme median coverage:
+        // Remove column and targets with too many zeros and targets with extreme median coverage, impute zero counts
+        // to the target medians, truncate extreme counts, normalize by the column median, log scale and center.
+        // The stages are fused so that the matrix is not copied at each one.
         final int maximumColumnZerosCount = calculateMaximumZerosCount(readCounts.targets().size(), maximumPercentageZeroColumns);
         final int maximumTargetZerosCount = calculateMaximumZerosCount(readCounts.columnNames().size(), maximumPercentageZeroTargets);
-        readCounts = removeColumnsWithTooManyZeros(readCounts, maximumColumnZerosCount, logger);
-        readCounts = removeTargetsWithTooManyZeros(readCounts, maximumTargetZerosCount, logger);
-        readCounts = removeColumnsWithExtremeMedianCounts(readCounts, extremeColumnMedianCountPercentileThreshold, logger);
-
-        // Impute zero counts to be same as the median for the same target.
-        // This happens in-place.
-        imputeZeroCountsAsTargetMedians(readCounts, logger);
-
-        // Truncate extreme count values.
-        // This happens in-place.
-        truncateExtremeCounts(readCounts, countTruncatePercentile, logger);
-
-        // Normalize by the median and log scale the read counts.
-        normalizeAndLogReadCounts(readCounts, logger);
-        subtractBGSCenter(readCounts, logger);
+        readCounts = PanelCountsPreprocessor.preprocess(readCounts, maximumColumnZerosCount, maximumTargetZerosCount,
+                extremeColumnMedianCountPercentileThreshold, countTruncatePercentile, logger);
 
         final ReductionResult reduction = calculateReducedPanelAndPInverses(readCounts, numberOfEigenSamples, logger, ctx);
 
@@ -232,6 +236,544 @@ final public class HDF5PoNCreator {
         }
     }
 
+    /**
+     * Creates a new PoN file by adding the samples in a read-count file to an existing PoN, without re-creating the
+     * PoN from the read counts of all samples.
+     *
+     * <p>
+     *     The update is incremental:
+     *     <ul>
+     *         <li>the targets and panel targets of the input PoN are kept;</li>
+     *         <li>the target factors and normalized counts are updated exactly over old and new samples, the raw
+     *         counts of the old samples being recovered from their normalized counts and the old target factors;</li>
+     *         <li>new samples go through the same pre-processing steps as on creation, but the column filters, zero
+     *         imputation and count truncation use thresholds estimated from the existing panel samples;</li>
+     *         <li>the existing panel samples' log-normals are rescaled to the updated target factors and re-normalized
+     *         by their column medians rather than re-processed from their counts, and the whole panel is then
+     *         centered anew;</li>
+     *         <li>the log-normals pseudo-inverse is updated exactly, by the Woodbury identity for the rescaling and
+     *         the block pseudo-inverse of appended columns, and the reduced panel by projecting the updated panel
+     *         onto the span of the existing eigen-samples, the rescaling and the new samples
+     *         (see {@link #updateReducedPanelAndPInverses}).</li>
+     *     </ul>
+     *     Hence the result is close to, but not the same as, a PoN created from scratch on all the samples.
+     * </p>
+     *
+     * @param ctx  {@code null} is okay if not using Spark
+     * @param inputHDF5Filename  input PoN file
+     * @param newPCovFile  pcov file from {@link CombineReadCounts} with the new samples as columns.  Never {@code null}
+     * @param numberOfEigenSamples  desired number of eigen samples in the output PoN.  If missing, the input PoN's is kept.
+     * @param outputHDF5Filename  output PoN file
+     * @param extremeColumnMedianCountPercentileThreshold  Percentile of the panel's column medians used to exclude new samples with extreme median counts
+     * @param countTruncatePercentile  percentile (on either end) of the panel's counts used to truncate extreme new count values
+     * @param maximumPercentageZeroColumns  the maximum percentage of zero values in a new sample (across panel targets) before it is left out of the panel.
+     */
+    public static void updatePoN(final JavaSparkContext ctx, final File inputHDF5Filename, final File newPCovFile,
+                                 final OptionalInt numberOfEigenSamples, final File outputHDF5Filename,
+                                 final double extremeColumnMedianCountPercentileThreshold,
+                                 final double countTruncatePercentile, final double maximumPercentageZeroColumns) {
+        if (inputHDF5Filename.getAbsolutePath().equals(outputHDF5Filename.getAbsolutePath())) {
+            throw new UserException.CouldNotCreateOutputFile(outputHDF5Filename, "Cannot create a new PoN overwriting an old one.");
+        }
+        Utils.nonNull(newPCovFile);
+        ParamUtils.inRange(maximumPercentageZeroColumns, 0, 100, "Maximum percentage of zero-columns must be in range [0, 100]");
+        ParamUtils.inRange(extremeColumnMedianCountPercentileThreshold, 0, 50, "Extreme column median percentile threshold must be in range [0, 50]");
+        ParamUtils.inRange(countTruncatePercentile, 0, 50, "Count truncation threshold percentile threshold must be in range [0, 50]");
+
+        Utils.regularReadableUserFile(inputHDF5Filename);
+
+        try (final HDF5File ponReader = new HDF5File(inputHDF5Filename, HDF5File.OpenMode.READ_ONLY)) {
+            final HDF5PoN inputPoN = new HDF5PoN(ponReader);
+            final ReadCountCollection newReadCounts = readReadCountsFromFile(newPCovFile, new HashedListTargetCollection<>(inputPoN.getRawTargets()));
+            updatePoNGivenReadCountCollection(ctx, inputPoN, newReadCounts, numberOfEigenSamples, outputHDF5Filename,
+                    extremeColumnMedianCountPercentileThreshold, countTruncatePercentile, maximumPercentageZeroColumns,
+                    inputHDF5Filename.getName(), newPCovFile.getName());
+        }
+    }
+
+    /**
+     * See {@link HDF5PoNCreator#updatePoN(JavaSparkContext, File, File, OptionalInt, File, double, double, double)}
+     *  This method simply takes in a PoN and a ReadCountCollection instead of files.
+     */
+    @VisibleForTesting
+    static void updatePoNGivenReadCountCollection(final JavaSparkContext ctx, final HDF5PoN inputPoN,
+                                                  final ReadCountCollection newReadCounts,
+                                                  final OptionalInt numberOfEigenSamples, final File outputHDF5Filename,
+                                                  final double extremeColumnMedianCountPercentileThreshold,
+                                                  final double countTruncatePercentile, final double maximumPercentageZeroColumns,
+                                                  final String inputPoNName, final String newReadCountsName) {
+        final List<String> sampleNames = inputPoN.getSampleNames();
+        final Set<String> sampleNameSet = new HashSet<>(sampleNames);
+        final List<String> repeatedSampleNames = newReadCounts.columnNames().stream()
+                .filter(sampleNameSet::contains).collect(Collectors.toList());
+        if (!repeatedSampleNames.isEmpty()) {
+            throw new UserException.BadInput("Some of the new samples are already in the PoN: " + String.join(", ", repeatedSampleNames));
+        }
+
+        // Update the target factors and the coverage profile over old and new samples:
+        final List<Target> targets = inputPoN.getTargets();
+        final RealMatrix newCounts = countsForTargets(newReadCounts, targets);
+        final RealMatrix oldNormalizedCounts = inputPoN.getNormalizedCounts();
+        final double[] oldTargetFactors = inputPoN.getTargetFactors().getColumn(0);
+        final int oldColumnCount = oldNormalizedCounts.getColumnDimension();
+        final int newColumnCount = newCounts.getColumnDimension();
+        final RealMatrix counts = new Array2DRowRealMatrix(targets.size(), oldColumnCount + newColumnCount);
+        counts.setSubMatrix(oldNormalizedCounts.getData(), 0, 0);
+        counts.setSubMatrix(newCounts.getData(), 0, oldColumnCount);
+        counts.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
+            @Override
+            public double visit(final int row, final int column, final double value) {
+                return column < oldColumnCount ? value * oldTargetFactors[row] : value;
+            }
+        });
+        final List<String> allSampleNames = new ArrayList<>(sampleNames);
+        allSampleNames.addAll(newReadCounts.columnNames());
+        final ReadCountCollection coverageProfile = new ReadCountCollection(targets, allSampleNames, counts);
+        final double[] targetFactors = calculateTargetFactors(coverageProfile);
+        normalizeReadCountsByTargetFactors(coverageProfile, targetFactors);
+        logger.info(String.format("Target factors and normalized counts updated with %d new samples", newColumnCount));
+
+        // Pre-process the new samples for the panel against the existing panel samples:
+        final List<Target> panelTargets = inputPoN.getPanelTargets();
+        final List<String> panelSampleNames = inputPoN.getPanelSampleNames();
+        final RealMatrix panelCounts = subsetCounts(coverageProfile, panelTargets, panelSampleNames);
+        final ReadCountCollection newPanelCounts = preprocessNewPanelSamples(
+                new ReadCountCollection(panelTargets, newReadCounts.columnNames(),
+                        subsetCounts(coverageProfile, panelTargets, newReadCounts.columnNames())),
+                panelCounts, extremeColumnMedianCountPercentileThreshold, countTruncatePercentile,
+                maximumPercentageZeroColumns, logger);
+        if (newPanelCounts == null) {
+            logger.warn("None of the new samples passed the panel filters; only the existing panel samples are rescaled.");
+        }
+
+        // Rescale the existing log-normals to the updated target factors and center the whole panel:
+        final RealMatrix oldLogNormals = inputPoN.getLogNormalizedCounts();
+        final double[] targetFactorLogRatios = panelTargetFactorLogRatios(targets, panelTargets, oldTargetFactors, targetFactors);
+        final RealMatrix logNormalCounts = new Array2DRowRealMatrix(panelTargets.size(),
+                panelSampleNames.size() + (newPanelCounts == null ? 0 : newPanelCounts.columnNames().size()));
+        logNormalCounts.setSubMatrix(oldLogNormals.getData(), 0, 0);
+        final double[] columnShifts = rescaleLogNormals(logNormalCounts, panelSampleNames.size(), targetFactorLogRatios);
+        final List<String> allPanelSampleNames = new ArrayList<>(panelSampleNames);
+        if (newPanelCounts != null) {
+            logNormalCounts.setSubMatrix(newPanelCounts.counts().getData(), 0, panelSampleNames.size());
+            allPanelSampleNames.addAll(newPanelCounts.columnNames());
+        }
+        final ReadCountCollection logNormals = new ReadCountCollection(panelTargets, allPanelSampleNames, logNormalCounts);
+        final double center = subtractBGSCenter(logNormals, logger);
+
+        // The rescaled and centered existing log-normals differ from the stored ones by (ratios) 1^T - 1 (shifts + center)^T:
+        final RealMatrix shiftLeft = new Array2DRowRealMatrix(panelTargets.size(), 2);
+        shiftLeft.setColumn(0, targetFactorLogRatios);
+        shiftLeft.setColumn(1, filledArray(panelTargets.size(), 1.0));
+        final RealMatrix shiftRight = new Array2DRowRealMatrix(panelSampleNames.size(), 2);
+        shiftRight.setColumn(0, filledArray(panelSampleNames.size(), 1.0));
+        shiftRight.setColumn(1, DoubleStream.of(columnShifts).map(shift -> -(shift + center)).toArray());
+        final ReductionResult reduction = updateReducedPanelAndPInverses(oldLogNormals, inputPoN.getLogNormalizedPInverseCounts(),
+                inputPoN.getReducedPanelCounts(), shiftLeft, shiftRight,
+                newPanelCounts == null ? null : logNormals.counts().getSubMatrix(0, panelTargets.size() - 1, panelSampleNames.size(), allPanelSampleNames.size() - 1),
+                numberOfEigenSamples, logger, ctx);
+
+        final List<String> provenance = new ArrayList<>(inputPoN.getProvenance());
+        if (provenance.isEmpty()) {
+            provenance.add(String.format("%s: created with %d samples, %d in the panel, version %s",
+                    inputPoNName, sampleNames.size(), panelSampleNames.size(), inputPoN.getVersion()));
+        }
+        provenance.add(String.format("%s: updated on %s from %s with %d samples, %d added to the panel, %d eigen samples",
+                outputHDF5Filename.getName(), new Date(), newReadCountsName, newColumnCount,
+                logNormals.columnNames().size() - panelSampleNames.size(), reduction.getReducedCounts().getColumnDimension()));
+
+        writeTargetFactorNormalizeReadCountsAndTargetFactors(outputHDF5Filename, coverageProfile, targetFactors, inputPoN.getRawTargets());
+        writeLogNormalsReducedPanel(outputHDF5Filename, logNormals, reduction, ctx);
+        try (final HDF5File file = new HDF5File(outputHDF5Filename, HDF5File.OpenMode.READ_WRITE)) {
+            logger.info("Setting provenance ...");
+            new HDF5PoN(file).setProvenance(provenance);
+        }
+    }
+
+    /**
+     * Updates the reduction of a panel with new log-normalized samples (columns).
+     *
+     * <p>
+     *     Equivalent to {@link #updateReducedPanelAndPInverses(RealMatrix, RealMatrix, RealMatrix, RealMatrix, RealMatrix, RealMatrix, OptionalInt, Logger, JavaSparkContext)}
+     *     without changes to the existing log-normals.
+     * </p>
+     */
+    @VisibleForTesting
+    static ReductionResult updateReducedPanelAndPInverses(final RealMatrix logNormals, final RealMatrix logNormalsPseudoInverse,
+                                                          final RealMatrix reducedCounts, final RealMatrix newLogNormals,
+                                                          final OptionalInt requestedNumberOfEigenSamples,
+                                                          final Logger logger, final JavaSparkContext ctx) {
+        Utils.nonNull(newLogNormals, "the new log-normals cannot be null");
+        return updateReducedPanelAndPInverses(logNormals, logNormalsPseudoInverse, reducedCounts, null, null, newLogNormals,
+                requestedNumberOfEigenSamples, logger, ctx);
+    }
+
+    /**
+     * Updates the reduction of a panel whose log-normals {@code A} change to {@code A' = A + X Y^T}, where {@code X}
+     * and {@code Y} have few columns, and get new samples {@code B} appended.
+     *
+     * <p>
+     *     With {@code G = A^T A}, {@code A'^T A' = G + E F E^T} where {@code E = [A^T X, Y]} and
+     *     {@code F = [0 I; I X^T X]}, so that by the Woodbury identity
+     *     {@code A'+ = A+ + W_Y X^T - W K^-1 (A' W)^T} with {@code W = G^-1 E = A+ A+^T E}, {@code W_Y} its last
+     *     columns and {@code K = F^-1 + E^T W}.  This holds as long as {@code A'} has full column rank; otherwise the
+     *     pseudo-inverse is calculated anew.
+     * </p>
+     * <p>
+     *     Then the pseudo-inverse of {@code [A' B]} is {@code [A'+ - D C+; C+]} with {@code D = A'+ B} and
+     *     {@code C = B - A' D}, as long as {@code C} has full column rank (i.e. the new samples add new directions to
+     *     the panel); otherwise the pseudo-inverse is calculated anew.
+     * </p>
+     * <p>
+     *     The reduced panel {@code U S} of {@code A} is updated by projection: with {@code Q} an orthonormal basis of
+     *     the span of {@code [U X B]}, the SVD {@code U' S' V'^T} of the small matrix {@code Q^T [A' B]} gives the
+     *     reduced panel {@code Q U' S'}.  The result is exact if {@code A} has no more eigen-samples than those in
+     *     the reduced panel, and otherwise it is the usual approximation of an incremental SVD (Brand, 2006).
+     * </p>
+     *
+     * @param logNormals the old log-normals, targets x samples.
+     * @param logNormalsPseudoInverse the old log-normals pseudo-inverse.
+     * @param reducedCounts the old reduced panel.
+     * @param shiftLeft the matrix {@code X}, targets x shifts, or {@code null} if the old log-normals do not change.
+     * @param shiftRight the matrix {@code Y}, samples x shifts, or {@code null} if the old log-normals do not change.
+     * @param newLogNormals the new log-normals, targets x new samples, or {@code null} if there are none.
+     * @param requestedNumberOfEigenSamples user requested number of eigen samples; if empty the old number is kept.
+     * @return never {@code null}; its singular values are those of the updated SVD only.
+     */
+    @VisibleForTesting
+    static ReductionResult updateReducedPanelAndPInverses(final RealMatrix logNormals, final RealMatrix logNormalsPseudoInverse,
+                                                          final RealMatrix reducedCounts,
+                                                          final RealMatrix shiftLeft, final RealMatrix shiftRight,
+                                                          final RealMatrix newLogNormals,
+                                                          final OptionalInt requestedNumberOfEigenSamples,
+                                                          final Logger logger, final JavaSparkContext ctx) {
+        Utils.validateArg((shiftLeft == null) == (shiftRight == null), "both or neither of the shift matrices must be provided");
+        Utils.validateArg(shiftLeft != null || newLogNormals != null, "there must be either shifts or new log-normals");
+        Utils.validateArg(newLogNormals == null || logNormals.getRowDimension() == newLogNormals.getRowDimension(), "the new log-normals must have as many targets as the old ones");
+        Utils.validateArg(shiftLeft == null || (shiftLeft.getRowDimension() == logNormals.getRowDimension()
+                && shiftRight.getRowDimension() == logNormals.getColumnDimension()
+                && shiftLeft.getColumnDimension() == shiftRight.getColumnDimension()), "the shift matrices do not match the log-normals");
+        Utils.validateArg(reducedCounts.getRowDimension() == logNormals.getRowDimension(), "the reduced panel must have as many targets as the log-normals");
+        final int targetCount = logNormals.getRowDimension();
+        final int oldColumnCount = logNormals.getColumnDimension();
+        final int newColumnCount = newLogNormals == null ? 0 : newLogNormals.getColumnDimension();
+        final int columnCount = oldColumnCount + newColumnCount;
+        final double[] oldSingularValues = columnNorms(reducedCounts);
+
+        final RealMatrix shiftedLogNormals;
+        final RealMatrix shiftedPseudoInverse;
+        if (shiftLeft == null) {
+            shiftedLogNormals = logNormals;
+            shiftedPseudoInverse = logNormalsPseudoInverse;
+        } else {
+            logger.info("Updating the log-normal counts pseudo-inverse for the rescaled panel samples ...");
+            shiftedLogNormals = logNormals.add(shiftLeft.multiply(shiftRight.transpose()));
+            shiftedPseudoInverse = shiftedPseudoInverse(logNormals, logNormalsPseudoInverse, shiftLeft, shiftRight, shiftedLogNormals, logger, ctx);
+        }
+
+        final RealMatrix allLogNormals;
+        final RealMatrix pseudoInverse;
+        if (newLogNormals == null) {
+            allLogNormals = shiftedLogNormals;
+            pseudoInverse = shiftedPseudoInverse;
+        } else {
+            logger.info("Updating the log-normal counts pseudo-inverse for the new panel samples ...");
+            allLogNormals = new Array2DRowRealMatrix(targetCount, columnCount);
+            allLogNormals.setSubMatrix(shiftedLogNormals.getData(), 0, 0);
+            allLogNormals.setSubMatrix(newLogNormals.getData(), 0, oldColumnCount);
+            final RealMatrix d = shiftedPseudoInverse.multiply(newLogNormals);
+            final RealMatrix c = newLogNormals.subtract(shiftedLogNormals.multiply(d));
+            final SVD cSVD = SVDFactory.createSVD(c, ctx);
+            final double[] cSingularValues = cSVD.getSingularValues();
+            final double scale = Math.max(DoubleStream.of(oldSingularValues).max().orElse(0), cSingularValues[0]);
+            if (cSingularValues.length == c.getColumnDimension()
+                    && cSingularValues[cSingularValues.length - 1] > Math.max(targetCount, columnCount) * scale * Math.ulp(1.0)) {
+                final RealMatrix cPseudoInverse = cSVD.getPinv();
+                pseudoInverse = new Array2DRowRealMatrix(columnCount, targetCount);
+                pseudoInverse.setSubMatrix(shiftedPseudoInverse.subtract(d.multiply(cPseudoInverse)).getData(), 0, 0);
+                pseudoInverse.setSubMatrix(cPseudoInverse.getData(), oldColumnCount, 0);
+            } else {
+                logger.warn("The new samples are nearly linear combinations of the panel samples; calculating the log-normal counts pseudo-inverse anew ...");
+                pseudoInverse = SVDFactory.createSVD(allLogNormals, ctx).getPinv();
+            }
+        }
+
+        logger.info("Updating the reduced panel ...");
+        final int oldEigenSampleCount = reducedCounts.getColumnDimension();
+        final int shiftCount = shiftLeft == null ? 0 : shiftLeft.getColumnDimension();
+        final RealMatrix span = new Array2DRowRealMatrix(targetCount, oldEigenSampleCount + shiftCount + newColumnCount);
+        span.setSubMatrix(reducedCounts.getData(), 0, 0);
+        if (shiftLeft != null) {
+            span.setSubMatrix(shiftLeft.getData(), 0, oldEigenSampleCount);
+        }
+        if (newLogNormals != null) {
+            span.setSubMatrix(newLogNormals.getData(), 0, oldEigenSampleCount + shiftCount);
+        }
+        final RealMatrix basis = SVDFactory.orthonormalizeColumns(span);
+        final SingularValueDecomposition projectionSVD = new SingularValueDecomposition(basis.transpose().multiply(allLogNormals));
+        final double[] singularValues = projectionSVD.getSingularValues();
+        final double tolerance = Math.max(targetCount, columnCount) * singularValues[0] * Math.ulp(1.0);
+        final int availableNumberOfEigenSamples = (int) DoubleStream.of(singularValues).filter(v -> v > tolerance).count();
+
+        final int numberOfEigenSamples = determineUpdatedNumberOfEigenSamples(requestedNumberOfEigenSamples, oldEigenSampleCount, availableNumberOfEigenSamples, logger);
+        logger.info(String.format("Including %d eigen samples in the updated reduced PoN", numberOfEigenSamples));
+        final RealMatrix updatedReducedCounts = basis.multiply(projectionSVD.getU().getSubMatrix(0, basis.getColumnDimension() - 1, 0, numberOfEigenSamples - 1));
+        updatedReducedCounts.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
+            @Override
+            public double visit(final int row, final int column, final double value) { return singularValues[column] * value; }
+        });
+
+        final RealMatrix reducedCountsPseudoInverse = SVDFactory.createSVD(updatedReducedCounts, ctx).getPinv();
+        return new ReductionResult(pseudoInverse, updatedReducedCounts, reducedCountsPseudoInverse, singularValues);
+    }
+
+    /**
+     * Calculates the pseudo-inverse of {@code A' = A + X Y^T} from that of {@code A} by the Woodbury identity, as
+     * described in {@link #updateReducedPanelAndPInverses(RealMatrix, RealMatrix, RealMatrix, RealMatrix, RealMatrix, RealMatrix, OptionalInt, Logger, JavaSparkContext)},
+     * or anew if {@code A} or {@code A'} is (numerically) rank deficient.
+     */
+    private static RealMatrix shiftedPseudoInverse(final RealMatrix logNormals, final RealMatrix logNormalsPseudoInverse,
+                                                   final RealMatrix shiftLeft, final RealMatrix shiftRight,
+                                                   final RealMatrix shiftedLogNormals, final Logger logger,
+                                                   final JavaSparkContext ctx) {
+        final int columnCount = logNormals.getColumnDimension();
+        final int shiftCount = shiftLeft.getColumnDimension();
+        final RealMatrix e = new Array2DRowRealMatrix(columnCount, 2 * shiftCount);
+        e.setSubMatrix(logNormals.transpose().multiply(shiftLeft).getData(), 0, 0);
+        e.setSubMatrix(shiftRight.getData(), 0, shiftCount);
+        final RealMatrix w = logNormalsPseudoInverse.multiply(logNormalsPseudoInverse.transpose().multiply(e));
+        final RealMatrix fInverse = new Array2DRowRealMatrix(2 * shiftCount, 2 * shiftCount);
+        fInverse.setSubMatrix(shiftLeft.transpose().multiply(shiftLeft).scalarMultiply(-1).getData(), 0, 0);
+        for (int i = 0; i < shiftCount; i++) {
+            fInverse.setEntry(i, shiftCount + i, 1);
+            fInverse.setEntry(shiftCount + i, i, 1);
+        }
+        final DecompositionSolver kSolver = new LUDecomposition(fInverse.add(e.transpose().multiply(w))).getSolver();
+        if (kSolver.isNonSingular()) {
+            final RealMatrix wY = w.getSubMatrix(0, columnCount - 1, shiftCount, 2 * shiftCount - 1);
+            final RealMatrix result = logNormalsPseudoInverse.add(wY.multiply(shiftLeft.transpose()))
+                    .subtract(w.multiply(kSolver.solve(shiftedLogNormals.multiply(w).transpose())));
+            if (isLeftInverse(result, shiftedLogNormals)) {
+                return result;
+            }
+        }
+        logger.warn("The panel log-normals are (nearly) rank deficient; calculating the rescaled log-normal counts pseudo-inverse anew ...");
+        return SVDFactory.createSVD(shiftedLogNormals, ctx).getPinv();
+    }
+
+    /**
+     * Checks that {@code p m x = x} for a few random vectors {@code x}, which holds for the pseudo-inverse {@code p}
+     * of a matrix {@code m} with full column rank.
+     */
+    private static boolean isLeftInverse(final RealMatrix p, final RealMatrix m) {
+        final Random rdn = new Random(LEFT_INVERSE_CHECK_SEED);
+        for (int i = 0; i < LEFT_INVERSE_CHECK_VECTORS; i++) {
+            final RealVector x = new ArrayRealVector(m.getColumnDimension());
+            for (int j = 0; j < x.getDimension(); j++) {
+                x.setEntry(j, rdn.nextGaussian());
+            }
+            if (p.operate(m.operate(x)).subtract(x).getNorm() > LEFT_INVERSE_CHECK_TOLERANCE * x.getNorm()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the number of eigen samples of an updated reduced panel.
+     *
+     * @param requestedNumberOfEigenSamples the user requested eigen values (empty means keep the current number).
+     * @param currentNumberOfEigenSamples the number of eigen samples before the update.
+     * @param availableNumberOfEigenSamples the number of eigen samples available after the update.
+     * @return always greater than 0.
+     */
+    private static int determineUpdatedNumberOfEigenSamples(final OptionalInt requestedNumberOfEigenSamples,
+                                                            final int currentNumberOfEigenSamples,
+                                                            final int availableNumberOfEigenSamples, final Logger logger) {
+        final int numberOfEigenSamples = requestedNumberOfEigenSamples.orElse(currentNumberOfEigenSamples);
+        if (numberOfEigenSamples > availableNumberOfEigenSamples) {
+            logger.warn(String.format("The number of requested eigen samples (%d) is larger than the number available to an incremental update (%d), thus we will have to use the latter.", numberOfEigenSamples, availableNumberOfEigenSamples));
+            return availableNumberOfEigenSamples;
+        }
+        return numberOfEigenSamples;
+    }
+
+    /**
+     * Pre-processes the normalized counts of new samples for their inclusion in an existing panel.
+     *
+     * <p>
+     *     This applies the same steps as {@link #createPoNGivenReadCountCollection} after the target factor
+     *     normalization, except that the column median extreme filter, the zero imputation and the count truncation
+     *     use thresholds calculated on the existing panel's normalized counts.
+     * </p>
+     *
+     * @param newCounts the new samples' normalized counts over the panel targets.
+     * @param panelCounts the panel samples' normalized counts over the panel targets.
+     * @return {@code null} if no new sample passes the filters, otherwise the log-normals of those that do.
+     */
+    @VisibleForTesting
+    static ReadCountCollection preprocessNewPanelSamples(final ReadCountCollection newCounts, final RealMatrix panelCounts,
+                                                         final double extremeColumnMedianCountPercentileThreshold,
+                                                         final double countTruncatePercentile,
+                                                         final double maximumPercentageZeroColumns, final Logger logger) {
+        final RealMatrix counts = newCounts.counts();
+        final int targetCount = counts.getRowDimension();
+        final Median medianCalculator = new Median();
+
+        // Remove columns with too many zeros and columns with extreme median coverage:
+        final int maximumColumnZerosCount = calculateMaximumZerosCount(targetCount, maximumPercentageZeroColumns);
+        final double[] panelColumnMedians = MatrixSummaryUtils.getColumnMedians(panelCounts);
+        final double bottomExtremeThreshold = new Percentile(extremeColumnMedianCountPercentileThreshold).evaluate(panelColumnMedians);
+        final double topExtremeThreshold = new Percentile(100 - extremeColumnMedianCountPercentileThreshold).evaluate(panelColumnMedians);
+        final Set<String> columnsToKeep = new LinkedHashSet<>();
+        for (int i = 0; i < counts.getColumnDimension(); i++) {
+            final double[] column = counts.getColumn(i);
+            final double median = medianCalculator.evaluate(column);
+            if (countZeroes(column) > maximumColumnZerosCount) {
+                logger.info(String.format("New sample %s is left out of the panel as it has too many zeros (> %d of %d)",
+                        newCounts.columnNames().get(i), maximumColumnZerosCount, targetCount));
+            } else if (median < bottomExtremeThreshold || median > topExtremeThreshold) {
+                logger.info(String.format("New sample %s is left out of the panel as its median count %.10f is outside the panel's non-extreme range [%.10f, %.10f]",
+                        newCounts.columnNames().get(i), median, bottomExtremeThreshold, topExtremeThreshold));
+            } else {
+                columnsToKeep.add(newCounts.columnNames().get(i));
+            }
+        }
+        if (columnsToKeep.isEmpty()) {
+            return null;
+        }
+        final ReadCountCollection result = columnsToKeep.size() == counts.getColumnDimension() ? newCounts : newCounts.subsetColumns(columnsToKeep);
+
+        // Impute zero counts to the panel's target medians and truncate to the panel's extreme count values:
+        final double[] panelTargetMedians = IntStream.range(0, targetCount)
+                .mapToDouble(t -> medianCalculator.evaluate(
+                        DoubleStream.of(panelCounts.getRow(t)).filter(c -> c != 0.0).toArray()))
+                .toArray();
+        final double[] panelValues = new double[panelCounts.getRowDimension() * panelCounts.getColumnDimension()];
+        for (int t = 0, index = 0; t < targetCount; t++) {
+            for (final double value : panelCounts.getRow(t)) {
+                panelValues[index++] = value != 0 ? value : panelTargetMedians[t];
+            }
+        }
+        final double bottomPercentileThreshold = new Percentile(countTruncatePercentile).evaluate(panelValues);
+        final double topPercentileThreshold = new Percentile(100.0 - countTruncatePercentile).evaluate(panelValues);
+        result.counts().walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
+            @Override
+            public double visit(final int row, final int column, final double value) {
+                final double imputed = value != 0 ? value : panelTargetMedians[row];
+                return Math.min(topPercentileThreshold, Math.max(bottomPercentileThreshold, imputed));
+            }
+        });
+
+        // Normalize by the median and log scale the read counts; centering is left to the caller, over the whole panel.
+        normalizeAndLogReadCounts(result, logger);
+        return result;
+    }
+
+    /**
+     * Returns {@code log2(oldTargetFactor / newTargetFactor)} for each panel target, that is the shift of its
+     * log-normal counts due to the update of the target factors.
+     */
+    private static double[] panelTargetFactorLogRatios(final List<Target> targets, final List<Target> panelTargets,
+                                                       final double[] oldTargetFactors, final double[] newTargetFactors) {
+        final Map<String, Integer> rowByTargetName = new HashMap<>(targets.size());
+        for (int i = 0; i < targets.size(); i++) {
+            rowByTargetName.put(targets.get(i).getName(), i);
+        }
+        return panelTargets.stream()
+                .mapToInt(target -> rowByTargetName.get(target.getName()))
+                .mapToDouble(row -> Math.log(oldTargetFactors[row] / newTargetFactors[row]) * INV_LN_2)
+                .toArray();
+    }
+
+    /**
+     * Rescales existing log-normals in-place to updated target factors: adds the target's log-ratio to each value
+     * and re-normalizes each column by its median.
+     *
+     * @param logNormals the log-normals; only its first {@code columnCount} columns are rescaled.
+     * @param columnCount number of columns to rescale.
+     * @param targetFactorLogRatios as returned by {@link #panelTargetFactorLogRatios}.
+     * @return the median subtracted from each column.
+     */
+    private static double[] rescaleLogNormals(final RealMatrix logNormals, final int columnCount, final double[] targetFactorLogRatios) {
+        final Median medianCalculator = new Median();
+        final double[] medians = new double[columnCount];
+        for (int j = 0; j < columnCount; j++) {
+            final double[] column = logNormals.getColumn(j);
+            for (int i = 0; i < column.length; i++) {
+                column[i] += targetFactorLogRatios[i];
+            }
+            medians[j] = medianCalculator.evaluate(column);
+            for (int i = 0; i < column.length; i++) {
+                column[i] -= medians[j];
+            }
+            logNormals.setColumn(j, column);
+        }
+        return medians;
+    }
+
+    private static double[] filledArray(final int length, final double value) {
+        final double[] result = new double[length];
+        Arrays.fill(result, value);
+        return result;
+    }
+
+    /**
+     * Returns the counts for the given targets, in that order.
+     *
+     * @throws UserException.BadInput if any of the targets is missing.
+     */
+    private static RealMatrix countsForTargets(final ReadCountCollection readCounts, final List<Target> targets) {
+        final Map<String, Integer> rowByTargetName = new HashMap<>(readCounts.targets().size());
+        for (int i = 0; i < readCounts.targets().size(); i++) {
+            rowByTargetName.put(readCounts.targets().get(i).getName(), i);
+        }
+        final RealMatrix counts = readCounts.counts();
+        final RealMatrix result = new Array2DRowRealMatrix(targets.size(), counts.getColumnDimension());
+        for (int i = 0; i < targets.size(); i++) {
+            final Integer row = rowByTargetName.get(targets.get(i).getName());
+            if (row == null) {
+                throw new UserException.BadInput("The new read counts lack a target in the PoN: " + targets.get(i).getName());
+            }
+            result.setRow(i, counts.getRow(row));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the counts for the given targets and columns, in that order.
+     */
+    private static RealMatrix subsetCounts(final ReadCountCollection readCounts, final List<Target> targets, final List<String> columnNames) {
+        final Map<String, Integer> columnByName = new HashMap<>(readCounts.columnNames().size());
+        for (int i = 0; i < readCounts.columnNames().size(); i++) {
+            columnByName.put(readCounts.columnNames().get(i), i);
+        }
+        final int[] columns = columnNames.stream().mapToInt(name -> {
+            final Integer column = columnByName.get(name);
+            if (column == null) {
+                throw new GATKException("Unknown column: " + name);
+            }
+            return column;
+        }).toArray();
+        final RealMatrix targetCounts = countsForTargets(readCounts, targets);
+        final RealMatrix result = new Array2DRowRealMatrix(targets.size(), columns.length);
+        for (int i = 0; i < targets.size(); i++) {
+            for (int j = 0; j < columns.length; j++) {
+                result.setEntry(i, j, targetCounts.getEntry(i, columns[j]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the Euclidean norm of each column; for a reduced panel {@code U S} these are the singular values.
+     */
+    private static double[] columnNorms(final RealMatrix m) {
+        return IntStream.range(0, m.getColumnDimension())
+                .mapToDouble(j -> m.getColumnVector(j).getNorm())
+                .toArray();
+    }
+
     /**
      * SVD and Pseudo inverse calculation.
      *
@@ -651,7 +1193,12 @@ final public class HDF5PoNCreator {
      * @return never {@code null}, with as many elements as targets in {@code readCounts}.
      */
     private static double[] calculateTargetFactors(final ReadCountCollection readCounts) {
-        return MatrixSummaryUtils.getRowMedians(readCounts.counts());
+        final RealMatrix counts = readCounts.counts();
+        return IntStream.range(0, counts.getRowDimension()).parallel()
+                .mapToDouble(t -> {
+                    final double[] row = counts.getRow(t);
+                    return GATKProtectedMathUtils.selectMedian(row, 0, row.length);
+                }).toArray();
     }
 
     /**
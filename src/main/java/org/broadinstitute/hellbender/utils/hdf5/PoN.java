@@ -1,10 +1,10 @@
 package org.broadinstitute.hellbender.utils.hdf5;
 
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
-import org.apache.commons.math3.linear.DefaultRealMatrixChangingVisitor;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.broadinstitute.hellbender.tools.exome.Target;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.linalg.ColumnMajorMatrix;
 
 import java.util.List;
 
@@ -261,13 +261,10 @@ public interface PoN {
         final RealMatrix normalsInverse = useReduced ? getReducedPanelPInverseCounts() : getLogNormalizedPInverseCounts();
 
         // copy case samples in order to mask targets in-place and mask (set to zero) targets with coverage below threshold
-        final RealMatrix maskedInput = input.copy();
-        maskedInput.walkInOptimizedOrder(new DefaultRealMatrixChangingVisitor() {
-            @Override
-            public double visit(final int row, final int column, final double value) { return value > targetThreshold ? value : 0; }
-        });
+        final ColumnMajorMatrix maskedInput = ColumnMajorMatrix.copyOf(input)
+                .transformInPlace(value -> value > targetThreshold ? value : 0);
 
-        return normalsInverse.multiply(maskedInput);
+        return ColumnMajorMatrix.multiply(normalsInverse, maskedInput).toRealMatrix();
     }
 
     /**
@@ -293,7 +290,7 @@ public interface PoN {
         if (normals.getColumnDimension() != betaHats.getRowDimension()) {
             throw new IllegalArgumentException(String.format("beta-hats component count (%d) does not match the number of samples in the PoN (%d)", normals.getRowDimension(), normals.getColumnDimension()));
         }
-        final RealMatrix projection = normals.multiply(betaHats);
-        return input.subtract(projection);
+        final ColumnMajorMatrix projection = ColumnMajorMatrix.multiply(normals, ColumnMajorMatrix.copyOf(betaHats));
+        return projection.subtractFrom(input);
     }
 }
\ No newline at end of file
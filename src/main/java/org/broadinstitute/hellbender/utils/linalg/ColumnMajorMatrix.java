@@ -0,0 +1,355 @@
+package org.broadinstitute.hellbender.utils.linalg;
+
+import org.apache.commons.math3.linear.AbstractRealMatrix;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Dense matrix stored in a single array in column-major order, with a cache-blocked, multi-threaded product.
+ *
+ * <p>
+ *     {@link Array2DRowRealMatrix#multiply} is single-threaded and walks the right operand across rows, which
+ *     is slow for the tall panel matrices (targets by samples) used in tangent normalization.  Here the
+ *     product is computed in blocks of the result that are processed in parallel on the common fork-join pool,
+ *     and within each block the innermost loop runs down contiguous columns of the left operand and the result.
+ * </p>
+ * <p>
+ *     Large row-major operands, like the panel matrices of a PoN, are multiplied without first copying them with
+ *     {@link #multiply(RealMatrix, ColumnMajorMatrix)}.
+ * </p>
+ */
+public final class ColumnMajorMatrix {
+
+    /* rows and columns of a block of the result computed by a single task */
+    private static final int RESULT_BLOCK_SIZE = 256;
+
+    /* inner dimension of a block of the left operand kept in cache while it is reused across result columns */
+    private static final int INNER_BLOCK_SIZE = 128;
+
+    /* rows of a row-major left operand per task, and inner dimension of the blocks of the right operand reused
+     * across them, in products with a row-major left operand */
+    private static final int ROW_MAJOR_ROW_BLOCK_SIZE = 16;
+    private static final int ROW_MAJOR_INNER_BLOCK_SIZE = 512;
+
+    /* minimum number of parallel tasks per thread of the common pool below which a product with a row-major left
+     * operand is split along its inner dimension instead of its rows */
+    private static final int MINIMUM_TASKS_PER_THREAD = 4;
+
+    private final int rows;
+    private final int columns;
+
+    /* the entry at (row, column) is at column * rows + row */
+    private final double[] data;
+
+    private ColumnMajorMatrix(final int rows, final int columns, final double[] data) {
+        this.rows = rows;
+        this.columns = columns;
+        this.data = data;
+    }
+
+    /**
+     * Creates a matrix of zeros.
+     *
+     * @param rows number of rows, 0 or greater
+     * @param columns number of columns, 0 or greater
+     */
+    public ColumnMajorMatrix(final int rows, final int columns) {
+        this(rows, columns, new double[checkedSize(rows, columns)]);
+    }
+
+    private static int checkedSize(final int rows, final int columns) {
+        Utils.validateArg(rows >= 0 && columns >= 0, "The dimensions of a matrix cannot be negative.");
+        Utils.validateArg((long) rows * columns <= Integer.MAX_VALUE, "The matrix is too large.");
+        return rows * columns;
+    }
+
+    /**
+     * Copies a matrix.
+     *
+     * @param matrix the matrix to copy.  Never {@code null}
+     * @return never {@code null}
+     */
+    public static ColumnMajorMatrix copyOf(final RealMatrix matrix) {
+        Utils.nonNull(matrix, "The matrix to copy cannot be null.");
+        final int rows = matrix.getRowDimension();
+        final int columns = matrix.getColumnDimension();
+        final double[] data = new double[checkedSize(rows, columns)];
+        IntStream.range(0, rows).parallel().forEach(i -> {
+            final double[] row = matrix.getRow(i);
+            for (int j = 0; j < columns; j++) {
+                data[j * rows + i] = row[j];
+            }
+        });
+        return new ColumnMajorMatrix(rows, columns, data);
+    }
+
+    public int getRowDimension() {
+        return rows;
+    }
+
+    public int getColumnDimension() {
+        return columns;
+    }
+
+    public double getEntry(final int row, final int column) {
+        return data[column * rows + row];
+    }
+
+    /**
+     * Applies a function to every entry of this matrix in place.
+     *
+     * @param function the function to apply.  Never {@code null}
+     * @return this matrix
+     */
+    public ColumnMajorMatrix transformInPlace(final DoubleUnaryOperator function) {
+        Utils.nonNull(function, "The function cannot be null.");
+        IntStream.range(0, columns).parallel().forEach(j -> {
+            for (int index = j * rows; index < (j + 1) * rows; index++) {
+                data[index] = function.applyAsDouble(data[index]);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Returns the product of this matrix and another.
+     *
+     * @param other the right operand.  Never {@code null}
+     * @return never {@code null}, a new matrix with as many rows as this one and as many columns as {@code other}
+     * @throws IllegalArgumentException if the inner dimensions do not match
+     */
+    public ColumnMajorMatrix multiply(final ColumnMajorMatrix other) {
+        Utils.nonNull(other, "The right operand cannot be null.");
+        Utils.validateArg(columns == other.rows, String.format(
+                "The inner dimensions of the product do not match: %d x %d times %d x %d.", rows, columns, other.rows, other.columns));
+        final ColumnMajorMatrix result = new ColumnMajorMatrix(rows, other.columns);
+        final int rowBlocks = (rows + RESULT_BLOCK_SIZE - 1) / RESULT_BLOCK_SIZE;
+        final int columnBlocks = (other.columns + RESULT_BLOCK_SIZE - 1) / RESULT_BLOCK_SIZE;
+        // Each task computes a different block of the result, so they do not need to synchronize:
+        IntStream.range(0, rowBlocks * columnBlocks).parallel().forEach(block -> {
+            final int rowFrom = (block % rowBlocks) * RESULT_BLOCK_SIZE;
+            final int rowTo = Math.min(rows, rowFrom + RESULT_BLOCK_SIZE);
+            final int columnFrom = (block / rowBlocks) * RESULT_BLOCK_SIZE;
+            final int columnTo = Math.min(other.columns, columnFrom + RESULT_BLOCK_SIZE);
+            multiplyBlock(other, result, rowFrom, rowTo, columnFrom, columnTo);
+        });
+        return result;
+    }
+
+    /**
+     * Returns the product of a matrix accessed by rows, without copying it if it is an {@link Array2DRowRealMatrix},
+     * and a column-major one.
+     *
+     * <p>
+     *     Blocks of rows of the result are computed in parallel when there are enough of them to keep the threads of
+     *     the common pool busy.  Otherwise, e.g. for the beta-hats of a single sample (a few rows and one column, but
+     *     a long inner dimension), the inner dimension is split among tasks that compute partial products, which are
+     *     then summed.
+     * </p>
+     *
+     * @param left the left operand.  Never {@code null}
+     * @param right the right operand.  Never {@code null}
+     * @return never {@code null}, a new matrix with as many rows as {@code left} and as many columns as {@code right}
+     * @throws IllegalArgumentException if the inner dimensions do not match
+     */
+    public static ColumnMajorMatrix multiply(final RealMatrix left, final ColumnMajorMatrix right) {
+        Utils.nonNull(left, "The left operand cannot be null.");
+        Utils.nonNull(right, "The right operand cannot be null.");
+        final int rows = left.getRowDimension();
+        final int inner = left.getColumnDimension();
+        Utils.validateArg(inner == right.rows, String.format(
+                "The inner dimensions of the product do not match: %d x %d times %d x %d.", rows, inner, right.rows, right.columns));
+        final double[][] leftRows = left instanceof Array2DRowRealMatrix ? ((Array2DRowRealMatrix) left).getDataRef() : left.getData();
+        final ColumnMajorMatrix result = new ColumnMajorMatrix(rows, right.columns);
+        final int minimumTasks = MINIMUM_TASKS_PER_THREAD * ForkJoinPool.getCommonPoolParallelism();
+        final int rowBlocks = (rows + ROW_MAJOR_ROW_BLOCK_SIZE - 1) / ROW_MAJOR_ROW_BLOCK_SIZE;
+        if (rowBlocks >= minimumTasks) {
+            // Each task computes different rows of the result, so they do not need to synchronize:
+            IntStream.range(0, rowBlocks).parallel().forEach(block -> {
+                final int rowFrom = block * ROW_MAJOR_ROW_BLOCK_SIZE;
+                multiplyRows(leftRows, right, rowFrom, Math.min(rows, rowFrom + ROW_MAJOR_ROW_BLOCK_SIZE), 0, inner, result.data);
+            });
+        } else {
+            final int innerBlocks = Math.max(1, Math.min(minimumTasks, inner / ROW_MAJOR_INNER_BLOCK_SIZE));
+            final double[] sum = IntStream.range(0, innerBlocks).parallel().mapToObj(block -> {
+                final double[] partial = new double[result.data.length];
+                multiplyRows(leftRows, right, 0, rows, (int) ((long) block * inner / innerBlocks),
+                        (int) ((long) (block + 1) * inner / innerBlocks), partial);
+                return partial;
+            }).reduce((a, b) -> {
+                for (int index = 0; index < a.length; index++) {
+                    a[index] += b[index];
+                }
+                return a;
+            }).orElseGet(() -> new double[result.data.length]);
+            System.arraycopy(sum, 0, result.data, 0, sum.length);
+        }
+        return result;
+    }
+
+    /**
+     * Accumulates the products of rows {@code [rowFrom, rowTo)} of a row-major left operand with the columns of
+     * {@code right}, over the inner indices {@code [innerFrom, innerTo)}, into {@code target} in column-major order.
+     * The inner dimension is processed in blocks so that those of the columns of {@code right} stay in cache while
+     * they are reused across the rows.
+     */
+    private static void multiplyRows(final double[][] leftRows, final ColumnMajorMatrix right,
+                                     final int rowFrom, final int rowTo, final int innerFrom, final int innerTo,
+                                     final double[] target) {
+        final int targetRows = leftRows.length;
+        for (int blockFrom = innerFrom; blockFrom < innerTo; blockFrom += ROW_MAJOR_INNER_BLOCK_SIZE) {
+            final int blockTo = Math.min(innerTo, blockFrom + ROW_MAJOR_INNER_BLOCK_SIZE);
+            for (int i = rowFrom; i < rowTo; i++) {
+                final double[] row = leftRows[i];
+                for (int j = 0; j < right.columns; j++) {
+                    final int offset = j * right.rows;
+                    double dot = 0;
+                    for (int k = blockFrom; k < blockTo; k++) {
+                        dot += row[k] * right.data[offset + k];
+                    }
+                    target[j * targetRows + i] += dot;
+                }
+            }
+        }
+    }
+
+    /**
+     * Accumulates the block {@code [rowFrom, rowTo) x [columnFrom, columnTo)} of the product into {@code result}.
+     */
+    private void multiplyBlock(final ColumnMajorMatrix other, final ColumnMajorMatrix result,
+                               final int rowFrom, final int rowTo, final int columnFrom, final int columnTo) {
+        for (int innerFrom = 0; innerFrom < columns; innerFrom += INNER_BLOCK_SIZE) {
+            final int innerTo = Math.min(columns, innerFrom + INNER_BLOCK_SIZE);
+            for (int j = columnFrom; j < columnTo; j++) {
+                final int resultOffset = j * rows;
+                final int otherOffset = j * other.rows;
+                for (int k = innerFrom; k < innerTo; k++) {
+                    final double factor = other.data[otherOffset + k];
+                    final int offset = k * rows;
+                    for (int i = rowFrom; i < rowTo; i++) {
+                        result.data[resultOffset + i] += data[offset + i] * factor;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns {@code minuend} minus this matrix.
+     *
+     * @param minuend the matrix to subtract this one from.  Never {@code null}
+     * @return never {@code null}
+     * @throws IllegalArgumentException if the dimensions do not match
+     */
+    public RealMatrix subtractFrom(final RealMatrix minuend) {
+        Utils.nonNull(minuend, "The minuend cannot be null.");
+        Utils.validateArg(minuend.getRowDimension() == rows && minuend.getColumnDimension() == columns,
+                "The dimensions of the matrices do not match.");
+        final double[][] result = new double[rows][];
+        IntStream.range(0, rows).parallel().forEach(i -> {
+            result[i] = minuend.getRow(i);
+            for (int j = 0; j < columns; j++) {
+                result[i][j] -= data[j * rows + i];
+            }
+        });
+        return new Array2DRowRealMatrix(result, false);
+    }
+
+    /**
+     * Returns a {@link RealMatrix} backed by an array holding a matrix in column-major order, without copying it.
+     * Changes to the array are seen by the matrix and vice versa.
+     *
+     * @param rows number of rows, 0 or greater
+     * @param columns number of columns, 0 or greater
+     * @param data the entries, the one at (row, column) being at {@code column * rows + row}.  Never {@code null}
+     * @return never {@code null}
+     * @throws IllegalArgumentException if the length of {@code data} does not match the dimensions
+     */
+    public static RealMatrix wrap(final int rows, final int columns, final double[] data) {
+        Utils.nonNull(data, "The entries cannot be null.");
+        Utils.validateArg(data.length == checkedSize(rows, columns), "The number of entries does not match the dimensions.");
+        return new ColumnMajorRealMatrix(rows, columns, data);
+    }
+
+    /**
+     * {@link RealMatrix} backed by an array in column-major order.
+     */
+    private static final class ColumnMajorRealMatrix extends AbstractRealMatrix implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int rows;
+        private final int columns;
+        private final double[] data;
+
+        private ColumnMajorRealMatrix(final int rows, final int columns, final double[] data) {
+            this.rows = rows;
+            this.columns = columns;
+            this.data = data;
+        }
+
+        @Override
+        public int getRowDimension() {
+            return rows;
+        }
+
+        @Override
+        public int getColumnDimension() {
+            return columns;
+        }
+
+        @Override
+        public RealMatrix createMatrix(final int rowDimension, final int columnDimension) {
+            return new Array2DRowRealMatrix(rowDimension, columnDimension);
+        }
+
+        @Override
+        public RealMatrix copy() {
+            return new ColumnMajorRealMatrix(rows, columns, data.clone());
+        }
+
+        @Override
+        public double getEntry(final int row, final int column) {
+            checkIndices(row, column);
+            return data[column * rows + row];
+        }
+
+        @Override
+        public void setEntry(final int row, final int column, final double value) {
+            checkIndices(row, column);
+            data[column * rows + row] = value;
+        }
+
+        @Override
+        public double[] getColumn(final int column) {
+            Utils.validIndex(column, columns);
+            return Arrays.copyOfRange(data, column * rows, (column + 1) * rows);
+        }
+
+        private void checkIndices(final int row, final int column) {
+            Utils.validIndex(row, rows);
+            Utils.validIndex(column, columns);
+        }
+    }
+
+    /**
+     * Copies this matrix into a {@link RealMatrix}.
+     *
+     * @return never {@code null}
+     */
+    public RealMatrix toRealMatrix() {
+        final double[][] result = new double[rows][columns];
+        IntStream.range(0, rows).parallel().forEach(i -> {
+            for (int j = 0; j < columns; j++) {
+                result[i][j] = data[j * rows + i];
+            }
+        });
+        return new Array2DRowRealMatrix(result, false);
+    }
+}
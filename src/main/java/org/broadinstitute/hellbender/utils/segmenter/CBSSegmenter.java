@@ -0,0 +1,271 @@
+package org.broadinstitute.hellbender.utils.segmenter;
+
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.exome.ReadCountCollection;
+import org.broadinstitute.hellbender.tools.exome.ReadCountCollectionUtils;
+import org.broadinstitute.hellbender.tools.exome.SegmentTableColumn;
+import org.broadinstitute.hellbender.tools.exome.Target;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+import org.broadinstitute.hellbender.utils.tsv.TableUtils;
+import org.broadinstitute.hellbender.utils.tsv.TableWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.DoubleStream;
+
+/**
+ * Performs segmentation in-process with {@link CircularBinarySegmentation}.
+ *
+ * <p>
+ *     This takes the same parameters as {@link RCBSSegmenter}, applies the same preprocessing as CBS.R (log2
+ *     transform unless the input is already in log2 space, ordering by target end, DNAcopy's outlier smoothing) and
+ *     writes the same segment file, without requiring R.
+ * </p>
+ * <p>
+ *     It does not reproduce DNAcopy's permutations, tail probabilities or stopping boundary exactly, so it may
+ *     disagree with DNAcopy on splits whose p-value is close to alpha.  Until it does, {@link RCBSSegmenter}
+ *     remains the default of the tools.
+ * </p>
+ */
+public final class CBSSegmenter {
+
+    /**
+     * Seed of the permutations, as in CBS.R (although the random numbers differ from those of R).
+     */
+    public static final long SEED = 25;
+
+    /**
+     * Floor of the segment means in copy-ratio space, R's {@code .Machine$double.eps} as in CBS.R.
+     */
+    private static final double MINIMUM_SEGMENT_MEAN = Math.ulp(1.0);
+
+    private CBSSegmenter() {
+    }
+
+    /**
+     * Create a segmentation file using CBS.
+     *
+     * <p>https://www.bioconductor.org/packages/release/bioc/manuals/DNAcopy/man/DNAcopy.pdf</p>
+     *
+     * <p>Please see the above documentation for a more detailed description of the parameters.</p>
+     *
+     * @param sampleName Name of the sample being run through the segmenter.  Never {@code null}
+     * @param tnFile Tangent-normalized targets file.  Never {@code null}
+     * @param outputFile Full path to the outputted segment file.  Never {@code null}
+     * @param log whether the tnFile input has already been put into log2CR.  Never {@code null}
+     * @param weightFile File containing weights for each target (doubles; one per line).  Must be the same length as
+     *                   the number of targets in the tnFile.  All values must be greater than 0.
+     *                   Use {@code null} if weighting is not desired.  These values should not be log space.
+     */
+    public static void writeSegmentFile(final String sampleName, final String tnFile, final String outputFile,
+                                        final Boolean log, final File weightFile, final double alpha,
+                                        final int nperm, final RCBSSegmenter.PMethod pmethod, final int minWidth,
+                                        final int kmax, final int nmin, final double eta, final double trim,
+                                        final RCBSSegmenter.UndoSplits undoSplits, final double undoPrune, final int undoSD) {
+        Utils.nonNull(tnFile, "The targets file cannot be null.");
+        Utils.nonNull(outputFile, "The output file cannot be null.");
+        Utils.nonNull(log, "Whether the input is in log2 space cannot be null.");
+
+        final ReadCountCollection coverage;
+        try {
+            coverage = ReadCountCollectionUtils.parse(new File(tnFile));
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(new File(tnFile), e);
+        }
+
+        final double[] weights;
+        if (weightFile != null) {
+            weights = ParamUtils.readValuesFromFile(weightFile);
+
+            // Check to make sure that no weights are zero.
+            if (!DoubleStream.of(weights).allMatch(d -> d > 0 && !Double.isNaN(d) && Double.isFinite(d))) {
+                throw new GATKException("A weight for a target was zero or less, which is not allowed.  If you truly want zero, you must remove the target from consideration.");
+            }
+            if (weights.length != coverage.targets().size()) {
+                throw new UserException.BadInput(String.format("The number of weights (%d) does not match the number of targets (%d).",
+                        weights.length, coverage.targets().size()));
+            }
+        } else {
+            weights = null;
+        }
+
+        writeSegmentFile(sampleName, coverage, new File(outputFile), log, weights, alpha, nperm, pmethod, minWidth,
+                kmax, nmin, eta, trim, undoSplits, undoPrune, undoSD);
+    }
+
+    /**
+     * Write segment file with default parameters
+     *
+     * @param sampleName Name of the sample being run through the segmenter.  Never {@code null}
+     * @param tnFile Tangent-normalized targets file.  Never {@code null}
+     * @param outputFile Full path to the outputted segment file.  Never {@code null}
+     * @param log whether the tnFile input has already been put into log2CR.  Never {@code null}
+     */
+    public static void writeSegmentFile(final String sampleName, final String tnFile, final String outputFile, final Boolean log) {
+        writeSegmentFile(sampleName, tnFile, outputFile, log, null);
+    }
+
+    public static void writeSegmentFile(final String sampleName, final String tnFile, final String outputFile, final Boolean log, final File weightsFile) {
+        writeSegmentFile(sampleName, tnFile, outputFile, log, weightsFile, 0.01, 10000, RCBSSegmenter.PMethod.HYBRID, 2, 25, 200, 0.05,
+                0.025, RCBSSegmenter.UndoSplits.NONE, 0.05, 3);
+    }
+
+    /**
+     * Segments coverage that is already in memory with default parameters.
+     *
+     * @param sampleName column of {@code coverage} to segment.  Never {@code null}
+     * @param log whether the coverage has already been put into log2CR
+     */
+    public static void writeSegmentFile(final String sampleName, final ReadCountCollection coverage,
+                                        final File outputFile, final boolean log) {
+        writeSegmentFile(sampleName, coverage, outputFile, log, null, 0.01, 10000, RCBSSegmenter.PMethod.HYBRID, 2, 25,
+                200, 0.05, 0.025, RCBSSegmenter.UndoSplits.NONE, 0.05, 3);
+    }
+
+    /**
+     * Segments coverage that is already in memory.
+     *
+     * @param sampleName column of {@code coverage} to segment.  Never {@code null}
+     * @param log whether the coverage has already been put into log2CR
+     * @param weights weight of each target of {@code coverage}, all positive; {@code null} if weighting is not desired
+     */
+    public static void writeSegmentFile(final String sampleName, final ReadCountCollection coverage,
+                                        final File outputFile, final boolean log, final double[] weights,
+                                        final double alpha, final int nperm, final RCBSSegmenter.PMethod pmethod,
+                                        final int minWidth, final int kmax, final int nmin, final double eta,
+                                        final double trim, final RCBSSegmenter.UndoSplits undoSplits,
+                                        final double undoPrune, final int undoSD) {
+        Utils.nonNull(sampleName, "The sample name cannot be null.");
+        Utils.nonNull(coverage, "The coverage cannot be null.");
+        Utils.nonNull(outputFile, "The output file cannot be null.");
+        final int column = coverage.columnNames().indexOf(sampleName);
+        if (column < 0) {
+            throw new UserException.BadInput(String.format("The sample %s is not present in the coverage.", sampleName));
+        }
+        final List<Target> targets = coverage.targets();
+        Utils.validateArg(weights == null || weights.length == targets.size(), "there must be one weight per target");
+        final CircularBinarySegmentation cbs = new CircularBinarySegmentation(alpha, nperm, pmethod, minWidth, kmax,
+                nmin, eta, undoSplits, undoPrune, undoSD, SEED);
+
+        // targets with finite values by contig, ordered as in R
+        final Map<String, List<Integer>> targetIndicesByContig = new TreeMap<>();
+        for (int i = 0; i < targets.size(); i++) {
+            final double value = log ? coverage.counts().getEntry(i, column) : ParamUtils.log2(coverage.counts().getEntry(i, column));
+            if (Double.isFinite(value)) {
+                targetIndicesByContig.computeIfAbsent(targets.get(i).getContig(), contig -> new ArrayList<>()).add(i);
+            }
+        }
+        final List<List<Integer>> targetIndices = new ArrayList<>(targetIndicesByContig.values());
+        final double[][] values = new double[targetIndices.size()][];
+        final double[][] contigWeights = new double[targetIndices.size()][];
+        for (int c = 0; c < targetIndices.size(); c++) {
+            final List<Integer> indices = targetIndices.get(c);
+            indices.sort(Comparator.comparingInt(i -> targets.get(i).getEnd()));
+            values[c] = indices.stream().mapToDouble(i -> coverage.counts().getEntry(i, column)).map(v -> log ? v : ParamUtils.log2(v)).toArray();
+            contigWeights[c] = weights == null ? null : indices.stream().mapToDouble(i -> weights[i]).toArray();
+        }
+
+        final double[][] smoothed = CircularBinarySegmentation.smooth(values, trim);
+        final double trimmedSD = Math.sqrt(CircularBinarySegmentation.trimmedVariance(
+                Arrays.stream(smoothed).flatMapToDouble(Arrays::stream).toArray(), trim));
+
+        final List<Segment> segments = new ArrayList<>();
+        for (int c = 0; c < targetIndices.size(); c++) {
+            final List<Integer> indices = targetIndices.get(c);
+            final int[] lengths = cbs.segment(smoothed[c], contigWeights[c], trimmedSD);
+            final double[] means = CircularBinarySegmentation.segmentMeans(smoothed[c], contigWeights[c], lengths);
+            int start = 0;
+            for (int s = 0; s < lengths.length; s++) {
+                final Target first = targets.get(indices.get(start));
+                final Target last = targets.get(indices.get(start + lengths[s] - 1));
+                segments.add(new Segment(first.getContig(), first.getStart(), last.getEnd(), lengths[s],
+                        Math.max(MINIMUM_SEGMENT_MEAN, Math.pow(2, means[s]))));
+                start += lengths[s];
+            }
+        }
+        segments.sort((s1, s2) -> compareContigs(s1.contig, s2.contig));
+        writeSegments(outputFile, sampleName, segments);
+    }
+
+    private static final class Segment {
+        private final String contig;
+        private final int start;
+        private final int end;
+        private final int numberOfTargets;
+        private final double mean;
+
+        private Segment(final String contig, final int start, final int end, final int numberOfTargets, final double mean) {
+            this.contig = contig;
+            this.start = start;
+            this.end = end;
+            this.numberOfTargets = numberOfTargets;
+            this.mean = mean;
+        }
+    }
+
+    private static void writeSegments(final File outputFile, final String sampleName, final List<Segment> segments) {
+        try (final TableWriter<Segment> writer = TableUtils.writer(outputFile, SegmentTableColumn.MEAN_AND_NO_CALL_COLUMNS,
+                (segment, dataLine) -> dataLine.append(sampleName).append(segment.contig)
+                        .append(segment.start, segment.end, segment.numberOfTargets).append(segment.mean))) {
+            writer.writeAllRecords(segments);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(outputFile, e);
+        }
+    }
+
+    /**
+     * Compares contig names in natural order, so that numbers within names are compared by value
+     * (e.g. 2 &lt; 10 &lt; X), as the naturalsort R package used by CBS.R does.
+     */
+    static int compareContigs(final String contig1, final String contig2) {
+        int i = 0;
+        int j = 0;
+        while (i < contig1.length() && j < contig2.length()) {
+            final char c1 = contig1.charAt(i);
+            final char c2 = contig2.charAt(j);
+            if (Character.isDigit(c1) && Character.isDigit(c2)) {
+                final int end1 = digitsEnd(contig1, i);
+                final int end2 = digitsEnd(contig2, j);
+                final String digits1 = stripLeadingZeros(contig1.substring(i, end1));
+                final String digits2 = stripLeadingZeros(contig2.substring(j, end2));
+                final int result = digits1.length() != digits2.length() ? Integer.compare(digits1.length(), digits2.length())
+                        : digits1.compareTo(digits2);
+                if (result != 0) {
+                    return result;
+                }
+                i = end1;
+                j = end2;
+            } else if (c1 != c2) {
+                return Character.compare(c1, c2);
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return Integer.compare(contig1.length() - i, contig2.length() - j);
+    }
+
+    private static int digitsEnd(final String string, final int from) {
+        int end = from;
+        while (end < string.length() && Character.isDigit(string.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private static String stripLeadingZeros(final String digits) {
+        int i = 0;
+        while (i < digits.length() - 1 && digits.charAt(i) == '0') {
+            i++;
+        }
+        return digits.substring(i);
+    }
+}
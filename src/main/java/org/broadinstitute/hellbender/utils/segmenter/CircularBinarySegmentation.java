@@ -0,0 +1,861 @@
+package org.broadinstitute.hellbender.utils.segmenter;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.apache.commons.math3.special.Erf;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Circular binary segmentation (Olshen et al., 2004; Venkatraman and Olshen, 2007) of a sequence of values, as
+ * implemented by the DNAcopy R package that {@link RCBSSegmenter} calls.
+ *
+ * <p>
+ *     A segment is recursively split at the arc (a contiguous run of values, possibly wrapping around its end) that
+ *     maximizes the two-sample t-statistic between the arc and its complement, for as long as that maximum is
+ *     significant according to a permutation test.  With {@link RCBSSegmenter.PMethod#HYBRID} segments longer than
+ *     {@code nmin} use an analytic approximation of the tail probability for long arcs and permutations only for
+ *     arcs of at most {@code kmax} values.  Permutations are stopped early following the sequential boundary of
+ *     Venkatraman and Olshen, and evaluated in parallel on the common fork-join pool; each permutation has its own
+ *     random number generator seeded from the segment and the permutation index, so results do not depend on the
+ *     number of threads.
+ * </p>
+ * <p>
+ *     The maximal statistic of a segment is found by searching pairs of blocks of partial sums in decreasing order
+ *     of an upper bound on the statistic, which prunes most of the quadratic search on long segments.
+ * </p>
+ * <p>
+ *     The permutations use a different random number generator than R, and the tail probability and early-stopping
+ *     boundary are computed with closed-form approximations rather than DNAcopy's numerical tables, so p-values
+ *     differ slightly from those of DNAcopy; segmentations are identical except for splits whose p-value is very
+ *     close to {@code alpha}.  PerformSegmentationIntegrationTest bounds the number of such breakpoints against the
+ *     outputs of DNAcopy on the HCC1143 test data.
+ * </p>
+ */
+public final class CircularBinarySegmentation {
+
+    /**
+     * Defaults of DNAcopy's {@code smooth.CNA}.
+     */
+    private static final int SMOOTH_REGION = 10;
+    private static final double OUTLIER_SD_SCALE = 4;
+    private static final double SMOOTH_SD_SCALE = 2;
+
+    /**
+     * Maximal statistics (on the t scale) below which a segment is never split, and above which it is always split
+     * provided that both the arc and its complement have at least {@link #CERTAIN_SPLIT_MIN_LENGTH} values.
+     */
+    private static final double MIN_STATISTIC = 0.1;
+    private static final double CERTAIN_SPLIT_STATISTIC = 7.0;
+    private static final int CERTAIN_SPLIT_MIN_LENGTH = 10;
+
+    /**
+     * The observed statistic is shrunk by this factor so that permutations that reproduce it count as exceeding it.
+     */
+    private static final double TIE_FACTOR = 0.99999;
+
+    private static final int TAIL_PROBABILITY_GRID_SIZE = 100;
+
+    /**
+     * Segments up to this length are searched exhaustively.
+     */
+    private static final int EXHAUSTIVE_SEARCH_MAX_LENGTH = 64;
+
+    private static final int MAX_PERMUTATION_BATCH_SIZE = 256;
+
+    private static final int BOUNDARY_BISECTION_ITERATIONS = 30;
+
+    private static final int[] NO_CHANGEPOINTS = new int[0];
+
+    private final double alpha;
+    private final int nperm;
+    private final RCBSSegmenter.PMethod pmethod;
+    private final int minWidth;
+    private final int kmax;
+    private final int nmin;
+    private final double eta;
+    private final RCBSSegmenter.UndoSplits undoSplits;
+    private final double undoPrune;
+    private final double undoSD;
+    private final long seed;
+
+    /**
+     * Early-stopping boundaries by maximum number of permutations exceeding the observed statistic.
+     */
+    private final Map<Integer, int[]> stoppingBoundaries = new ConcurrentHashMap<>();
+
+    /**
+     * See {@link RCBSSegmenter#writeSegmentFile} and the DNAcopy documentation for a description of the parameters.
+     *
+     * @param seed seed for the permutations
+     */
+    public CircularBinarySegmentation(final double alpha, final int nperm, final RCBSSegmenter.PMethod pmethod,
+                                      final int minWidth, final int kmax, final int nmin, final double eta,
+                                      final RCBSSegmenter.UndoSplits undoSplits, final double undoPrune,
+                                      final double undoSD, final long seed) {
+        Utils.validateArg(alpha > 0 && alpha < 1, "alpha must be in (0, 1)");
+        ParamUtils.isPositive(nperm, "the number of permutations must be positive");
+        Utils.nonNull(pmethod, "the p-value method cannot be null");
+        ParamUtils.isPositive(minWidth, "the minimum width must be positive");
+        ParamUtils.isPositive(kmax, "kmax must be positive");
+        ParamUtils.isPositive(nmin, "nmin must be positive");
+        Utils.validateArg(eta > 0 && eta < 1, "eta must be in (0, 1)");
+        Utils.nonNull(undoSplits, "the undo-splits method cannot be null");
+        ParamUtils.isPositiveOrZero(undoPrune, "undoPrune cannot be negative");
+        ParamUtils.isPositiveOrZero(undoSD, "undoSD cannot be negative");
+        this.alpha = alpha;
+        this.nperm = nperm;
+        this.pmethod = pmethod;
+        this.minWidth = minWidth;
+        this.kmax = kmax;
+        this.nmin = nmin;
+        this.eta = eta;
+        this.undoSplits = undoSplits;
+        this.undoPrune = undoPrune;
+        this.undoSD = undoSD;
+        this.seed = seed;
+    }
+
+    /**
+     * Segments the values of a chromosome.
+     *
+     * @param values values of the chromosome in order of position; never {@code null} and all finite
+     * @param weights weights of the values, all positive; {@code null} for unweighted segmentation
+     * @param trimmedSD standard deviation used to undo splits with {@link RCBSSegmenter.UndoSplits#SDUNDO},
+     *                  usually {@code sqrt(trimmedVariance(...))} of all values of the sample
+     * @return the number of values in each segment, in order
+     */
+    public int[] segment(final double[] values, final double[] weights, final double trimmedSD) {
+        Utils.nonNull(values, "the values cannot be null");
+        Utils.validateArg(weights == null || weights.length == values.length, "there must be one weight per value");
+        final int n = values.length;
+        if (n == 0) {
+            return NO_CHANGEPOINTS;
+        }
+
+        // the stack of segment ends still to be tested, as in DNAcopy; the top segment is the rightmost one
+        final int[] segmentEnds = new int[n + 1];
+        segmentEnds[1] = n;
+        int top = 1;
+        final int[] ends = new int[n];
+        int numberOfSegments = 0;
+        while (top > 0) {
+            final int start = segmentEnds[top - 1];
+            final int end = segmentEnds[top];
+            final int[] changepoints = end - start >= 2 * minWidth ? findChangepoints(values, weights, start, end) : NO_CHANGEPOINTS;
+            if (changepoints.length == 0) {
+                ends[numberOfSegments++] = end;
+                top--;
+            } else {
+                for (final int changepoint : changepoints) {
+                    segmentEnds[top++] = start + changepoint;
+                }
+                segmentEnds[top] = end;
+            }
+        }
+
+        int[] lengths = new int[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            final int end = ends[numberOfSegments - 1 - i];
+            lengths[i] = end - (i == 0 ? 0 : ends[numberOfSegments - i]);
+        }
+        if (numberOfSegments > 1) {
+            if (undoSplits == RCBSSegmenter.UndoSplits.PRUNE) {
+                lengths = prune(values, lengths, undoPrune);
+            } else if (undoSplits == RCBSSegmenter.UndoSplits.SDUNDO) {
+                lengths = undoSplitsBySD(values, lengths, trimmedSD * undoSD);
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * Calculates the (weighted) mean of each segment, rounded to 4 decimals as DNAcopy does.
+     *
+     * @param lengths the number of values in each segment, as returned by {@link #segment}
+     */
+    public static double[] segmentMeans(final double[] values, final double[] weights, final int[] lengths) {
+        Utils.nonNull(values, "the values cannot be null");
+        Utils.nonNull(lengths, "the lengths cannot be null");
+        final double[] means = new double[lengths.length];
+        int start = 0;
+        for (int s = 0; s < lengths.length; s++) {
+            double sum = 0;
+            double totalWeight = 0;
+            for (int i = start; i < start + lengths[s]; i++) {
+                final double weight = weights == null ? 1 : weights[i];
+                sum += weight * values[i];
+                totalWeight += weight;
+            }
+            means[s] = Math.round(sum / totalWeight * 1e4) / 1e4;
+            start += lengths[s];
+        }
+        return means;
+    }
+
+    /**
+     * Smooths single-value outliers as DNAcopy's {@code smooth.CNA} with default parameters does.
+     *
+     * <p>
+     *     A value that is further than 4 trimmed standard deviations above (below) all other values within
+     *     10 positions on the same chromosome is replaced by the median of those values and itself plus (minus)
+     *     2 trimmed standard deviations.  The trimmed standard deviation is that of all values of the sample.
+     * </p>
+     *
+     * @param valuesByChromosome values of each chromosome in order of position
+     * @param trim proportion of the data to trim for the trimmed standard deviation
+     * @return the smoothed values of each chromosome
+     */
+    public static double[][] smooth(final double[][] valuesByChromosome, final double trim) {
+        Utils.nonNull(valuesByChromosome, "the values cannot be null");
+        final double[] allValues = Arrays.stream(valuesByChromosome).flatMapToDouble(Arrays::stream).toArray();
+        final double trimmedSD = Math.sqrt(trimmedVariance(allValues, trim));
+        final double outlierSD = OUTLIER_SD_SCALE * trimmedSD;
+        final double smoothSD = SMOOTH_SD_SCALE * trimmedSD;
+
+        final double[][] result = new double[valuesByChromosome.length][];
+        for (int c = 0; c < valuesByChromosome.length; c++) {
+            final double[] values = valuesByChromosome[c];
+            final double[] smoothed = values.clone();
+            for (int i = 0; i < values.length; i++) {
+                final int from = Math.max(0, i - SMOOTH_REGION);
+                final int to = Math.min(values.length - 1, i + SMOOTH_REGION);
+                if (from == to) {
+                    continue;
+                }
+                double minDistance = Double.POSITIVE_INFINITY;
+                double maxDistance = Double.NEGATIVE_INFINITY;
+                for (int j = from; j <= to; j++) {
+                    if (j != i) {
+                        final double distance = values[i] - values[j];
+                        minDistance = Math.min(minDistance, distance);
+                        maxDistance = Math.max(maxDistance, distance);
+                    }
+                }
+                if (minDistance > outlierSD) {
+                    smoothed[i] = median(values, from, to + 1) + smoothSD;
+                } else if (maxDistance < -outlierSD) {
+                    smoothed[i] = median(values, from, to + 1) - smoothSD;
+                }
+            }
+            result[c] = smoothed;
+        }
+        return result;
+    }
+
+    /**
+     * Robust estimate of the variance of the noise from the smallest differences between consecutive values,
+     * as DNAcopy's {@code trimmed.variance}.
+     *
+     * @param values values in order of position
+     * @param trim proportion of the differences to trim at each end
+     */
+    public static double trimmedVariance(final double[] values, final double trim) {
+        Utils.nonNull(values, "the values cannot be null");
+        Utils.validateArg(trim >= 0 && trim < 0.5, "trim must be in [0, 0.5)");
+        final int n = values.length;
+        final int numberKept = (int) Math.rint((1 - 2 * trim) * (n - 1));
+        if (numberKept <= 0) {
+            return 0;
+        }
+        final double[] absoluteDifferences = new double[n - 1];
+        for (int i = 1; i < n; i++) {
+            absoluteDifferences[i - 1] = Math.abs(values[i] - values[i - 1]);
+        }
+        Arrays.sort(absoluteDifferences);
+        double sum = 0;
+        for (int i = 0; i < numberKept; i++) {
+            sum += absoluteDifferences[i] * absoluteDifferences[i];
+        }
+        return inflationFactor(trim) * sum / (2 * numberKept);
+    }
+
+    /**
+     * Corrects the variance of a standard normal trimmed at both ends, evaluated on the same grid as DNAcopy.
+     */
+    private static double inflationFactor(final double trim) {
+        if (trim == 0) {
+            return 1;
+        }
+        final double a = -standardNormalQuantile(trim);
+        final int gridSize = 10000;
+        final double step = 2 * a / gridSize;
+        double sum = 0;
+        for (int k = 0; k < gridSize; k++) {
+            final double x = -a + (k + 0.5) * step;
+            sum += x * x * standardNormalDensity(x);
+        }
+        return 1 / (sum / (1 - 2 * trim) * step);
+    }
+
+    /**
+     * Tests a segment for change points.
+     *
+     * @return the change points relative to {@code start}, in increasing order; empty if the segment is not split
+     */
+    private int[] findChangepoints(final double[] values, final double[] weights, final int start, final int end) {
+        final int n = end - start;
+        if (isConstant(values, start, end)) {
+            return NO_CHANGEPOINTS;
+        }
+        final double[] x = Arrays.copyOfRange(values, start, end);
+        final double[] w = weights == null ? null : Arrays.copyOfRange(weights, start, end);
+        final double tss = center(x, w);
+
+        final Arc observed = maximalArc(x, w, Double.POSITIVE_INFINITY);
+        final double observedStatistic = statistic(observed.betweenSS, tss, n);
+        final double observedT = Math.sqrt(observedStatistic);
+        if (observedT <= MIN_STATISTIC) {
+            return NO_CHANGEPOINTS;
+        }
+        final int arcLength = observed.end - observed.start;
+        final boolean isSignificant;
+        if (observedT >= CERTAIN_SPLIT_STATISTIC && Math.min(arcLength, n - arcLength) >= CERTAIN_SPLIT_MIN_LENGTH) {
+            isSignificant = true;
+        } else if (pmethod == RCBSSegmenter.PMethod.HYBRID && nmin < n) {
+            final double tailProbability = tailProbability(observedT, (kmax + 1.0) / n, n);
+            isSignificant = tailProbability <= alpha &&
+                    isSignificantByPermutation(x, w, TIE_FACTOR * observedStatistic, (int) ((alpha - tailProbability) * nperm), true, start);
+        } else {
+            isSignificant = isSignificantByPermutation(x, w, TIE_FACTOR * observedStatistic, (int) (alpha * nperm), false, start);
+        }
+
+        if (!isSignificant) {
+            return NO_CHANGEPOINTS;
+        } else if (observed.end == n) {
+            return new int[]{observed.start};
+        } else if (observed.start == 0) {
+            return new int[]{observed.end};
+        } else {
+            return new int[]{observed.start, observed.end};
+        }
+    }
+
+    private static boolean isConstant(final double[] values, final int start, final int end) {
+        for (int i = start + 1; i < end; i++) {
+            if (values[i] != values[start]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Subtracts the (weighted) mean in place.
+     *
+     * @return the (weighted) total sum of squares
+     */
+    private static double center(final double[] x, final double[] w) {
+        double sum = 0;
+        double totalWeight = 0;
+        for (int i = 0; i < x.length; i++) {
+            final double weight = w == null ? 1 : w[i];
+            sum += weight * x[i];
+            totalWeight += weight;
+        }
+        final double mean = sum / totalWeight;
+        double tss = 0;
+        for (int i = 0; i < x.length; i++) {
+            x[i] -= mean;
+            tss += (w == null ? 1 : w[i]) * x[i] * x[i];
+        }
+        return tss;
+    }
+
+    /**
+     * Converts the between-group sum of squares of an arc into the square of the two-sample t-statistic.
+     */
+    private static double statistic(final double betweenSS, final double tss, final int n) {
+        if (betweenSS <= 0) {
+            return 0;
+        }
+        return tss - betweenSS <= 0 ? Double.POSITIVE_INFINITY : (n - 2) * betweenSS / (tss - betweenSS);
+    }
+
+    /**
+     * Inverse of {@link #statistic} with respect to the between-group sum of squares.
+     */
+    private static double betweenSSThreshold(final double statistic, final double tss, final int n) {
+        return Double.isInfinite(statistic) ? tss : statistic * tss / (n - 2 + statistic);
+    }
+
+    /**
+     * Runs permutations until the observed statistic is found to be significant or not.
+     *
+     * @param x centered values
+     * @param threshold statistic of the observed data
+     * @param maxExceedances the maximal number of permutations that may reach {@code threshold} for a significant
+     *                       statistic
+     * @param isHybrid whether to only consider arcs of at most {@code kmax} values
+     * @param start start of the segment in the chromosome, used to seed the permutations
+     */
+    private boolean isSignificantByPermutation(final double[] x, final double[] w, final double threshold,
+                                               final int maxExceedances, final boolean isHybrid, final int start) {
+        final int n = x.length;
+        final int[] boundary = stoppingBoundaries.computeIfAbsent(maxExceedances, this::stoppingBoundary);
+        // permuting sqrt(w)-scaled residuals leaves the weighted total sum of squares unchanged
+        final double[] sqrtWeights = w == null ? null : Arrays.stream(w).map(Math::sqrt).toArray();
+        final double[] scaled = w == null ? x : IntStream.range(0, n).mapToDouble(i -> x[i] * sqrtWeights[i]).toArray();
+
+        int exceedances = 0;
+        int batchSize = ForkJoinPool.getCommonPoolParallelism();
+        for (int batchStart = 0; batchStart < nperm; batchStart += batchSize) {
+            batchSize = Math.min(MAX_PERMUTATION_BATCH_SIZE, 2 * batchSize);
+            final int batchEnd = Math.min(nperm, batchStart + batchSize);
+            final int offset = batchStart;
+            final boolean[] exceeds = new boolean[batchEnd - batchStart];
+            IntStream.range(batchStart, batchEnd).parallel().forEach(p ->
+                    exceeds[p - offset] = permutationReaches(scaled, sqrtWeights, w, threshold, isHybrid,
+                            new SplittableRandom(permutationSeed(start, p))));
+            for (int p = batchStart; p < batchEnd; p++) {
+                if (exceeds[p - batchStart]) {
+                    exceedances++;
+                }
+                if (exceedances > maxExceedances) {
+                    return false;
+                }
+                if (p + 1 >= boundary[exceedances]) {
+                    return true;
+                }
+            }
+        }
+        return true;
+    }
+
+    private long permutationSeed(final int start, final int permutation) {
+        return seed * 0x9E3779B97F4A7C15L + ((long) start << 32) + permutation;
+    }
+
+    /**
+     * Whether the maximal statistic of a random permutation reaches {@code threshold}.
+     */
+    private boolean permutationReaches(final double[] scaled, final double[] sqrtWeights, final double[] w,
+                                        final double threshold, final boolean isHybrid, final SplittableRandom rng) {
+        final int n = scaled.length;
+        final double[] permuted = scaled.clone();
+        for (int i = n - 1; i > 0; i--) {
+            final int j = rng.nextInt(i + 1);
+            final double swap = permuted[i];
+            permuted[i] = permuted[j];
+            permuted[j] = swap;
+        }
+        final double tss;
+        if (w == null) {
+            tss = Arrays.stream(permuted).map(v -> v * v).sum();
+        } else {
+            for (int i = 0; i < n; i++) {
+                permuted[i] /= sqrtWeights[i];
+            }
+            tss = center(permuted, w);
+        }
+        final double limit = betweenSSThreshold(threshold, tss, n);
+        final Arc arc = isHybrid ? maximalShortArc(permuted, w, limit) : maximalArc(permuted, w, limit);
+        return arc.betweenSS >= limit;
+    }
+
+    /**
+     * Calculates the early-stopping boundary for a test that allows at most {@code maxExceedances} permutations to
+     * reach the observed statistic: the test stops as significant after {@code boundary[r]} permutations of which
+     * {@code r} reached it ({@code nperm + 1} if never).
+     *
+     * <p>
+     *     As in DNAcopy, {@code boundary[r]} is the smallest number of permutations after which observing at most
+     *     {@code r} exceedances has a binomial probability of at most {@code eta*} when the p-value is
+     *     {@code (maxExceedances + 1) / nperm}, where {@code eta*} is found by bisection so that the probability of
+     *     ever stopping early under that p-value is {@code eta}.
+     * </p>
+     */
+    private int[] stoppingBoundary(final int maxExceedances) {
+        final double p = Math.min(1, (maxExceedances + 1.0) / nperm);
+        double low = 0;
+        double high = eta;
+        int[] boundary = boundaryAtLevel(maxExceedances, p, high);
+        if (earlyStoppingProbability(boundary, p) <= eta) {
+            return boundary;
+        }
+        boundary = boundaryAtLevel(maxExceedances, p, low);
+        for (int iteration = 0; iteration < BOUNDARY_BISECTION_ITERATIONS; iteration++) {
+            final double level = (low + high) / 2;
+            final int[] candidate = boundaryAtLevel(maxExceedances, p, level);
+            if (earlyStoppingProbability(candidate, p) <= eta) {
+                low = level;
+                boundary = candidate;
+            } else {
+                high = level;
+            }
+        }
+        return boundary;
+    }
+
+    private int[] boundaryAtLevel(final int maxExceedances, final double p, final double level) {
+        final int[] boundary = new int[maxExceedances + 1];
+        int low = 1;
+        for (int r = 0; r <= maxExceedances; r++) {
+            // the probability of at most r exceedances decreases with the number of permutations
+            low = Math.max(low, r + 1);
+            int high = nperm + 1;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (new BinomialDistribution(null, middle, p).cumulativeProbability(r) <= level) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            boundary[r] = low;
+        }
+        return boundary;
+    }
+
+    /**
+     * Probability that a test with the given boundary stops as significant when each permutation reaches the
+     * observed statistic with probability {@code p}.
+     */
+    private double earlyStoppingProbability(final int[] boundary, final double p) {
+        final int maxExceedances = boundary.length - 1;
+        // probability of each number of exceedances among the tests that have not stopped yet
+        final double[] probabilities = new double[maxExceedances + 1];
+        probabilities[0] = 1;
+        double stopped = 0;
+        for (int permutations = 1; permutations <= nperm; permutations++) {
+            double remaining = 0;
+            for (int r = maxExceedances; r >= 0; r--) {
+                if (r < maxExceedances) {
+                    probabilities[r + 1] += p * probabilities[r];
+                }
+                probabilities[r] *= 1 - p;
+            }
+            for (int r = 0; r <= maxExceedances; r++) {
+                if (permutations >= boundary[r]) {
+                    stopped += probabilities[r];
+                    probabilities[r] = 0;
+                }
+                remaining += probabilities[r];
+            }
+            if (remaining < Double.MIN_NORMAL) {
+                break;
+            }
+        }
+        return stopped;
+    }
+
+    /**
+     * An arc of values {@code (start, end]} (0-based) and its between-group sum of squares; the arc with
+     * {@code start == 0} or {@code end == n} is a single change point.
+     */
+    private static final class Arc {
+        private double betweenSS = 0;
+        private int start = 0;
+        private int end = 0;
+
+        private void update(final double betweenSS, final int start, final int end) {
+            if (betweenSS > this.betweenSS) {
+                this.betweenSS = betweenSS;
+                this.start = start;
+                this.end = end;
+            }
+        }
+    }
+
+    /**
+     * Whether the arc {@code (start, end]} and the pieces it splits the segment into are all at least
+     * {@code minWidth} long.
+     */
+    private boolean isValidArc(final int start, final int end, final int n) {
+        final int length = end - start;
+        return length >= minWidth && n - length >= minWidth && (start == 0 || start >= minWidth)
+                && (end == n || n - end >= minWidth);
+    }
+
+    private static double[] partialSums(final double[] x, final double[] w) {
+        final double[] sums = new double[x.length + 1];
+        for (int i = 0; i < x.length; i++) {
+            sums[i + 1] = sums[i] + (w == null ? x[i] : w[i] * x[i]);
+        }
+        return sums;
+    }
+
+    private static double[] partialWeights(final double[] w, final int n) {
+        final double[] sums = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            sums[i + 1] = sums[i] + (w == null ? 1 : w[i]);
+        }
+        return sums;
+    }
+
+    private static double betweenSS(final double sum, final double weight, final double totalWeight) {
+        return sum * sum * totalWeight / (weight * (totalWeight - weight));
+    }
+
+    /**
+     * Finds the valid arc of centered values with the largest between-group sum of squares, returning as soon as one
+     * reaches {@code limit}.
+     */
+    private Arc maximalArc(final double[] x, final double[] w, final double limit) {
+        final int n = x.length;
+        final double[] sums = partialSums(x, w);
+        final double[] weights = partialWeights(w, n);
+        final double totalWeight = weights[n];
+        final Arc best = new Arc();
+        if (n <= EXHAUSTIVE_SEARCH_MAX_LENGTH) {
+            searchBlockPair(sums, weights, 0, n + 1, 0, n + 1, best, limit);
+            return best;
+        }
+
+        // blocks of partial sums, with the range of sums and weights in each
+        final int blockSize = (int) Math.ceil(Math.sqrt(n + 1));
+        final int numberOfBlocks = (n + blockSize) / blockSize;
+        final double[] minSum = new double[numberOfBlocks];
+        final double[] maxSum = new double[numberOfBlocks];
+        final double[] minWeight = new double[numberOfBlocks];
+        final double[] maxWeight = new double[numberOfBlocks];
+        for (int b = 0; b < numberOfBlocks; b++) {
+            minSum[b] = Double.POSITIVE_INFINITY;
+            maxSum[b] = Double.NEGATIVE_INFINITY;
+            minWeight[b] = weights[b * blockSize];
+            maxWeight[b] = weights[Math.min(n, (b + 1) * blockSize - 1)];
+            for (int i = b * blockSize; i < Math.min(n + 1, (b + 1) * blockSize); i++) {
+                minSum[b] = Math.min(minSum[b], sums[i]);
+                maxSum[b] = Math.max(maxSum[b], sums[i]);
+            }
+        }
+
+        final List<double[]> pairs = new ArrayList<>(numberOfBlocks * (numberOfBlocks + 1) / 2);
+        for (int bi = 0; bi < numberOfBlocks; bi++) {
+            for (int bj = bi; bj < numberOfBlocks; bj++) {
+                final double maxAbsSum = Math.max(maxSum[bj] - minSum[bi], maxSum[bi] - minSum[bj]);
+                final double lowWeight = minWeight[bj] - maxWeight[bi];
+                final double highWeight = maxWeight[bj] - minWeight[bi];
+                // the denominator is concave in the weight of the arc, so it is smallest at one of the ends
+                final double bound = lowWeight <= 0 || highWeight >= totalWeight ? Double.POSITIVE_INFINITY :
+                        maxAbsSum * maxAbsSum * totalWeight /
+                                Math.min(lowWeight * (totalWeight - lowWeight), highWeight * (totalWeight - highWeight));
+                pairs.add(new double[]{bound, bi, bj});
+            }
+        }
+        pairs.sort(Comparator.comparingDouble((double[] pair) -> -pair[0]));
+        for (final double[] pair : pairs) {
+            if (pair[0] <= best.betweenSS || best.betweenSS >= limit) {
+                break;
+            }
+            final int bi = (int) pair[1];
+            final int bj = (int) pair[2];
+            searchBlockPair(sums, weights, bi * blockSize, Math.min(n + 1, (bi + 1) * blockSize),
+                    bj * blockSize, Math.min(n + 1, (bj + 1) * blockSize), best, limit);
+        }
+        return best;
+    }
+
+    private void searchBlockPair(final double[] sums, final double[] weights, final int startFrom, final int startTo,
+                                 final int endFrom, final int endTo, final Arc best, final double limit) {
+        final int n = sums.length - 1;
+        final double totalWeight = weights[n];
+        for (int i = startFrom; i < startTo; i++) {
+            for (int j = Math.max(endFrom, i + 1); j < endTo; j++) {
+                if (isValidArc(i, j, n)) {
+                    best.update(betweenSS(sums[j] - sums[i], weights[j] - weights[i], totalWeight), i, j);
+                    if (best.betweenSS >= limit) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * As {@link #maximalArc}, but only considering arcs of at most {@code kmax} values or whose complement has at
+     * most {@code kmax} values.
+     */
+    private Arc maximalShortArc(final double[] x, final double[] w, final double limit) {
+        final int n = x.length;
+        final double[] sums = partialSums(x, w);
+        final double[] weights = partialWeights(w, n);
+        final double totalWeight = weights[n];
+        final Arc best = new Arc();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j <= Math.min(n, i + kmax); j++) {
+                if (isValidArc(i, j, n)) {
+                    best.update(betweenSS(sums[j] - sums[i], weights[j] - weights[i], totalWeight), i, j);
+                }
+            }
+            if (best.betweenSS >= limit) {
+                return best;
+            }
+        }
+        for (int i = 0; i <= Math.min(kmax, n); i++) {
+            for (int j = Math.max(i + 1, n - kmax + i); j <= n; j++) {
+                if (isValidArc(i, j, n)) {
+                    best.update(betweenSS(sums[j] - sums[i], weights[j] - weights[i], totalWeight), i, j);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Approximate probability that the maximal t-statistic over arcs of at least {@code delta * n} values exceeds
+     * {@code b} (Siegmund, 1988), integrated over the same grid as DNAcopy.
+     */
+    @VisibleForTesting
+    static double tailProbability(final double b, final double delta, final int n) {
+        if (delta >= 0.5) {
+            return 0;
+        }
+        final double step = (0.5 - delta) / TAIL_PROBABILITY_GRID_SIZE;
+        final double scaledB = b / Math.sqrt(n);
+        double integral = 0;
+        for (int k = 0; k < TAIL_PROBABILITY_GRID_SIZE; k++) {
+            final double lower = delta + k * step;
+            final double t = lower + step / 2;
+            final double nu = nu(scaledB / Math.sqrt(t * (1 - t)));
+            integral += nu * nu * (inverseSquaredBinomialVarianceIntegral(lower + step) - inverseSquaredBinomialVarianceIntegral(lower));
+        }
+        return b * b * b * standardNormalDensity(b) / 2 * integral;
+    }
+
+    /**
+     * Antiderivative of {@code 1 / (t (1 - t))^2} on (0, 1).
+     */
+    private static double inverseSquaredBinomialVarianceIntegral(final double t) {
+        return -1 / t + 1 / (1 - t) + 2 * Math.log(t / (1 - t));
+    }
+
+    /**
+     * Siegmund and Yakir's approximation of the overshoot correction {@code nu}.
+     */
+    private static double nu(final double x) {
+        if (x == 0) {
+            return 1;
+        }
+        final double halfX = x / 2;
+        return (2 / x) * (standardNormalCDF(halfX) - 0.5) / (halfX * standardNormalCDF(halfX) + standardNormalDensity(halfX));
+    }
+
+    private static double standardNormalDensity(final double x) {
+        return Math.exp(-x * x / 2) / Math.sqrt(2 * Math.PI);
+    }
+
+    private static double standardNormalCDF(final double x) {
+        return 0.5 * Erf.erfc(-x / Math.sqrt(2));
+    }
+
+    private static double standardNormalQuantile(final double p) {
+        return -Math.sqrt(2) * Erf.erfcInv(2 * p);
+    }
+
+    /**
+     * Removes change points for as long as doing so increases the residual sum of squares by at most a fraction
+     * {@code undoPrune}, keeping at least one, as DNAcopy's {@code changepoints.prune}.  The best subset of change
+     * points of each size is found by dynamic programming.
+     */
+    @VisibleForTesting
+    static int[] prune(final double[] values, final int[] lengths, final double undoPrune) {
+        final int numberOfBoundaries = lengths.length + 1;
+        final int[] boundaries = new int[numberOfBoundaries];
+        for (int s = 0; s < lengths.length; s++) {
+            boundaries[s + 1] = boundaries[s] + lengths[s];
+        }
+        final double[] sums = new double[values.length + 1];
+        final double[] squares = new double[values.length + 1];
+        for (int i = 0; i < values.length; i++) {
+            sums[i + 1] = sums[i] + values[i];
+            squares[i + 1] = squares[i] + values[i] * values[i];
+        }
+        final int last = numberOfBoundaries - 1;
+        final double[][] rss = new double[numberOfBoundaries][numberOfBoundaries];
+        for (int a = 0; a < last; a++) {
+            for (int b = a + 1; b <= last; b++) {
+                final double sum = sums[boundaries[b]] - sums[boundaries[a]];
+                rss[a][b] = squares[boundaries[b]] - squares[boundaries[a]] - sum * sum / (boundaries[b] - boundaries[a]);
+            }
+        }
+
+        // cost[k][b]: smallest residual sum of squares of the values before boundary b with k change points
+        final int numberOfChangepoints = lengths.length - 1;
+        final double[][] cost = new double[numberOfChangepoints + 1][numberOfBoundaries];
+        final int[][] previous = new int[numberOfChangepoints + 1][numberOfBoundaries];
+        for (int b = 1; b <= last; b++) {
+            cost[0][b] = rss[0][b];
+        }
+        for (int k = 1; k <= numberOfChangepoints; k++) {
+            for (int b = k + 1; b <= last; b++) {
+                cost[k][b] = Double.POSITIVE_INFINITY;
+                for (int a = k; a < b; a++) {
+                    final double candidate = cost[k - 1][a] + rss[a][b];
+                    if (candidate < cost[k][b]) {
+                        cost[k][b] = candidate;
+                        previous[k][b] = a;
+                    }
+                }
+            }
+        }
+        final double maxRSS = (1 + undoPrune) * cost[numberOfChangepoints][last];
+        int kept = 1;
+        while (kept < numberOfChangepoints && cost[kept][last] > maxRSS) {
+            kept++;
+        }
+        final int[] pruned = new int[kept + 1];
+        int b = last;
+        for (int k = kept; k >= 0; k--) {
+            final int a = k == 0 ? 0 : previous[k][b];
+            pruned[k] = boundaries[b] - boundaries[a];
+            b = a;
+        }
+        return pruned;
+    }
+
+    /**
+     * Repeatedly merges the adjacent segments whose medians are closest for as long as they differ by less than
+     * {@code minDifference}, as DNAcopy's {@code changepoints.sdundo}.
+     */
+    @VisibleForTesting
+    static int[] undoSplitsBySD(final double[] values, final int[] lengths, final double minDifference) {
+        final List<Integer> ends = new ArrayList<>(lengths.length);
+        int end = 0;
+        for (final int length : lengths) {
+            end += length;
+            ends.add(end);
+        }
+        while (ends.size() > 1) {
+            final double[] medians = new double[ends.size()];
+            for (int s = 0; s < ends.size(); s++) {
+                medians[s] = median(values, s == 0 ? 0 : ends.get(s - 1), ends.get(s));
+            }
+            double minAbsDifference = Double.POSITIVE_INFINITY;
+            for (int s = 1; s < medians.length; s++) {
+                minAbsDifference = Math.min(minAbsDifference, Math.abs(medians[s] - medians[s - 1]));
+            }
+            if (minAbsDifference >= minDifference) {
+                break;
+            }
+            // remove all change points between segments whose medians are the closest, from right to left
+            for (int s = medians.length - 1; s >= 1; s--) {
+                if (Math.abs(medians[s] - medians[s - 1]) == minAbsDifference) {
+                    ends.remove(s - 1);
+                }
+            }
+        }
+        final int[] result = new int[ends.size()];
+        for (int s = 0; s < result.length; s++) {
+            result[s] = ends.get(s) - (s == 0 ? 0 : ends.get(s - 1));
+        }
+        return result;
+    }
+
+    private static double median(final double[] values, final int from, final int to) {
+        final double[] sorted = Arrays.copyOfRange(values, from, to);
+        Arrays.sort(sorted);
+        final int n = sorted.length;
+        return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+    }
+}
@@ -0,0 +1,213 @@
+package org.broadinstitute.hellbender.utils.svd;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.RandomGeneratorFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Truncated singular value decomposition by randomized range finding (Halko, Martinsson and Tropp, 2011).
+ *
+ * <p>
+ *     Only the top {@code k} singular triplets of an {@code m x n} matrix {@code A} are computed.  The range of
+ *     {@code A} is sampled by multiplying it with {@code k + p} Gaussian random vectors, where {@code p} is the
+ *     oversampling, and the sample is refined by {@code q} power iterations ({@code (A A^T)^q A}); this makes the
+ *     approximation accurate even when the spectrum of {@code A} decays slowly.  The SVD of the small
+ *     {@code (k + p) x n} projection of {@code A} onto the sampled range then yields the singular triplets.
+ * </p>
+ * <p>
+ *     The cost is dominated by {@code 2q + 2} passes of multiplying {@code A} (or its transpose) by a thin matrix,
+ *     which are run in parallel on the common fork-join pool.
+ * </p>
+ * <p>
+ *     The resulting {@link SVD} has {@code U} of dimension {@code m x k}, {@code V} of dimension {@code n x k},
+ *     {@code k} singular values and the pseudo-inverse {@code V S^-1 U^T} restricted to the top {@code k} components,
+ *     of dimension {@code n x m}.
+ * </p>
+ */
+final class RandomizedSingularValueDecomposer {
+
+    private static final Logger logger = LogManager.getLogger(RandomizedSingularValueDecomposer.class);
+
+    private RandomizedSingularValueDecomposer() {
+    }
+
+    /**
+     * Create a truncated SVD instance.
+     *
+     * @param m matrix that is not {@code null}
+     * @param numberOfComponents number of singular triplets to compute, in [1, min(rows, columns)]
+     * @param oversampling number of additional random vectors used to sample the range of {@code m}
+     * @param powerIterations number of power iterations used to refine the sample
+     * @param seed seed for the random vectors
+     * @return SVD instance that is never {@code null}
+     */
+    public static SVD createSVD(final RealMatrix m, final int numberOfComponents, final int oversampling,
+                                final int powerIterations, final long seed) {
+        Utils.nonNull(m, "Cannot create SVD on a null matrix.");
+        final int rows = m.getRowDimension();
+        final int columns = m.getColumnDimension();
+        Utils.validateArg(numberOfComponents > 0 && numberOfComponents <= Math.min(rows, columns),
+                "the number of components must be in [1, " + Math.min(rows, columns) + "]");
+        Utils.validateArg(oversampling >= 0, "the oversampling cannot be negative");
+        Utils.validateArg(powerIterations >= 0, "the number of power iterations cannot be negative");
+
+        final double[][] a = m instanceof Array2DRowRealMatrix ? ((Array2DRowRealMatrix) m).getDataRef() : m.getData();
+        final int sampleSize = Math.min(numberOfComponents + oversampling, Math.min(rows, columns));
+
+        logger.info(String.format("Calculating truncated SVD with %d components (%d random vectors, %d power iterations)...",
+                numberOfComponents, sampleSize, powerIterations));
+        final RandomGenerator rng = RandomGeneratorFactory.createRandomGenerator(new Random(seed));
+        final double[][] omega = new double[sampleSize][columns];
+        for (final double[] column : omega) {
+            for (int j = 0; j < columns; j++) {
+                column[j] = rng.nextGaussian();
+            }
+        }
+
+        double[][] q = orthonormalize(multiply(a, omega, rows));
+        for (int i = 0; i < powerIterations; i++) {
+            final double[][] z = orthonormalize(transposeMultiply(a, q, columns));
+            q = orthonormalize(multiply(a, z, rows));
+        }
+
+        // B = Q^T A is small (sampleSize x columns); its SVD, rotated back by Q, gives that of A.
+        final double[][] basis = q;
+        final double[][] b = transposeMultiply(a, basis, columns);
+        final SingularValueDecomposition smallSVD = new SingularValueDecomposition(new Array2DRowRealMatrix(b, false));
+        final double[] singularValues = new double[numberOfComponents];
+        System.arraycopy(smallSVD.getSingularValues(), 0, singularValues, 0, numberOfComponents);
+        final double[][] smallU = smallSVD.getU().getData();
+        final RealMatrix v = smallSVD.getV().getSubMatrix(0, columns - 1, 0, numberOfComponents - 1);
+
+        final double[][] u = new double[rows][numberOfComponents];
+        IntStream.range(0, rows).parallel().forEach(i -> {
+            final double[] uRow = u[i];
+            for (int c = 0; c < basis.length; c++) {
+                final double basisValue = basis[c][i];
+                final double[] smallURow = smallU[c];
+                for (int k = 0; k < numberOfComponents; k++) {
+                    uRow[k] += basisValue * smallURow[k];
+                }
+            }
+        });
+
+        return new SimpleSVD(new Array2DRowRealMatrix(u, false), singularValues, v,
+                pseudoInverse(u, singularValues, v.getData(), Math.max(rows, columns)));
+    }
+
+    /**
+     * Calculates {@code A X} for a thin {@code X} given as an array of its columns.
+     *
+     * @return the columns of the product
+     */
+    private static double[][] multiply(final double[][] a, final double[][] xColumns, final int rows) {
+        final double[][] result = new double[xColumns.length][rows];
+        IntStream.range(0, rows).parallel().forEach(i -> {
+            final double[] aRow = a[i];
+            for (int c = 0; c < xColumns.length; c++) {
+                final double[] xColumn = xColumns[c];
+                double sum = 0;
+                for (int j = 0; j < aRow.length; j++) {
+                    sum += aRow[j] * xColumn[j];
+                }
+                result[c][i] = sum;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Calculates {@code A^T Y} for a thin {@code Y} given as an array of its columns.
+     *
+     * @return the columns of the product, which are also the rows of {@code Y^T A}
+     */
+    private static double[][] transposeMultiply(final double[][] a, final double[][] yColumns, final int columns) {
+        final double[][] result = new double[yColumns.length][columns];
+        IntStream.range(0, yColumns.length).parallel().forEach(c -> {
+            final double[] yColumn = yColumns[c];
+            final double[] resultColumn = result[c];
+            for (int i = 0; i < a.length; i++) {
+                final double yValue = yColumn[i];
+                if (yValue != 0) {
+                    final double[] aRow = a[i];
+                    for (int j = 0; j < columns; j++) {
+                        resultColumn[j] += yValue * aRow[j];
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Orthonormalizes the given columns in place by modified Gram-Schmidt, applied twice for numerical stability.
+     * Columns that are (numerically) in the span of the previous ones are set to zero.
+     *
+     * @return the input array
+     */
+    static double[][] orthonormalize(final double[][] columns) {
+        for (int pass = 0; pass < 2; pass++) {
+            for (int c = 0; c < columns.length; c++) {
+                final double[] column = columns[c];
+                final double originalNorm = norm(column);
+                for (int p = 0; p < c; p++) {
+                    final double[] previous = columns[p];
+                    final double projection = dot(previous, column);
+                    for (int i = 0; i < column.length; i++) {
+                        column[i] -= projection * previous[i];
+                    }
+                }
+                final double norm = norm(column);
+                final double scale = norm > originalNorm * 1e-12 && norm > 0 ? 1.0 / norm : 0.0;
+                for (int i = 0; i < column.length; i++) {
+                    column[i] *= scale;
+                }
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Calculates {@code V S^-1 U^T}, ignoring singular values too small to be distinguished from zero.
+     */
+    private static RealMatrix pseudoInverse(final double[][] u, final double[] singularValues, final double[][] v,
+                                            final int maxDimension) {
+        final double tolerance = maxDimension * singularValues[0] * Math.ulp(1.0);
+        final double[] inverseSingularValues = new double[singularValues.length];
+        for (int k = 0; k < singularValues.length; k++) {
+            inverseSingularValues[k] = singularValues[k] > tolerance ? 1.0 / singularValues[k] : 0.0;
+        }
+        final double[][] result = new double[v.length][u.length];
+        IntStream.range(0, v.length).parallel().forEach(j -> {
+            final double[] scaledVRow = new double[singularValues.length];
+            for (int k = 0; k < singularValues.length; k++) {
+                scaledVRow[k] = v[j][k] * inverseSingularValues[k];
+            }
+            final double[] resultRow = result[j];
+            for (int i = 0; i < u.length; i++) {
+                resultRow[i] = dot(scaledVRow, u[i]);
+            }
+        });
+        return new Array2DRowRealMatrix(result, false);
+    }
+
+    private static double dot(final double[] x, final double[] y) {
+        double sum = 0;
+        for (int i = 0; i < x.length; i++) {
+            sum += x[i] * y[i];
+        }
+        return sum;
+    }
+
+    private static double norm(final double[] x) {
+        return Math.sqrt(dot(x, x));
+    }
+}
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.utils.svd;
 
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.utils.Utils;
@@ -9,6 +10,18 @@ import org.broadinstitute.hellbender.utils.Utils;
  */
 public class SVDFactory {
 
+    /**
+     * Default number of random vectors sampled in addition to the requested components by {@link #createTruncatedSVD}.
+     */
+    public static final int DEFAULT_TRUNCATED_SVD_OVERSAMPLING = 10;
+
+    /**
+     * Default number of power iterations performed by {@link #createTruncatedSVD}.
+     */
+    public static final int DEFAULT_TRUNCATED_SVD_POWER_ITERATIONS = 2;
+
+    private static final long TRUNCATED_SVD_RANDOM_SEED = 1337L;
+
     /**
      * Create a SVD instance using Apache Commons Math.
      *
@@ -34,4 +47,51 @@ public class SVDFactory {
         }
         return SparkSingularValueDecomposer.createSVD(ctx, m);
     }
+
+    /**
+     * Create a SVD instance with only the top singular values and vectors, using a multi-threaded randomized
+     * algorithm that is much faster than a full decomposition when few components are needed.
+     *
+     * <p>
+     *     The resulting U and V matrices have {@code numberOfComponents} columns and the pseudo-inverse is
+     *     restricted to the top {@code numberOfComponents} components.
+     * </p>
+     *
+     * @param m matrix that is not {@code null}
+     * @param numberOfComponents number of singular values and vectors to compute, in [1, min(rows, columns)]
+     * @return SVD instance that is never {@code null}
+     */
+    public static SVD createTruncatedSVD(final RealMatrix m, final int numberOfComponents) {
+        return createTruncatedSVD(m, numberOfComponents, DEFAULT_TRUNCATED_SVD_OVERSAMPLING, DEFAULT_TRUNCATED_SVD_POWER_ITERATIONS);
+    }
+
+    /**
+     * Create a SVD instance with only the top singular values and vectors, using a multi-threaded randomized
+     * algorithm.
+     *
+     * @param m matrix that is not {@code null}
+     * @param numberOfComponents number of singular values and vectors to compute, in [1, min(rows, columns)]
+     * @param oversampling number of additional random vectors used to sample the range of {@code m}; larger values
+     *                     increase accuracy at the cost of speed
+     * @param powerIterations number of power iterations; larger values increase accuracy for matrices whose singular
+     *                        values decay slowly at the cost of speed
+     * @return SVD instance that is never {@code null}
+     */
+    public static SVD createTruncatedSVD(final RealMatrix m, final int numberOfComponents, final int oversampling, final int powerIterations) {
+        Utils.nonNull(m, "Cannot create SVD from a null matrix.");
+        return RandomizedSingularValueDecomposer.createSVD(m, numberOfComponents, oversampling, powerIterations, TRUNCATED_SVD_RANDOM_SEED);
+    }
+
+    /**
+     * Orthonormalizes the columns of a matrix as in the range finding of {@link #createTruncatedSVD}: by modified
+     * Gram-Schmidt, applied twice for numerical stability.  Columns that are (numerically) in the span of the previous
+     * ones are set to zero.
+     *
+     * @param m matrix that is not {@code null}
+     * @return a new matrix of the same dimensions, never {@code null}
+     */
+    public static RealMatrix orthonormalizeColumns(final RealMatrix m) {
+        Utils.nonNull(m, "Cannot orthonormalize a null matrix.");
+        return new Array2DRowRealMatrix(RandomizedSingularValueDecomposer.orthonormalize(m.transpose().getData()), false).transpose();
+    }
 }
@@ -0,0 +1,98 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Unit tests for {@link GVCFSiteIterator}.
+ */
+public final class GVCFSiteIteratorUnitTest extends BaseTest {
+
+    private static final SAMSequenceDictionary DICTIONARY = new SAMSequenceDictionary(Arrays.asList(
+            new SAMSequenceRecord("1", 1000), new SAMSequenceRecord("2", 1000)));
+
+    private static VariantContext record(final String source, final String contig, final int start, final int end) {
+        return new VariantContextBuilder(source, contig, start, end,
+                Collections.singletonList(Allele.create(StringUtils.repeat('A', end - start + 1), true))).make();
+    }
+
+    @Test
+    public void testMergeWithReferenceBlocks() {
+        final VariantContext a1 = record("a", "1", 1, 10);
+        final VariantContext a2 = record("a", "1", 11, 11);
+        final VariantContext a3 = record("a", "1", 12, 20);
+        final VariantContext a4 = record("a", "2", 1, 5);
+        final VariantContext b1 = record("b", "1", 1, 3);
+        final VariantContext b2 = record("b", "1", 4, 4);
+        final VariantContext b3 = record("b", "1", 5, 20);
+        final VariantContext b4 = record("b", "2", 3, 4);
+        final List<Iterator<VariantContext>> inputs = Arrays.asList(
+                Arrays.asList(a1, a2, a3, a4).iterator(), Arrays.asList(b1, b2, b3, b4).iterator());
+
+        final List<List<VariantContext>> sites = new ArrayList<>();
+        new GVCFSiteIterator(inputs, DICTIONARY).forEachRemaining(sites::add);
+
+        Assert.assertEquals(sites, Arrays.asList(
+                Arrays.asList(a1, b1),
+                Arrays.asList(b2, a1),
+                Arrays.asList(b3, a1),
+                Arrays.asList(a2, b3),
+                Arrays.asList(a3, b3),
+                Collections.singletonList(a4),
+                Arrays.asList(b4, a4)));
+    }
+
+    @Test
+    public void testSingleInputSitesAreItsRecords() {
+        final List<VariantContext> records = Arrays.asList(record("a", "1", 1, 10), record("a", "1", 5, 5), record("a", "2", 1, 1));
+        final List<List<VariantContext>> sites = new ArrayList<>();
+        new GVCFSiteIterator(Collections.singletonList(records.iterator()), DICTIONARY).forEachRemaining(sites::add);
+        Assert.assertEquals(sites.size(), records.size());
+        for (int i = 0; i < records.size(); i++) {
+            Assert.assertEquals(sites.get(i), Collections.singletonList(records.get(i)));
+        }
+    }
+
+    @Test
+    public void testSingleInputRecordsStartingAtTheSamePositionAreSeparateSites() {
+        final VariantContext block = record("a", "1", 1, 4);
+        final VariantContext snp1 = record("a", "1", 5, 5);
+        final VariantContext snp2 = record("a", "1", 5, 5);
+        final VariantContext next = record("a", "1", 6, 6);
+        final List<List<VariantContext>> sites = new ArrayList<>();
+        new GVCFSiteIterator(Collections.singletonList(Arrays.asList(block, snp1, snp2, next).iterator()), DICTIONARY).forEachRemaining(sites::add);
+        Assert.assertEquals(sites, Arrays.asList(
+                Collections.singletonList(block),
+                Collections.singletonList(snp1),
+                Collections.singletonList(snp2),
+                Collections.singletonList(next)));
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testRecordsStartingAtTheSamePositionInOneOfSeveralInputs() {
+        final List<Iterator<VariantContext>> inputs = Arrays.asList(
+                Arrays.asList(record("a", "1", 1, 4), record("a", "1", 5, 5), record("a", "1", 5, 5)).iterator(),
+                Collections.singletonList(record("b", "1", 1, 10)).iterator());
+        new GVCFSiteIterator(inputs, DICTIONARY).forEachRemaining(site -> {});
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testUnsortedInput() {
+        final Iterator<VariantContext> input = Arrays.asList(record("a", "2", 1, 1), record("a", "1", 1, 1)).iterator();
+        new GVCFSiteIterator(Collections.singletonList(input), DICTIONARY).forEachRemaining(site -> {});
+    }
+}
@@ -0,0 +1,39 @@
+package org.broadinstitute.hellbender.engine;
+
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+
+/**
+ * Unit tests for {@link SlidingReferenceDataSource}.
+ */
+public final class SlidingReferenceDataSourceUnitTest extends BaseTest {
+
+    @Test
+    public void testQueriesMatchUnderlyingSource() {
+        try (final ReferenceDataSource reference = new ReferenceFileSource(new File(hg19MiniReference));
+             final ReferenceDataSource other = new ReferenceFileSource(new File(hg19MiniReference))) {
+            final SlidingReferenceDataSource sliding = new SlidingReferenceDataSource(other, 100);
+            int queryCount = 0;
+            for (final String contig : new String[] {"1", "2"}) {
+                for (int start = 1; start < 1000; start += 7) {
+                    final SimpleInterval interval = new SimpleInterval(contig, start, start + 20);
+                    Assert.assertEquals(sliding.queryAndPrefetch(interval).getBases(), reference.queryAndPrefetch(interval).getBases());
+                    queryCount++;
+                }
+            }
+            // a query longer than the buffer
+            final SimpleInterval longInterval = new SimpleInterval("2", 990, 1500);
+            Assert.assertEquals(sliding.queryAndPrefetch(longInterval).getBases(), reference.queryAndPrefetch(longInterval).getBases());
+            queryCount++;
+
+            Assert.assertEquals(sliding.getQueryCount(), queryCount);
+            // each fill of 100 bases serves the following queries of 21 bases starting 7 bases apart
+            Assert.assertTrue(sliding.getHitCount() > queryCount / 2);
+            Assert.assertTrue(sliding.getHitCount() < queryCount);
+        }
+    }
+}
@@ -4,9 +4,11 @@ import htsjdk.samtools.util.Log;
 import org.apache.commons.io.FileUtils;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
+import org.broadinstitute.hellbender.tools.exome.allelefraction.AllelicPanelOfNormals;
 import org.broadinstitute.hellbender.tools.exome.alleliccount.AllelicCount;
 import org.broadinstitute.hellbender.utils.LoggingUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.mcmc.PosteriorSummary;
 import org.broadinstitute.hellbender.utils.test.BaseTest;
 import org.testng.Assert;
 import org.testng.annotations.BeforeTest;
@@ -14,6 +16,7 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -94,6 +97,38 @@ public final class ACNVModellerUnitTest extends BaseTest {
         Assert.assertEquals(segmentsResult, SEGMENTS_TRUTH);
     }
 
+    /**
+     * Tests that incremental refits after similar-segment merging leave the model fit and carry over the
+     * posterior summaries of unmerged segments.
+     */
+    @Test
+    public void testMergeSimilarSegmentsCopyRatioWithIncrementalFit() throws IOException {
+        final ReadCountCollection coverage = ReadCountCollectionUtils.parse(COVERAGES_FILE);
+        final List<AllelicCount> snpCountsDummy =
+                Collections.singletonList(new AllelicCount(new SimpleInterval("1", 1, 1), 0, 1));
+        final Genome genome = new Genome(coverage, snpCountsDummy);
+        final SegmentedGenome segmentedGenome = new SegmentedGenome(SEGMENT_FILE, genome);
+
+        final ACNVModeller modeller = new ACNVModeller(segmentedGenome, NUM_SAMPLES, NUM_BURN_IN, 10, 0, ctx);
+        for (int numIterations = 1; numIterations <= MAX_SIMILAR_SEGMENT_MERGE_ITERATIONS; numIterations++) {
+            final List<ACNVModeledSegment> prevSegments = new ArrayList<>(modeller.getACNVModeledSegments());
+            modeller.performSimilarSegmentMergingIteration(INTERVAL_THRESHOLD, Double.POSITIVE_INFINITY, true, true);
+            Assert.assertTrue(modeller.isModelFit());
+            final List<ACNVModeledSegment> segments = modeller.getACNVModeledSegments();
+            Assert.assertTrue(segments.size() <= prevSegments.size());
+            //unmerged segments keep their posterior summaries
+            for (final ACNVModeledSegment segment : segments) {
+                prevSegments.stream().filter(s -> s.getInterval().equals(segment.getInterval())).findFirst()
+                        .ifPresent(s -> Assert.assertSame(segment, s));
+            }
+            if (segments.size() == prevSegments.size()) {
+                break;
+            }
+        }
+        modeller.fitModel();
+        Assert.assertTrue(modeller.isModelFit());
+    }
+
     /**
      * Test of similar-segment merging using simulated data (coverages, SNP counts, and segments).
      * Spurious breakpoints have been introduced into the list of true segments; similar-segment merging should
@@ -218,4 +253,48 @@ public final class ACNVModellerUnitTest extends BaseTest {
             Assert.fail("Error reading file size.", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that fitting the copy-ratio and allele-fraction models concurrently gives the same posterior summaries
+     * as fitting them serially, for the initial fit and for complete and incremental refits after merging.
+     */
+    @Test
+    public void testConcurrentFitMatchesSerialFit() {
+        final Genome genome = new Genome(COVERAGES_FILE, TUMOR_ALLELIC_COUNTS_FILE);
+        final SegmentedGenome segmentedGenome = new SegmentedGenome(SEGMENT_FILE, genome);
+
+        final ACNVModeller concurrentModeller = new ACNVModeller(segmentedGenome, AllelicPanelOfNormals.EMPTY_PON,
+                NUM_SAMPLES, NUM_BURN_IN, NUM_SAMPLES, NUM_BURN_IN, ctx, true);
+        final ACNVModeller serialModeller = new ACNVModeller(segmentedGenome, AllelicPanelOfNormals.EMPTY_PON,
+                NUM_SAMPLES, NUM_BURN_IN, NUM_SAMPLES, NUM_BURN_IN, ctx, false);
+        assertSamePosteriorSummaries(concurrentModeller, serialModeller);
+
+        concurrentModeller.performSimilarSegmentMergingIteration(INTERVAL_THRESHOLD, INTERVAL_THRESHOLD, true, true);
+        serialModeller.performSimilarSegmentMergingIteration(INTERVAL_THRESHOLD, INTERVAL_THRESHOLD, true, true);
+        assertSamePosteriorSummaries(concurrentModeller, serialModeller);
+
+        concurrentModeller.performSimilarSegmentMergingIteration(INTERVAL_THRESHOLD, INTERVAL_THRESHOLD, true);
+        serialModeller.performSimilarSegmentMergingIteration(INTERVAL_THRESHOLD, INTERVAL_THRESHOLD, true);
+        assertSamePosteriorSummaries(concurrentModeller, serialModeller);
+    }
+
+    private static void assertSamePosteriorSummaries(final ACNVModeller actual, final ACNVModeller expected) {
+        final List<ACNVModeledSegment> actualSegments = actual.getACNVModeledSegments();
+        final List<ACNVModeledSegment> expectedSegments = expected.getACNVModeledSegments();
+        Assert.assertEquals(actualSegments.size(), expectedSegments.size());
+        for (int i = 0; i < expectedSegments.size(); i++) {
+            Assert.assertEquals(actualSegments.get(i).getInterval(), expectedSegments.get(i).getInterval());
+            assertSamePosteriorSummary(actualSegments.get(i).getSegmentMeanPosteriorSummary(),
+                    expectedSegments.get(i).getSegmentMeanPosteriorSummary());
+            assertSamePosteriorSummary(actualSegments.get(i).getMinorAlleleFractionPosteriorSummary(),
+                    expectedSegments.get(i).getMinorAlleleFractionPosteriorSummary());
+        }
+    }
+
+    private static void assertSamePosteriorSummary(final PosteriorSummary actual, final PosteriorSummary expected) {
+        Assert.assertEquals(actual.getCenter(), expected.getCenter());
+        Assert.assertEquals(actual.getLower(), expected.getLower());
+        Assert.assertEquals(actual.getUpper(), expected.getUpper());
+        Assert.assertEquals(actual.getDeciles().getAll(), expected.getDeciles().getAll());
+    }
+}
@@ -5,7 +5,9 @@ import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.ExomeStandardArgumentDefinitions;
 import org.broadinstitute.hellbender.tools.exome.acsconversion.ACSModeledSegment;
 import org.broadinstitute.hellbender.tools.exome.acsconversion.ACSModeledSegmentUtils;
+import org.broadinstitute.hellbender.utils.SparkToggleCommandLineProgram;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.File;
@@ -22,8 +24,13 @@ public class CallCNLoHAndSplitsIntegrationTest extends CommandLineProgramTest {
     private static final File TUMOR_ALLELIC_COUNTS_FILE = new File(ACNV_TEST_SUB_DIR, "snps-full.tsv");
     private static final File SEGMENT_FILE = new File(TEST_SUB_DIR, "cell_line_small-sim-final.seg");
 
-    @Test
-    public void testBasicRun() {
+    @DataProvider(name = "disableSpark")
+    public Object[][] disableSpark() {
+        return new Object[][]{{false}, {true}};
+    }
+
+    @Test(dataProvider = "disableSpark")
+    public void testBasicRun(final boolean isDisableSpark) {
         final File outputDir = createTempDir("cnLoH_OutputDir_");
         final List<String> arguments = new ArrayList<>();
         arguments.add("-" + ExomeStandardArgumentDefinitions.TUMOR_ALLELIC_COUNTS_FILE_SHORT_NAME);
@@ -38,6 +45,9 @@ public class CallCNLoHAndSplitsIntegrationTest extends CommandLineProgramTest {
         arguments.add(outputDir.getAbsolutePath());
         arguments.add("-" + CallCNLoHAndSplits.NUM_ITERATIONS_SHORT_NAME);
         arguments.add("3");
+        if (isDisableSpark) {
+            arguments.add("-" + SparkToggleCommandLineProgram.DISABLE_SPARK_SHORT_NAME);
+        }
 
         runCommandLine(arguments);
 
@@ -0,0 +1,72 @@
+package org.broadinstitute.hellbender.tools.exome;
+
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link LocatableIndex}.
+ */
+public final class LocatableIndexUnitTest extends BaseTest {
+    private static final String[] CONTIGS = {"1", "2", "X"};
+
+    @Test
+    public void testOverlapQueriesMatchLinearScan() {
+        final Random rng = new Random(13);
+        for (int trial = 0; trial < 50; trial++) {
+            final List<SimpleInterval> locatables = new ArrayList<>();
+            for (final String contig : CONTIGS) {
+                int position = 1;
+                final int numLocatables = rng.nextInt(30);
+                for (int i = 0; i < numLocatables; i++) {
+                    position += rng.nextInt(20);
+                    final int length = rng.nextInt(10);
+                    locatables.add(new SimpleInterval(contig, position, position + length));
+                    position += length + 1;
+                }
+            }
+            final LocatableIndex index = new LocatableIndex(locatables, SimpleInterval::getStart);
+            Assert.assertEquals(index.size(), locatables.size());
+            for (int query = 0; query < 100; query++) {
+                final String contig = rng.nextBoolean() ? CONTIGS[rng.nextInt(CONTIGS.length)] : "Y";
+                final int start = 1 + rng.nextInt(400);
+                final SimpleInterval interval = new SimpleInterval(contig, start, start + rng.nextInt(100));
+                int count = 0;
+                int fromIndex = -1;
+                for (int i = 0; i < locatables.size(); i++) {
+                    if (locatables.get(i).overlaps(interval)) {
+                        if (fromIndex < 0) {
+                            fromIndex = i;
+                        }
+                        count++;
+                    }
+                }
+                Assert.assertEquals(index.count(interval), count);
+                if (count > 0) {
+                    Assert.assertEquals(index.fromIndex(interval), fromIndex);
+                    Assert.assertEquals(index.toIndex(interval), fromIndex + count);
+                    for (int i = fromIndex; i < fromIndex + count; i++) {
+                        Assert.assertEquals(index.value(i), (double) locatables.get(i).getStart());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsortedLocatables() {
+        new LocatableIndex(Arrays.asList(new SimpleInterval("1", 10, 20), new SimpleInterval("1", 1, 5)), l -> 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonContiguousContigs() {
+        new LocatableIndex(Arrays.asList(new SimpleInterval("1", 1, 5), new SimpleInterval("2", 1, 5),
+                new SimpleInterval("1", 10, 20)), l -> 0);
+    }
+}
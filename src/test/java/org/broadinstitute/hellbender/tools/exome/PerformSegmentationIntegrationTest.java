@@ -42,6 +42,24 @@ public class PerformSegmentationIntegrationTest extends CommandLineProgramTest{
         SegmenterUnitTest.assertEqualSegments(output, EXPECTED);
     }
 
+    /**
+     * The in-process segmenter draws different permutations than DNAcopy and approximates the tail probabilities
+     * differently, so it may disagree with the expected outputs (produced by DNAcopy) on splits whose p-value is close
+     * to alpha; this bounds the number of breakpoints of the HCC1143 data in which they may differ.
+     */
+    private static final int MAX_JAVA_BREAKPOINTS_DIFFERENT_FROM_R = 4;
+
+    @Test(dataProvider = "inputFileData")
+    public void testJavaSegmenterCommandLine(final File INPUT_FILE, final File EXPECTED, final File output, String sampleName) throws IOException {
+        final String[] arguments = {
+                "-" + ExomeStandardArgumentDefinitions.TARGET_FILE_SHORT_NAME, INPUT_FILE.getAbsolutePath(),
+                "-" + StandardArgumentDefinitions.OUTPUT_SHORT_NAME, output.getAbsolutePath(),
+                "-" + PerformSegmentation.JAVA_SEGMENTER_SHORT_NAME
+        };
+        runCommandLine(arguments);
+        SegmenterUnitTest.assertSimilarSegments(output, EXPECTED, sampleName.equals("Simple") ? 0 : MAX_JAVA_BREAKPOINTS_DIFFERENT_FROM_R);
+    }
+
     @Test()
     public void testUnLoggedCommandLine() throws IOException {
         final File INPUT_FILE = new File(inputTestDir, "HCC1143_reduced_log.tsv");
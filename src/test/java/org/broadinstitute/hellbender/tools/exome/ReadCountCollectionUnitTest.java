@@ -26,7 +26,8 @@ public final class ReadCountCollectionUnitTest extends BaseTest {
 
     private static final int[] CORRECT_COLUMN_COUNTS = {1, 10};
 
-    private static final int[] CORRECT_TARGET_COUNTS = {1, 10, 100};
+    // the largest count spans several of the target blocks that column sums are accumulated over
+    private static final int[] CORRECT_TARGET_COUNTS = {1, 10, 100, 2500};
 
     @Test(dataProvider="correctInstantiationData")
     public void testCorrectInstantiation(final ReadCountCollectionInfo info) {
@@ -58,6 +59,23 @@ public final class ReadCountCollectionUnitTest extends BaseTest {
         assertZScores(counts, zScoreCounts);
     }
 
+    @Test(dataProvider ="correctInstantiationData")
+    public void testNormalizeBySampleAverageInPlace(final ReadCountCollectionInfo info) {
+        final boolean weightByTargetSize = info.intervals != null;
+        final ReadCountCollection counts = info.newInstance();
+        final ReadCountCollection normalizedCounts = counts.normalizeByColumnAverages(weightByTargetSize, true);
+        Assert.assertSame(normalizedCounts.counts(), counts.counts());
+        assertNormalizedBySampleAverage(info.newInstance(), normalizedCounts, weightByTargetSize);
+    }
+
+    @Test(dataProvider ="correctInstantiationData")
+    public void testConvertToZScoresInPlace(final ReadCountCollectionInfo info) {
+        final ReadCountCollection counts = info.newInstance();
+        final ReadCountCollection zScoreCounts = counts.zScoreCounts(true);
+        Assert.assertSame(zScoreCounts.counts(), counts.counts());
+        assertZScores(info.newInstance(), zScoreCounts);
+    }
+
     @Test(dataProvider ="correctInstantiationData", expectedExceptions = IllegalArgumentException.class)
     public void testNormalizeBySampleAverageWithweightingNoTargetIntervals(final ReadCountCollectionInfo info) {
         if (info.intervals != null) {
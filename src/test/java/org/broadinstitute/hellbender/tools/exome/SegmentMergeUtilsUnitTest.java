@@ -1040,6 +1040,39 @@ public final class SegmentMergeUtilsUnitTest extends BaseTest {
                     SegmentMergeUtils.mergeSmallSegments(segments, genome, SMALL_SEGMENT_TARGET_NUMBER_THRESHOLD);
             Assert.assertEquals(resultMergedSegments, expectedMergedSegments);
         }
+
+        /**
+         * Benchmarks small-segment merging of many single-target segments, which should take time roughly linear in
+         * the number of segments, and checks that the merged segments are above threshold and cover all targets.
+         */
+        @Test
+        public void testSmallSegmentMergingOfManySegments() {
+            final int numSegments = 100000;
+            final List<SimpleInterval> segments = new ArrayList<>(numSegments);
+            final List<ReadCountRecord.SingleSampleRecord> targetCoverages = new ArrayList<>(numSegments);
+            for (int i = 0; i < numSegments; i++) {
+                final SimpleInterval segment = new SimpleInterval("chr1", 100 * i + 1, 100 * i + 50 + i % 7);
+                segments.add(segment);
+                targetCoverages.add(new ReadCountRecord.SingleSampleRecord(new Target("target" + i, segment), 1. + i % 5));
+            }
+            final Genome genome = makeGenome(Collections.singletonList(targetCoverages), Collections.singletonList(Collections.emptyList()));
+
+            final long startTime = System.nanoTime();
+            final List<SimpleInterval> resultMergedSegments =
+                    SegmentMergeUtils.mergeSmallSegments(segments, genome, SMALL_SEGMENT_TARGET_NUMBER_THRESHOLD);
+            logger.info(String.format("Merged %d small segments into %d in %.2f s.",
+                    numSegments, resultMergedSegments.size(), (System.nanoTime() - startTime) / 1E9));
+
+            Assert.assertEquals(resultMergedSegments.get(0).getStart(), segments.get(0).getStart());
+            Assert.assertEquals(resultMergedSegments.get(resultMergedSegments.size() - 1).getEnd(),
+                    segments.get(numSegments - 1).getEnd());
+            int numTargets = 0;
+            for (final SimpleInterval segment : resultMergedSegments) {
+                Assert.assertTrue(genome.getTargetIndex().count(segment) >= SMALL_SEGMENT_TARGET_NUMBER_THRESHOLD);
+                numTargets += genome.getTargetIndex().count(segment);
+            }
+            Assert.assertEquals(numTargets, numSegments);
+        }
     }
 
     /**
@@ -1104,6 +1137,31 @@ public final class SegmentMergeUtilsUnitTest extends BaseTest {
             };
         }
 
+        /**
+         * Benchmarks similar-segment merging of many segments, which should take time linear in the number of segments.
+         * Runs of similar segments alternate with dissimilar segments, so that about half of the segments are merged.
+         */
+        @Test
+        public void testSimilarSegmentMergingOfManySegments() {
+            final int numSegments = 100000;
+            final List<ACNVModeledSegment> segments = new ArrayList<>(numSegments);
+            for (int i = 0; i < numSegments; i++) {
+                final double segmentMean = (i / 2) % 2 == 0 ? 1. : 5.;
+                segments.add(constructSegment("1", 10 * i + 1, 10 * i + 10, segmentMean, 0.05, 0.25, 0.1));
+            }
+
+            final long startTime = System.nanoTime();
+            final List<ACNVModeledSegment> resultMergedSegments =
+                    SegmentMergeUtils.mergeSimilarSegments(segments, INTERVAL_THRESHOLD, INTERVAL_THRESHOLD);
+            logger.info(String.format("Merged %d similar segments into %d in %.2f s.",
+                    numSegments, resultMergedSegments.size(), (System.nanoTime() - startTime) / 1E9));
+
+            Assert.assertEquals(resultMergedSegments.size(), numSegments / 2);
+            for (int i = 0; i < resultMergedSegments.size(); i++) {
+                Assert.assertEquals(resultMergedSegments.get(i).getInterval(), new SimpleInterval("1", 20 * i + 1, 20 * i + 20));
+            }
+        }
+
         @Test(dataProvider = "dataSimilarSegmentMerging")
         public void testSimilarSegmentMerging(final List<ACNVModeledSegment> segments,
                                               final List<ACNVModeledSegment> expectedMergedSegments) {
@@ -0,0 +1,126 @@
+package org.broadinstitute.hellbender.tools.exome;
+
+import org.apache.commons.math3.linear.RealMatrix;
+import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.utils.SparkToggleCommandLineProgram;
+import org.broadinstitute.hellbender.utils.hdf5.HDF5File;
+import org.broadinstitute.hellbender.utils.hdf5.HDF5PoN;
+import org.broadinstitute.hellbender.utils.hdf5.PoNTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Integration test for {@link UpdatePanelOfNormals}.
+ */
+public class UpdatePanelOfNormalsIntegrationTest extends CommandLineProgramTest {
+
+    private static final File TEST_FILE_DIR = new File("src/test/resources/org/broadinstitute/hellbender/tools/exome");
+
+    private static final File CONTROL_PCOV_FILE = new File(TEST_FILE_DIR, "create-pon-control-some-targets-full.pcov");
+
+    private static final int OLD_SAMPLE_COUNT = 80;
+
+    private static final int NUMBER_OF_EIGEN_SAMPLES = 3;
+
+    /**
+     * Compares a PoN updated with some samples against one created from scratch with all the samples.
+     *
+     * <p>
+     *     The target factors and normalized counts must be the same.  The panels are pre-processed with thresholds
+     *     from different sets of samples, so log-normals and singular values are only expected to be close.
+     * </p>
+     */
+    @Test
+    public void testUpdatedPoNIsCloseToPoNCreatedFromScratch() throws IOException {
+        final ReadCountCollection allCounts = ReadCountCollectionUtils.parse(CONTROL_PCOV_FILE);
+        final List<String> sampleNames = allCounts.columnNames();
+        final File newCountsFile = createTempFile("update-pon-new-", ".pcov");
+        ReadCountCollectionUtils.write(newCountsFile, allCounts.subsetColumns(new LinkedHashSet<>(sampleNames.subList(OLD_SAMPLE_COUNT, sampleNames.size()))));
+
+        // the old PoN keeps all its eigen samples so that the update of the reduced panel is exact:
+        final File oldPoN = PoNTestUtils.createDummyHDF5FilePoN(
+                allCounts.subsetColumns(new LinkedHashSet<>(sampleNames.subList(0, OLD_SAMPLE_COUNT))), OLD_SAMPLE_COUNT);
+        final File expectedPoN = PoNTestUtils.createDummyHDF5FilePoN(allCounts, NUMBER_OF_EIGEN_SAMPLES);
+        final File updatedPoN = createTempFile("updated-pon-", ".hd5");
+        runCommandLine(Arrays.asList(
+                "-" + ExomeStandardArgumentDefinitions.PON_FILE_SHORT_NAME, oldPoN.toString(),
+                "-" + StandardArgumentDefinitions.INPUT_SHORT_NAME, newCountsFile.toString(),
+                "-" + StandardArgumentDefinitions.OUTPUT_SHORT_NAME, updatedPoN.toString(),
+                "-" + CreatePanelOfNormals.NUMBER_OF_EIGEN_SAMPLES_SHORT_NAME, String.valueOf(NUMBER_OF_EIGEN_SAMPLES),
+                "-" + SparkToggleCommandLineProgram.DISABLE_SPARK_SHORT_NAME,
+                "--verbosity", "INFO"));
+
+        try (final HDF5File updatedReader = new HDF5File(updatedPoN);
+             final HDF5File expectedReader = new HDF5File(expectedPoN)) {
+            final HDF5PoN updated = new HDF5PoN(updatedReader);
+            final HDF5PoN expected = new HDF5PoN(expectedReader);
+            Assert.assertEquals(updated.getSampleNames(), expected.getSampleNames());
+            Assert.assertEquals(updated.getTargetNames(), expected.getTargetNames());
+
+            final double[] updatedTargetFactors = updated.getTargetFactors().getColumn(0);
+            final double[] expectedTargetFactors = expected.getTargetFactors().getColumn(0);
+            for (int i = 0; i < expectedTargetFactors.length; i++) {
+                Assert.assertEquals(updatedTargetFactors[i], expectedTargetFactors[i], 1e-6 * Math.abs(expectedTargetFactors[i]));
+            }
+            final RealMatrix updatedNormalizedCounts = updated.getNormalizedCounts();
+            final RealMatrix expectedNormalizedCounts = expected.getNormalizedCounts();
+            for (int i = 0; i < expectedNormalizedCounts.getRowDimension(); i++) {
+                for (int j = 0; j < expectedNormalizedCounts.getColumnDimension(); j++) {
+                    Assert.assertEquals(updatedNormalizedCounts.getEntry(i, j), expectedNormalizedCounts.getEntry(i, j),
+                            1e-6 * Math.max(1, Math.abs(expectedNormalizedCounts.getEntry(i, j))));
+                }
+            }
+
+            Assert.assertTrue(meanAbsoluteLogNormalDifference(updated, expected) < 0.05);
+
+            final double[] updatedSingularValues = columnNorms(updated.getReducedPanelCounts());
+            final double[] expectedSingularValues = columnNorms(expected.getReducedPanelCounts());
+            Assert.assertEquals(updatedSingularValues.length, NUMBER_OF_EIGEN_SAMPLES);
+            Assert.assertEquals(expectedSingularValues.length, NUMBER_OF_EIGEN_SAMPLES);
+            for (int i = 0; i < NUMBER_OF_EIGEN_SAMPLES; i++) {
+                Assert.assertEquals(updatedSingularValues[i], expectedSingularValues[i], 0.1 * expectedSingularValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Mean absolute difference of the log-normals over the panel targets and samples that both PoNs have in common.
+     */
+    private static double meanAbsoluteLogNormalDifference(final HDF5PoN updated, final HDF5PoN expected) {
+        final List<String> updatedTargetNames = updated.getPanelTargetNames();
+        final List<String> updatedSampleNames = updated.getPanelSampleNames();
+        final List<String> expectedTargetNames = expected.getPanelTargetNames();
+        final List<String> expectedSampleNames = expected.getPanelSampleNames();
+        final RealMatrix updatedLogNormals = updated.getLogNormalizedCounts();
+        final RealMatrix expectedLogNormals = expected.getLogNormalizedCounts();
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < expectedTargetNames.size(); i++) {
+            final int row = updatedTargetNames.indexOf(expectedTargetNames.get(i));
+            if (row < 0) {
+                continue;
+            }
+            for (int j = 0; j < expectedSampleNames.size(); j++) {
+                final int column = updatedSampleNames.indexOf(expectedSampleNames.get(j));
+                if (column >= 0) {
+                    sum += Math.abs(updatedLogNormals.getEntry(row, column) - expectedLogNormals.getEntry(i, j));
+                    count++;
+                }
+            }
+        }
+        Assert.assertTrue(count > 0, "the PoNs have no panel target and sample in common");
+        return sum / count;
+    }
+
+    private static double[] columnNorms(final RealMatrix m) {
+        return IntStream.range(0, m.getColumnDimension()).mapToDouble(j -> m.getColumnVector(j).getNorm()).toArray();
+    }
+}
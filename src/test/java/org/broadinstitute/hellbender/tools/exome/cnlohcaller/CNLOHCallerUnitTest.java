@@ -46,6 +46,26 @@ public class CNLOHCallerUnitTest extends BaseTest {
         SerializationTestUtils.roundTripInKryo(calls.get(0), CNLOHCall.class, ctx.getConf());
     }
 
+    @Test
+    public void testMakeCallsWithoutSpark() {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final List<ACNVModeledSegment> segs = SegmentUtils.readACNVModeledSegmentFile(ACNV_SEG_FILE);
+
+        final List<CNLOHCall> sparkCalls = new CNLOHCaller().makeCalls(segs, 2, ctx);
+        final List<CNLOHCall> localCalls = new CNLOHCaller().makeCalls(segs, 2, null);
+
+        Assert.assertEquals(localCalls.size(), sparkCalls.size());
+        for (int i = 0; i < localCalls.size(); i++) {
+            Assert.assertEquals(localCalls.get(i).getRho(), sparkCalls.get(i).getRho());
+            Assert.assertEquals(localCalls.get(i).getM(), sparkCalls.get(i).getM());
+            Assert.assertEquals(localCalls.get(i).getN(), sparkCalls.get(i).getN());
+            Assert.assertEquals(localCalls.get(i).getfCr(), sparkCalls.get(i).getfCr());
+            Assert.assertEquals(localCalls.get(i).getfMaf(), sparkCalls.get(i).getfMaf());
+            Assert.assertEquals(localCalls.get(i).getBalancedCall(), sparkCalls.get(i).getBalancedCall());
+            Assert.assertEquals(localCalls.get(i).getCnlohCall(), sparkCalls.get(i).getCnlohCall());
+        }
+    }
+
     @Test(dataProvider = "mafValues")
     public void testCalculateMaf(double rho, int m, int n, double gt) {
         Assert.assertEquals(CNLOHCaller.calculateMaf(rho, m, n, HomoSapiensConstants.DEFAULT_PLOIDY), gt, 1e-4);
@@ -57,7 +57,7 @@ public final class BayesianHetPulldownCalculatorUnitTest extends BaseTest {
     private static BayesianHetPulldownCalculator calculator;
 
     private static int numPileupEntries;
-    private static List<Map<Nucleotide, List<BayesianHetPulldownCalculator.BaseQuality>>>
+    private static List<BayesianHetPulldownCalculator.PileupBaseQualities>
             fakePileupBaseQualities = new ArrayList<>();
     private static ArrayList<Double> fakePileupHetLogLikelihoodArray = new ArrayList<>();
     private static ArrayList<Double> fakePileupHomLogLikelihoodArray = new ArrayList<>();
@@ -113,7 +113,7 @@ public final class BayesianHetPulldownCalculatorUnitTest extends BaseTest {
         Scanner reader = new Scanner(new FileInputStream(FAKE_PILEUP_FILE));
         while (reader.hasNextLine()) {
 
-            Map<Nucleotide, List<BayesianHetPulldownCalculator.BaseQuality>> baseQualities = new HashMap<>();
+            BayesianHetPulldownCalculator.PileupBaseQualities baseQualities = new BayesianHetPulldownCalculator.PileupBaseQualities();
 
             for (Nucleotide base : new Nucleotide[]{Nucleotide.A, Nucleotide.C, Nucleotide.T, Nucleotide.G}) {
 
@@ -125,12 +125,9 @@ public final class BayesianHetPulldownCalculatorUnitTest extends BaseTest {
                 mappingErrorList.addAll(IntStream.range(0, readErrorList.size())
                         .mapToDouble(i -> 1e-6).boxed().collect(Collectors.toList()));
 
-                /* contruct the BaseQuality list */
-                List<BayesianHetPulldownCalculator.BaseQuality> baseQualityList = new ArrayList<>();
-                baseQualityList.addAll(IntStream.range(0, readErrorList.size()).mapToObj(i -> new BayesianHetPulldownCalculator.BaseQuality(
-                        readErrorList.get(i), mappingErrorList.get(i))).collect(Collectors.toList()));
-
-                baseQualities.put(base, baseQualityList);
+                /* add the reads to the pileup */
+                IntStream.range(0, readErrorList.size()).forEach(i -> baseQualities.add(
+                        base, readErrorList.get(i), mappingErrorList.get(i)));
             }
 
             fakePileupBaseQualities.add(baseQualities);
@@ -163,7 +160,7 @@ public final class BayesianHetPulldownCalculatorUnitTest extends BaseTest {
     }
 
     @Test(dataProvider = "inputTestGetHomLogLikelihood")
-    public void testGetHomLogLikelihood(final Map<Nucleotide, List<BayesianHetPulldownCalculator.BaseQuality>> baseQualities,
+    public void testGetHomLogLikelihood(final BayesianHetPulldownCalculator.PileupBaseQualities baseQualities,
                                         final Nucleotide alleleRef, final Nucleotide alleleAlt,
                                         final double homRefPrior, final double expectedHomLogLikelihood) {
         for (int i=0; i<numPileupEntries; i++) {
@@ -192,7 +189,7 @@ public final class BayesianHetPulldownCalculatorUnitTest extends BaseTest {
     }
 
     @Test(dataProvider = "inputTestGetHetLogLikelihood")
-    public void testGetHetLogLikelihood(final Map<Nucleotide, List<BayesianHetPulldownCalculator.BaseQuality>> baseQualities,
+    public void testGetHetLogLikelihood(final BayesianHetPulldownCalculator.PileupBaseQualities baseQualities,
                                         final Nucleotide alleleRef, final Nucleotide alleleAlt,
                                         final double expectedHetLogLikelihood) {
         for (int i=0; i<numPileupEntries; i++) {
@@ -201,39 +198,26 @@ public final class BayesianHetPulldownCalculatorUnitTest extends BaseTest {
         }
     }
 
+    private static BayesianHetPulldownCalculator.PileupBaseQualities createGenericPileup(final int countA, final int countC,
+                                                                                         final int countT, final int countG) {
+        final BayesianHetPulldownCalculator.PileupBaseQualities baseQualities = new BayesianHetPulldownCalculator.PileupBaseQualities();
+        final int[] counts = {countA, countC, countT, countG};
+        final Nucleotide[] bases = {Nucleotide.A, Nucleotide.C, Nucleotide.T, Nucleotide.G};
+        for (int b = 0; b < bases.length; b++) {
+            for (int i = 0; i < counts[b]; i++) {
+                baseQualities.add(bases[b], 1e-6, 1e-6);
+            }
+        }
+        return baseQualities;
+    }
+
     @Test
     public void testInferAlleleAltFromPileup() {
 
-        Map<Nucleotide, List<BayesianHetPulldownCalculator.BaseQuality>> baseQualities = new HashMap<>();
-        BayesianHetPulldownCalculator.BaseQuality genericBaseQuality = new BayesianHetPulldownCalculator.BaseQuality(60.0, 60.0);
-
-        List<BayesianHetPulldownCalculator.BaseQuality> genericBaseQualityList_0 = new ArrayList<>();
-        List<BayesianHetPulldownCalculator.BaseQuality> genericBaseQualityList_1 = new ArrayList<>();
-        List<BayesianHetPulldownCalculator.BaseQuality> genericBaseQualityList_2 = new ArrayList<>();
-        List<BayesianHetPulldownCalculator.BaseQuality> genericBaseQualityList_3 = new ArrayList<>();
-        List<BayesianHetPulldownCalculator.BaseQuality> genericBaseQualityList_4 = new ArrayList<>();
-
-        /* only the base counts matter; so we can use a generic BaseQuality for all lists */
-
-        genericBaseQualityList_1.add(genericBaseQuality);
-
-        genericBaseQualityList_2.add(genericBaseQuality);
-        genericBaseQualityList_2.add(genericBaseQuality);
-
-        genericBaseQualityList_3.add(genericBaseQuality);
-        genericBaseQualityList_3.add(genericBaseQuality);
-        genericBaseQualityList_3.add(genericBaseQuality);
-
-        genericBaseQualityList_4.add(genericBaseQuality);
-        genericBaseQualityList_4.add(genericBaseQuality);
-        genericBaseQualityList_4.add(genericBaseQuality);
-        genericBaseQualityList_4.add(genericBaseQuality);
+        /* only the base counts matter; so we can use generic error probabilities for all reads */
 
         /* test 1 */
-        baseQualities.put(Nucleotide.A, genericBaseQualityList_4);
-        baseQualities.put(Nucleotide.C, genericBaseQualityList_2);
-        baseQualities.put(Nucleotide.T, genericBaseQualityList_1);
-        baseQualities.put(Nucleotide.G, genericBaseQualityList_1);
+        BayesianHetPulldownCalculator.PileupBaseQualities baseQualities = createGenericPileup(4, 2, 1, 1);
 
         Assert.assertEquals(BayesianHetPulldownCalculator.inferAltFromPileup(baseQualities, Nucleotide.A), Nucleotide.C);
         Assert.assertEquals(BayesianHetPulldownCalculator.inferAltFromPileup(baseQualities, Nucleotide.C), Nucleotide.A);
@@ -241,10 +225,7 @@ public final class BayesianHetPulldownCalculatorUnitTest extends BaseTest {
         Assert.assertEquals(BayesianHetPulldownCalculator.inferAltFromPileup(baseQualities, Nucleotide.G), Nucleotide.A);
 
         /* test 2 */
-        baseQualities.put(Nucleotide.A, genericBaseQualityList_0);
-        baseQualities.put(Nucleotide.C, genericBaseQualityList_3);
-        baseQualities.put(Nucleotide.T, genericBaseQualityList_0);
-        baseQualities.put(Nucleotide.G, genericBaseQualityList_0);
+        baseQualities = createGenericPileup(0, 3, 0, 0);
 
         Assert.assertEquals(BayesianHetPulldownCalculator.inferAltFromPileup(baseQualities, Nucleotide.A), Nucleotide.C);
         /* in this case, A is chosen simply because sorting places A right after C; in theory, T and G are equally
@@ -4,6 +4,7 @@ import htsjdk.samtools.*;
 import htsjdk.samtools.util.Interval;
 import htsjdk.samtools.util.IntervalList;
 import htsjdk.samtools.util.SamLocusIterator;
+import org.apache.commons.lang3.tuple.Pair;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.exome.alleliccount.AllelicCount;
 import org.broadinstitute.hellbender.utils.Nucleotide;
@@ -221,4 +222,25 @@ public final class HetPulldownCalculatorUnitTest extends BaseTest {
         final Pulldown result = calculator.getTumor(TUMOR_BAM_FILE, normalHetIntervals, 15);
         Assert.assertEquals(result, expected);
     }
+
+    /**
+     * Indexed copies of the BAM files are walked in parallel regions and must give the same pulldowns.
+     */
+    @Test
+    public void testIndexedAndMatchedHetPulldowns() throws IOException {
+        final File indexedNormalBAMFile = PileupEngineUnitTest.createIndexedCopy(NORMAL_BAM_FILE);
+        final File indexedTumorBAMFile = PileupEngineUnitTest.createIndexedCopy(TUMOR_BAM_FILE);
+
+        final Pulldown normalHetPulldown = calculator.getNormal(NORMAL_BAM_FILE, 0.05, 10);
+        final Pulldown tumorHetPulldown = calculator.getTumor(TUMOR_BAM_FILE, normalHetPulldown.getIntervals(), 10);
+        Assert.assertEquals(calculator.getNormal(indexedNormalBAMFile, 0.05, 10), normalHetPulldown);
+
+        final Pair<Pulldown, Pulldown> unindexedResult = calculator.getNormalAndTumor(NORMAL_BAM_FILE, TUMOR_BAM_FILE, 0.05, 10);
+        Assert.assertEquals(unindexedResult.getLeft(), normalHetPulldown);
+        Assert.assertEquals(unindexedResult.getRight(), tumorHetPulldown);
+
+        final Pair<Pulldown, Pulldown> indexedResult = calculator.getNormalAndTumor(indexedNormalBAMFile, indexedTumorBAMFile, 0.05, 10);
+        Assert.assertEquals(indexedResult.getLeft(), normalHetPulldown);
+        Assert.assertEquals(indexedResult.getRight(), tumorHetPulldown);
+    }
 }
@@ -5,6 +5,7 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
 import java.util.stream.IntStream;
 
 /**
@@ -29,20 +30,20 @@ public final class HeterogeneousHeterozygousPileupPriorModelUnitTest extends Bas
 
     @Test
     public void testQuadrature() {
-        double sumWeights = hetPrior.gaussIntegrationWeights.stream().mapToDouble(Double::doubleValue).sum();
+        double sumWeights = Arrays.stream(hetPrior.gaussIntegrationWeights).sum();
         double minHetAlleleFraction = (1 - MAX_ABNORMAL_FRACTION) / (MAX_COPY_NUMBER * MAX_ABNORMAL_FRACTION +
                 2 * (1 - MAX_ABNORMAL_FRACTION));
         Assert.assertEquals(sumWeights, 1 - 2 * minHetAlleleFraction, 1e-8);
-        Assert.assertEquals(hetPrior.gaussIntegrationAbscissas.size(), QUADRATURE_ORDER);
+        Assert.assertEquals(hetPrior.gaussIntegrationAbscissas.length, QUADRATURE_ORDER);
     }
 
     @Test
     public void testAlelleRatioPrior() {
         /* the prior should integrate to 1 */
-        Assert.assertEquals(IntStream.range(0, hetPrior.gaussIntegrationAbscissas.size())
-                .mapToDouble(i -> hetPrior.gaussIntegrationWeights.get(i) * hetPrior.alleleFractionPriors.get(i))
+        Assert.assertEquals(IntStream.range(0, hetPrior.gaussIntegrationAbscissas.length)
+                .mapToDouble(i -> hetPrior.gaussIntegrationWeights[i] * hetPrior.alleleFractionPriors[i])
                 .sum(), 1.0, 1e-3);
-        hetPrior.alleleFractionPriors.stream().forEach(x -> Assert.assertTrue(x > 0));
+        Arrays.stream(hetPrior.alleleFractionPriors).forEach(x -> Assert.assertTrue(x > 0));
     }
 
 }
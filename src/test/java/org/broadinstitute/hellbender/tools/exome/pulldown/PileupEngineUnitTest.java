@@ -0,0 +1,83 @@
+package org.broadinstitute.hellbender.tools.exome.pulldown;
+
+import htsjdk.samtools.*;
+import htsjdk.samtools.util.Interval;
+import htsjdk.samtools.util.IntervalList;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for {@link PileupEngine}.
+ */
+public final class PileupEngineUnitTest extends BaseTest {
+    private static final String TEST_SUB_DIR = publicTestDir + "org/broadinstitute/hellbender/tools/exome";
+
+    private static final File NORMAL_BAM_FILE = new File(TEST_SUB_DIR, "normal.sorted.bam");
+    private static final File SNP_FILE = new File(TEST_SUB_DIR, "common_SNP.interval_list");
+    private static final File REF_FILE = new File(hg19MiniReference);
+
+    /**
+     * Returns a copy of a coordinate-sorted BAM file in a temporary directory, along with its index.
+     */
+    static File createIndexedCopy(final File bamFile) throws IOException {
+        final File copy = createTempFile("pileup-engine", ".bam");
+        Files.copy(bamFile.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        final File index = new File(copy.getPath() + ".bai");
+        index.deleteOnExit();
+        try (final SamReader reader = SamReaderFactory.makeDefault()
+                .enable(SamReaderFactory.Option.INCLUDE_SOURCE_IN_RECORDS).open(copy)) {
+            BAMIndexer.createIndex(reader, index);
+        }
+        return copy;
+    }
+
+    @Test
+    public void testPartition() {
+        final IntervalList sites = IntervalList.fromFile(SNP_FILE);
+        Assert.assertEquals(PileupEngine.partition(sites, false).size(), 1);
+
+        final IntervalList manySites = new IntervalList(sites.getHeader());
+        for (int i = 1; i <= PileupEngine.MAX_SITES_PER_REGION + 1; i++) {
+            manySites.add(new Interval("1", i, i));
+        }
+        manySites.add(new Interval("2", 1, 1));
+        final List<IntervalList> regions = PileupEngine.partition(manySites, true);
+        Assert.assertEquals(regions.stream().map(IntervalList::size).collect(Collectors.toList()),
+                Arrays.asList(PileupEngine.MAX_SITES_PER_REGION, 1, 1));
+        Assert.assertEquals(regions.get(2).getIntervals().get(0).getContig(), "2");
+
+        // overlapping sites are walked once, and long sites are split between regions:
+        final IntervalList overlappingSites = new IntervalList(sites.getHeader());
+        overlappingSites.add(new Interval("1", 10, 10));
+        overlappingSites.add(new Interval("1", 5, 12));
+        overlappingSites.add(new Interval("1", 10, 10));
+        overlappingSites.add(new Interval("1", 13, PileupEngine.MAX_SITES_PER_REGION + 7));
+        final List<IntervalList> overlappingRegions = PileupEngine.partition(overlappingSites, true);
+        Assert.assertEquals(overlappingRegions.size(), 2);
+        Assert.assertEquals(overlappingRegions.stream().mapToLong(IntervalList::getBaseCount).boxed().collect(Collectors.toList()),
+                Arrays.asList((long) PileupEngine.MAX_SITES_PER_REGION, 3L));
+        Assert.assertEquals(overlappingRegions.get(0).getIntervals().get(0), new Interval("1", 5, 12));
+        Assert.assertEquals(overlappingRegions.get(1).getIntervals().get(0), new Interval("1", PileupEngine.MAX_SITES_PER_REGION + 5, PileupEngine.MAX_SITES_PER_REGION + 7));
+    }
+
+    @Test
+    public void testIndexedWalkMatchesSinglePass() throws IOException {
+        final PileupEngine engine = new PileupEngine(REF_FILE, 30, 20, ValidationStringency.STRICT);
+        final IntervalList sites = IntervalList.fromFile(SNP_FILE);
+        final PileupEngine.PileupSummarizer<String> summarizer = (locus, refBase) ->
+                locus.getSequenceName() + ":" + locus.getPosition() + ":" + refBase + ":" + locus.getRecordAndPositions().size();
+
+        final List<String> expected = engine.walk(NORMAL_BAM_FILE, sites, summarizer, s -> s);
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(engine.walk(createIndexedCopy(NORMAL_BAM_FILE), sites, summarizer, s -> s), expected);
+    }
+}
@@ -0,0 +1,46 @@
+package org.broadinstitute.hellbender.tools.genome;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public final class BinnedReadCountsUnitTest extends BaseTest {
+    private static final SAMSequenceDictionary DICTIONARY = new SAMSequenceDictionary(Arrays.asList(
+            new SAMSequenceRecord("1", 250), new SAMSequenceRecord("2", 100)));
+
+    private static final List<SimpleInterval> BINS = Arrays.asList(
+            new SimpleInterval("1", 1, 100), new SimpleInterval("1", 101, 200), new SimpleInterval("1", 201, 250),
+            new SimpleInterval("2", 1, 100), new SimpleInterval("2", 51, 100));
+
+    @Test
+    public void testAddAndMerge() {
+        final BinnedReadCounts counts1 = new BinnedReadCounts(DICTIONARY, 100)
+                .add(0, 1).add(0, 99).add(0, 150).add(0, 250);
+        final BinnedReadCounts counts2 = new BinnedReadCounts(DICTIONARY, 100)
+                .add(0, 101).add(1, 60);
+        Assert.assertEquals(counts1.getCounts(BINS, DICTIONARY), new double[]{2, 1, 1, 0, 0});
+        Assert.assertEquals(counts2.getCounts(BINS, DICTIONARY), new double[]{0, 1, 0, 1, 0});
+
+        final BinnedReadCounts merged = counts1.merge(counts2);
+        Assert.assertEquals(merged.getCounts(BINS, DICTIONARY), new double[]{2, 2, 1, 1, 0});
+        Assert.assertEquals(merged.getTotalCount(), 6);
+        Assert.assertEquals(new BinnedReadCounts(DICTIONARY, 100).merge(merged).getCounts(BINS, DICTIONARY),
+                new double[]{2, 2, 1, 1, 0});
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMergeDifferentBins() {
+        new BinnedReadCounts(DICTIONARY, 100).merge(new BinnedReadCounts(DICTIONARY, 50));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testReadPastContigEnd() {
+        new BinnedReadCounts(DICTIONARY, 100).add(1, 200);
+    }
+}
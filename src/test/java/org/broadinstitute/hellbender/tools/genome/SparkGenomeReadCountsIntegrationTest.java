@@ -8,6 +8,8 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class SparkGenomeReadCountsIntegrationTest extends CommandLineProgramTest {
@@ -193,4 +195,29 @@ public class SparkGenomeReadCountsIntegrationTest extends CommandLineProgramTest
             Assert.assertEquals(targets.get(i).getEnd(), (i+1)*100);
         }
     }
+
+    @Test
+    public void testSparkGenomeReadCountsByContig() throws IOException {
+        final File sparkOutputFile = createTempFile(BAM_FILE.getName(), ".cov");
+        final File localOutputFile = createTempFile(BAM_FILE.getName(), ".cov");
+        for (final File outputFile : Arrays.asList(sparkOutputFile, localOutputFile)) {
+            final List<String> arguments = new ArrayList<>(Arrays.asList(
+                    "--disableSequenceDictionaryValidation",
+                    "-" + StandardArgumentDefinitions.REFERENCE_SHORT_NAME, REFERENCE_FILE.getAbsolutePath(),
+                    "-" + StandardArgumentDefinitions.INPUT_SHORT_NAME, BAM_FILE.getAbsolutePath(),
+                    "-" + SparkGenomeReadCounts.OUTPUT_FILE_SHORT_NAME, outputFile.getAbsolutePath(),
+                    "-" + SparkGenomeReadCounts.BINSIZE_SHORT_NAME, "2000"));
+            if (outputFile == localOutputFile) {
+                arguments.add("-" + SparkGenomeReadCounts.COUNT_BY_CONTIG_SHORT_NAME);
+            }
+            runCommandLine(arguments);
+        }
+
+        for (final String extension : Arrays.asList("", SparkGenomeReadCounts.RAW_COV_OUTPUT_EXTENSION)) {
+            final ReadCountCollection sparkCoverage = ReadCountCollectionUtils.parse(new File(sparkOutputFile.getAbsolutePath() + extension));
+            final ReadCountCollection localCoverage = ReadCountCollectionUtils.parse(new File(localOutputFile.getAbsolutePath() + extension));
+            Assert.assertEquals(localCoverage.targets(), sparkCoverage.targets());
+            Assert.assertEquals(localCoverage.counts().getColumn(0), sparkCoverage.counts().getColumn(0));
+        }
+    }
 }
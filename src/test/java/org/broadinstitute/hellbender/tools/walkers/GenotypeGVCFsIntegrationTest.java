@@ -1,10 +1,16 @@
 package org.broadinstitute.hellbender.tools.walkers;
 
+import htsjdk.tribble.Tribble;
+import htsjdk.tribble.index.Index;
+import htsjdk.tribble.index.IndexFactory;
 import htsjdk.tribble.readers.LineIterator;
 import htsjdk.tribble.readers.PositionalBufferedStream;
+import htsjdk.tribble.util.LittleEndianOutputStream;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFCodec;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.engine.GVCFSiteWalker;
+import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.test.ArgumentsBuilder;
 import org.broadinstitute.hellbender.utils.test.VariantContextTestUtils;
@@ -14,7 +20,10 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -62,33 +71,137 @@ public class GenotypeGVCFsIntegrationTest extends CommandLineProgramTest {
         assertVariantContextsMatch(getTestFile(input), getTestFile(expected), extraArgs);
     }
 
+    /**
+     * Genotypes two single-sample gVCFs together, where the reference block of each sample spans the variant of the
+     * other and the deletion of one sample spans the SNP of the other, and checks that the result is the same as
+     * that of genotyping the gVCF combining them.
+     */
+    @Test
+    public void testMultipleSingleSampleGVCFsMatchCombinedGVCF() throws IOException {
+        final List<File> inputs = Arrays.asList(getTestFile("spanningDel.NA1.g.vcf"), getTestFile("spanningDel.NA2.g.vcf"));
+        final File expected = getTestFile("spanningDel.combined.g.vcf.expected.vcf");
+        assertGenotypesMatch(inputs, expected, NO_EXTRA_ARGS);
+        assertVariantContextsMatch(inputs, expected, NO_EXTRA_ARGS);
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testDuplicateSamplesInGVCFs() throws IOException {
+        final File input = getTestFile("spanningDel.NA1.g.vcf");
+        runGenotypeGVCFSAndAssertSomething(Arrays.asList(input, input), getTestFile("spanningDel.combined.g.vcf.expected.vcf"),
+                NO_EXTRA_ARGS, VariantContextTestUtils::assertVariantContextsHaveSameGenotypes);
+    }
+
+    @DataProvider(name = "gvcfsToGenotypeInShards")
+    public Object[][] gvcfsToGenotypeInShards() {
+        return new Object[][]{
+                // the interval starts within a deletion of NA1, and the shards split reference blocks and deletions
+                {Arrays.asList("spanningDel.NA1.g.vcf", "spanningDel.NA2.g.vcf"), "20:69512-69530", 2},
+                {Collections.singletonList("CEUTrio.20.21.gatk3.4.g.vcf"), "20:10000000-10200000", 997},
+        };
+    }
+
+    /**
+     * Tests that genotyping shards in parallel gives the same output as the streaming pass restricted to the sites
+     * starting in the intervals, including for the sites near the start of the interval and the boundaries of the shards.
+     */
+    @Test(dataProvider = "gvcfsToGenotypeInShards")
+    public void testShardThreadsMatchStreaming(final List<String> inputNames, final String interval, final int shardSize) throws IOException {
+        final List<File> inputs = new ArrayList<>(inputNames.size());
+        for (final String inputName : inputNames) {
+            inputs.add(createIndexedCopy(getTestFile(inputName)));
+        }
+        final String onlySitesStartingInIntervals = "--" + GVCFSiteWalker.ONLY_SITES_STARTING_IN_INTERVALS_LONG_NAME;
+        final File streamingOutput = runGenotypeGVCFs(inputs, Arrays.asList("-L", interval, onlySitesStartingInIntervals));
+        final File shardedOutput = runGenotypeGVCFs(inputs, Arrays.asList("-L", interval, onlySitesStartingInIntervals,
+                "--" + GVCFSiteWalker.SHARD_THREADS_LONG_NAME, "2",
+                "--" + GVCFSiteWalker.SHARD_SIZE_LONG_NAME, String.valueOf(shardSize)));
+
+        final List<VariantContext> expectedVC = getVariantContexts(streamingOutput);
+        final List<VariantContext> actualVC = getVariantContexts(shardedOutput);
+        Assert.assertFalse(expectedVC.isEmpty(), "no variants in the interval");
+        assertForEachElementInLists(actualVC, expectedVC, (a, e) -> VariantContextTestUtils.assertVariantContextsAreEqual(a, e, Collections.emptyList()));
+    }
+
+    /**
+     * Tests that by default the sites of the records overlapping the intervals are genotyped even if they start before
+     * them, like the deletion of NA1 at 20:69511, and that they are skipped when asked to.
+     */
+    @Test
+    public void testIntervalsIncludeSitesStartingBeforeThem() throws IOException {
+        final List<File> inputs = Arrays.asList(getTestFile("spanningDel.NA1.g.vcf"), getTestFile("spanningDel.NA2.g.vcf"));
+        final String interval = "20:69512-69530";
+
+        final List<VariantContext> allSites = getVariantContexts(runGenotypeGVCFs(inputs, Arrays.asList("-L", interval)));
+        Assert.assertTrue(allSites.stream().anyMatch(vc -> vc.getStart() == 69511 && vc.isIndel()), "missing the deletion starting before the interval");
+        Assert.assertTrue(allSites.stream().anyMatch(vc -> vc.getStart() == 69513), "missing the SNP in the interval");
+
+        final List<VariantContext> sitesStartingInInterval = getVariantContexts(runGenotypeGVCFs(inputs, Arrays.asList("-L", interval,
+                "--" + GVCFSiteWalker.ONLY_SITES_STARTING_IN_INTERVALS_LONG_NAME)));
+        Assert.assertFalse(sitesStartingInInterval.isEmpty(), "no variants in the interval");
+        Assert.assertTrue(sitesStartingInInterval.stream().allMatch(vc -> vc.getStart() >= 69512));
+        Assert.assertEquals(sitesStartingInInterval.size(), allSites.stream().filter(vc -> vc.getStart() >= 69512).count());
+    }
+
+    @Test(expectedExceptions = UserException.BadArgumentValue.class)
+    public void testShardThreadsWithIntervalsRequireOnlySitesStartingInIntervals() throws IOException {
+        final File input = createIndexedCopy(getTestFile("spanningDel.NA1.g.vcf"));
+        runGenotypeGVCFs(Collections.singletonList(input), Arrays.asList("-L", "20:69512-69530",
+                "--" + GVCFSiteWalker.SHARD_THREADS_LONG_NAME, "2"));
+    }
+
+    //copies a gVCF next to an index of it, which is needed to query the shards
+    private File createIndexedCopy(final File gvcf) throws IOException {
+        final File copy = createTempFile(gvcf.getName() + ".", ".vcf");
+        Files.copy(gvcf.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        final File indexFile = Tribble.indexFile(copy);
+        indexFile.deleteOnExit();
+        final Index index = IndexFactory.createDynamicIndex(copy, new VCFCodec());
+        try (final LittleEndianOutputStream stream = new LittleEndianOutputStream(new FileOutputStream(indexFile))) {
+            index.write(stream);
+        }
+        return copy;
+    }
+
     private void assertVariantContextsMatch(File input, File expected, List<String> extraArgs) throws IOException {
-        runGenotypeGVCFSAndAssertSomething(input, expected, extraArgs, (a, e) -> VariantContextTestUtils.assertVariantContextsAreEqual(a, e,
+        assertVariantContextsMatch(Collections.singletonList(input), expected, extraArgs);
+    }
+
+    private void assertVariantContextsMatch(List<File> inputs, File expected, List<String> extraArgs) throws IOException {
+        runGenotypeGVCFSAndAssertSomething(inputs, expected, extraArgs, (a, e) -> VariantContextTestUtils.assertVariantContextsAreEqual(a, e,
                 Arrays.asList("FS", //TODO There's a bug in GATK 3 computing FS
                         "QD", //TODO QD has a cap value and anything that reaches that is randomized.  It's difficult to reproduce the same random numbers accross gatk3 -> 4
                         "InbreedingCoeff")));
     }
 
     private void assertGenotypesMatch(File input, File expected, List<String> additionalArguments) throws IOException {
-        runGenotypeGVCFSAndAssertSomething(input, expected, additionalArguments, VariantContextTestUtils::assertVariantContextsHaveSameGenotypes);
+        assertGenotypesMatch(Collections.singletonList(input), expected, additionalArguments);
     }
 
-    private void runGenotypeGVCFSAndAssertSomething(File input, File expected, List<String> additionalArguments, BiConsumer<VariantContext, VariantContext> assertion) throws IOException {
+    private void assertGenotypesMatch(List<File> inputs, File expected, List<String> additionalArguments) throws IOException {
+        runGenotypeGVCFSAndAssertSomething(inputs, expected, additionalArguments, VariantContextTestUtils::assertVariantContextsHaveSameGenotypes);
+    }
+
+    private void runGenotypeGVCFSAndAssertSomething(List<File> inputs, File expected, List<String> additionalArguments, BiConsumer<VariantContext, VariantContext> assertion) throws IOException {
+        final File output = runGenotypeGVCFs(inputs, additionalArguments);
+
+        final List<VariantContext> expectedVC = getVariantContexts(expected);
+        final List<VariantContext> actualVC = getVariantContexts(output);
+        assertForEachElementInLists(actualVC, expectedVC, assertion); //TODO Inbreeding calculation changed between 3.4 and now
+    }
+
+    private File runGenotypeGVCFs(List<File> inputs, List<String> additionalArguments) {
         final File output = createTempFile("genotypegvcf", "vcf");
 
         final ArgumentsBuilder args = new ArgumentsBuilder();
-        args.addReference(new File(b37_reference_20_21))
-                .addVCF(input)
-                .addOutput(output);
+        args.addReference(new File(b37_reference_20_21));
+        inputs.forEach(args::addVCF);
+        args.addOutput(output);
 
         additionalArguments.forEach(args::add);
 
         Utils.resetRandomGenerator();
         runCommandLine(args);
-
-        final List<VariantContext> expectedVC = getVariantContexts(expected);
-        final List<VariantContext> actualVC = getVariantContexts(output);
-        assertForEachElementInLists(actualVC, expectedVC, assertion); //TODO Inbreeding calculation changed between 3.4 and now
+        return output;
     }
 
     /**
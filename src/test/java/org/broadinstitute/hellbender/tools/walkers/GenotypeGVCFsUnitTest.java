@@ -5,6 +5,7 @@ import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.GenotypeBuilder;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.test.BaseTest;
 import org.broadinstitute.hellbender.utils.test.VariantContextTestUtils;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
@@ -128,6 +129,35 @@ public class GenotypeGVCFsUnitTest extends BaseTest {
 
     }
 
+    @Test
+    public void testQualByDepth() {
+        final VariantContext vc = new VariantContextBuilder(getHetWithGenotype(generateGenotypes(
+                b -> b.alleles(Arrays.asList(REF, ALT)).AD(new int[]{10, 10}),
+                b -> b.alleles(Arrays.asList(REF, REF)).AD(new int[]{30, 0}),
+                b -> b.alleles(Arrays.asList(ALT, ALT)).DP(DP))))
+                .log10PError(-10.0).make();
+        // only the het genotype has more than one alt read, so the depth is 20
+        Assert.assertEquals(GenotypeGVCFs.qualByDepth(vc), "5.00");
+
+        final VariantContext noVariantGenotypes = new VariantContextBuilder(getHetWithGenotype(generateGenotypes(
+                b -> b.alleles(Arrays.asList(REF, REF)).AD(new int[]{30, 0}))))
+                .log10PError(-10.0).make();
+        Assert.assertNull(GenotypeGVCFs.qualByDepth(noVariantGenotypes));
+    }
+
+    @Test
+    public void testCappedQualByDepthOnlyDependsOnTheSite() {
+        final VariantContext vc = new VariantContextBuilder(getHetWithGenotype(generateGenotypes(
+                b -> b.alleles(Arrays.asList(REF, ALT)).AD(new int[]{10, 10}))))
+                .log10PError(-1000.0).make();
+        final String qd = GenotypeGVCFs.qualByDepth(vc);
+        Assert.assertNotEquals(qd, "500.00");
+        Assert.assertEquals(Double.parseDouble(qd), 30.0, 30.0);
+        // drawing from the shared generator does not change it
+        Utils.getRandomGenerator().nextGaussian();
+        Assert.assertEquals(GenotypeGVCFs.qualByDepth(new VariantContextBuilder(vc).make()), qd);
+    }
+
 
 
 }
@@ -18,7 +18,9 @@ import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Tests {@link org.broadinstitute.hellbender.tools.walkers.ReferenceConfidenceVariantContextMerger}.
@@ -60,6 +62,27 @@ public class ReferenceConfidenceVariantContextMergerUnitTest extends BaseTest {
     }
 
 
+    @Test
+    public void testAddReferenceConfidenceAttributes() {
+        final Map<String, ReferenceConfidenceVariantContextMerger.AnnotationValues> annotationMap = new LinkedHashMap<>();
+        ReferenceConfidenceVariantContextMerger.addReferenceConfidenceAttributes(attributes("7", "0.5", "x"), annotationMap);
+        ReferenceConfidenceVariantContextMerger.addReferenceConfidenceAttributes(attributes("3", "1.5", "y"), annotationMap);
+        ReferenceConfidenceVariantContextMerger.addReferenceConfidenceAttributes(attributes("5", "-2.0", "z"), annotationMap);
+
+        // the medianish middle element of each numeric annotation, as an Integer or a Double:
+        Assert.assertEquals(annotationMap.get("INT").combine(), 5);
+        Assert.assertEquals(annotationMap.get("DOUBLE").combine(), 0.5);
+        Assert.assertTrue(annotationMap.get("STRING").isEmpty());
+    }
+
+    private static Map<String, Object> attributes(final String intValue, final String doubleValue, final String stringValue) {
+        final Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("INT", intValue);
+        attributes.put("DOUBLE", doubleValue);
+        attributes.put("STRING", stringValue);
+        return attributes;
+    }
+
     @Test(expectedExceptions = UserException.class)
     public void testGetIndexesOfRelevantAllelesWithNoALT() {
 
@@ -0,0 +1,78 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+public final class HaplotypeCallerProfilerUnitTest extends BaseTest {
+
+    @Test
+    public void testCountersAreAccumulatedPerRegion() {
+        final HaplotypeCallerProfiler profiler = new HaplotypeCallerProfiler(true, 0);
+        for (int region = 1; region <= 3; region++) {
+            profiler.startRegion();
+            profiler.count(HaplotypeCallerProfiler.Counter.READS, region);
+            profiler.count(HaplotypeCallerProfiler.Counter.READS, region);
+            final long start = profiler.start();
+            profiler.stop(HaplotypeCallerProfiler.Stage.ASSEMBLY, start);
+            profiler.endRegion();
+        }
+        Assert.assertEquals(profiler.getRegions(), 3);
+        Assert.assertEquals(profiler.getTotal(HaplotypeCallerProfiler.Counter.READS), 12);
+        Assert.assertEquals(profiler.getTotal(HaplotypeCallerProfiler.Counter.HAPLOTYPES), 0);
+        Assert.assertTrue(profiler.getTotalNanos(HaplotypeCallerProfiler.Stage.ASSEMBLY) >= 0);
+    }
+
+    @Test
+    public void testDisabledProfilerRecordsNothing() {
+        final HaplotypeCallerProfiler profiler = new HaplotypeCallerProfiler(false, 0);
+        profiler.startRegion();
+        profiler.count(HaplotypeCallerProfiler.Counter.READS, 10);
+        Assert.assertEquals(profiler.start(), 0);
+        profiler.endRegion();
+        Assert.assertEquals(profiler.getRegions(), 0);
+        Assert.assertEquals(profiler.getTotal(HaplotypeCallerProfiler.Counter.READS), 0);
+    }
+
+    @Test
+    public void testHistogramQuantiles() {
+        final HaplotypeCallerProfiler.Histogram histogram = new HaplotypeCallerProfiler.Histogram();
+        Assert.assertEquals(histogram.quantileUpperBound(0.5), 0);
+        for (int i = 1; i <= 100; i++) {
+            histogram.add(i);
+        }
+        Assert.assertEquals(histogram.getCount(), 100);
+        Assert.assertEquals(histogram.getTotal(), 5050);
+        // the 50th value (50) is in the bin [32, 64)
+        Assert.assertEquals(histogram.quantileUpperBound(0.5), 63);
+        // the 99th value (99) is in the bin [64, 128), capped by the maximum
+        Assert.assertEquals(histogram.quantileUpperBound(0.99), 100);
+    }
+
+    @Test
+    public void testWriteMetrics() throws IOException {
+        final HaplotypeCallerProfiler profiler = new HaplotypeCallerProfiler(true, 0);
+        profiler.startRegion();
+        profiler.count(HaplotypeCallerProfiler.Counter.PAIR_HMM_CELLS, 1000);
+        profiler.stopKmerAssembly(25, profiler.start());
+        profiler.endRegion();
+
+        final File output = createTempFile("profile", ".tsv");
+        profiler.writeMetrics(output);
+        final List<String> lines = Files.readAllLines(output.toPath());
+        Assert.assertEquals(lines.get(0), String.join("\t", HaplotypeCallerProfiler.COLUMNS.names()));
+        Assert.assertEquals(lines.size(), 1 + HaplotypeCallerProfiler.Stage.values().length + 1 + HaplotypeCallerProfiler.Counter.values().length);
+        Assert.assertTrue(lines.stream().anyMatch(line -> line.startsWith("ASSEMBLY_KMER_25\tus\t")));
+        Assert.assertTrue(lines.stream().anyMatch(line -> line.startsWith("PAIR_HMM_CELLS\tcount\t1000")));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeLogInterval() {
+        new HaplotypeCallerProfiler(true, -1);
+    }
+}
@@ -6,6 +6,8 @@ import htsjdk.samtools.TextCigarCodec;
 import htsjdk.variant.variantcontext.Allele;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
 import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
 import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
@@ -203,4 +205,59 @@ public final class PairHMMLikelihoodCalculationEngineUnitTest extends BaseTest {
         lce.close();
         new File(PairHMMLikelihoodCalculationEngine.LIKELIHOODS_FILENAME).delete();
     }
+
+    @Test
+    public void testCachedLikelihoodsMatchUncached(){
+        final PairHMMLikelihoodCalculationEngine uncachedEngine = new PairHMMLikelihoodCalculationEngine((byte) 10,
+                PairHMM.Implementation.LOGLESS_CACHING, -4.5, PairHMMLikelihoodCalculationEngine.PCRErrorModel.CONSERVATIVE);
+        final PairHMMLikelihoodCalculationEngine cachedEngine = new PairHMMLikelihoodCalculationEngine((byte) 10,
+                PairHMM.Implementation.LOGLESS_CACHING, -4.5, PairHMMLikelihoodCalculationEngine.PCRErrorModel.CONSERVATIVE, 100);
+
+        final String sample = "sample1";
+        final SampleList samples = new IndexedSampleList(sample);
+        final String refBases = "ACGTTGCATTAGCAGGACTCGATCGATCGGGATACGATTCAGCAGTAC";
+        final Haplotype ref = new Haplotype(refBases.getBytes(), true);
+        final Haplotype snp = new Haplotype((refBases.substring(0, 20) + "A" + refBases.substring(21)).getBytes(), false);
+        final Haplotype deletion = new Haplotype((refBases.substring(0, 30) + refBases.substring(33)).getBytes(), false);
+        final Haplotype snp2 = new Haplotype((refBases.substring(0, 21) + "T" + refBases.substring(22)).getBytes(), false);
+        final Haplotype snp3 = new Haplotype((refBases.substring(0, 10) + "G" + refBases.substring(11)).getBytes(), false);
+
+        // the same haplotypes again, a subset of them, new ones, and the first ones again after they have been replaced
+        final List<List<Haplotype>> regionHaplotypes = Arrays.asList(Arrays.asList(ref, snp, deletion, snp2),
+                Arrays.asList(ref, snp, deletion, snp2), Arrays.asList(ref, snp), Arrays.asList(ref, snp, snp3),
+                Arrays.asList(ref, snp, deletion, snp2));
+        for (final List<Haplotype> haplotypes : regionHaplotypes) {
+            final AssemblyResultSet assemblyResultSet = new AssemblyResultSet();
+            for (final Haplotype haplotype : haplotypes) {
+                haplotype.setGenomeLocation(new SimpleInterval("1", 1, refBases.length()));
+                assemblyResultSet.add(haplotype);
+            }
+
+            // fresh read objects every time, as in overlapping assembly regions
+            final List<GATKRead> reads = new ArrayList<>();
+            for (final int start : Arrays.asList(0, 5, 10, 15)) {
+                final byte[] bases = refBases.substring(start, start + 30).getBytes();
+                final byte[] quals = Utils.dupBytes((byte) 30, bases.length);
+                final GATKRead read = ArtificialReadUtils.createArtificialRead(bases, quals, bases.length + "M");
+                read.setMappingQuality(60);
+                read.setName("read" + start);
+                reads.add(read);
+            }
+            final Map<String, List<GATKRead>> perSampleReadList = Collections.singletonMap(sample, reads);
+
+            final LikelihoodMatrix<Haplotype> expected = uncachedEngine.computeReadLikelihoods(assemblyResultSet, samples, perSampleReadList).sampleMatrix(0);
+            final LikelihoodMatrix<Haplotype> actual = cachedEngine.computeReadLikelihoods(assemblyResultSet, samples, perSampleReadList).sampleMatrix(0);
+            Assert.assertEquals(actual.numberOfReads(), expected.numberOfReads());
+            for (int r = 0; r < expected.numberOfReads(); r++) {
+                for (int h = 0; h < expected.numberOfAlleles(); h++) {
+                    Assert.assertEquals(actual.get(h, r), expected.get(h, r));
+                }
+            }
+        }
+
+        Assert.assertEquals(cachedEngine.getReadLikelihoodCache().getReadLookups(), 20);
+        Assert.assertEquals(cachedEngine.getReadLikelihoodCache().getReadHits(), 8);
+        uncachedEngine.close();
+        cachedEngine.close();
+    }
 }
@@ -15,6 +15,8 @@ import org.broadinstitute.hellbender.tools.walkers.genotyper.IndependentSampleGe
 import org.broadinstitute.hellbender.tools.walkers.genotyper.PloidyModel;
 import org.broadinstitute.hellbender.utils.GenomeLoc;
 import org.broadinstitute.hellbender.utils.GenomeLocParser;
+import org.broadinstitute.hellbender.utils.MathUtils;
+import org.broadinstitute.hellbender.utils.QualityUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
@@ -335,6 +337,30 @@ public final class ReferenceConfidenceModelUnitTest extends BaseTest {
         }
     }
 
+    @Test
+    public void testRefConfidenceStreamedToConsumer() {
+        final RefConfData data = new RefConfData("ACGTAACCGGTT", 0);
+        final List<Haplotype> haplotypes = Arrays.asList(data.getRefHap());
+        final VariantContext vcDel = GATKVariantContextUtils.makeFromAlleles("test", "chr1", data.getStart() + 4, Arrays.asList("AAC", "A"));
+        final List<VariantContext> calls = Collections.singletonList(vcDel);
+        for ( int i = 0; i < 2; i++ ) {
+            data.getActiveRegion().add(data.makeRead(0, data.getRefLength()));
+        }
+        final ReadLikelihoods<Haplotype> likelihoods = createDummyStratifiedReadMap(data.getRefHap(), samples, data.getActiveRegion());
+        final PloidyModel ploidyModel = new HomogeneousPloidyModel(samples,2);
+
+        final List<VariantContext> streamed = new ArrayList<>();
+        final int count = model.calculateRefConfidence(data.getRefHap(), haplotypes, data.getPaddedRefLoc(), data.getActiveRegion(), likelihoods, ploidyModel, calls, streamed::add);
+        Assert.assertEquals(count, streamed.size());
+        checkReferenceModelResult(data, streamed, Collections.nCopies(data.getActiveRegion().getSpan().size(), 2), calls);
+
+        final List<VariantContext> collected = model.calculateRefConfidence(data.getRefHap(), haplotypes, data.getPaddedRefLoc(), data.getActiveRegion(), likelihoods, ploidyModel, calls);
+        Assert.assertEquals(streamed.size(), collected.size());
+        for ( int i = 0; i < collected.size(); i++ ) {
+            Assert.assertEquals(streamed.get(i).toStringDecodeGenotypes(), collected.get(i).toStringDecodeGenotypes());
+        }
+    }
+
     /**
      * Create a context that maps each read to the reference haplotype with log10 L of 0
      * @param refHaplotype a non-null reference haplotype
@@ -425,4 +451,55 @@ public final class ReferenceConfidenceModelUnitTest extends BaseTest {
             Assert.assertEquals((boolean)seenBP.get(i), true);
         }
     }
+
+    @DataProvider(name = "RefVsAnyData")
+    public Object[][] makeRefVsAnyData() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final int ploidy : Arrays.asList(1, 2, 3, 4) ) {
+            tests.add(new Object[]{ploidy, "AAAAA", new byte[]{30, 30, 30, 30, 30}});
+            tests.add(new Object[]{ploidy, "ACAGT", new byte[]{30, 20, 5, 40, 10}});
+            tests.add(new Object[]{ploidy, "CCCTA", new byte[]{2, 60, 30, 6, 7}});
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "RefVsAnyData")
+    public void testRefVsAnyLikelihoods(final int ploidy, final String pileupBases, final byte[] quals) {
+        final byte refBase = 'A';
+        final SimpleInterval loc = new SimpleInterval("1", 10, 10);
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < pileupBases.length(); i++ ) {
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, 10, new byte[]{(byte) pileupBases.charAt(i)}, new byte[]{quals[i]}, "1M"));
+        }
+        final ReadPileup pileup = new ReadPileup(loc, reads, 0);
+
+        // straightforward computation of the expected likelihoods
+        final double log10Ploidy = MathUtils.log10(ploidy);
+        final double[] expected = new double[ploidy + 1];
+        int readCount = 0;
+        int refDepth = 0;
+        for ( int i = 0; i < pileupBases.length(); i++ ) {
+            if ( quals[i] <= 6 ) {
+                continue;
+            }
+            readCount++;
+            final boolean isAlt = pileupBases.charAt(i) != refBase;
+            final double refLikelihood = isAlt ? QualityUtils.qualToErrorProbLog10(quals[i]) + MathUtils.LOG10_ONE_THIRD : QualityUtils.qualToProbLog10(quals[i]);
+            final double nonRefLikelihood = isAlt ? QualityUtils.qualToProbLog10(quals[i]) : QualityUtils.qualToErrorProbLog10(quals[i]) + MathUtils.LOG10_ONE_THIRD;
+            refDepth += isAlt ? 0 : 1;
+            expected[0] += refLikelihood + log10Ploidy;
+            expected[ploidy] += nonRefLikelihood + log10Ploidy;
+            for ( int altCount = 1; altCount < ploidy; altCount++ ) {
+                expected[altCount] += MathUtils.approximateLog10SumLog10(refLikelihood + MathUtils.log10(ploidy - altCount), nonRefLikelihood + MathUtils.log10(altCount));
+            }
+        }
+        for ( int i = 0; i <= ploidy; i++ ) {
+            expected[i] -= readCount * log10Ploidy;
+        }
+
+        final RefVsAnyResult result = model.calcGenotypeLikelihoodsOfRefVsAny(ploidy, pileup, refBase, (byte) 6, null);
+        Assert.assertEquals(result.getGenotypeLikelihoods(), expected);
+        Assert.assertEquals(result.getAD(), new int[]{refDepth, readCount - refDepth});
+        Assert.assertEquals(result.getDP(), readCount);
+    }
 }
@@ -0,0 +1,78 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import com.google.common.base.Strings;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link TandemRepeatAnnotator}.
+ */
+public final class TandemRepeatAnnotatorUnitTest extends BaseTest {
+
+    private static final int MAX_STR_UNIT_LENGTH = 8;
+    private static final int MAX_REPEAT_LENGTH = 20;
+
+    @DataProvider(name = "Reads")
+    public Object[][] reads() {
+        final List<Object[]> tests = new ArrayList<>();
+        for (final String repeat : Arrays.asList("A", "AC", "ACG", "ACGT", "AACGTTGCA")) {
+            for (final int repeatLength : Arrays.asList(1, 2, 3, 5, 10, 15, 30)) {
+                tests.add(new Object[]{Strings.repeat(repeat, repeatLength)});
+                tests.add(new Object[]{"GT" + Strings.repeat(repeat, repeatLength) + "TTCTTCCCC"});
+            }
+        }
+        tests.add(new Object[]{"TTCTTCCCC"});
+        tests.add(new Object[]{"A"});
+        tests.add(new Object[]{""});
+
+        final Random random = new Random(13);
+        for (int i = 0; i < 500; i++) {
+            final int length = 1 + random.nextInt(80);
+            final int alphabetSize = 1 + random.nextInt(4);
+            final int period = 1 + random.nextInt(MAX_STR_UNIT_LENGTH + 2);
+            final byte[] bases = new byte[length];
+            for (int j = 0; j < length; j++) {
+                // mostly periodic sequences with occasional breaks, so that repeats of all unit lengths show up
+                bases[j] = j >= period && random.nextInt(10) > 0 ? bases[j - period] : (byte) "ACGT".charAt(random.nextInt(alphabetSize));
+            }
+            tests.add(new Object[]{new String(bases)});
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "Reads")
+    public void testMatchesFindTandemRepeatUnits(final String read) {
+        final byte[] bases = read.getBytes();
+        final TandemRepeatAnnotator annotator = new TandemRepeatAnnotator(MAX_STR_UNIT_LENGTH, MAX_REPEAT_LENGTH);
+        final int[] repeatLengths = annotator.annotate(bases);
+        for (int offset = 0; offset < bases.length - 1; offset++) {
+            Assert.assertEquals(repeatLengths[offset], (int) PairHMMLikelihoodCalculationEngine.findTandemRepeatUnits(bases, offset).getRight(),
+                    "read " + read + " offset " + offset);
+        }
+    }
+
+    @Test
+    public void testBuffersAreReusedAcrossReads() {
+        final TandemRepeatAnnotator annotator = new TandemRepeatAnnotator(MAX_STR_UNIT_LENGTH, MAX_REPEAT_LENGTH);
+        final byte[] longRead = Strings.repeat("ACG", 20).getBytes();
+        final byte[] shortRead = "TTTTCA".getBytes();
+        final int[] first = annotator.annotate(longRead);
+        final int[] second = annotator.annotate(shortRead);
+        Assert.assertSame(second, first);
+        for (int offset = 0; offset < shortRead.length - 1; offset++) {
+            Assert.assertEquals(second[offset], (int) PairHMMLikelihoodCalculationEngine.findTandemRepeatUnits(shortRead, offset).getRight());
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonPositiveUnitLength() {
+        new TandemRepeatAnnotator(0, MAX_REPEAT_LENGTH);
+    }
+}
@@ -0,0 +1,89 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.Cigar;
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import org.broadinstitute.hellbender.utils.read.CigarUtils;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class HaplotypeAlignmentCacheUnitTest extends BaseTest {
+
+    private static final String REF = "ACGTTGCATTAGCAGGACTCGATCGATCGGGATACGATTCAGCAGTACTTACGGA";
+
+    @DataProvider(name = "Haplotypes")
+    public Object[][] haplotypes() {
+        final List<Object[]> tests = new ArrayList<>();
+        tests.add(new Object[]{REF});
+        tests.add(new Object[]{REF.substring(0, 20) + "T" + REF.substring(21)});
+        tests.add(new Object[]{REF.substring(0, 20) + REF.substring(23)});
+        tests.add(new Object[]{REF.substring(0, 20) + "GGG" + REF.substring(20)});
+        tests.add(new Object[]{"TTTTTTTTTTTTTTTTTTTT"});
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "Haplotypes")
+    public void testSameResultAsSmithWaterman(final String haplotype) {
+        final HaplotypeAlignmentCache cache = new HaplotypeAlignmentCache(10);
+        final Cigar expected = CigarUtils.calculateCigar(REF.getBytes(), haplotype.getBytes());
+        for (int i = 0; i < 3; i++) {
+            // fresh copies of the arrays so that hits are found by content, not identity
+            Assert.assertEquals(cache.calculateCigar(REF.getBytes(), haplotype.getBytes()), expected);
+        }
+        Assert.assertEquals(cache.getMisses(), 1);
+        Assert.assertEquals(cache.getHits(), 2);
+        Assert.assertEquals(cache.getHitRate(), 2 / 3.0, 1e-10);
+    }
+
+    @Test
+    public void testReturnedCigarsAreIndependentOfTheCache() {
+        final HaplotypeAlignmentCache cache = new HaplotypeAlignmentCache(10);
+        final byte[] haplotype = (REF.substring(0, 20) + "T" + REF.substring(21)).getBytes();
+        final Cigar first = cache.calculateCigar(REF.getBytes(), haplotype);
+        final String expected = first.toString();
+        first.add(new CigarElement(5, CigarOperator.S));
+        final Cigar second = cache.calculateCigar(REF.getBytes(), haplotype);
+        Assert.assertNotSame(second, first);
+        Assert.assertEquals(second.toString(), expected);
+    }
+
+    @Test
+    public void testDifferentReferenceWindowsAreDifferentKeys() {
+        final HaplotypeAlignmentCache cache = new HaplotypeAlignmentCache(10);
+        final byte[] haplotype = REF.substring(10).getBytes();
+        cache.calculateCigar(REF.getBytes(), haplotype);
+        cache.calculateCigar(REF.substring(10).getBytes(), haplotype);
+        Assert.assertEquals(cache.getMisses(), 2);
+        Assert.assertEquals(cache.getHits(), 0);
+        Assert.assertEquals(cache.size(), 2);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        final HaplotypeAlignmentCache cache = new HaplotypeAlignmentCache(2);
+        final byte[] ref = REF.getBytes();
+        final byte[] hap1 = REF.substring(0, 50).getBytes();
+        final byte[] hap2 = REF.substring(1, 50).getBytes();
+        final byte[] hap3 = REF.substring(2, 50).getBytes();
+        cache.calculateCigar(ref, hap1);
+        cache.calculateCigar(ref, hap2);
+        cache.calculateCigar(ref, hap1);  // hap2 is now the least recently used
+        cache.calculateCigar(ref, hap3);
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertEquals(cache.getEvictions(), 1);
+        cache.calculateCigar(ref, hap1);
+        Assert.assertEquals(cache.getHits(), 2);
+        cache.calculateCigar(ref, hap2);
+        Assert.assertEquals(cache.getMisses(), 4);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonPositiveSize() {
+        new HaplotypeAlignmentCache(0);
+    }
+}
@@ -3,6 +3,8 @@ package org.broadinstitute.hellbender.utils;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.RandomGeneratorFactory;
+import org.apache.commons.math3.stat.descriptive.rank.Median;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -285,4 +287,47 @@ public class GATKProtectedMathUtilsTest {
         Assert.assertEquals(GATKProtectedMathUtils.secondSmallestMinusSmallest(new int[] { -10, -23, 3}, -1), 13);
         Assert.assertEquals(GATKProtectedMathUtils.secondSmallestMinusSmallest(new int[] { -10, -23, 3}, -1), 13);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSelectPercentileMatchesPercentile() {
+        final Random rdn = new Random(31);
+        for (final int n : new int[] {1, 2, 3, 10, 101, 1000}) {
+            final double[] values = IntStream.range(0, n).mapToDouble(i -> rdn.nextInt(n / 2 + 1) + rdn.nextDouble()).toArray();
+            for (final double percentile : new double[] {0.1, 1, 25, 50, 75, 99, 100}) {
+                final double expected = new Percentile(percentile).evaluate(values);
+                final double[] copy = values.clone();
+                Assert.assertEquals(GATKProtectedMathUtils.selectPercentile(copy, 0, n, percentile), expected, 1e-10);
+                Assert.assertEqualsNoOrder(Arrays.stream(copy).boxed().toArray(), Arrays.stream(values).boxed().toArray());
+            }
+        }
+    }
+
+    @Test
+    public void testSelectMedianOfRange() {
+        final double[] values = {9, 1, 5, 3, 7, 2, 8, 100};
+        Assert.assertEquals(GATKProtectedMathUtils.selectMedian(values, 1, 6), 3, 1e-10);
+        Assert.assertEquals(GATKProtectedMathUtils.selectMedian(values, 0, 8), 6, 1e-10);
+        Assert.assertTrue(Double.isNaN(GATKProtectedMathUtils.selectMedian(values, 3, 3)));
+    }
+
+    @Test
+    public void testHodgesLehmannShiftMatchesMedianOfDifferences() {
+        final Random rdn = new Random(17);
+        for (final int n : new int[] {1, 2, 9, 50, 300}) {
+            for (final int m : new int[] {1, 4, 77, 200}) {
+                //integer-valued samples have many tied differences
+                final boolean isTied = (n + m) % 2 == 0;
+                final double[] x = IntStream.range(0, n).mapToDouble(i -> isTied ? rdn.nextInt(10) : rdn.nextGaussian()).sorted().toArray();
+                final double[] y = IntStream.range(0, m).mapToDouble(i -> isTied ? rdn.nextInt(10) : rdn.nextGaussian() + 1).sorted().toArray();
+                final double[] differences = new double[n * m];
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < m; j++) {
+                        differences[i * m + j] = x[i] - y[j];
+                    }
+                }
+                Assert.assertEquals(GATKProtectedMathUtils.hodgesLehmannShift(x, y), new Median().evaluate(differences));
+            }
+        }
+        Assert.assertTrue(Double.isNaN(GATKProtectedMathUtils.hodgesLehmannShift(new double[0], new double[] {1})));
+    }
+}
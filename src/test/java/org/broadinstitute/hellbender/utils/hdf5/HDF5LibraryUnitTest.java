@@ -17,6 +17,8 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -344,6 +346,73 @@ public final class HDF5LibraryUnitTest {
         file.close();
     }
 
+    @Test(dependsOnGroups = "supported")
+    public void testChunkedDoubleMatrixBlocks() throws IOException {
+        final File testFile = BaseTest.createTempFile("hdf5", ".hd5");
+        final double[][] testValues = new double[301][17];
+        for (int i = 0; i < testValues.length; i++) {
+            for (int j = 0; j < testValues[i].length; j++) {
+                testValues[i][j] = i * 100 + j + 0.5;
+            }
+        }
+        final String rowsPath = "test-group/rows";
+        final String columnsPath = "test-group/columns";
+        final String compressedPath = "test-group/compressed";
+        try (final HDF5File file = new HDF5File(testFile, HDF5File.OpenMode.CREATE)) {
+            Assert.assertTrue(file.makeChunkedDoubleMatrix(rowsPath, 301, 17, 0));
+            final List<double[][]> rowBlocks = new ArrayList<>();
+            for (int start = 0; start < testValues.length; start += 50) {
+                rowBlocks.add(Arrays.copyOfRange(testValues, start, Math.min(start + 50, testValues.length)));
+            }
+            file.writeDoubleMatrixRowBlocks(rowsPath, rowBlocks.iterator());
+
+            Assert.assertTrue(file.makeChunkedDoubleMatrix(columnsPath, 301, 17, 0));
+            for (int start = 0; start < 17; start += 5) {
+                final int end = Math.min(start + 5, 17);
+                final int first = start;
+                file.writeDoubleMatrixColumns(columnsPath, start, Stream.of(testValues)
+                        .map(row -> Arrays.copyOfRange(row, first, end)).toArray(double[][]::new));
+            }
+
+            Assert.assertTrue(file.makeDoubleMatrix(compressedPath, testValues, 6));
+            Assert.assertFalse(file.makeDoubleMatrix(compressedPath, testValues, 6));
+        }
+
+        try (final HDF5File file = new HDF5File(testFile, HDF5File.OpenMode.READ_ONLY)) {
+            for (final String path : new String[] {rowsPath, columnsPath, compressedPath}) {
+                Assert.assertEquals(file.readDimensions(path), new long[] {301, 17});
+                Assert.assertEquals(file.readDoubleMatrix(path), testValues);
+            }
+            Assert.assertEquals(file.readDoubleMatrixRows(rowsPath, 100, 3), Arrays.copyOfRange(testValues, 100, 103));
+            final double[][] columns = file.readDoubleMatrixColumns(compressedPath, 16, 1);
+            Assert.assertEquals(columns.length, 301);
+            for (int i = 0; i < columns.length; i++) {
+                Assert.assertEquals(columns[i], new double[] {testValues[i][16]});
+            }
+
+            final Iterator<double[][]> rowBlocks = file.readDoubleMatrixRowBlocks(columnsPath, 100);
+            final List<double[]> rows = new ArrayList<>();
+            while (rowBlocks.hasNext()) {
+                rows.addAll(Arrays.asList(rowBlocks.next()));
+            }
+            Assert.assertEquals(rows.toArray(new double[rows.size()][]), testValues);
+
+            final Iterator<double[][]> columnBlocks = file.readDoubleMatrixColumnBlocks(rowsPath, 10);
+            Assert.assertEquals(columnBlocks.next()[42], Arrays.copyOfRange(testValues[42], 0, 10));
+            Assert.assertEquals(columnBlocks.next()[42], Arrays.copyOfRange(testValues[42], 10, 17));
+            Assert.assertFalse(columnBlocks.hasNext());
+        }
+    }
+
+    @Test(dependsOnGroups = "supported", expectedExceptions = IllegalArgumentException.class)
+    public void testDoubleMatrixRowsOutOfRange() throws IOException {
+        final File testFile = BaseTest.createTempFile("hdf5", ".hd5");
+        try (final HDF5File file = new HDF5File(testFile, HDF5File.OpenMode.CREATE)) {
+            file.makeDoubleMatrix("test-group/matrix", new double[][] {{1, 2}, {3, 4}}, 0);
+            file.readDoubleMatrixRows("test-group/matrix", 1, 2);
+        }
+    }
+
     @Test()
     public void testMakeStringArray() throws IOException {
         final File testFile = File.createTempFile("hdf5", ".hd5");
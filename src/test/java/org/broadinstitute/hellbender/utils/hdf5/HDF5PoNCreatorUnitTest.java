@@ -243,6 +243,35 @@ public class HDF5PoNCreatorUnitTest extends BaseTest {
         }
     }
 
+    @Test(dataProvider = "tooManyZerosData")
+    public void testPanelCountsPreprocessorMatchesSequentialStages(final ReadCountCollection readCounts) {
+        final int maximumColumnZeros = readCounts.targets().size() / 5;
+        final int maximumTargetZeros = readCounts.columnNames().size() / 5;
+        final double extremeColumnMedianPercentile = 2.5;
+        final double countTruncatePercentile = 1;
+        // the fused pipeline does not modify its input, whereas the sequential stages may:
+        final ReadCountCollection actual = PanelCountsPreprocessor.preprocess(readCounts, maximumColumnZeros,
+                maximumTargetZeros, extremeColumnMedianPercentile, countTruncatePercentile, NULL_LOGGER);
+
+        ReadCountCollection expected = HDF5PoNCreator.removeColumnsWithTooManyZeros(readCounts, maximumColumnZeros, NULL_LOGGER);
+        expected = HDF5PoNCreator.removeTargetsWithTooManyZeros(expected, maximumTargetZeros, NULL_LOGGER);
+        expected = HDF5PoNCreator.removeColumnsWithExtremeMedianCounts(expected, extremeColumnMedianPercentile, NULL_LOGGER);
+        HDF5PoNCreator.imputeZeroCountsAsTargetMedians(expected, NULL_LOGGER);
+        HDF5PoNCreator.truncateExtremeCounts(expected, countTruncatePercentile, NULL_LOGGER);
+        HDF5PoNCreator.normalizeAndLogReadCounts(expected, NULL_LOGGER);
+        HDF5PoNCreator.subtractBGSCenter(expected, NULL_LOGGER);
+
+        Assert.assertEquals(actual.targets(), expected.targets());
+        Assert.assertEquals(actual.columnNames(), expected.columnNames());
+        final RealMatrix actualCounts = actual.counts();
+        final RealMatrix expectedCounts = expected.counts();
+        for (int i = 0; i < expectedCounts.getRowDimension(); i++) {
+            for (int j = 0; j < expectedCounts.getColumnDimension(); j++) {
+                Assert.assertEquals(actualCounts.getEntry(i, j), expectedCounts.getEntry(i, j), 1e-10);
+            }
+        }
+    }
+
     @Test(dataProvider="readCountAndPercentileData")
     public void testSubsetTargetToUsableOnes(final ReadCountCollection readCount, final double percentile) {
         final Median median = new Median();
@@ -374,6 +403,160 @@ public class HDF5PoNCreatorUnitTest extends BaseTest {
         PoNTestUtils.assertEquivalentPoN(ponFile, tempOutputPoN);
     }
 
+    @Test
+    public void testUpdateReducedPanelAndPInversesMatchesFullReduction() {
+        final Random rdn = new Random(17);
+        final RealMatrix oldCounts = randomMatrix(rdn, 100, 20);
+        final RealMatrix newCounts = randomMatrix(rdn, 100, 5);
+        final RealMatrix allCounts = new Array2DRowRealMatrix(100, 25);
+        allCounts.setSubMatrix(oldCounts.getData(), 0, 0);
+        allCounts.setSubMatrix(newCounts.getData(), 0, 20);
+        final ReductionResult oldReduction = HDF5PoNCreator.calculateReducedPanelAndPInverses(
+                readCountsFor(oldCounts), OptionalInt.of(20), NULL_LOGGER, null);
+        final ReductionResult expected = HDF5PoNCreator.calculateReducedPanelAndPInverses(
+                readCountsFor(allCounts), OptionalInt.of(25), NULL_LOGGER, null);
+
+        final ReductionResult result = HDF5PoNCreator.updateReducedPanelAndPInverses(oldCounts, oldReduction.getPseudoInverse(),
+                oldReduction.getReducedCounts(), newCounts, OptionalInt.of(25), NULL_LOGGER, null);
+        assertPseudoInverse(allCounts, result.getPseudoInverse());
+        PoNTestUtils.assertEqualsMatrix(result.getPseudoInverse(), expected.getPseudoInverse(), false);
+        PoNTestUtils.assertEqualsMatrix(result.getReducedCounts(), expected.getReducedCounts(), true);
+        assertPseudoInverse(result.getReducedCounts(), result.getReducedInverse());
+        for (int i = 0; i < 25; i++) {
+            Assert.assertEquals(result.getAllSingularValues()[i], expected.getAllSingularValues()[i], 1e-8);
+        }
+    }
+
+    @Test
+    public void testUpdateReducedPanelAndPInversesWithShiftsMatchesFullReduction() {
+        final Random rdn = new Random(31);
+        final RealMatrix oldCounts = randomMatrix(rdn, 100, 20);
+        final RealMatrix newCounts = randomMatrix(rdn, 100, 5);
+        final RealMatrix shiftLeft = new Array2DRowRealMatrix(100, 2);
+        final RealMatrix shiftRight = new Array2DRowRealMatrix(20, 2);
+        for (int i = 0; i < 100; i++) {
+            shiftLeft.setEntry(i, 0, 0.1 * rdn.nextGaussian());
+            shiftLeft.setEntry(i, 1, 1);
+        }
+        for (int j = 0; j < 20; j++) {
+            shiftRight.setEntry(j, 0, 1);
+            shiftRight.setEntry(j, 1, -0.1 * rdn.nextDouble());
+        }
+        final RealMatrix allCounts = new Array2DRowRealMatrix(100, 25);
+        allCounts.setSubMatrix(oldCounts.add(shiftLeft.multiply(shiftRight.transpose())).getData(), 0, 0);
+        allCounts.setSubMatrix(newCounts.getData(), 0, 20);
+        final ReductionResult oldReduction = HDF5PoNCreator.calculateReducedPanelAndPInverses(
+                readCountsFor(oldCounts), OptionalInt.of(20), NULL_LOGGER, null);
+        final ReductionResult expected = HDF5PoNCreator.calculateReducedPanelAndPInverses(
+                readCountsFor(allCounts), OptionalInt.of(25), NULL_LOGGER, null);
+
+        final ReductionResult result = HDF5PoNCreator.updateReducedPanelAndPInverses(oldCounts, oldReduction.getPseudoInverse(),
+                oldReduction.getReducedCounts(), shiftLeft, shiftRight, newCounts, OptionalInt.of(25), NULL_LOGGER, null);
+        assertPseudoInverse(allCounts, result.getPseudoInverse());
+        PoNTestUtils.assertEqualsMatrix(result.getPseudoInverse(), expected.getPseudoInverse(), false);
+        PoNTestUtils.assertEqualsMatrix(result.getReducedCounts(), expected.getReducedCounts(), true);
+        assertPseudoInverse(result.getReducedCounts(), result.getReducedInverse());
+        for (int i = 0; i < 25; i++) {
+            Assert.assertEquals(result.getAllSingularValues()[i], expected.getAllSingularValues()[i], 1e-8);
+        }
+    }
+
+    @Test
+    public void testUpdateReducedPanelKeepsNumberOfEigenSamples() {
+        final Random rdn = new Random(19);
+        final RealMatrix oldCounts = randomMatrix(rdn, 50, 10);
+        final ReductionResult oldReduction = HDF5PoNCreator.calculateReducedPanelAndPInverses(
+                readCountsFor(oldCounts), OptionalInt.of(4), NULL_LOGGER, null);
+        final ReductionResult result = HDF5PoNCreator.updateReducedPanelAndPInverses(oldCounts, oldReduction.getPseudoInverse(),
+                oldReduction.getReducedCounts(), randomMatrix(rdn, 50, 3), OptionalInt.empty(), NULL_LOGGER, null);
+        Assert.assertEquals(result.getReducedCounts().getColumnDimension(), 4);
+        Assert.assertEquals(result.getPseudoInverse().getRowDimension(), 13);
+        Assert.assertEquals(result.getReducedInverse().getRowDimension(), 4);
+    }
+
+    @Test
+    public void testUpdatePoN() {
+        final Random rdn = new Random(23);
+        final List<Target> targets = IntStream.range(0, 200)
+                .mapToObj(i -> new Target("target_" + (i + 1), new SimpleInterval("1", i * 100 + 1, i * 100 + 50)))
+                .collect(Collectors.toList());
+        final RealMatrix oldCounts = randomMatrix(rdn, 200, 40);
+        final RealMatrix newCounts = randomMatrix(rdn, 200, 10);
+        final List<String> oldSampleNames = IntStream.range(0, 40).mapToObj(i -> "sample_" + (i + 1)).collect(Collectors.toList());
+        final List<String> newSampleNames = IntStream.range(40, 50).mapToObj(i -> "sample_" + (i + 1)).collect(Collectors.toList());
+        final File ponFile = PoNTestUtils.createDummyHDF5FilePoN(new ReadCountCollection(targets, oldSampleNames, oldCounts), 5);
+        final File updatedPoNFile = IOUtils.createTempFile("updated-pon-", ".pon");
+
+        try (final HDF5File ponReader = new HDF5File(ponFile)) {
+            HDF5PoNCreator.updatePoNGivenReadCountCollection(null, new HDF5PoN(ponReader),
+                    new ReadCountCollection(targets, newSampleNames, newCounts), OptionalInt.empty(), updatedPoNFile,
+                    CreatePanelOfNormals.DEFAULT_COLUMN_OUTLIER_DROP_THRESHOLD_PERCENTILE,
+                    CreatePanelOfNormals.DEFAULT_OUTLIER_TRUNCATE_PERCENTILE_THRESHOLD,
+                    CreatePanelOfNormals.DEFAULT_MAXIMUM_PERCENT_ZEROS_IN_COLUMN, ponFile.getName(), "new-samples");
+        }
+
+        try (final HDF5File ponReader = new HDF5File(ponFile);
+             final HDF5File updatedReader = new HDF5File(updatedPoNFile)) {
+            final HDF5PoN pon = new HDF5PoN(ponReader);
+            final HDF5PoN updated = new HDF5PoN(updatedReader);
+            final List<String> expectedSampleNames = new ArrayList<>(pon.getSampleNames());
+            expectedSampleNames.addAll(newSampleNames);
+            Assert.assertEquals(updated.getSampleNames(), expectedSampleNames);
+            Assert.assertEquals(updated.getTargets(), pon.getTargets());
+            Assert.assertEquals(updated.getPanelTargets(), pon.getPanelTargets());
+            Assert.assertEquals(updated.getPanelSampleNames().subList(0, pon.getPanelSampleNames().size()), pon.getPanelSampleNames());
+            Assert.assertTrue(updated.getPanelSampleNames().size() > pon.getPanelSampleNames().size());
+            Assert.assertEquals(updated.getReducedPanelCounts().getColumnDimension(), 5);
+            Assert.assertEquals(updated.getProvenance().size(), 2);
+            Assert.assertTrue(pon.getProvenance().isEmpty());
+
+            // target factors are the medians across all samples:
+            final Median median = new Median();
+            final double[] targetFactors = updated.getTargetFactors().getColumn(0);
+            final List<String> allTargetNames = targets.stream().map(Target::getName).collect(Collectors.toList());
+            for (int i = 0; i < targetFactors.length; i++) {
+                final int row = allTargetNames.indexOf(updated.getTargetNames().get(i));
+                final double[] values = DoubleStream.concat(DoubleStream.of(oldCounts.getRow(row)), DoubleStream.of(newCounts.getRow(row))).toArray();
+                Assert.assertEquals(targetFactors[i], median.evaluate(values), 1e-8);
+            }
+            assertPseudoInverse(updated.getLogNormalizedCounts(), updated.getLogNormalizedPInverseCounts());
+        }
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testUpdatePoNWithRepeatedSamples() {
+        final Random rdn = new Random(29);
+        final List<Target> targets = IntStream.range(0, 100)
+                .mapToObj(i -> new Target("target_" + (i + 1), new SimpleInterval("1", i * 100 + 1, i * 100 + 50)))
+                .collect(Collectors.toList());
+        final List<String> sampleNames = IntStream.range(0, 20).mapToObj(i -> "sample_" + (i + 1)).collect(Collectors.toList());
+        final File ponFile = PoNTestUtils.createDummyHDF5FilePoN(new ReadCountCollection(targets, sampleNames, randomMatrix(rdn, 100, 20)), 5);
+        try (final HDF5File ponReader = new HDF5File(ponFile)) {
+            HDF5PoNCreator.updatePoNGivenReadCountCollection(null, new HDF5PoN(ponReader),
+                    new ReadCountCollection(targets, sampleNames.subList(0, 2), randomMatrix(rdn, 100, 2)), OptionalInt.empty(),
+                    IOUtils.createTempFile("updated-pon-", ".pon"),
+                    CreatePanelOfNormals.DEFAULT_COLUMN_OUTLIER_DROP_THRESHOLD_PERCENTILE,
+                    CreatePanelOfNormals.DEFAULT_OUTLIER_TRUNCATE_PERCENTILE_THRESHOLD,
+                    CreatePanelOfNormals.DEFAULT_MAXIMUM_PERCENT_ZEROS_IN_COLUMN, ponFile.getName(), "new-samples");
+        }
+    }
+
+    private static RealMatrix randomMatrix(final Random rdn, final int rows, final int columns) {
+        final double[][] values = new double[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                values[i][j] = 0.5 + rdn.nextDouble();
+            }
+        }
+        return new Array2DRowRealMatrix(values, false);
+    }
+
+    private static ReadCountCollection readCountsFor(final RealMatrix counts) {
+        final List<String> columnNames = IntStream.range(0, counts.getColumnDimension()).mapToObj(i -> "sample_" + (i + 1)).collect(Collectors.toList());
+        final List<Target> targets = IntStream.range(0, counts.getRowDimension()).mapToObj(i -> new Target("target_" + (i + 1))).collect(Collectors.toList());
+        return new ReadCountCollection(targets, columnNames, counts.copy());
+    }
+
     @Test(dataProvider = "readCountOnlyWithDiverseShapeData")
     public void testCalculateReducedPanelAndPInversesKeepingAllColumns(final ReadCountCollection readCounts) {
         final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
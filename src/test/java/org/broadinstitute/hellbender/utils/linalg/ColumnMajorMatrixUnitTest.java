@@ -0,0 +1,129 @@
+package org.broadinstitute.hellbender.utils.linalg;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class ColumnMajorMatrixUnitTest extends BaseTest {
+
+    @Test(dataProvider = "productDimensions")
+    public void testMultiply(final int rows, final int inner, final int columns) {
+        final Random rdn = new Random(rows * 31 + inner * 7 + columns);
+        final RealMatrix left = randomMatrix(rdn, rows, inner);
+        final RealMatrix right = randomMatrix(rdn, inner, columns);
+        final RealMatrix expected = left.multiply(right);
+        final RealMatrix actual = ColumnMajorMatrix.copyOf(left).multiply(ColumnMajorMatrix.copyOf(right)).toRealMatrix();
+        assertEquals(actual, expected);
+    }
+
+    @Test(dataProvider = "rowMajorProductDimensions")
+    public void testMultiplyRowMajor(final int rows, final int inner, final int columns) {
+        final Random rdn = new Random(rows * 13 + inner * 3 + columns);
+        final RealMatrix left = randomMatrix(rdn, rows, inner);
+        final RealMatrix right = randomMatrix(rdn, inner, columns);
+        final RealMatrix expected = left.multiply(right);
+        assertEquals(ColumnMajorMatrix.multiply(left, ColumnMajorMatrix.copyOf(right)).toRealMatrix(), expected);
+        // a left operand that is not an Array2DRowRealMatrix:
+        final double[] columnMajorData = new double[rows * inner];
+        for (int j = 0; j < inner; j++) {
+            System.arraycopy(left.getColumn(j), 0, columnMajorData, j * rows, rows);
+        }
+        final RealMatrix columnMajorLeft = ColumnMajorMatrix.wrap(rows, inner, columnMajorData);
+        assertEquals(ColumnMajorMatrix.multiply(columnMajorLeft, ColumnMajorMatrix.copyOf(right)).toRealMatrix(), expected);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMultiplyRowMajorWithMismatchedDimensions() {
+        ColumnMajorMatrix.multiply(new Array2DRowRealMatrix(3, 4), new ColumnMajorMatrix(3, 4));
+    }
+
+    @Test(dataProvider = "productDimensions")
+    public void testSubtractFrom(final int rows, final int inner, final int columns) {
+        final Random rdn = new Random(rows + inner + columns);
+        final RealMatrix minuend = randomMatrix(rdn, rows, columns);
+        final RealMatrix subtrahend = randomMatrix(rdn, rows, columns);
+        assertEquals(ColumnMajorMatrix.copyOf(subtrahend).subtractFrom(minuend), minuend.subtract(subtrahend));
+    }
+
+    @Test
+    public void testTransformInPlace() {
+        final RealMatrix matrix = new Array2DRowRealMatrix(new double[][] {{1, -2}, {-3, 4}, {5, -6}});
+        final ColumnMajorMatrix result = ColumnMajorMatrix.copyOf(matrix).transformInPlace(v -> v > 0 ? v : 0);
+        assertEquals(result.toRealMatrix(), new Array2DRowRealMatrix(new double[][] {{1, 0}, {0, 4}, {5, 0}}));
+    }
+
+    @Test
+    public void testWrap() {
+        final double[] data = {1, 2, 3, 4, 5, 6};
+        final RealMatrix matrix = ColumnMajorMatrix.wrap(3, 2, data);
+        assertEquals(matrix, new Array2DRowRealMatrix(new double[][] {{1, 4}, {2, 5}, {3, 6}}));
+        Assert.assertEquals(matrix.getColumn(1), new double[] {4, 5, 6});
+        // the matrix is backed by the array:
+        matrix.setEntry(2, 0, -3);
+        Assert.assertEquals(data[2], -3.0);
+        final RealMatrix copy = matrix.copy();
+        copy.setEntry(0, 0, 10);
+        Assert.assertEquals(matrix.getEntry(0, 0), 1.0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrapWithMismatchedDimensions() {
+        ColumnMajorMatrix.wrap(3, 3, new double[6]);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMultiplyWithMismatchedDimensions() {
+        new ColumnMajorMatrix(3, 4).multiply(new ColumnMajorMatrix(3, 4));
+    }
+
+    @DataProvider(name = "productDimensions")
+    public Object[][] productDimensions() {
+        return new Object[][] {
+                {1, 1, 1},
+                {5, 3, 1},
+                {1, 7, 4},
+                {300, 10, 1},
+                {257, 129, 3},
+                {600, 300, 270}
+        };
+    }
+
+    @DataProvider(name = "rowMajorProductDimensions")
+    public Object[][] rowMajorProductDimensions() {
+        return new Object[][] {
+                {1, 1, 1},
+                {5, 3, 1},
+                // few result rows and a long inner dimension, e.g. beta-hats of a single sample:
+                {5, 20_000, 1},
+                {20, 3_001, 7},
+                // many result rows, e.g. the projection of case samples onto the panel:
+                {5_000, 30, 1},
+                {2_003, 517, 4}
+        };
+    }
+
+    private static RealMatrix randomMatrix(final Random rdn, final int rows, final int columns) {
+        final double[][] values = new double[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                values[i][j] = rdn.nextGaussian();
+            }
+        }
+        return new Array2DRowRealMatrix(values, false);
+    }
+
+    private static void assertEquals(final RealMatrix actual, final RealMatrix expected) {
+        Assert.assertEquals(actual.getRowDimension(), expected.getRowDimension());
+        Assert.assertEquals(actual.getColumnDimension(), expected.getColumnDimension());
+        for (int i = 0; i < expected.getRowDimension(); i++) {
+            for (int j = 0; j < expected.getColumnDimension(); j++) {
+                Assert.assertEquals(actual.getEntry(i, j), expected.getEntry(i, j), 1e-10);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.broadinstitute.hellbender.utils.segmenter;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.exome.ModeledSegment;
+import org.broadinstitute.hellbender.tools.exome.ReadCountCollection;
+import org.broadinstitute.hellbender.tools.exome.SegmentUtils;
+import org.broadinstitute.hellbender.tools.exome.Target;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class CBSSegmenterUnitTest extends BaseTest {
+
+    private static final String inputTestDir = "src/test/resources/org/broadinstitute/hellbender/utils/segmenter/input/";
+    private static final String outputTestDir = "src/test/resources/org/broadinstitute/hellbender/utils/segmenter/output/";
+
+    private static final File SIMPLE_FILE = new File(inputTestDir, "Simple.tsv");
+    private static final File SIMPLE_EXPECTED = new File(outputTestDir, "Simple_result.seg");
+
+    @Test
+    public void testSimple() throws IOException {
+        final File output = createTempFile("gatkcnv.Simple", ".seg");
+        CBSSegmenter.writeSegmentFile("Simple", SIMPLE_FILE.getAbsolutePath(), output.getAbsolutePath(), false);
+        SegmenterUnitTest.assertEqualSegments(output, SIMPLE_EXPECTED);
+        Assert.assertEquals(Files.readAllLines(output.toPath()), Files.readAllLines(SIMPLE_EXPECTED.toPath()));
+    }
+
+    @DataProvider(name = "simpleWeights")
+    public Object[][] simpleWeights() {
+        final double[] ones = new double[20];
+        Arrays.fill(ones, 1.0);
+        final double[] big = new double[20];
+        Arrays.fill(big, 10.0);
+        big[10] = 200;
+        return new Object[][]{{ones}, {big}};
+    }
+
+    @Test(dataProvider = "simpleWeights")
+    public void testSimpleWithWeights(final double[] weights) throws IOException {
+        final File output = createTempFile("gatkcnv.Simple", ".seg");
+        final File weightsTmpFile = IOUtils.createTempFile("weights-simple", ".txt");
+        ParamUtils.writeValuesToFile(weights, weightsTmpFile);
+        CBSSegmenter.writeSegmentFile("Simple", SIMPLE_FILE.getAbsolutePath(), output.getAbsolutePath(), false, weightsTmpFile);
+        SegmenterUnitTest.assertEqualSegments(output, SIMPLE_EXPECTED);
+    }
+
+    @DataProvider(name = "badWeights")
+    public Object[][] badWeights() {
+        return new Object[][]{{Double.POSITIVE_INFINITY}, {Double.NEGATIVE_INFINITY}, {Double.NaN}, {0.0}};
+    }
+
+    @Test(dataProvider = "badWeights", expectedExceptions = GATKException.class)
+    public void testSimpleWithBadWeights(final double badWeight) throws IOException {
+        final File output = createTempFile("gatkcnv.Simple", ".seg");
+        final double[] weights = new double[20];
+        Arrays.fill(weights, 1.0);
+        weights[10] = badWeight;
+        final File weightsTmpFile = IOUtils.createTempFile("weights-simple", ".txt");
+        ParamUtils.writeValuesToFile(weights, weightsTmpFile);
+        CBSSegmenter.writeSegmentFile("Simple", SIMPLE_FILE.getAbsolutePath(), output.getAbsolutePath(), false, weightsTmpFile);
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testWrongNumberOfWeights() throws IOException {
+        final File output = createTempFile("gatkcnv.Simple", ".seg");
+        final double[] weights = new double[19];
+        Arrays.fill(weights, 1.0);
+        final File weightsTmpFile = IOUtils.createTempFile("weights-simple", ".txt");
+        ParamUtils.writeValuesToFile(weights, weightsTmpFile);
+        CBSSegmenter.writeSegmentFile("Simple", SIMPLE_FILE.getAbsolutePath(), output.getAbsolutePath(), false, weightsTmpFile);
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testMissingSample() {
+        final File output = createTempFile("gatkcnv.Simple", ".seg");
+        CBSSegmenter.writeSegmentFile("NotASample", SIMPLE_FILE.getAbsolutePath(), output.getAbsolutePath(), false);
+    }
+
+    @Test
+    public void testIsDeterministic() {
+        final File input = new File(inputTestDir, "HCC1143_short.tsv");
+        final File output1 = createTempFile("gatkcnv.HCC1143", ".seg");
+        final File output2 = createTempFile("gatkcnv.HCC1143", ".seg");
+        CBSSegmenter.writeSegmentFile("HCC1143", input.getAbsolutePath(), output1.getAbsolutePath(), false);
+        CBSSegmenter.writeSegmentFile("HCC1143", input.getAbsolutePath(), output2.getAbsolutePath(), false);
+        SegmenterUnitTest.assertEqualSegments(output1, output2);
+    }
+
+    /**
+     * Segments in memory must be ordered by contig in natural order, start at the first target and end at the last,
+     * and ignore targets with non-positive copy ratio.
+     */
+    @Test
+    public void testInMemoryCoverage() {
+        final List<String> contigs = Arrays.asList("10", "2", "X", "1");
+        final List<Target> targets = new ArrayList<>();
+        final List<Double> copyRatios = new ArrayList<>();
+        for (final String contig : contigs) {
+            for (int i = 0; i < 10; i++) {
+                targets.add(new Target(contig + "_" + i, new SimpleInterval(contig, 100 * i + 1, 100 * i + 50)));
+                copyRatios.add(i == 3 ? 0.0 : 1.0);
+            }
+        }
+        final double[][] counts = copyRatios.stream().map(c -> new double[]{c}).toArray(double[][]::new);
+        final ReadCountCollection coverage = new ReadCountCollection(targets, Collections.singletonList("sample"),
+                new Array2DRowRealMatrix(counts));
+        final File output = createTempFile("gatkcnv.memory", ".seg");
+        CBSSegmenter.writeSegmentFile("sample", coverage, output, false);
+
+        final List<ModeledSegment> segments = SegmentUtils.readModeledSegmentsFromSegmentFile(output);
+        Assert.assertEquals(segments.stream().map(ModeledSegment::getContig).collect(Collectors.toList()),
+                Arrays.asList("1", "2", "10", "X"));
+        for (final ModeledSegment segment : segments) {
+            Assert.assertEquals(segment.getStart(), 1);
+            Assert.assertEquals(segment.getEnd(), 950);
+            Assert.assertEquals(segment.getTargetCount(), 9);
+            Assert.assertEquals(segment.getSegmentMeanInCRSpace(), 1.0);
+        }
+    }
+
+    /**
+     * Segment means are floored at R's {@code .Machine$double.eps} in copy-ratio space, as in CBS.R.
+     */
+    @Test
+    public void testSegmentMeanFloor() {
+        final List<Target> targets = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            targets.add(new Target("target_" + i, new SimpleInterval("1", 100 * i + 1, 100 * i + 50)));
+        }
+        final double[][] counts = new double[10][];
+        Arrays.setAll(counts, i -> new double[]{1e-30});
+        final ReadCountCollection coverage = new ReadCountCollection(targets, Collections.singletonList("sample"),
+                new Array2DRowRealMatrix(counts));
+        final File output = createTempFile("gatkcnv.floor", ".seg");
+        CBSSegmenter.writeSegmentFile("sample", coverage, output, false);
+
+        final List<ModeledSegment> segments = SegmentUtils.readModeledSegmentsFromSegmentFile(output);
+        Assert.assertEquals(segments.size(), 1);
+        Assert.assertEquals(segments.get(0).getSegmentMeanInCRSpace(), Math.ulp(1.0), 1e-20);
+    }
+
+    @Test
+    public void testCompareContigs() {
+        final List<String> contigs = Arrays.asList("chrX", "chr10", "chr2", "chr1", "10", "9", "MT", "Y", "X", "GL000192.1", "GL000191.1");
+        final List<String> sorted = new ArrayList<>(contigs);
+        sorted.sort(CBSSegmenter::compareContigs);
+        Assert.assertEquals(sorted, Arrays.asList("9", "10", "GL000191.1", "GL000192.1", "MT", "X", "Y", "chr1", "chr2", "chr10", "chrX"));
+    }
+}
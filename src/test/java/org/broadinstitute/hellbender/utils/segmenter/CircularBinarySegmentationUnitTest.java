@@ -0,0 +1,133 @@
+package org.broadinstitute.hellbender.utils.segmenter;
+
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public final class CircularBinarySegmentationUnitTest extends BaseTest {
+
+    private static final int[] STEP_LENGTHS = {50, 30, 20, 100, 300};
+    private static final double[] STEP_LEVELS = {0, 1, 0, -1, 0};
+
+    private static CircularBinarySegmentation createSegmentation(final RCBSSegmenter.PMethod pmethod,
+                                                                 final RCBSSegmenter.UndoSplits undoSplits) {
+        return new CircularBinarySegmentation(0.01, 10000, pmethod, 2, 25, 200, 0.05, undoSplits, 0.05, 3, 25);
+    }
+
+    /**
+     * Piecewise-constant values plus alternating noise of the given amplitude.
+     */
+    private static double[] steps(final int[] lengths, final double[] levels, final double noise) {
+        final double[] values = new double[Arrays.stream(lengths).sum()];
+        int i = 0;
+        for (int s = 0; s < lengths.length; s++) {
+            for (int j = 0; j < lengths[s]; j++, i++) {
+                values[i] = levels[s] + (i % 2 == 0 ? noise : -noise);
+            }
+        }
+        return values;
+    }
+
+    @Test
+    public void testStepsAreFound() {
+        final double[] values = steps(STEP_LENGTHS, STEP_LEVELS, 0.05);
+        Assert.assertEquals(createSegmentation(RCBSSegmenter.PMethod.HYBRID, RCBSSegmenter.UndoSplits.NONE).segment(values, null, 0), STEP_LENGTHS);
+        Assert.assertEquals(createSegmentation(RCBSSegmenter.PMethod.PERM, RCBSSegmenter.UndoSplits.NONE).segment(values, null, 0), STEP_LENGTHS);
+    }
+
+    @Test
+    public void testWeightedStepsAreFound() {
+        final double[] values = steps(STEP_LENGTHS, STEP_LEVELS, 0.05);
+        final Random random = new Random(3);
+        final double[] weights = new double[values.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = 0.5 + random.nextDouble();
+        }
+        Assert.assertEquals(createSegmentation(RCBSSegmenter.PMethod.HYBRID, RCBSSegmenter.UndoSplits.NONE).segment(values, weights, 0), STEP_LENGTHS);
+    }
+
+    @Test
+    public void testConstantValuesAreNotSplit() {
+        Assert.assertEquals(createSegmentation(RCBSSegmenter.PMethod.HYBRID, RCBSSegmenter.UndoSplits.NONE).segment(new double[40], null, 0), new int[]{40});
+        Assert.assertEquals(createSegmentation(RCBSSegmenter.PMethod.HYBRID, RCBSSegmenter.UndoSplits.NONE).segment(new double[0], null, 0), new int[0]);
+    }
+
+    @Test
+    public void testIsDeterministic() {
+        final Random random = new Random(13);
+        final double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian() + (i > 600 ? 0.3 : 0);
+        }
+        final CircularBinarySegmentation cbs = createSegmentation(RCBSSegmenter.PMethod.HYBRID, RCBSSegmenter.UndoSplits.NONE);
+        Assert.assertEquals(cbs.segment(values, null, 0), createSegmentation(RCBSSegmenter.PMethod.HYBRID, RCBSSegmenter.UndoSplits.NONE).segment(values, null, 0));
+    }
+
+    @Test
+    public void testSegmentMeans() {
+        final double[] values = {1, 2, 3, 10, 20};
+        Assert.assertEquals(CircularBinarySegmentation.segmentMeans(values, null, new int[]{3, 2}), new double[]{2, 15});
+        Assert.assertEquals(CircularBinarySegmentation.segmentMeans(values, new double[]{1, 1, 2, 3, 1}, new int[]{3, 2}), new double[]{2.25, 12.5});
+        Assert.assertEquals(CircularBinarySegmentation.segmentMeans(new double[]{1. / 3}, null, new int[]{1}), new double[]{0.3333});
+        Assert.assertEquals(CircularBinarySegmentation.segmentMeans(new double[]{-100}, null, new int[]{1}), new double[]{-100});
+    }
+
+    @Test
+    public void testTrimmedVariance() {
+        final Random random = new Random(1);
+        final double[] values = new double[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 2 * random.nextGaussian();
+        }
+        Assert.assertEquals(CircularBinarySegmentation.trimmedVariance(values, 0.025), 4, 0.1);
+        Assert.assertEquals(CircularBinarySegmentation.trimmedVariance(new double[]{3}, 0.025), 0.0);
+    }
+
+    @Test
+    public void testSmooth() {
+        final double[] values = steps(new int[]{200}, new double[]{0}, 0.1);
+        values[5] = 10;
+        final double[] smoothed = CircularBinarySegmentation.smooth(new double[][]{values}, 0.025)[0];
+        Assert.assertEquals(smoothed[5], 0.1 + 2 * Math.sqrt(CircularBinarySegmentation.trimmedVariance(values, 0.025)), 1e-10);
+        for (int i = 0; i < values.length; i++) {
+            if (i != 5) {
+                Assert.assertEquals(smoothed[i], values[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testTailProbability() {
+        final double p3 = CircularBinarySegmentation.tailProbability(3, 0.1, 500);
+        final double p4 = CircularBinarySegmentation.tailProbability(4, 0.1, 500);
+        final double p5 = CircularBinarySegmentation.tailProbability(5, 0.1, 500);
+        Assert.assertTrue(p3 < 1 && p3 > p4 && p4 > p5 && p5 > 0);
+        Assert.assertEquals(CircularBinarySegmentation.tailProbability(3, 0.5, 500), 0.0);
+    }
+
+    @Test
+    public void testUndoSplits() {
+        final double[] values = steps(new int[]{10, 10, 10}, new double[]{0, 0.1, 5}, 1);
+        Assert.assertEquals(CircularBinarySegmentation.prune(values, new int[]{10, 10, 10}, 0.05), new int[]{20, 10});
+        Assert.assertEquals(CircularBinarySegmentation.prune(values, new int[]{10, 10, 10}, 0), new int[]{10, 10, 10});
+        Assert.assertEquals(CircularBinarySegmentation.undoSplitsBySD(values, new int[]{10, 10, 10}, 1), new int[]{20, 10});
+        Assert.assertEquals(CircularBinarySegmentation.undoSplitsBySD(values, new int[]{10, 10, 10}, 10), new int[]{30});
+
+        final double[] smallStep = steps(new int[]{50, 50}, new double[]{0, 0.2}, 0.05);
+        Assert.assertEquals(createSegmentation(RCBSSegmenter.PMethod.HYBRID, RCBSSegmenter.UndoSplits.NONE).segment(smallStep, null, 0.1), new int[]{50, 50});
+        Assert.assertEquals(createSegmentation(RCBSSegmenter.PMethod.HYBRID, RCBSSegmenter.UndoSplits.SDUNDO).segment(smallStep, null, 0.1), new int[]{100});
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrongNumberOfWeights() {
+        createSegmentation(RCBSSegmenter.PMethod.HYBRID, RCBSSegmenter.UndoSplits.NONE).segment(new double[10], new double[9], 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadAlpha() {
+        new CircularBinarySegmentation(1.5, 10000, RCBSSegmenter.PMethod.HYBRID, 2, 25, 200, 0.05, RCBSSegmenter.UndoSplits.NONE, 0.05, 3, 25);
+    }
+}
@@ -1,8 +1,10 @@
 package org.broadinstitute.hellbender.utils.segmenter;
 
+import com.google.common.collect.Sets;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.tools.exome.ModeledSegment;
 import org.broadinstitute.hellbender.tools.exome.SegmentUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
 import org.broadinstitute.hellbender.utils.test.BaseTest;
@@ -13,6 +15,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 
 public class SegmenterUnitTest extends BaseTest {
@@ -153,6 +159,41 @@ public class SegmenterUnitTest extends BaseTest {
         Assert.assertEquals(actualSegments, expectedSegments);
     }
 
+    /**
+     * Compares the content of two segmenter output files that may differ in a few borderline splits, such as the
+     * outputs of {@link CBSSegmenter} and {@link RCBSSegmenter}, whose permutation p-values differ.
+     *
+     * <p>
+     *     A breakpoint is the contig and end of a segment.  At most {@code maxDifferentBreakpoints} breakpoints may be
+     *     in only one of the files, and the segments in both files must have the same number of targets and mean.
+     * </p>
+     *
+     * @param actualOutput the actual segmenter output containing file.
+     * @param expectedOutput the expected segmenter output containing file.
+     * @param maxDifferentBreakpoints the maximum number of breakpoints in only one of the files.
+     * @throws AssertionError if the segments differ more than allowed.
+     */
+    public static void assertSimilarSegments(final File actualOutput, final File expectedOutput, final int maxDifferentBreakpoints) {
+        final List<ModeledSegment> actualSegments = SegmentUtils.readModeledSegmentsFromSegmentFile(actualOutput);
+        final List<ModeledSegment> expectedSegments = SegmentUtils.readModeledSegmentsFromSegmentFile(expectedOutput);
+        final Set<String> actualBreakpoints = actualSegments.stream().map(s -> s.getContig() + ":" + s.getEnd()).collect(Collectors.toSet());
+        final Set<String> expectedBreakpoints = expectedSegments.stream().map(s -> s.getContig() + ":" + s.getEnd()).collect(Collectors.toSet());
+        final Set<String> differentBreakpoints = new TreeSet<>(Sets.symmetricDifference(actualBreakpoints, expectedBreakpoints));
+        Assert.assertTrue(differentBreakpoints.size() <= maxDifferentBreakpoints,
+                String.format("%d breakpoints differ (at most %d allowed): %s", differentBreakpoints.size(), maxDifferentBreakpoints, differentBreakpoints));
+
+        final Map<SimpleInterval, ModeledSegment> expectedByInterval = expectedSegments.stream()
+                .collect(Collectors.toMap(ModeledSegment::getSimpleInterval, s -> s));
+        for (final ModeledSegment actual : actualSegments) {
+            final ModeledSegment expected = expectedByInterval.get(actual.getSimpleInterval());
+            if (expected != null) {
+                Assert.assertEquals(actual.getTargetCount(), expected.getTargetCount());
+                Assert.assertEquals(actual.getSegmentMeanInCRSpace(), expected.getSegmentMeanInCRSpace(),
+                        1e-6 * Math.abs(expected.getSegmentMeanInCRSpace()));
+            }
+        }
+    }
+
     /**
      * Compares the content of two segmenter output files and makes sure that they are NOT the same..
      * @param left the actual segmenter output containing file.
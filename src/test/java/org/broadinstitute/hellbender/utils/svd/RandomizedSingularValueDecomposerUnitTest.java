@@ -0,0 +1,136 @@
+package org.broadinstitute.hellbender.utils.svd;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.DiagonalMatrix;
+import org.apache.commons.math3.linear.QRDecomposition;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.RandomGeneratorFactory;
+import org.broadinstitute.hellbender.tools.exome.ReadCountCollection;
+import org.broadinstitute.hellbender.tools.exome.ReadCountCollectionUtils;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+public final class RandomizedSingularValueDecomposerUnitTest extends BaseTest {
+    private static final File TEST_FILE_DIR = new File("src/test/resources/org/broadinstitute/hellbender/tools/exome");
+    private static final File CONTROL_PCOV_FULL_FILE = new File(TEST_FILE_DIR, "create-pon-control-full.pcov");
+
+    private static final double EPSILON = 1e-8;
+
+    /**
+     * Creates a matrix with the given singular values and random singular vectors.
+     */
+    private static RealMatrix createMatrix(final int rows, final int columns, final double[] singularValues, final long seed) {
+        final RandomGenerator rng = RandomGeneratorFactory.createRandomGenerator(new Random(seed));
+        final RealMatrix u = randomOrthonormalColumns(rows, singularValues.length, rng);
+        final RealMatrix v = randomOrthonormalColumns(columns, singularValues.length, rng);
+        return u.multiply(new DiagonalMatrix(singularValues)).multiply(v.transpose());
+    }
+
+    private static RealMatrix randomOrthonormalColumns(final int rows, final int columns, final RandomGenerator rng) {
+        final RealMatrix gaussian = new Array2DRowRealMatrix(rows, columns);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                gaussian.setEntry(i, j, rng.nextGaussian());
+            }
+        }
+        return new QRDecomposition(gaussian).getQ().getSubMatrix(0, rows - 1, 0, columns - 1);
+    }
+
+    @DataProvider(name = "Spectra")
+    public Object[][] spectra() {
+        final double[] lowRank = {100, 50, 20, 10, 5, 4, 3, 2, 1};
+        final double[] geometric = new double[40];
+        for (int i = 0; i < geometric.length; i++) {
+            geometric[i] = Math.pow(0.5, i);
+        }
+        return new Object[][]{
+                {300, 50, lowRank, 5},
+                {50, 300, lowRank, 9},
+                {200, 60, geometric, 5},
+                {200, 60, geometric, 1}
+        };
+    }
+
+    @Test(dataProvider = "Spectra")
+    public void testMatchesFullSVD(final int rows, final int columns, final double[] singularValues, final int numberOfComponents) {
+        final RealMatrix m = createMatrix(rows, columns, singularValues, 13);
+        final SVD full = ApacheSingularValueDecomposer.createSVD(m);
+        final SVD truncated = SVDFactory.createTruncatedSVD(m, numberOfComponents);
+        assertTruncationOf(truncated, full, numberOfComponents, EPSILON);
+    }
+
+    @Test
+    public void testMatchesFullSVDOnPanelOfNormals() throws IOException {
+        final ReadCountCollection rcc = ReadCountCollectionUtils.parse(CONTROL_PCOV_FULL_FILE);
+        final SVD full = OjAlgoSingularValueDecomposer.createSVD(rcc.counts());
+        final SVD truncated = SVDFactory.createTruncatedSVD(rcc.counts(), 5);
+        assertTruncationOf(truncated, full, 5, 1e-5);
+        SVDTestUtils.assertUnitaryMatrix(truncated.getU().transpose().multiply(truncated.getU()));
+    }
+
+    @Test
+    public void testIsDeterministic() {
+        final RealMatrix m = createMatrix(100, 30, new double[]{3, 2, 1, 0.5}, 7);
+        final SVD first = SVDFactory.createTruncatedSVD(m, 3);
+        final SVD second = SVDFactory.createTruncatedSVD(m, 3);
+        Assert.assertEquals(first.getSingularValues(), second.getSingularValues());
+        Assert.assertEquals(first.getU().getData(), second.getU().getData());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTooManyComponents() {
+        SVDFactory.createTruncatedSVD(createMatrix(20, 10, new double[]{1}, 1), 11);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNoComponents() {
+        SVDFactory.createTruncatedSVD(createMatrix(20, 10, new double[]{1}, 1), 0);
+    }
+
+    private static void assertTruncationOf(final SVD truncated, final SVD full, final int k, final double epsilon) {
+        final int rows = full.getU().getRowDimension();
+        final int columns = full.getV().getRowDimension();
+        Assert.assertEquals(truncated.getSingularValues().length, k);
+        Assert.assertEquals(truncated.getU().getRowDimension(), rows);
+        Assert.assertEquals(truncated.getU().getColumnDimension(), k);
+        Assert.assertEquals(truncated.getV().getRowDimension(), columns);
+        Assert.assertEquals(truncated.getV().getColumnDimension(), k);
+        Assert.assertEquals(truncated.getPinv().getRowDimension(), columns);
+        Assert.assertEquals(truncated.getPinv().getColumnDimension(), rows);
+
+        for (int i = 0; i < k; i++) {
+            Assert.assertEquals(truncated.getSingularValues()[i], full.getSingularValues()[i],
+                    epsilon * full.getSingularValues()[0], "Singular value [" + i + "] did not match.");
+        }
+        // singular vectors are only defined up to their sign
+        for (int j = 0; j < k; j++) {
+            for (int i = 0; i < rows; i++) {
+                Assert.assertEquals(Math.abs(truncated.getU().getEntry(i, j)), Math.abs(full.getU().getEntry(i, j)), epsilon, "Failure in U (" + i + ", " + j + ")");
+            }
+            for (int i = 0; i < columns; i++) {
+                Assert.assertEquals(Math.abs(truncated.getV().getEntry(i, j)), Math.abs(full.getV().getEntry(i, j)), epsilon, "Failure in V (" + i + ", " + j + ")");
+            }
+        }
+
+        final RealMatrix fullU = full.getU().getSubMatrix(0, rows - 1, 0, k - 1);
+        final RealMatrix fullV = full.getV().getSubMatrix(0, columns - 1, 0, k - 1);
+        final double[] inverseSingularValues = new double[k];
+        for (int i = 0; i < k; i++) {
+            inverseSingularValues[i] = 1 / full.getSingularValues()[i];
+        }
+        final RealMatrix expectedPinv = fullV.multiply(new DiagonalMatrix(inverseSingularValues)).multiply(fullU.transpose());
+        final double pinvTolerance = epsilon * inverseSingularValues[k - 1];
+        for (int i = 0; i < columns; i++) {
+            for (int j = 0; j < rows; j++) {
+                Assert.assertEquals(truncated.getPinv().getEntry(i, j), expectedPinv.getEntry(i, j), pinvTolerance, "Failure in pinv (" + i + ", " + j + ")");
+            }
+        }
+    }
+}